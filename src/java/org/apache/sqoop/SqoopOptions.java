@@ -345,6 +345,10 @@ public String toString() {
   @StoredAsProperty("import.all_tables.exclude")
   private String allTablesExclude;
 
+  // number of tables to import at once when importing all tables.
+  @StoredAsProperty("import.all_tables.parallelism")
+  private int allTablesParallelism;
+
   // HDFS paths for "old" and "new" datasets in merge tool.
   @StoredAsProperty("merge.old.path") private String mergeOldPath;
   @StoredAsProperty("merge.new.path") private String mergeNewPath;
@@ -2388,6 +2392,20 @@ public String getAllTablesExclude() {
     return this.allTablesExclude;
   }
 
+  /**
+   * Set the number of tables to import at once when doing all table import.
+   */
+  public void setAllTablesParallelism(int parallelism) {
+    this.allTablesParallelism = parallelism;
+  }
+
+  /**
+   * Get the number of tables to import at once when doing all table import.
+   */
+  public int getAllTablesParallelism() {
+    return this.allTablesParallelism;
+  }
+
   /**
    * Set the name of the saved job this SqoopOptions belongs to.
    */
@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.avro;
+
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.sqoop.lib.SqoopRecord;
+
+/**
+ * Converts SqoopRecords into GenericRecords of a fixed schema.
+ *
+ * The Avro field for each record field is looked up once per record class,
+ * and the field values are read positionally with getFieldValues(), so no
+ * field map is built and no field names are mangled per record. The same
+ * GenericRecord is filled in and returned for every call; callers must
+ * write it out before converting the next record.
+ *
+ * Records generated before getFieldValues() was added, or whose fields do
+ * not cover the schema exactly, are converted with
+ * AvroUtil.toGenericRecord() instead.
+ *
+ * This class is not thread-safe.
+ */
+public class AvroRecordConverter {
+
+  public static final Log LOG = LogFactory.getLog(
+      AvroRecordConverter.class.getName());
+
+  private final Schema schema;
+  private final boolean bigDecimalFormatString;
+  private final boolean bigDecimalPadding;
+
+  private final GenericRecord reuse;
+
+  // The record class the fields below were resolved for.
+  private Class<?> resolvedClass;
+  // Avro field for each record field, or null to use the field map.
+  private Schema.Field [] fields;
+  private Object [] values;
+
+  public AvroRecordConverter(Schema schema, boolean bigDecimalFormatString,
+      boolean bigDecimalPadding) {
+    this.schema = schema;
+    this.bigDecimalFormatString = bigDecimalFormatString;
+    this.bigDecimalPadding = bigDecimalPadding;
+    this.reuse = new GenericData.Record(schema);
+  }
+
+  /**
+   * Convert 'record' into a GenericRecord.
+   * @return a GenericRecord holding the fields of 'record'. This instance
+   * is overwritten by the next call.
+   */
+  public GenericRecord toGenericRecord(SqoopRecord record) {
+    if (record.getClass() != resolvedClass) {
+      resolve(record);
+    }
+
+    if (null == fields) {
+      Map<String, Object> fieldMap = record.getFieldMap();
+      return AvroUtil.toGenericRecord(fieldMap, schema,
+          bigDecimalFormatString, bigDecimalPadding);
+    }
+
+    record.getFieldValues(values);
+    for (int i = 0; i < fields.length; i++) {
+      Schema.Field field = fields[i];
+      reuse.put(field.pos(), AvroUtil.toAvro(values[i], field,
+          bigDecimalFormatString, bigDecimalPadding));
+    }
+    return reuse;
+  }
+
+  /** Map the fields of records of this class onto the schema. */
+  private void resolve(SqoopRecord record) {
+    resolvedClass = record.getClass();
+    fields = null;
+    values = null;
+
+    String [] names = record.getFieldNames();
+    if (null == names) {
+      LOG.info("Record class " + resolvedClass.getName()
+          + " has no positional field access; using its field map.");
+      return;
+    }
+    if (names.length != schema.getFields().size()) {
+      LOG.debug("Record has " + names.length + " fields but schema has "
+          + schema.getFields().size() + "; using the field map.");
+      return;
+    }
+
+    Schema.Field [] resolved = new Schema.Field[names.length];
+    boolean [] covered = new boolean[names.length];
+    for (int i = 0; i < names.length; i++) {
+      Schema.Field field = schema.getField(AvroUtil.toAvroColumn(names[i]));
+      if (null == field || covered[field.pos()]) {
+        LOG.debug("No distinct schema field for column " + names[i]
+            + "; using the field map.");
+        return;
+      }
+      covered[field.pos()] = true;
+      resolved[i] = field;
+    }
+
+    fields = resolved;
+    values = new Object[names.length];
+  }
+}
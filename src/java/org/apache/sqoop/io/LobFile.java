@@ -24,6 +24,7 @@
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -34,11 +35,13 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.io.output.CountingOutputStream;
@@ -49,7 +52,9 @@
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.DataInputBuffer;
 import org.apache.hadoop.io.DataOutputBuffer;
@@ -61,6 +66,7 @@
 import org.apache.hadoop.io.compress.CompressorStream;
 import org.apache.hadoop.io.compress.Decompressor;
 import org.apache.hadoop.io.compress.DecompressorStream;
+import org.apache.hadoop.util.StringUtils;
 
 import org.apache.sqoop.util.RandomHash;
 
@@ -90,6 +96,30 @@ public final class LobFile {
   //Value for entryID to write before the IndexTable
   public static final long INDEX_TABLE_ID = -3;
 
+  /**
+   * If true, LobFiles on the local filesystem are memory-mapped when
+   * opened, so that seeking between records is a pointer move rather
+   * than a reopened stream. A mapped file is not checked against its .crc
+   * file, so this is off by default.
+   */
+  public static final String MMAP_LOCAL_KEY = "sqoop.lob.mmap.local";
+  public static final boolean DEFAULT_MMAP_LOCAL = false;
+
+  /**
+   * The number of LobFile indexes to keep in memory, shared among all the
+   * Readers opened in this JVM. Readers of a file whose index is cached
+   * skip reading the IndexTable and any IndexSegments already seen.
+   * Set to 0 to disable the cache.
+   */
+  public static final String INDEX_CACHE_SIZE_KEY =
+      "sqoop.lob.index.cache.size";
+  public static final int DEFAULT_INDEX_CACHE_SIZE = 64;
+
+  // Indexes read by V0Readers, most recently used last. Keyed by
+  // getIndexKey(). Access must be synchronized on the map itself.
+  private static final Map<String, CachedIndex> INDEX_CACHE =
+      new LinkedHashMap<String, CachedIndex>(16, 0.75f, true);
+
   private LobFile() {
   }
 
@@ -103,19 +133,123 @@ private LobFile() {
     if (null == stats || stats.length == 0) {
       throw new IOException("Could not find file: " + p);
     }
-    FSDataInputStream fis = fs.open(p);
+    FSDataInputStream fis = openStream(fs, p, conf);
     DataInputStream dis = new DataInputStream(fis);
     LobFileHeader header = new LobFileHeader(dis);
     int version = header.getVersion();
 
     if (version == 0) {
-      return new V0Reader(p, conf, header, dis, fis, stats[0].getLen());
+      return new V0Reader(p, conf, header, dis, fis, stats[0].getLen(),
+          getIndexKey(p, conf, stats[0], header));
     } else {
       throw new IOException("No reader available for LobFile version "
           + version);
     }
   }
 
+  /**
+   * Open a stream over the LobFile at 'p'. If enabled with MMAP_LOCAL_KEY,
+   * files on the local filesystem are memory-mapped. Note that a mapped
+   * file is not checked against its .crc file, if any.
+   */
+  private static FSDataInputStream openStream(FileSystem fs, Path p,
+      Configuration conf) throws IOException {
+    if (conf.getBoolean(MMAP_LOCAL_KEY, DEFAULT_MMAP_LOCAL)) {
+      File localFile = null;
+      if (fs instanceof LocalFileSystem) {
+        localFile = ((LocalFileSystem) fs).pathToFile(p);
+      } else if (fs instanceof RawLocalFileSystem) {
+        localFile = ((RawLocalFileSystem) fs).pathToFile(p);
+      }
+
+      if (null != localFile) {
+        try {
+          return new FSDataInputStream(new MappedFileInputStream(localFile));
+        } catch (IOException ioe) {
+          LOG.debug("Could not map " + localFile + "; reading it as a "
+              + "stream instead: " + ioe);
+        }
+      }
+    }
+
+    return fs.open(p);
+  }
+
+  /**
+   * @return the key under which the index of a LobFile is cached, or null
+   * if the index cache is disabled. Besides the path, the key includes the
+   * file's length, its modification time and its RecordStartMark, which is
+   * chosen at random for each file; together these make sure that a file
+   * rewritten in place is not read with the index of its predecessor.
+   */
+  private static String getIndexKey(Path p, Configuration conf,
+      FileStatus stat, LobFileHeader header) throws IOException {
+    if (conf.getInt(INDEX_CACHE_SIZE_KEY, DEFAULT_INDEX_CACHE_SIZE) <= 0) {
+      return null;
+    }
+
+    return LobReaderCache.qualify(p, conf) + "#" + stat.getLen() + "#"
+        + stat.getModificationTime() + "#"
+        + StringUtils.byteToHexString(header.getStartMark().getBytes());
+  }
+
+  /**
+   * @return the cached index for the given key, or null if none is cached.
+   */
+  private static CachedIndex getCachedIndex(String key) {
+    if (null == key) {
+      return null;
+    }
+
+    synchronized (INDEX_CACHE) {
+      return INDEX_CACHE.get(key);
+    }
+  }
+
+  /**
+   * Add an IndexTable to the index cache, evicting the least recently used
+   * indexes if the cache is full.
+   * @return the CachedIndex to which the IndexSegments of this file should
+   * be added as they are read, or null if the index cache is disabled.
+   */
+  private static CachedIndex cacheIndex(String key, IndexTable table,
+      Configuration conf) {
+    if (null == key) {
+      return null;
+    }
+
+    int maxSize = conf.getInt(INDEX_CACHE_SIZE_KEY, DEFAULT_INDEX_CACHE_SIZE);
+    CachedIndex index = new CachedIndex(table);
+    synchronized (INDEX_CACHE) {
+      INDEX_CACHE.put(key, index);
+      Iterator<CachedIndex> it = INDEX_CACHE.values().iterator();
+      while (INDEX_CACHE.size() > maxSize && it.hasNext()) {
+        it.next();
+        it.remove();
+      }
+    }
+
+    return index;
+  }
+
+  /**
+   * Remove all entries from the index cache.
+   */
+  static void clearIndexCache() {
+    synchronized (INDEX_CACHE) {
+      INDEX_CACHE.clear();
+    }
+  }
+
+  /**
+   * @return the number of indexes in the index cache.
+   */
+  static int getIndexCacheSize() {
+    synchronized (INDEX_CACHE) {
+      return INDEX_CACHE.size();
+    }
+  }
+
   /**
    * Creates a LobFile Writer.
    * @param p the path to create.
@@ -712,6 +846,26 @@ public IndexSegment(IndexTableEntry tableEntry, DataInput in)
       readFields(in);
     }
 
+    /**
+     * Create an IndexSegment around the record lengths of a segment
+     * that has already been read from a file. 'segmentData' is not
+     * copied, and must not be modified afterward.
+     */
+    public IndexSegment(IndexTableEntry tableEntry, byte [] segmentData) {
+      this.recordLenBytes = new BytesWritable(segmentData);
+      this.outputBuffer = new DataOutputBuffer(10);
+      this.tableEntry = tableEntry;
+      reset();
+    }
+
+    /**
+     * @return a copy of the serialized record lengths in this IndexSegment.
+     */
+    public byte [] getRecordLenBytes() {
+      return Arrays.copyOf(recordLenBytes.getBytes(),
+          recordLenBytes.getLength());
+    }
+
     /**
      * @return the IndexTableEntry describing this IndexSegment in the
      * IndexTable.
@@ -957,6 +1111,38 @@ public Iterator<IndexTableEntry> iterator() {
     }
   }
 
+  /**
+   * The index of a LobFile, held in the index cache. The IndexTable is read
+   * once, when the file is first opened; each IndexSegment is added when a
+   * Reader first reads it. Neither is modified afterward, so both may be
+   * shared by concurrent Readers.
+   */
+  private static class CachedIndex {
+    private final IndexTable indexTable;
+    private final AtomicReferenceArray<byte []> segments;
+
+    public CachedIndex(IndexTable indexTable) {
+      this.indexTable = indexTable;
+      this.segments = new AtomicReferenceArray<byte []>(indexTable.size());
+    }
+
+    public IndexTable getIndexTable() {
+      return indexTable;
+    }
+
+    /**
+     * @return the record lengths of the IndexSegment with the given id,
+     * or null if no Reader has read that segment yet.
+     */
+    public byte [] getSegment(int segmentId) {
+      return segments.get(segmentId);
+    }
+
+    public void setSegment(int segmentId, byte [] segmentData) {
+      segments.set(segmentId, segmentData);
+    }
+  }
+
   /**
    * Reader implementation for LobFile format version 0. Acquire with
    * LobFile.open().
@@ -1026,13 +1212,19 @@ private static class V0Reader extends org.apache.sqoop.io.LobFile.Reader {
     // The IndexTable that provides fast pointers to the IndexSegments.
     private IndexTable indexTable;
 
+    // The key of this file in the index cache, or null if it is disabled.
+    private String indexKey;
+
+    // The shared copy of this file's index, or null if it is not cached.
+    private CachedIndex cachedIndex;
+
     // The path being opened.
     private Path path;
 
     // Users should use LobFile.open() instead of directly calling this.
     V0Reader(Path path, Configuration conf, LobFileHeader header,
-        DataInputStream dis, FSDataInputStream stream, long fileLen)
-        throws IOException {
+        DataInputStream dis, FSDataInputStream stream, long fileLen,
+        String indexKey) throws IOException {
       this.path = LobReaderCache.qualify(path, conf);
       this.conf = conf;
       this.header = header;
@@ -1041,6 +1233,7 @@ private static class V0Reader extends org.apache.sqoop.io.LobFile.Reader {
       this.isAligned = false;
       this.tmpRsmBuf = new byte[RecordStartMark.START_MARK_LENGTH];
       this.fileLen = fileLen;
+      this.indexKey = indexKey;
       LOG.debug("Opening LobFile path: " + path);
       openCodec();
       openIndex();
@@ -1065,9 +1258,35 @@ private void openCodec() throws IOException {
     /**
      * Get the first index segment out of the file; determine
      * where that is by loading the index locator at the end of
-     * the file.
+     * the file. If another Reader has already read the index of
+     * this file, use its copy instead.
      */
     private void openIndex() throws IOException {
+      this.cachedIndex = getCachedIndex(indexKey);
+      if (null != this.cachedIndex) {
+        LOG.debug("Using cached IndexTable for " + path);
+        this.indexTable = this.cachedIndex.getIndexTable();
+      } else {
+        readIndexTable(readIndexTableStart());
+        this.cachedIndex = cacheIndex(indexKey, indexTable, conf);
+      }
+
+      // Set up to read records from the beginning of the file. This
+      // starts with the first IndexSegment.
+      curIndexSegmentId = 0;
+      loadIndexSegment();
+
+      // This has moved the file pointer all over but we don't need to
+      // worry about resetting it now. The next() method will seek the
+      // file pointer to the first record when the user is ready to
+      // consume it.
+    }
+
+    /**
+     * Read the index locator at the end of the file.
+     * @return the offset of the IndexTable from the start of the file.
+     */
+    private long readIndexTableStart() throws IOException {
       // Jump to the end of the file.
       // At the end of the file is a RSM followed by two VLongs;
       // the first of these is the value -2 (one byte) and the
@@ -1101,18 +1320,7 @@ private void openIndex() throws IOException {
       // This will contain the position of the IndexTable.
       long indexTableStart = WritableUtils.readVLong(inBuf);
       LOG.debug("IndexTable begins at " + indexTableStart);
-
-      readIndexTable(indexTableStart);
-
-      // Set up to read records from the beginning of the file. This
-      // starts with the first IndexSegment.
-      curIndexSegmentId = 0;
-      loadIndexSegment();
-
-      // This has moved the file pointer all over but we don't need to
-      // worry about resetting it now. The next() method will seek the
-      // file pointer to the first record when the user is ready to
-      // consume it.
+      return indexTableStart;
     }
 
     /**
@@ -1140,9 +1348,9 @@ private void readNextIndexSegment() throws IOException {
 
     /**
      * Load curIndexSegment with the segment specified by curIndexSegmentId.
-     * The file pointer will be moved to the position after this segment.
-     * If the segment id does not exist, then the curIndexSegment will be
-     * set to null.
+     * Unless the segment is cached, the file pointer will be moved to the
+     * position after this segment. If the segment id does not exist, then
+     * the curIndexSegment will be set to null.
      */
     private void loadIndexSegment() throws IOException {
       if (indexTable.size() <= curIndexSegmentId || curIndexSegmentId < 0) {
@@ -1152,11 +1360,24 @@ private void loadIndexSegment() throws IOException {
         return;
       }
 
-      // Otherwise, seek to the segment and load it.
       IndexTableEntry tableEntry = indexTable.get(curIndexSegmentId);
+      if (null != cachedIndex) {
+        byte [] segmentData = cachedIndex.getSegment(curIndexSegmentId);
+        if (null != segmentData) {
+          this.curIndexSegment = new IndexSegment(tableEntry, segmentData);
+          return;
+        }
+      }
+
+      // Otherwise, seek to the segment and load it.
       long segmentOffset = tableEntry.getSegmentOffset();
       internalSeek(segmentOffset);
       readPositionedIndexSegment();
+
+      if (null != cachedIndex) {
+        cachedIndex.setSegment(curIndexSegmentId,
+            curIndexSegment.getRecordLenBytes());
+      }
     }
 
     /**
@@ -1254,50 +1475,60 @@ public void seek(long pos) throws IOException {
     private void searchForRecord(long start) throws IOException {
       LOG.debug("Looking for the first record at/after offset " + start);
 
-      // Scan through the IndexTable until we find the IndexSegment
-      // that contains the offset.
-      for (int i = 0; i < indexTable.size(); i++) {
-        IndexTableEntry tableEntry = indexTable.get(i);
+      // The last offsets of the IndexSegments ascend through the
+      // IndexTable, so binary search for the first IndexSegment that
+      // contains the offset.
+      int lo = 0;
+      int hi = indexTable.size();
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (indexTable.get(mid).containsOffset(start)) {
+          hi = mid;
+        } else {
+          lo = mid + 1;
+        }
+      }
+
+      if (lo < indexTable.size()) {
+        IndexTableEntry tableEntry = indexTable.get(lo);
         if (LOG.isDebugEnabled()) {
-          LOG.debug("Checking index table entry for range: "
+          LOG.debug("Using index table entry for range: "
               + tableEntry.getFirstIndexOffset() + ", "
               + tableEntry.getLastIndexOffset());
         }
 
-        if (tableEntry.containsOffset(start)) {
-          // Seek to the IndexSegment associated with this tableEntry.
-          curIndexSegmentId = i;
-          loadIndexSegment();
-
-          // Use this index segment. The record index iterator
-          // is at the beginning of the IndexSegment, since we just
-          // read it in.
-          LOG.debug("Found matching index segment.");
-          while (this.curIndexSegment.next()) {
-            long curStart = this.curIndexSegment.getCurRecordStart();
-            if (curStart >= start) {
-              LOG.debug("Found seek target record with offset " + curStart);
-              // This is the first record to meet this criterion.
-              // Rewind the index iterator by one so that the next()
-              // method will do the right thing. next() will also
-              // take care of actually seeking to the correct position
-              // in the file to read the record proper.
-              this.curIndexSegment.rewindOnce();
-              return;
-            }
+        // Seek to the IndexSegment associated with this tableEntry.
+        curIndexSegmentId = lo;
+        loadIndexSegment();
+
+        // Use this index segment. The record index iterator
+        // is at the beginning of the IndexSegment, since we just
+        // read it in.
+        LOG.debug("Found matching index segment.");
+        while (this.curIndexSegment.next()) {
+          long curStart = this.curIndexSegment.getCurRecordStart();
+          if (curStart >= start) {
+            LOG.debug("Found seek target record with offset " + curStart);
+            // This is the first record to meet this criterion.
+            // Rewind the index iterator by one so that the next()
+            // method will do the right thing. next() will also
+            // take care of actually seeking to the correct position
+            // in the file to read the record proper.
+            this.curIndexSegment.rewindOnce();
+            return;
           }
-
-          // If it wasn't actually in this IndexSegment, then we've
-          // got a corrupt IndexTableEntry; the entry represented that
-          // the segment ran longer than it actually does.
-          throw new IOException("IndexTableEntry claims last offset of "
-              + tableEntry.getLastIndexOffset()
-              + " but IndexSegment ends early."
-              + " The IndexTable appears corrupt.");
         }
+
+        // If it wasn't actually in this IndexSegment, then we've
+        // got a corrupt IndexTableEntry; the entry represented that
+        // the segment ran longer than it actually does.
+        throw new IOException("IndexTableEntry claims last offset of "
+            + tableEntry.getLastIndexOffset()
+            + " but IndexSegment ends early."
+            + " The IndexTable appears corrupt.");
       }
 
-      // If we didn't return inside the loop, then we've searched the entire
+      // If we didn't find a segment, then we've searched the entire
       // file and it's not there. Advance the IndexSegment iterator to
       // the end of the road so that next() returns false.
       this.curIndexSegmentId = indexTable.size();
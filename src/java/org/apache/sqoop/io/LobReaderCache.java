@@ -18,31 +18,87 @@
 package org.apache.sqoop.io;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
 import org.apache.sqoop.io.LobFile;
 import org.apache.sqoop.util.FileSystemUtil;
 
 /**
  * A cache of open LobFile.Reader objects.
- * This maps from filenames to the open Reader, if any.  This uses the
+ * This maps from filenames to the open Readers, if any.  This uses the
  * Singleton pattern. While nothing prevents multiple LobReaderCache
- * instances, it is most useful to have a single global cache. This cache is
- * internally synchronized; only one thread can insert or retrieve a reader
- * from the cache at a time.
+ * instances, it is most useful to have a single global cache.
+ *
+ * Each idle reader holds an open input stream and possibly a
+ * decompressor, so the cache is bounded. It keeps at most
+ * sqoop.lob.reader.cache.max.readers idle readers, closing the least
+ * recently recycled one to make room, and closes readers that have been
+ * idle for longer than sqoop.lob.reader.cache.idle.ms. The limits are
+ * taken from the Configuration most recently passed to get().
+ *
+ * The cache is safe for concurrent use. Readers for different paths are
+ * taken and returned under separate locks; several idle readers may be
+ * held for one path.
  */
 public class LobReaderCache {
 
   public static final Log LOG =
       LogFactory.getLog(LobReaderCache.class.getName());
 
-  private Map<Path, LobFile.Reader> readerMap;
+  /** The maximum number of idle readers to keep open. */
+  public static final String MAX_READERS_KEY =
+      "sqoop.lob.reader.cache.max.readers";
+  public static final int DEFAULT_MAX_READERS = 32;
+
+  /** Idle readers older than this many milliseconds are closed. */
+  public static final String MAX_IDLE_MS_KEY =
+      "sqoop.lob.reader.cache.idle.ms";
+  public static final long DEFAULT_MAX_IDLE_MS = 60000;
+
+  /** Counters published by publishCounters(). */
+  public enum Counter {
+    HITS,
+    MISSES,
+    EVICTIONS,
+  }
+
+  /** A reader waiting in the cache, and when it was recycled. */
+  private static final class IdleReader {
+    private final LobFile.Reader reader;
+    private final long recycledAt;
+
+    IdleReader(LobFile.Reader reader, long recycledAt) {
+      this.reader = reader;
+      this.recycledAt = recycledAt;
+    }
+  }
+
+  // Idle readers for each path, oldest first. Each deque is guarded by
+  // its own monitor, and is removed from the map only while empty.
+  private final ConcurrentMap<Path, Deque<IdleReader>> readerMap;
+  private final AtomicInteger idleCount;
+
+  private volatile int maxReaders;
+  private volatile long maxIdleMillis;
+
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private final AtomicLong evictions;
+
+  // Counter values already published to a task.
+  private final long [] published;
 
   private static final LobReaderCache CACHE;
   static {
@@ -78,61 +134,260 @@ public static Path qualify(Path path, Configuration conf)
   public LobFile.Reader get(Path path, Configuration conf)
       throws IOException {
 
-    LobFile.Reader reader = null;
+    maxReaders = conf.getInt(MAX_READERS_KEY, DEFAULT_MAX_READERS);
+    maxIdleMillis = conf.getLong(MAX_IDLE_MS_KEY, DEFAULT_MAX_IDLE_MS);
+
     Path canonicalPath = FileSystemUtil.makeQualified(path, conf);
-    // Look up an entry in the cache.
-    synchronized(this) {
-      reader = readerMap.remove(canonicalPath);
-    }
+    long now = now();
+    while (true) {
+      IdleReader idle = takeNewest(canonicalPath);
+      if (null == idle) {
+        break;
+      }
+      if (idle.reader.isClosed()) {
+        continue;
+      }
+      if (isExpired(idle, now)) {
+        evict(idle);
+        continue;
+      }
 
-    if (null != reader && !reader.isClosed()) {
       // Cache hit. return it.
       LOG.debug("Using cached reader for " + canonicalPath);
-      return reader;
+      hits.incrementAndGet();
+      return idle.reader;
     }
 
     // Cache miss; open the file.
     LOG.debug("No cached reader available for " + canonicalPath);
+    misses.incrementAndGet();
+    evictExpired(now);
     return LobFile.open(path, conf);
   }
 
   /**
-   * Return a reader back to the cache. If there's already a reader for
-   * this path, then the current reader is closed.
+   * Return a reader back to the cache. If the cache is full, the least
+   * recently recycled reader is closed.
    * @param reader the opened reader. Any record-specific subreaders should be
    * closed.
    * @throws IOException if there's an error accessing the path's filesystem.
    */
   public void recycle(LobFile.Reader reader) throws IOException {
+    if (reader.isClosed()) {
+      return;
+    }
+
     Path canonicalPath = reader.getPath();
+    long now = now();
+    LOG.debug("Caching reader for path: " + canonicalPath);
+    while (true) {
+      Deque<IdleReader> readers = readerMap.get(canonicalPath);
+      if (null == readers) {
+        readers = new ArrayDeque<IdleReader>();
+        Deque<IdleReader> existing =
+            readerMap.putIfAbsent(canonicalPath, readers);
+        if (null != existing) {
+          readers = existing;
+        }
+      }
+      synchronized (readers) {
+        if (readerMap.get(canonicalPath) != readers) {
+          continue; // Emptied and removed by another thread; retry.
+        }
+        readers.addLast(new IdleReader(reader, now));
+        idleCount.incrementAndGet();
+        break;
+      }
+    }
 
-    // Check if the cache has a reader for this path already. If not, add this.
-    boolean cached = false;
-    synchronized(this) {
-      if (readerMap.get(canonicalPath) == null) {
-        LOG.debug("Caching reader for path: " + canonicalPath);
-        readerMap.put(canonicalPath, reader);
-        cached = true;
+    evictExpired(now);
+    while (idleCount.get() > maxReaders) {
+      if (!evictOldest()) {
+        break;
       }
     }
+  }
 
-    if (!cached) {
-      LOG.debug("Reader already present for path: " + canonicalPath
-          + "; closing.");
-      reader.close();
+  /**
+   * Close every idle reader.
+   */
+  public void clear() throws IOException {
+    for (Path path : readerMap.keySet()) {
+      IdleReader idle;
+      while (null != (idle = takeNewest(path))) {
+        idle.reader.close();
+      }
     }
   }
 
-  @Override
-  protected synchronized void finalize() throws Throwable {
-    for (LobFile.Reader r : readerMap.values()) {
-      r.close();
+  /**
+   * Add the hits, misses and evictions since the last call to the
+   * counters of 'context'.
+   */
+  public void publishCounters(TaskAttemptContext context) {
+    publish(context, Counter.HITS, hits.get());
+    publish(context, Counter.MISSES, misses.get());
+    publish(context, Counter.EVICTIONS, evictions.get());
+  }
+
+  private void publish(TaskAttemptContext context, Counter counter,
+      long value) {
+    long delta;
+    synchronized (published) {
+      delta = value - published[counter.ordinal()];
+      published[counter.ordinal()] = value;
     }
+    if (delta > 0) {
+      context.getCounter(counter).increment(delta);
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
 
+  /**
+   * @return the number of idle readers held open by the cache.
+   */
+  public int getIdleCount() {
+    return idleCount.get();
+  }
+
+  protected long now() {
+    return System.currentTimeMillis();
+  }
+
+  private boolean isExpired(IdleReader idle, long now) {
+    return now - idle.recycledAt > maxIdleMillis;
+  }
+
+  /**
+   * Remove the most recently recycled reader for 'path' from the cache.
+   * @return the reader, or null if there is none.
+   */
+  private IdleReader takeNewest(Path path) {
+    Deque<IdleReader> readers = readerMap.get(path);
+    if (null == readers) {
+      return null;
+    }
+    synchronized (readers) {
+      IdleReader idle = readers.pollLast();
+      if (readers.isEmpty()) {
+        readerMap.remove(path, readers);
+      }
+      if (null != idle) {
+        idleCount.decrementAndGet();
+      }
+      return idle;
+    }
+  }
+
+  /**
+   * Remove the oldest reader for 'path' if it is 'expected'.
+   * @return true if it was removed.
+   */
+  private boolean takeOldest(Path path, IdleReader expected) {
+    Deque<IdleReader> readers = readerMap.get(path);
+    if (null == readers) {
+      return false;
+    }
+    synchronized (readers) {
+      if (readers.peekFirst() != expected) {
+        return false;
+      }
+      readers.pollFirst();
+      if (readers.isEmpty()) {
+        readerMap.remove(path, readers);
+      }
+      idleCount.decrementAndGet();
+      return true;
+    }
+  }
+
+  /**
+   * Close the least recently recycled reader.
+   * @return false if there were no idle readers.
+   */
+  private boolean evictOldest() {
+    while (true) {
+      Path oldestPath = null;
+      IdleReader oldest = null;
+      for (Map.Entry<Path, Deque<IdleReader>> entry : readerMap.entrySet()) {
+        Deque<IdleReader> readers = entry.getValue();
+        IdleReader first;
+        synchronized (readers) {
+          first = readers.peekFirst();
+        }
+        if (null != first
+            && (null == oldest || first.recycledAt < oldest.recycledAt)) {
+          oldestPath = entry.getKey();
+          oldest = first;
+        }
+      }
+
+      if (null == oldest) {
+        return false;
+      }
+      if (takeOldest(oldestPath, oldest)) {
+        evict(oldest);
+        return true;
+      }
+      // Another thread took it first; look again.
+    }
+  }
+
+  /**
+   * Close every reader that has been idle for too long.
+   */
+  private void evictExpired(long now) {
+    for (Map.Entry<Path, Deque<IdleReader>> entry : readerMap.entrySet()) {
+      while (true) {
+        Deque<IdleReader> readers = entry.getValue();
+        IdleReader first;
+        synchronized (readers) {
+          first = readers.peekFirst();
+        }
+        if (null == first || !isExpired(first, now)
+            || !takeOldest(entry.getKey(), first)) {
+          break;
+        }
+        evict(first);
+      }
+    }
+  }
+
+  private void evict(IdleReader idle) {
+    LOG.debug("Closing cached reader for " + idle.reader.getPath());
+    evictions.incrementAndGet();
+    try {
+      idle.reader.close();
+    } catch (IOException ioe) {
+      LOG.warn("IOException closing cached reader: " + ioe);
+    }
+  }
+
+  @Override
+  protected void finalize() throws Throwable {
+    clear();
     super.finalize();
   }
 
   protected LobReaderCache() {
-    this.readerMap = new TreeMap<Path, LobFile.Reader>();
+    this.readerMap = new ConcurrentHashMap<Path, Deque<IdleReader>>();
+    this.idleCount = new AtomicInteger();
+    this.maxReaders = DEFAULT_MAX_READERS;
+    this.maxIdleMillis = DEFAULT_MAX_IDLE_MS;
+    this.hits = new AtomicLong();
+    this.misses = new AtomicLong();
+    this.evictions = new AtomicLong();
+    this.published = new long[Counter.values().length];
   }
 }
@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+
+/**
+ * A seekable InputStream over a local file that has been mapped into
+ * memory. Seeking only moves a position, and reads copy directly from
+ * the mapping, so random access costs no system calls.
+ *
+ * The file is mapped in regions of up to 1 GB so that files larger than
+ * a single MappedByteBuffer can be read. The file descriptor is closed as
+ * soon as the mapping is made; the mapping itself is released when this
+ * stream is garbage collected. Wrap this in an FSDataInputStream to use
+ * it in place of a stream from FileSystem.open().
+ */
+final class MappedFileInputStream extends InputStream
+    implements Seekable, PositionedReadable {
+
+  private static final long REGION_SIZE = 1L << 30;
+
+  private final MappedByteBuffer [] regions;
+  private final long length;
+  private long pos;
+  private boolean closed;
+
+  MappedFileInputStream(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      this.length = channel.size();
+      int numRegions = (int) ((length + REGION_SIZE - 1) / REGION_SIZE);
+      this.regions = new MappedByteBuffer[numRegions];
+      for (int i = 0; i < numRegions; i++) {
+        long start = i * REGION_SIZE;
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+            Math.min(REGION_SIZE, length - start));
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    checkOpen();
+    if (pos >= length) {
+      return -1;
+    }
+    int b = regions[(int) (pos / REGION_SIZE)].get((int) (pos % REGION_SIZE));
+    pos++;
+    return b & 0xff;
+  }
+
+  @Override
+  public int read(byte [] b, int off, int len) throws IOException {
+    int n = read(pos, b, off, len);
+    if (n > 0) {
+      pos += n;
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    checkOpen();
+    long skipped = Math.max(0, Math.min(n, length - pos));
+    pos += skipped;
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    checkOpen();
+    return (int) Math.min(Integer.MAX_VALUE, length - pos);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+  }
+
+  @Override
+  public void seek(long newPos) throws IOException {
+    checkOpen();
+    if (newPos < 0 || newPos > length) {
+      throw new EOFException("Cannot seek to " + newPos
+          + "; file length is " + length);
+    }
+    pos = newPos;
+  }
+
+  @Override
+  public long getPos() {
+    return pos;
+  }
+
+  @Override
+  public boolean seekToNewSource(long targetPos) {
+    return false;
+  }
+
+  @Override
+  public int read(long position, byte [] buffer, int offset, int len)
+      throws IOException {
+    checkOpen();
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= length) {
+      return -1;
+    }
+
+    int total = 0;
+    while (total < len && position < length) {
+      // Use a duplicate so that concurrent positional reads do not
+      // disturb each other.
+      ByteBuffer region = regions[(int) (position / REGION_SIZE)].duplicate();
+      region.position((int) (position % REGION_SIZE));
+      int n = Math.min(len - total, region.remaining());
+      region.get(buffer, offset + total, n);
+      total += n;
+      position += n;
+    }
+    return total;
+  }
+
+  @Override
+  public void readFully(long position, byte [] buffer, int offset, int len)
+      throws IOException {
+    int n = read(position, buffer, offset, len);
+    if (n < len) {
+      throw new EOFException("Reached end of file at " + length);
+    }
+  }
+
+  @Override
+  public void readFully(long position, byte [] buffer) throws IOException {
+    readFully(position, buffer, 0, buffer.length);
+  }
+}
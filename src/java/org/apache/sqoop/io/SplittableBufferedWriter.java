@@ -59,7 +59,12 @@ public void newLine() throws IOException {
     this.allowSplit();
   }
 
+  /**
+   * Marks the end of a record, at which the underlying stream may roll
+   * over to a new file.
+   */
   public void allowSplit() throws IOException {
+    this.splitOutputStream.endRecord();
     if (alwaysFlush) {
       this.flush();
     }
@@ -17,9 +17,21 @@
  */
 package org.apache.sqoop.io;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.Formatter;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.logging.Log;
@@ -27,19 +39,51 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CodecPool;
 import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
 import org.apache.sqoop.util.FileSystemUtil;
 
 /**
  * An output stream that writes to an underlying filesystem, opening
  * a new file after a specified number of bytes have been written to the
- * current one.
+ * current one. Files may also be rolled after a number of records, or
+ * once they have been open for a given time, so that consumers can pick
+ * up finished files while the import is still running.
+ *
+ * When compressing with more than one thread, the data is cut into
+ * blocks which are compressed concurrently, each as a complete stream of
+ * the codec, and written to the file in order. As with pigz, the result
+ * is a concatenation of compressed streams, which gunzip and Hadoop's
+ * decompressors read as a single stream.
  */
 public class SplittingOutputStream extends OutputStream {
 
   public static final Log LOG = LogFactory.getLog(
       SplittingOutputStream.class.getName());
 
+  /** Roll to a new file after this many records; 0 disables. */
+  public static final String SPLIT_RECORDS_KEY = "sqoop.direct.split.records";
+
+  /**
+   * Roll to a new file once the current one has been open for this many
+   * milliseconds; 0 disables. Checked at record boundaries only.
+   */
+  public static final String SPLIT_MILLIS_KEY = "sqoop.direct.split.millis";
+
+  /** The number of threads to compress output with. */
+  public static final String COMPRESS_THREADS_KEY =
+      "sqoop.direct.compress.threads";
+  public static final int DEFAULT_COMPRESS_THREADS = 1;
+
+  /** The size of each block compressed by a compression thread. */
+  public static final String COMPRESS_BLOCK_SIZE_KEY =
+      "sqoop.direct.compress.block.size";
+  public static final int DEFAULT_COMPRESS_BLOCK_SIZE = 1024 * 1024;
+
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
   private OutputStream writeStream;
   private CountingOutputStream countingFilterStream;
   private Configuration conf;
@@ -49,6 +93,21 @@ public class SplittingOutputStream extends OutputStream {
   private CompressionCodec codec;
   private int fileNum;
 
+  private long cutoffRecords;
+  private long cutoffMillis;
+  private long fileRecords;
+  private long fileOpenTime;
+
+  // Used only for parallel compression. Uncompressed data is gathered in
+  // 'block'; full blocks are compressed by compressPool, and the results
+  // are written to writeStream in the order in which they were queued.
+  private ExecutorService compressPool;
+  private int maxPending;
+  private byte [] block;
+  private int blockLen;
+  private Queue<Future<byte []>> pending;
+  private Queue<byte []> freeBlocks;
+
   /**
    * Create a new SplittingOutputStream.
    * @param conf the Configuration to use to interface with HDFS
@@ -73,10 +132,76 @@ public SplittingOutputStream(final Configuration conf, final Path destDir,
     }
     this.codec = codec;
     this.fileNum = 0;
+    this.cutoffRecords = Math.max(0, conf.getLong(SPLIT_RECORDS_KEY, 0));
+    this.cutoffMillis = Math.max(0, conf.getLong(SPLIT_MILLIS_KEY, 0));
+
+    int numThreads = conf.getInt(COMPRESS_THREADS_KEY,
+        DEFAULT_COMPRESS_THREADS);
+    if (codec != null && numThreads > 1) {
+      LOG.debug("Compressing output with " + numThreads + " threads");
+      this.compressPool = Executors.newFixedThreadPool(numThreads,
+          new CompressThreadFactory());
+      this.maxPending = 2 * numThreads;
+      this.block = new byte[Math.max(1, conf.getInt(COMPRESS_BLOCK_SIZE_KEY,
+          DEFAULT_COMPRESS_BLOCK_SIZE))];
+      this.pending = new ArrayDeque<Future<byte []>>();
+      this.freeBlocks = new ConcurrentLinkedQueue<byte []>();
+    }
 
     openNextFile();
   }
 
+  /**
+   * Names compression threads after this stream and makes them daemons,
+   * so that a stream which is never closed does not keep the JVM alive.
+   */
+  private static class CompressThreadFactory implements ThreadFactory {
+    private final int poolId = POOL_COUNT.incrementAndGet();
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "SplittingOutputStream-" + poolId
+          + "-compress-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+
+  /**
+   * Compresses one block as a complete stream of the codec.
+   */
+  private class CompressTask implements Callable<byte []> {
+    private final byte [] data;
+    private final int len;
+
+    CompressTask(byte [] data, int len) {
+      this.data = data;
+      this.len = len;
+    }
+
+    @Override
+    public byte [] call() throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(len / 2 + 64);
+      Compressor compressor = CodecPool.getCompressor(codec);
+      try {
+        CompressionOutputStream compressOut = null == compressor
+            ? codec.createOutputStream(out)
+            : codec.createOutputStream(out, compressor);
+        compressOut.write(data, 0, len);
+        compressOut.finish();
+        compressOut.close();
+      } finally {
+        if (null != compressor) {
+          CodecPool.returnCompressor(compressor);
+        }
+        freeBlocks.offer(data);
+      }
+
+      return out.toByteArray();
+    }
+  }
+
   /** Initialize the OutputStream to the next file to write to.
    */
   private void openNextFile() throws IOException {
@@ -100,8 +225,13 @@ private void openNextFile() throws IOException {
 
     // Count how many actual bytes hit HDFS.
     this.countingFilterStream = new CountingOutputStream(fsOut);
+    this.fileRecords = 0;
+    this.fileOpenTime = now();
 
-    if (codec != null) {
+    if (compressPool != null) {
+      // Blocks are compressed before they reach writeStream.
+      this.writeStream = this.countingFilterStream;
+    } else if (codec != null) {
       // Wrap that in a compressing stream.
       this.writeStream = codec.createOutputStream(this.countingFilterStream);
     } else {
@@ -111,11 +241,38 @@ private void openNextFile() throws IOException {
   }
 
   /**
-   * @return true if allowSplit() would actually cause a split.
+   * @return the current time in milliseconds. Overridden in tests.
+   */
+  protected long now() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * @return true if allowSplit() would actually cause a split. With
+   * parallel compression, the byte count covers only the blocks that have
+   * been written out so far, so files may run over the cutoff by up to a
+   * few blocks.
    */
   public boolean wouldSplit() {
-    return this.cutoffBytes > 0
-        && this.countingFilterStream.getByteCount() >= this.cutoffBytes;
+    if (this.cutoffBytes > 0
+        && this.countingFilterStream.getByteCount() >= this.cutoffBytes) {
+      return true;
+    }
+
+    if (this.cutoffRecords > 0 && this.fileRecords >= this.cutoffRecords) {
+      return true;
+    }
+
+    return this.cutoffMillis > 0
+        && now() - this.fileOpenTime >= this.cutoffMillis;
+  }
+
+  /**
+   * Marks the end of a record in the current file, for the purposes of
+   * the record-count cutoff.
+   */
+  public void endRecord() {
+    this.fileRecords++;
   }
 
   /** If we've written more to the disk than the user's split size,
@@ -124,12 +281,50 @@ public boolean wouldSplit() {
   private void checkForNextFile() throws IOException {
     if (wouldSplit()) {
       LOG.debug("Starting new split");
-      this.writeStream.flush();
+      flush();
       this.writeStream.close();
       openNextFile();
     }
   }
 
+  /**
+   * Queue the data gathered in 'block' for compression, and write out
+   * blocks which have finished until no more than maxPending remain.
+   */
+  private void submitBlock() throws IOException {
+    if (blockLen > 0) {
+      pending.add(compressPool.submit(new CompressTask(block, blockLen)));
+      byte [] next = freeBlocks.poll();
+      this.block = null != next ? next : new byte[block.length];
+      this.blockLen = 0;
+    }
+
+    writePending(maxPending);
+  }
+
+  /**
+   * Write compressed blocks to the file, in order, until no more than
+   * 'remaining' blocks are still pending. Waits for blocks which have not
+   * finished compressing.
+   */
+  private void writePending(int remaining) throws IOException {
+    while (pending.size() > remaining) {
+      try {
+        writeStream.write(pending.remove().get());
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+            "Interrupted waiting for compression");
+      } catch (ExecutionException ee) {
+        Throwable cause = ee.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new IOException("Could not compress output block", cause);
+      }
+    }
+  }
+
   /** Defines a point in the stream when it is acceptable to split to a new
       file; e.g., the end of a record.
     */
@@ -138,22 +333,59 @@ public void allowSplit() throws IOException {
   }
 
   public void close() throws IOException {
-    this.writeStream.close();
+    try {
+      if (compressPool != null) {
+        try {
+          submitBlock();
+          writePending(0);
+        } finally {
+          compressPool.shutdownNow();
+        }
+      }
+    } finally {
+      this.writeStream.close();
+    }
   }
 
   public void flush() throws IOException {
+    if (compressPool != null) {
+      submitBlock();
+      writePending(0);
+    }
     this.writeStream.flush();
   }
 
   public void write(byte [] b) throws IOException {
-    this.writeStream.write(b);
+    write(b, 0, b.length);
   }
 
   public void write(byte [] b, int off, int len) throws IOException {
-    this.writeStream.write(b, off, len);
+    if (compressPool == null) {
+      this.writeStream.write(b, off, len);
+      return;
+    }
+
+    while (len > 0) {
+      int n = Math.min(len, block.length - blockLen);
+      System.arraycopy(b, off, block, blockLen, n);
+      blockLen += n;
+      off += n;
+      len -= n;
+      if (blockLen == block.length) {
+        submitBlock();
+      }
+    }
   }
 
   public void write(int b) throws IOException {
-    this.writeStream.write(b);
+    if (compressPool == null) {
+      this.writeStream.write(b);
+      return;
+    }
+
+    block[blockLen++] = (byte) b;
+    if (blockLen == block.length) {
+      submitBlock();
+    }
   }
 }
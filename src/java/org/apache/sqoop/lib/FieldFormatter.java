@@ -17,6 +17,7 @@
  */
 package org.apache.sqoop.lib;
 
+import java.io.IOException;
 import java.util.regex.Pattern;
 
 /**
@@ -139,5 +140,81 @@ public static String escapeAndEnclose(String str, DelimiterSet delimiters) {
     }
   }
 
+  /**
+   * Appends the escaped, enclosed form of 'str' to 'out', exactly as
+   * escapeAndEnclose() would format it, but in a single pass and without
+   * creating intermediate Strings.
+   *
+   * @param out - The destination for the formatted field.
+   * @param str - The user's string to escape and enclose.
+   * @param delimiters - The DelimiterSet to use identifying the escape and
+   * enclose semantics.
+   */
+  public static void appendEscapedAndEnclosed(Appendable out, String str,
+      DelimiterSet delimiters) throws IOException {
+
+    if (null == str) {
+      // Same as appending the null returned by escapeAndEnclose().
+      out.append("null");
+      return;
+    }
+
+    char escape = delimiters.getEscapedBy();
+    char enclose = delimiters.getEnclosedBy();
+    char fields = delimiters.getFieldsTerminatedBy();
+    char lines = delimiters.getLinesTerminatedBy();
+    boolean escapingLegal = DelimiterSet.NULL_CHAR != escape;
+    boolean enclosingLegal = DelimiterSet.NULL_CHAR != enclose;
+
+    // escapeAndEnclose() performs its substitutions one after the other, so
+    // when the characters involved overlap, later substitutions also apply
+    // to the output of earlier ones. Leave those cases to it.
+    if (escapingLegal && (enclosingLegal ? escape == enclose
+        : (escape == fields || escape == lines || fields == lines))) {
+      out.append(escapeAndEnclose(str, delimiters));
+      return;
+    }
+
+    int len = str.length();
+    if (!enclosingLegal) {
+      if (!escapingLegal) {
+        out.append(str);
+        return;
+      }
+
+      for (int i = 0; i < len; i++) {
+        char c = str.charAt(i);
+        if (c == escape || c == fields || c == lines) {
+          out.append(escape);
+        }
+        out.append(c);
+      }
+      return;
+    }
+
+    boolean actuallyDoEnclose = delimiters.isEncloseRequired()
+        || str.indexOf(fields) != -1 || str.indexOf(lines) != -1;
+
+    if (actuallyDoEnclose) {
+      out.append(enclose);
+    }
+
+    if (escapingLegal) {
+      for (int i = 0; i < len; i++) {
+        char c = str.charAt(i);
+        if (c == escape || c == enclose) {
+          out.append(escape);
+        }
+        out.append(c);
+      }
+    } else {
+      out.append(str);
+    }
+
+    if (actuallyDoEnclose) {
+      out.append(enclose);
+    }
+  }
+
   private FieldFormatter() { }
 }
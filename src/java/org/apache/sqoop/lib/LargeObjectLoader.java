@@ -37,6 +37,7 @@
 import org.apache.hadoop.fs.Path;
 
 import org.apache.sqoop.io.LobFile;
+import org.apache.sqoop.util.PhaseMetrics;
 import org.apache.sqoop.util.TaskId;
 
 /**
@@ -59,6 +60,24 @@ public class LargeObjectLoader implements Closeable  {
   public static final String MAX_INLINE_LOB_LEN_KEY =
       "sqoop.inline.lob.length.max";
 
+  /**
+   * Number of LobFiles of each kind (BLOB, CLOB) to write at once, each on
+   * its own background thread. Zero writes LOBs on the calling thread.
+   */
+  public static final String LOB_WRITER_THREADS_KEY =
+      "sqoop.lob.writer.threads";
+  public static final int DEFAULT_LOB_WRITER_THREADS = 1;
+
+  /** Number of buffers for LOB data waiting to be written, per kind. */
+  public static final String LOB_WRITER_BUFFERS_KEY =
+      "sqoop.lob.writer.buffers";
+  public static final int DEFAULT_LOB_WRITER_BUFFERS = 16;
+
+  /** Size of each LOB write buffer, in bytes (BLOBs) or chars (CLOBs). */
+  public static final String LOB_WRITER_BUFFER_SIZE_KEY =
+      "sqoop.lob.writer.buffer.size";
+  public static final int DEFAULT_LOB_WRITER_BUFFER_SIZE = 64 * 1024;
+
   private Configuration conf;
   private Path workPath;
   private FileSystem fs;
@@ -67,6 +86,10 @@ public class LargeObjectLoader implements Closeable  {
   private LobFile.Writer curBlobWriter;
   private LobFile.Writer curClobWriter;
 
+  // Background writers for BLOBs / CLOBs, if enabled.
+  private LobWriterPool blobWriterPool;
+  private LobWriterPool clobWriterPool;
+
   // Counter that is used with the current task attempt id to
   // generate unique LOB file names.
   private long nextLobFileId = 0;
@@ -92,15 +115,49 @@ protected synchronized void finalize() throws Throwable {
 
   @Override
   public void close() throws IOException {
+    // Let the background writers drain before closing anything else.
+    // Close everything even if something fails, and rethrow the first
+    // failure afterwards.
+    IOException failure = null;
+    if (null != blobWriterPool) {
+      try {
+        blobWriterPool.close();
+      } catch (IOException ioe) {
+        failure = ioe;
+      }
+      blobWriterPool = null;
+    }
+
+    if (null != clobWriterPool) {
+      try {
+        clobWriterPool.close();
+      } catch (IOException ioe) {
+        failure = null == failure ? ioe : failure;
+      }
+      clobWriterPool = null;
+    }
+
     if (null != curBlobWriter) {
-      curBlobWriter.close();
+      try {
+        curBlobWriter.close();
+      } catch (IOException ioe) {
+        failure = null == failure ? ioe : failure;
+      }
       curBlobWriter = null;
     }
 
     if (null != curClobWriter) {
-      curClobWriter.close();
+      try {
+        curClobWriter.close();
+      } catch (IOException ioe) {
+        failure = null == failure ? ioe : failure;
+      }
       curClobWriter = null;
     }
+
+    if (null != failure) {
+      throw failure;
+    }
   }
 
   /**
@@ -152,6 +209,41 @@ private LobFile.Writer getClobWriter() throws IOException {
     return this.curClobWriter;
   }
 
+  /**
+   * @return the number of LobFiles of each kind to write in the
+   * background, or 0 to write LOBs on the calling thread.
+   */
+  private int getLobWriterThreads() {
+    return conf.getInt(LOB_WRITER_THREADS_KEY, DEFAULT_LOB_WRITER_THREADS);
+  }
+
+  /**
+   * @return the background writer pool for BLOBs or CLOBs, creating one if
+   * necessary.
+   */
+  private LobWriterPool getWriterPool(boolean isCharData) {
+    LobWriterPool pool = isCharData ? clobWriterPool : blobWriterPool;
+    if (null == pool) {
+      int numBuffers = Math.max(1,
+          conf.getInt(LOB_WRITER_BUFFERS_KEY, DEFAULT_LOB_WRITER_BUFFERS));
+      int bufferSize = Math.max(1, conf.getInt(LOB_WRITER_BUFFER_SIZE_KEY,
+          DEFAULT_LOB_WRITER_BUFFER_SIZE));
+      pool = new LobWriterPool(conf, isCharData, getLobWriterThreads(),
+          numBuffers, bufferSize) {
+        @Override
+        protected Path getNextLobFilePath() throws IOException {
+          return LargeObjectLoader.this.getNextLobFilePath();
+        }
+      };
+      if (isCharData) {
+        clobWriterPool = pool;
+      } else {
+        blobWriterPool = pool;
+      }
+    }
+    return pool;
+  }
+
   /**
    * Returns the path being written to by a given LobFile.Writer, relative
    * to the working directory of this LargeObjectLoader.
@@ -159,8 +251,16 @@ private LobFile.Writer getClobWriter() throws IOException {
    * @return the path this is writing to, relative to the current working dir.
    */
   private String getRelativePath(LobFile.Writer w) {
-    Path writerPath = w.getPath();
+    return getRelativePath(w.getPath());
+  }
 
+  /**
+   * Returns a LobFile path relative to the working directory of this
+   * LargeObjectLoader.
+   * @param writerPath the path of a LobFile.
+   * @return the path relative to the current working dir.
+   */
+  private String getRelativePath(Path writerPath) {
     String writerPathStr = writerPath.toString();
     String workPathStr = workPath.toString();
     if (!workPathStr.endsWith(File.separator)) {
@@ -230,6 +330,17 @@ private void copyAll(InputStream input, OutputStream output)
    */
   public org.apache.sqoop.lib.BlobRef readBlobRef(int colNum, ResultSet r)
       throws IOException, InterruptedException, SQLException {
+    PhaseMetrics metrics = PhaseMetrics.getMetrics();
+    long start = metrics.start();
+    try {
+      return loadBlobRef(colNum, r);
+    } finally {
+      metrics.end(PhaseMetrics.Phase.LOB_LOAD, start);
+    }
+  }
+
+  private org.apache.sqoop.lib.BlobRef loadBlobRef(int colNum, ResultSet r)
+      throws IOException, InterruptedException, SQLException {
 
     long maxInlineLobLen = conf.getLong(
         MAX_INLINE_LOB_LEN_KEY,
@@ -238,6 +349,19 @@ public org.apache.sqoop.lib.BlobRef readBlobRef(int colNum, ResultSet r)
     Blob b = r.getBlob(colNum);
     if (null == b) {
       return null;
+    } else if (b.length() > maxInlineLobLen && getLobWriterThreads() > 0) {
+      // Stream very large BLOBs to separate files in the background.
+      long len = b.length();
+      InputStream is = b.getBinaryStream();
+      LobWriterPool.Location location;
+      try {
+        location = getWriterPool(false).writeBlob(is, len);
+      } finally {
+        is.close();
+      }
+
+      return new org.apache.sqoop.lib.BlobRef(
+          getRelativePath(location.getPath()), location.getOffset(), len);
     } else if (b.length() > maxInlineLobLen) {
       // Deserialize very large BLOBs into separate files.
       long len = b.length();
@@ -284,6 +408,17 @@ public org.apache.sqoop.lib.BlobRef readBlobRef(int colNum, ResultSet r)
    */
   public org.apache.sqoop.lib.ClobRef readClobRef(int colNum, ResultSet r)
       throws IOException, InterruptedException, SQLException {
+    PhaseMetrics metrics = PhaseMetrics.getMetrics();
+    long start = metrics.start();
+    try {
+      return loadClobRef(colNum, r);
+    } finally {
+      metrics.end(PhaseMetrics.Phase.LOB_LOAD, start);
+    }
+  }
+
+  private org.apache.sqoop.lib.ClobRef loadClobRef(int colNum, ResultSet r)
+      throws IOException, InterruptedException, SQLException {
 
     long maxInlineLobLen = conf.getLong(
         MAX_INLINE_LOB_LEN_KEY,
@@ -292,6 +427,19 @@ public org.apache.sqoop.lib.ClobRef readClobRef(int colNum, ResultSet r)
     Clob c = r.getClob(colNum);
     if (null == c) {
       return null;
+    } else if (c.length() > maxInlineLobLen && getLobWriterThreads() > 0) {
+      // Stream large CLOBs to separate files in the background.
+      long len = c.length();
+      Reader reader = c.getCharacterStream();
+      LobWriterPool.Location location;
+      try {
+        location = getWriterPool(true).writeClob(reader, len);
+      } finally {
+        reader.close();
+      }
+
+      return new org.apache.sqoop.lib.ClobRef(
+          getRelativePath(location.getPath()), location.getOffset(), len);
     } else if (c.length() > maxInlineLobLen) {
       // Deserialize large CLOB into separate file.
       long len = c.length();
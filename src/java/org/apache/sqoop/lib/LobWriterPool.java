@@ -0,0 +1,407 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.lib;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import org.apache.sqoop.io.LobFile;
+
+/**
+ * Writes large objects to LobFiles on background threads, so that the
+ * caller can go on reading rows while earlier LOBs are still being
+ * written out.
+ *
+ * The data of each LOB is still read on the calling thread, because JDBC
+ * LOB handles are tied to the current row and connection. The caller
+ * copies the data into pooled chunks and hands them to one of several
+ * sinks. Each sink owns one LobFile and one thread that writes chunks to
+ * it. A LOB can only start on an idle sink, because its offset in the
+ * file is not known until the previous record there is finished. When
+ * every sink is busy, or every chunk is in flight, the caller blocks.
+ *
+ * An error on any sink thread fails the pool; it is reported by the next
+ * write, or by close(). If the caller cannot read all of a LOB, the record
+ * is not finished, and the pool fails too: a LobFile record cannot be
+ * withdrawn once it has started.
+ *
+ * This class is not thread-safe; one thread must make all calls.
+ */
+abstract class LobWriterPool implements Closeable {
+
+  public static final Log LOG = LogFactory.getLog(
+      LobWriterPool.class.getName());
+
+  /** Where a LOB was written. */
+  static final class Location {
+    private final Path path;
+    private final long offset;
+
+    Location(Path path, long offset) {
+      this.path = path;
+      this.offset = offset;
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    public long getOffset() {
+      return offset;
+    }
+  }
+
+  /** A buffer of LOB data on its way to a sink. */
+  private static final class Chunk {
+    private final byte [] bytes;
+    private final char [] chars;
+    private int len;
+
+    Chunk(byte [] bytes, char [] chars) {
+      this.bytes = bytes;
+      this.chars = chars;
+    }
+  }
+
+  // Queued after the last chunk of a record.
+  private static final Chunk END_OF_RECORD = new Chunk(null, null);
+  // Queued instead of END_OF_RECORD if the record could not be read.
+  private static final Chunk DISCARD_RECORD = new Chunk(null, null);
+  // Queued to stop a sink's thread.
+  private static final Chunk SHUTDOWN = new Chunk(null, null);
+
+  private final Configuration conf;
+  private final boolean isCharData;
+  private final int maxSinks;
+
+  private final BlockingQueue<Chunk> freeChunks;
+  private final List<Sink> sinks;
+  private final BlockingQueue<Sink> idleSinks;
+
+  // The first error on any sink.
+  private volatile IOException error;
+
+  /**
+   * @param conf the Configuration used to create LobFiles.
+   * @param isCharData true to write CLOBs, false to write BLOBs.
+   * @param maxSinks the number of LobFiles to write at once.
+   * @param numChunks the number of chunks to buffer across all sinks.
+   * @param chunkSize the size of each chunk, in bytes or chars.
+   */
+  LobWriterPool(Configuration conf, boolean isCharData, int maxSinks,
+      int numChunks, int chunkSize) {
+    this.conf = conf;
+    this.isCharData = isCharData;
+    this.maxSinks = maxSinks;
+    this.freeChunks = new ArrayBlockingQueue<Chunk>(numChunks);
+    for (int i = 0; i < numChunks; i++) {
+      if (isCharData) {
+        freeChunks.add(new Chunk(null, new char[chunkSize]));
+      } else {
+        freeChunks.add(new Chunk(new byte[chunkSize], null));
+      }
+    }
+    this.sinks = new ArrayList<Sink>();
+    this.idleSinks = new ArrayBlockingQueue<Sink>(maxSinks);
+  }
+
+  /**
+   * @return the path of a new LobFile for a sink to write to.
+   */
+  protected abstract Path getNextLobFilePath() throws IOException;
+
+  /**
+   * Write a BLOB record holding the contents of 'in'. Returns once all of
+   * the data has been read from 'in'; it may not have been written yet.
+   * @param in the BLOB data.
+   * @param len the claimed length of the record.
+   * @return where the record begins.
+   */
+  public Location writeBlob(InputStream in, long len)
+      throws IOException, InterruptedException {
+    Sink sink = acquireSink();
+    long offset = startRecord(sink, len);
+    boolean complete = false;
+    try {
+      while (true) {
+        Chunk chunk = freeChunks.take();
+        int bytesRead;
+        try {
+          bytesRead = in.read(chunk.bytes, 0, chunk.bytes.length);
+        } catch (IOException ioe) {
+          freeChunks.add(chunk);
+          throw ioe;
+        }
+        if (-1 == bytesRead) {
+          freeChunks.add(chunk);
+          break;
+        }
+        chunk.len = bytesRead;
+        sink.queue.put(chunk);
+      }
+      complete = true;
+    } finally {
+      sink.queue.put(complete ? END_OF_RECORD : DISCARD_RECORD);
+    }
+    return new Location(sink.writer.getPath(), offset);
+  }
+
+  /**
+   * Write a CLOB record holding the contents of 'in'. Returns once all of
+   * the data has been read from 'in'; it may not have been written yet.
+   * @param in the CLOB data.
+   * @param len the claimed length of the record.
+   * @return where the record begins.
+   */
+  public Location writeClob(Reader in, long len)
+      throws IOException, InterruptedException {
+    Sink sink = acquireSink();
+    long offset = startRecord(sink, len);
+    boolean complete = false;
+    try {
+      while (true) {
+        Chunk chunk = freeChunks.take();
+        int charsRead;
+        try {
+          charsRead = in.read(chunk.chars, 0, chunk.chars.length);
+        } catch (IOException ioe) {
+          freeChunks.add(chunk);
+          throw ioe;
+        }
+        if (-1 == charsRead) {
+          freeChunks.add(chunk);
+          break;
+        }
+        chunk.len = charsRead;
+        sink.queue.put(chunk);
+      }
+      complete = true;
+    } finally {
+      sink.queue.put(complete ? END_OF_RECORD : DISCARD_RECORD);
+    }
+    return new Location(sink.writer.getPath(), offset);
+  }
+
+  /**
+   * @return an idle sink, starting a new one if there is room, or else
+   * waiting for a busy one to finish.
+   */
+  private Sink acquireSink() throws IOException, InterruptedException {
+    checkError();
+    Sink sink = idleSinks.poll();
+    if (null == sink && sinks.size() < maxSinks) {
+      sink = new Sink(sinks.size());
+      sinks.add(sink);
+      sink.thread.start();
+    }
+    if (null == sink) {
+      sink = idleSinks.take();
+    }
+    if (null != error) {
+      idleSinks.add(sink);
+      checkError();
+    }
+    return sink;
+  }
+
+  /** Rethrow the first error on any sink. */
+  private void checkError() throws IOException {
+    IOException e = error;
+    if (null != e) {
+      throw new IOException("Error writing LOB file", e);
+    }
+  }
+
+  /** Record an error on a sink thread, keeping the first one. */
+  private synchronized void setError(Throwable t) {
+    LOG.error("Error writing LOB file", t);
+    if (null == error) {
+      error = (t instanceof IOException) ? (IOException) t
+          : new IOException(t);
+    }
+  }
+
+  /**
+   * Begin a new record on an idle sink. The sink's thread is waiting for
+   * chunks, so the writer is safe to use from this thread.
+   * @return the offset of the new record.
+   */
+  private long startRecord(Sink sink, long len) throws IOException {
+    try {
+      if (null == sink.writer) {
+        sink.writer = LobFile.create(getNextLobFilePath(), conf, isCharData);
+      }
+      long offset = sink.writer.tell();
+      if (isCharData) {
+        sink.charOut = sink.writer.writeClobRecord(len);
+      } else {
+        sink.byteOut = sink.writer.writeBlobRecord(len);
+      }
+      return offset;
+    } catch (IOException ioe) {
+      idleSinks.add(sink);
+      throw ioe;
+    }
+  }
+
+  /**
+   * Wait for all queued LOBs to be written, then close every LobFile.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      for (int i = 0; i < sinks.size(); i++) {
+        idleSinks.take();
+      }
+      for (Sink sink : sinks) {
+        sink.queue.put(SHUTDOWN);
+        sink.thread.join();
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          "Interrupted waiting for LOB writers");
+    }
+
+    IOException firstError = error;
+    for (Sink sink : sinks) {
+      if (null != sink.writer) {
+        try {
+          sink.writer.close();
+        } catch (IOException ioe) {
+          if (null == firstError) {
+            firstError = ioe;
+          }
+        }
+        sink.writer = null;
+      }
+    }
+    sinks.clear();
+
+    if (null != firstError) {
+      throw new IOException("Error writing LOB file", firstError);
+    }
+  }
+
+  /**
+   * One LobFile and the thread that writes to it.
+   */
+  private final class Sink implements Runnable {
+    // Chunks are bounded by freeChunks, so this queue needs no bound.
+    private final BlockingQueue<Chunk> queue;
+    private final Thread thread;
+
+    // Set up by startRecord() while the sink is idle.
+    private LobFile.Writer writer;
+    private OutputStream byteOut;
+    private Writer charOut;
+
+    Sink(int id) {
+      this.queue = new LinkedBlockingQueue<Chunk>();
+      this.thread = new Thread(this, "LOB writer " + id);
+      this.thread.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        Chunk chunk;
+        try {
+          chunk = queue.take();
+        } catch (InterruptedException ie) {
+          setError(new InterruptedIOException(
+              "Interrupted while writing LOB file"));
+          continue;
+        }
+
+        if (SHUTDOWN == chunk) {
+          return;
+        } else if (END_OF_RECORD == chunk || DISCARD_RECORD == chunk) {
+          // Always go back to the idle sinks, or the caller would wait
+          // for this one forever.
+          try {
+            finishRecord(END_OF_RECORD == chunk);
+          } catch (Throwable t) {
+            setError(t);
+          } finally {
+            idleSinks.add(this);
+          }
+        } else {
+          try {
+            writeChunk(chunk);
+          } catch (Throwable t) {
+            setError(t);
+          } finally {
+            freeChunks.add(chunk);
+          }
+        }
+      }
+    }
+
+    private void writeChunk(Chunk chunk) throws IOException {
+      if (null != error) {
+        return; // Discard the rest of the record.
+      }
+      if (isCharData) {
+        charOut.write(chunk.chars, 0, chunk.len);
+      } else {
+        byteOut.write(chunk.bytes, 0, chunk.len);
+      }
+    }
+
+    /**
+     * End the current record. It is only finished in the LobFile if all of
+     * it was read and written.
+     */
+    private void finishRecord(boolean complete) throws IOException {
+      if (!complete) {
+        setError(new IOException("Could not read LOB for record at "
+            + writer.getPath() + "; discarding it"));
+      }
+      try {
+        if (null != charOut) {
+          charOut.close();
+        }
+        if (null != byteOut) {
+          byteOut.close();
+        }
+        if (null == error) {
+          writer.finishRecord();
+        }
+      } finally {
+        charOut = null;
+        byteOut = null;
+      }
+    }
+  }
+}
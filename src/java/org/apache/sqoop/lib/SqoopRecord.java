@@ -102,11 +102,45 @@ public String toString(DelimiterSet delimiters, boolean useRecordDelim) {
     }
   }
 
+  /**
+   * Format the record with its default delimiters, including the
+   * end-of-record delimiter, and append it to 'out'.
+   */
+  public void writeTo(Appendable out) throws IOException {
+    // Method body should be overridden by generated classes.
+    out.append(toString());
+  }
+
+  /**
+   * Format the record according to the specified delimiters and append it
+   * to 'out'. Generated classes escape and enclose each field directly into
+   * 'out', rather than building intermediate Strings as toString() does.
+   */
+  public void writeTo(Appendable out, DelimiterSet delimiters,
+      boolean useRecordDelim) throws IOException {
+    // Method body should be overridden by generated classes.
+    out.append(toString(delimiters, useRecordDelim));
+  }
+
   @Override
   public Object clone() throws CloneNotSupportedException {
     return super.clone();
   }
 
+  /**
+   * Copy the fields of this record into 'target' so that it can be used
+   * in place of clone(). Generated classes reuse 'target' when it is an
+   * instance of the same class; otherwise, and for records generated
+   * before this method was added, a new clone is returned.
+   * @param target a record to reuse, or null.
+   * @return a copy of this record; either 'target' or a new instance.
+   */
+  public SqoopRecord copyInto(SqoopRecord target)
+      throws CloneNotSupportedException {
+    // Method body should be overridden by generated classes.
+    return (SqoopRecord) clone();
+  }
+
   /**
    * Returns an integer specifying which API format version the
    * generated class conforms to. Used by internal APIs for backwards
@@ -142,6 +176,29 @@ public Map<String, Object> getFieldMap() {
       "Got null field map from record. Regenerate your record class.");
   }
 
+  /**
+   * Returns the names of the fields of this record, as used for the keys
+   * of getFieldMap(), in the order in which getFieldValues() writes them.
+   * @return the field names, or null if this record was generated before
+   * this capability was added.
+   */
+  public String [] getFieldNames() {
+    // Method body should be overridden by generated classes.
+    return null;
+  }
+
+  /**
+   * Copy the value of each field into 'values', in the order given by
+   * getFieldNames(). Unlike getFieldMap(), this does not allocate a new
+   * map for every record.
+   * @throws RuntimeException if used with a record that was generated
+   * before this capability was added.
+   */
+  public void getFieldValues(Object [] values) {
+    throw new RuntimeException("This SqoopRecord does not support "
+        + "getFieldValues(). Regenerate your record class.");
+  }
+
   /**
    * Allows an arbitrary field to be set programmatically to the
    * specified value object. The value object must match the
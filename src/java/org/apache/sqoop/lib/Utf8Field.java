@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.lib;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A slice of UTF-8 encoded bytes holding the contents of one field parsed
+ * by a Utf8RecordParser.
+ *
+ * The slice is backed either by the record being parsed or by the parser's
+ * internal unescape buffer; both are reused by the next call to
+ * parseRecord(). Use toString() to obtain a copy which outlives the parser.
+ *
+ * The numeric accessors convert the bytes directly, without creating an
+ * intermediate String. Input they do not recognize is handed to the
+ * corresponding java.lang parser so error behavior is identical to the
+ * String-based code path.
+ */
+public class Utf8Field {
+
+  private byte [] bytes;
+  private int start;
+  private int length;
+
+  // Scratch space used to hand ASCII digits to BigDecimal.
+  private char [] chars;
+
+  Utf8Field() {
+    this.chars = new char[0];
+  }
+
+  void set(byte [] buf, int off, int len) {
+    this.bytes = buf;
+    this.start = off;
+    this.length = len;
+  }
+
+  /**
+   * @return the buffer backing this field. Only the bytes in the range
+   * [getStart(), getStart() + getLength()) belong to the field.
+   */
+  public byte [] getBytes() {
+    return bytes;
+  }
+
+  public int getStart() {
+    return start;
+  }
+
+  /**
+   * @return the number of bytes (not characters) in this field.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Compares this field against a String without decoding the field.
+   * @param s the string to compare with; usually a null representation.
+   * @return true if the field holds exactly the UTF-8 encoding of s.
+   */
+  public boolean contentEquals(String s) {
+    int slen = s.length();
+    if (slen > length) {
+      return false;
+    }
+
+    boolean ascii = true;
+    for (int i = 0; i < slen && ascii; i++) {
+      ascii = s.charAt(i) < 0x80;
+    }
+
+    if (!ascii) {
+      return toString().equals(s);
+    } else if (slen != length) {
+      return false;
+    }
+
+    for (int i = 0; i < slen; i++) {
+      if (bytes[start + i] != (byte) s.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Parse this field as a decimal int, as Integer.parseInt() would.
+   */
+  public int parseInt() {
+    long val = parseDecimalLong(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    if (val == NOT_PARSED) {
+      return Integer.parseInt(toString());
+    }
+    return (int) val;
+  }
+
+  /**
+   * Parse this field as a decimal long, as Long.parseLong() would.
+   */
+  public long parseLong() {
+    // Values near the ends of the long range are left to Long.parseLong().
+    long val = parseDecimalLong(-LONG_FAST_LIMIT, LONG_FAST_LIMIT);
+    if (val == NOT_PARSED) {
+      return Long.parseLong(toString());
+    }
+    return val;
+  }
+
+  /**
+   * Parse this field as a BigDecimal, as new BigDecimal(String) would.
+   */
+  public BigDecimal toBigDecimal() {
+    if (chars.length < length) {
+      chars = new char[length];
+    }
+
+    for (int i = 0; i < length; i++) {
+      byte b = bytes[start + i];
+      if (b < 0) {
+        // Not ASCII; this can't be a valid number but let BigDecimal
+        // report that in its usual way.
+        return new BigDecimal(toString());
+      }
+      chars[i] = (char) b;
+    }
+
+    return new BigDecimal(chars, 0, length);
+  }
+
+  // Sentinel returned by parseDecimalLong() when the fast path gives up.
+  private static final long NOT_PARSED = Long.MIN_VALUE;
+
+  // Largest magnitude handled by the fast path; 18 decimal digits can
+  // never overflow a long.
+  private static final long LONG_FAST_LIMIT = 999999999999999999L;
+
+  /**
+   * Parses an optionally signed run of ASCII digits.
+   * @return the value, or NOT_PARSED if the field is empty, contains
+   * anything else, or falls outside of [min, max].
+   */
+  private long parseDecimalLong(long min, long max) {
+    if (length == 0 || length > 19) {
+      return NOT_PARSED;
+    }
+
+    int pos = start;
+    int end = start + length;
+    boolean negative = false;
+    if (bytes[pos] == '-' || bytes[pos] == '+') {
+      negative = bytes[pos] == '-';
+      pos++;
+      if (pos == end) {
+        return NOT_PARSED;
+      }
+    }
+
+    long val = 0;
+    for (; pos < end; pos++) {
+      int digit = bytes[pos] - '0';
+      if (digit < 0 || digit > 9 || val > LONG_FAST_LIMIT / 10) {
+        return NOT_PARSED;
+      }
+      val = val * 10 + digit;
+    }
+
+    if (negative) {
+      val = -val;
+    }
+
+    if (val < min || val > max) {
+      return NOT_PARSED;
+    }
+    return val;
+  }
+
+  /**
+   * @return a newly decoded copy of this field.
+   */
+  @Override
+  public String toString() {
+    return new String(bytes, start, length, StandardCharsets.UTF_8);
+  }
+}
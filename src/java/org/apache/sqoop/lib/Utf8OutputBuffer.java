@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.lib;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * A reusable, growable buffer which encodes the characters appended to it
+ * as UTF-8 as they arrive.
+ *
+ * This lets a SqoopRecord format itself with writeTo() straight into bytes
+ * which can be handed to a Text, without building a String first. Call
+ * reset() to reuse the buffer for the next record.
+ *
+ * This class is not synchronized.
+ */
+public class Utf8OutputBuffer implements Appendable {
+
+  private static final int DEFAULT_CAPACITY = 256;
+
+  // Written in place of unpaired surrogates, as Text.set(String) does.
+  private static final byte [] REPLACEMENT = { (byte) '?', };
+
+  private byte [] buf;
+  private int len;
+
+  // A high surrogate waiting for its low surrogate, or 0.
+  private char pendingHigh;
+
+  public Utf8OutputBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public Utf8OutputBuffer(int capacity) {
+    this.buf = new byte[capacity];
+  }
+
+  /**
+   * Discard the contents of the buffer, keeping its capacity.
+   */
+  public void reset() {
+    len = 0;
+    pendingHigh = 0;
+  }
+
+  /**
+   * @return the buffer holding the encoded bytes. Only the first
+   * getLength() bytes are valid.
+   */
+  public byte [] getBytes() {
+    flushPending();
+    return buf;
+  }
+
+  /**
+   * @return the number of encoded bytes in the buffer.
+   */
+  public int getLength() {
+    flushPending();
+    return len;
+  }
+
+  /**
+   * Set the contents of 't' to the bytes in this buffer.
+   */
+  public void copyTo(Text t) {
+    flushPending();
+    t.set(buf, 0, len);
+  }
+
+  @Override
+  public Utf8OutputBuffer append(CharSequence csq) {
+    if (null == csq) {
+      return append("null");
+    }
+    return append(csq, 0, csq.length());
+  }
+
+  @Override
+  public Utf8OutputBuffer append(CharSequence csq, int start, int end) {
+    if (null == csq) {
+      return append("null", start, end);
+    }
+    for (int i = start; i < end; i++) {
+      append(csq.charAt(i));
+    }
+    return this;
+  }
+
+  @Override
+  public Utf8OutputBuffer append(char c) {
+    if (pendingHigh != 0) {
+      char high = pendingHigh;
+      pendingHigh = 0;
+      if (Character.isLowSurrogate(c)) {
+        int cp = Character.toCodePoint(high, c);
+        ensureCapacity(4);
+        buf[len++] = (byte) (0xF0 | (cp >> 18));
+        buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+        buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        buf[len++] = (byte) (0x80 | (cp & 0x3F));
+        return this;
+      }
+      appendBytes(REPLACEMENT);
+    }
+
+    if (c < 0x80) {
+      ensureCapacity(1);
+      buf[len++] = (byte) c;
+    } else if (c < 0x800) {
+      ensureCapacity(2);
+      buf[len++] = (byte) (0xC0 | (c >> 6));
+      buf[len++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      pendingHigh = c;
+    } else if (Character.isLowSurrogate(c)) {
+      appendBytes(REPLACEMENT);
+    } else {
+      ensureCapacity(3);
+      buf[len++] = (byte) (0xE0 | (c >> 12));
+      buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buf[len++] = (byte) (0x80 | (c & 0x3F));
+    }
+    return this;
+  }
+
+  /** Encode a trailing high surrogate with no low surrogate after it. */
+  private void flushPending() {
+    if (pendingHigh != 0) {
+      pendingHigh = 0;
+      appendBytes(REPLACEMENT);
+    }
+  }
+
+  private void appendBytes(byte [] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buf, len, bytes.length);
+    len += bytes.length;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (len + extra > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(len + extra, buf.length * 2));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return new String(getBytes(), 0, getLength(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,365 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.lib;
+
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Parses a record of UTF-8 encoded bytes, e.g. the contents of a Text,
+ * using the same rules as RecordParser but without first transcoding
+ * the record into a String.
+ *
+ * Because every byte of a multi-byte UTF-8 sequence has its high bit set,
+ * delimiter, encloser and escape characters in the 7-bit ASCII range can
+ * be found by comparing bytes. This parser can therefore only be used with
+ * such delimiters; see canParse(DelimiterSet).
+ *
+ * Fields are exposed as Utf8Field slices which point into the input
+ * record where possible. Fields containing escape characters are unescaped
+ * into an internal buffer. Both the slices and the internal buffer are
+ * reused by the next call to parseRecord(); no per-field objects are
+ * allocated once the parser has seen its widest record.
+ *
+ * This class is not synchronized. Multiple threads must use separate
+ * instances of Utf8RecordParser.
+ */
+public class Utf8RecordParser {
+
+  public static final Log LOG =
+      LogFactory.getLog(Utf8RecordParser.class.getName());
+
+  private enum ParseState {
+    FIELD_START,
+    ENCLOSED_FIELD,
+    UNENCLOSED_FIELD,
+    ENCLOSED_ESCAPE,
+    ENCLOSED_EXPECT_DELIMITER,
+    UNENCLOSED_ESCAPE
+  }
+
+  private final DelimiterSet delimiters;
+
+  private Utf8Field [] fields;
+  private int numFields;
+
+  // Holds the unescaped contents of fields which contained escape chars.
+  private byte [] unescaped;
+  private int unescapedLen;
+
+  // State of the field currently being built. While the field is a
+  // contiguous run of input bytes it is described by [fieldStart, fieldEnd).
+  // Once an escape char is seen, its bytes are copied into 'unescaped'
+  // starting at fieldStart, and copying is set.
+  private boolean inField;
+  private boolean copying;
+  private byte [] fieldBuf;
+  private int fieldStart;
+  private int fieldEnd;
+
+  public Utf8RecordParser(final DelimiterSet delimitersIn) {
+    if (!canParse(delimitersIn)) {
+      throw new IllegalArgumentException(
+          "Utf8RecordParser requires 7-bit ASCII delimiters; got "
+          + delimitersIn);
+    }
+
+    this.delimiters = delimitersIn.copy();
+    this.fields = new Utf8Field[0];
+    this.unescaped = new byte[0];
+  }
+
+  /**
+   * @return true if all the delimiter characters in the specified set can
+   * be matched against individual UTF-8 bytes.
+   */
+  public static boolean canParse(DelimiterSet delims) {
+    return delims.getFieldsTerminatedBy() < 0x80
+        && delims.getLinesTerminatedBy() < 0x80
+        && delims.getEnclosedBy() < 0x80
+        && delims.getEscapedBy() < 0x80;
+  }
+
+  /**
+   * Parse the fields of the input record.
+   * @return the number of fields parsed. The fields themselves are returned
+   * by getField() until the next call to parseRecord().
+   */
+  public int parseRecord(Text input)
+      throws org.apache.sqoop.lib.RecordParser.ParseError {
+    if (null == input) {
+      throw new org.apache.sqoop.lib.RecordParser.ParseError(
+          "null input string");
+    }
+
+    return parseRecord(input.getBytes(), 0, input.getLength());
+  }
+
+  // CHECKSTYLE:OFF
+  /**
+   * Parse the fields of a record held in len bytes of input starting at off.
+   * @return the number of fields parsed. The fields themselves are returned
+   * by getField() until the next call to parseRecord().
+   */
+  public int parseRecord(byte [] input, int off, int len)
+      throws org.apache.sqoop.lib.RecordParser.ParseError {
+    if (null == input) {
+      throw new org.apache.sqoop.lib.RecordParser.ParseError(
+          "null input string");
+    }
+
+    // This is the state machine of RecordParser.parseRecord(CharBuffer),
+    // operating on bytes. See that method for a description of the states.
+
+    byte curByte = (byte) DelimiterSet.NULL_CHAR;
+    ParseState state = ParseState.FIELD_START;
+    int end = off + len;
+
+    numFields = 0;
+    unescapedLen = 0;
+    inField = false;
+
+    byte enclosingChar = (byte) delimiters.getEnclosedBy();
+    byte fieldDelim = (byte) delimiters.getFieldsTerminatedBy();
+    byte recordDelim = (byte) delimiters.getLinesTerminatedBy();
+    byte escapeChar = (byte) delimiters.getEscapedBy();
+    boolean enclosingRequired = delimiters.isEncloseRequired();
+
+    for (int pos = off; pos < end; pos++) {
+      curByte = input[pos];
+      switch (state) {
+      case FIELD_START:
+        // ready to start processing a new field.
+        if (inField) {
+          // We finished processing a previous field. Add to the list.
+          endField();
+        }
+
+        startField(input, pos + 1);
+        if (enclosingChar == curByte) {
+          // got an opening encloser.
+          state = ParseState.ENCLOSED_FIELD;
+        } else if (escapeChar == curByte) {
+          startCopying();
+          state = ParseState.UNENCLOSED_ESCAPE;
+        } else if (fieldDelim == curByte) {
+          // we have a zero-length field. This is a no-op.
+          continue;
+        } else if (recordDelim == curByte) {
+          // we have a zero-length field, that ends processing.
+          pos = end;
+        } else {
+          // current char is part of the field.
+          state = ParseState.UNENCLOSED_FIELD;
+          fieldStart = pos;
+          fieldEnd = pos + 1;
+
+          if (enclosingRequired) {
+            throw new org.apache.sqoop.lib.RecordParser.ParseError(
+                "Opening field-encloser expected at position " + (pos - off));
+          }
+        }
+
+        break;
+
+      case ENCLOSED_FIELD:
+        if (escapeChar == curByte) {
+          // the next character is escaped. Treat it literally.
+          startCopying();
+          state = ParseState.ENCLOSED_ESCAPE;
+        } else if (enclosingChar == curByte) {
+          // we're at the end of the enclosing field. Expect an EOF or EOR char.
+          state = ParseState.ENCLOSED_EXPECT_DELIMITER;
+        } else {
+          // this is a regular char, or an EOF / EOR inside an encloser.
+          append(curByte);
+        }
+
+        break;
+
+      case UNENCLOSED_FIELD:
+        if (escapeChar == curByte) {
+          // the next character is escaped. Treat it literally.
+          startCopying();
+          state = ParseState.UNENCLOSED_ESCAPE;
+        } else if (fieldDelim == curByte) {
+          // we're at the end of this field; may be the start of another one.
+          state = ParseState.FIELD_START;
+        } else if (recordDelim == curByte) {
+          pos = end; // terminate processing immediately.
+        } else {
+          // this is a regular char. Add to the current field.
+          append(curByte);
+        }
+
+        break;
+
+      case ENCLOSED_ESCAPE:
+        // Treat this character literally, whatever it is, and return to
+        // enclosed field processing.
+        append(curByte);
+        state = ParseState.ENCLOSED_FIELD;
+        break;
+
+      case ENCLOSED_EXPECT_DELIMITER:
+        // We were in an enclosed field, but got the final encloser. Now we
+        // expect either an end-of-field or an end-of-record.
+        if (fieldDelim == curByte) {
+          // end of one field is the beginning of the next.
+          state = ParseState.FIELD_START;
+        } else if (recordDelim == curByte) {
+          // stop processing.
+          pos = end;
+        } else {
+          // Don't know what to do with this character.
+          throw new org.apache.sqoop.lib.RecordParser.ParseError(
+              "Expected delimiter at position " + (pos - off));
+        }
+
+        break;
+
+      case UNENCLOSED_ESCAPE:
+        // Treat this character literally, whatever it is, and return to
+        // non-enclosed field processing.
+        append(curByte);
+        state = ParseState.UNENCLOSED_FIELD;
+        break;
+
+      default:
+        throw new org.apache.sqoop.lib.RecordParser.ParseError(
+            "Unexpected parser state: " + state);
+      }
+    }
+
+    if (state == ParseState.FIELD_START && curByte == fieldDelim) {
+      // we hit an EOF/EOR as the last legal character and we need to mark
+      // that field as recorded.
+      if (inField) {
+        endField();
+        startField(input, end);
+      }
+    }
+
+    if (inField) {
+      // There was a field that terminated by running out of chars or an EOR
+      // character. Add to the list.
+      endField();
+    }
+
+    return numFields;
+  }
+  // CHECKSTYLE:ON
+
+  /**
+   * @return the number of fields parsed by the last call to parseRecord().
+   */
+  public int getNumFields() {
+    return numFields;
+  }
+
+  /**
+   * @return the i'th field parsed by the last call to parseRecord().
+   */
+  public Utf8Field getField(int i) {
+    if (i < 0 || i >= numFields) {
+      throw new IndexOutOfBoundsException("Field " + i + " requested; "
+          + numFields + " fields parsed");
+    }
+    return fields[i];
+  }
+
+  /** Begin a new, empty field whose first byte would be at pos. */
+  private void startField(byte [] input, int pos) {
+    inField = true;
+    copying = false;
+    fieldBuf = input;
+    fieldStart = pos;
+    fieldEnd = pos;
+  }
+
+  /**
+   * Switch the current field to the unescape buffer, carrying over the
+   * bytes of the field seen so far.
+   */
+  private void startCopying() {
+    if (copying) {
+      return;
+    }
+
+    int curLen = fieldEnd - fieldStart;
+    ensureUnescapedCapacity(unescapedLen + curLen + 1);
+    System.arraycopy(fieldBuf, fieldStart, unescaped, unescapedLen, curLen);
+    fieldBuf = unescaped;
+    fieldStart = unescapedLen;
+    fieldEnd = unescapedLen + curLen;
+    copying = true;
+  }
+
+  /** Add one byte to the end of the current field. */
+  private void append(byte b) {
+    if (copying) {
+      ensureUnescapedCapacity(fieldEnd + 1);
+      unescaped[fieldEnd] = b;
+    }
+    // When not copying, the appended byte is always the next input byte.
+    fieldEnd++;
+  }
+
+  private void ensureUnescapedCapacity(int needed) {
+    if (needed > unescaped.length) {
+      unescaped = Arrays.copyOf(unescaped,
+          Math.max(needed, unescaped.length * 2));
+      if (copying) {
+        fieldBuf = unescaped;
+      }
+    }
+  }
+
+  /** Record the current field as the next output field. */
+  private void endField() {
+    if (numFields == fields.length) {
+      fields = Arrays.copyOf(fields, Math.max(8, fields.length * 2));
+      for (int i = numFields; i < fields.length; i++) {
+        fields[i] = new Utf8Field();
+      }
+    }
+
+    fields[numFields++].set(fieldBuf, fieldStart, fieldEnd - fieldStart);
+    if (copying) {
+      unescapedLen = fieldEnd;
+    }
+    inField = false;
+  }
+
+  public boolean isEnclosingRequired() {
+    return delimiters.isEncloseRequired();
+  }
+
+  @Override
+  public String toString() {
+    return "Utf8RecordParser[" + delimiters.toString() + "]";
+  }
+
+  @Override
+  public int hashCode() {
+    return this.delimiters.hashCode();
+  }
+}
@@ -243,5 +243,68 @@ public String getPrimaryKey(String tableName) {
 
     return columns.get(0);
   }
+
+  /**
+   * @return a query returning the catalog's estimate of the number of rows
+   * in the table, or null to use the JDBC index metadata instead.
+   */
+  protected String getRowCountEstimateQuery(String tableName) {
+    return null;
+  }
+
+  @Override
+  public long getTableRowCountEstimate(String tableName) {
+    String estimateQuery = getRowCountEstimateQuery(tableName);
+    if (null == estimateQuery) {
+      return super.getTableRowCountEstimate(tableName);
+    }
+
+    Connection c = null;
+    Statement s = null;
+    ResultSet rs = null;
+    try {
+      c = getConnection();
+      s = c.createStatement();
+
+      LOG.debug("Estimating size of table '" + tableName + "' with query "
+        + estimateQuery);
+      rs = s.executeQuery(estimateQuery);
+      long estimate = -1;
+      if (rs.next()) {
+        estimate = rs.getLong(1);
+        if (rs.wasNull()) {
+          estimate = -1;
+        }
+      }
+      c.commit();
+      return estimate;
+    } catch (SQLException sqle) {
+      try {
+        if (c != null) {
+          c.rollback();
+        }
+      } catch (SQLException ce) {
+        LoggingUtils.logAll(LOG, "Failed to rollback transaction", ce);
+      }
+      LOG.debug("Could not estimate the size of table " + tableName + ": "
+        + sqle);
+      return -1;
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException re) {
+          LoggingUtils.logAll(LOG, "Failed to close resultset", re);
+        }
+      }
+      if (s != null) {
+        try {
+          s.close();
+        } catch (SQLException se) {
+          LoggingUtils.logAll(LOG, "Failed to close statement", se);
+        }
+      }
+    }
+  }
 }
 
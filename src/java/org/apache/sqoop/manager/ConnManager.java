@@ -505,6 +505,16 @@ public long getTableRowCount(String tableName) throws SQLException {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Returns an estimate of the number of rows in the given table, taken
+   * from the database catalog rather than by counting the rows.
+   * @param tableName the name of the table.
+   * @return the estimated number of rows, or -1 if no estimate is available.
+   */
+  public long getTableRowCountEstimate(String tableName) {
+    return -1;
+  }
+
   /**
    * Deletes all records from the given table. This method is invoked during
    * and export run when a staging table is specified. The staging table is
@@ -93,6 +93,22 @@ protected String getPrimaryKeyQuery(String tableName) {
          + "AND COLUMN_KEY = 'PRI'";
   }
 
+  @Override
+  protected String getRowCountEstimateQuery(String tableName) {
+    return "SELECT TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES "
+         + "WHERE TABLE_SCHEMA = (" + getSchemaQuery() + ") "
+         + "AND TABLE_NAME = '" + escapeLiteral(tableName) + "'";
+  }
+
+  /**
+   * Escape a string for use inside a single-quoted literal. Backslashes are
+   * doubled as well as quotes, which is safe whether or not the server
+   * treats backslash as an escape character.
+   */
+  private String escapeLiteral(String literal) {
+    return literal.replace("\\", "\\\\").replace("'", "''");
+  }
+
   @Override
   protected String getColNamesQuery(String tableName) {
     // Use mysql-specific hints and LIMIT to return fast
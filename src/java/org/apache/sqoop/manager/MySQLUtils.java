@@ -90,6 +90,19 @@ public static boolean outputDelimsAreMySQL(Configuration conf) {
         && !conf.getBoolean(OUTPUT_ENCLOSE_REQUIRED_KEY, false);
   }
 
+  /**
+   * @return the output delimiters set in the configuration with the
+   * OUTPUT_*_KEY properties.
+   */
+  public static DelimiterSet getOutputDelimiters(Configuration conf) {
+    return new DelimiterSet(
+        (char) conf.getInt(OUTPUT_FIELD_DELIM_KEY, NULL_CHAR),
+        (char) conf.getInt(OUTPUT_RECORD_DELIM_KEY, NULL_CHAR),
+        (char) conf.getInt(OUTPUT_ENCLOSED_BY_KEY, NULL_CHAR),
+        (char) conf.getInt(OUTPUT_ESCAPED_BY_KEY, NULL_CHAR),
+        conf.getBoolean(OUTPUT_ENCLOSE_REQUIRED_KEY, false));
+  }
+
   /**
    * Writes the user's password to a tmp file with 0600 permissions.
    * @return the filename used.
@@ -158,6 +158,16 @@ protected String getListColumnsQuery(String tableName) {
     + "ORDER BY col.ATTNUM ASC";
   }
 
+  @Override
+  protected String getRowCountEstimateQuery(String tableName) {
+    return
+      "SELECT CAST(tab.RELTUPLES AS BIGINT) "
+    + "FROM PG_CATALOG.PG_NAMESPACE sch, PG_CATALOG.PG_CLASS tab "
+    + "WHERE sch.OID = tab.RELNAMESPACE "
+    + "  AND sch.NSPNAME = " + getSchemaSqlFragment()
+    + "  AND tab.RELNAME = '" + escapeLiteral(tableName) + "'";
+  }
+
   @Override
   protected String getPrimaryKeyQuery(String tableName) {
     return
@@ -1014,6 +1014,39 @@ public Timestamp getCurrentDbTimestamp() {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * Uses the table statistic reported by the JDBC driver's index metadata.
+   */
+  @Override
+  public long getTableRowCountEstimate(String tableName) {
+    try {
+      DatabaseMetaData metaData = this.getConnection().getMetaData();
+      ResultSet results = metaData.getIndexInfo(null, null, tableName, false,
+          true);
+      if (null == results) {
+        return -1;
+      }
+
+      try {
+        while (results.next()) {
+          if (results.getShort("TYPE")
+              == DatabaseMetaData.tableIndexStatistic) {
+            return results.getLong("CARDINALITY");
+          }
+        }
+        return -1;
+      } finally {
+        results.close();
+        getConnection().commit();
+      }
+    } catch (SQLException sqlException) {
+      LOG.debug("Could not estimate the size of table " + tableName + ": "
+          + sqlException);
+      return -1;
+    }
+  }
+
   @Override
   public long getTableRowCount(String tableName) throws SQLException {
     release(); // Release any previous ResultSet
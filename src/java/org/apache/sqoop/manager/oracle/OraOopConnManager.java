@@ -35,6 +35,7 @@
 import org.apache.sqoop.manager.OracleManager;
 
 import org.apache.sqoop.SqoopOptions;
+import org.apache.sqoop.config.ConfigurationConstants;
 import org.apache.sqoop.manager.ExportJobContext;
 import org.apache.sqoop.manager.GenericJdbcManager;
 import org.apache.sqoop.manager.ImportJobContext;
@@ -286,6 +287,17 @@ public void importTable(ImportJobContext context) throws IOException,
     // Specify the Oracle-specific DBInputFormat for import.
     context.setInputFormat(OraOopDataDrivenDBInputFormat.class);
 
+    Configuration conf = context.getOptions().getConf();
+    if (OraOopUtilities.getOraOopOracleBlockToSplitAllocationMethod(conf,
+        OraOopConstants.OraOopOracleBlockToSplitAllocationMethod.ROUNDROBIN)
+        == OraOopConstants.OraOopOracleBlockToSplitAllocationMethod.DYNAMIC) {
+      // Concurrent attempts of a mapper could each read only some of the
+      // data-chunks claimed for that mapper.
+      LOG.info("Disabling speculative execution for dynamic block allocation");
+      conf.setBoolean(
+          ConfigurationConstants.PROP_MAPRED_MAP_TASKS_SPECULATIVE_EXEC, false);
+    }
+
     super.importTable(context);
   }
 
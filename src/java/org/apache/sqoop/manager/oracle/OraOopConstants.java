@@ -112,6 +112,12 @@ public enum OraOopTableImportWhereClauseLocation {
   public static final String ORAOOP_ORACLE_DATA_CHUNKS_QUERY =
       "oraoop.oracle.data.chunks.query";
 
+  // The number of Oracle blocks in each ROWID data chunk. When not set, each
+  // data-file is divided into a number of chunks based on the number of
+  // mappers instead...
+  public static final String ORAOOP_ORACLE_BLOCKS_PER_CHUNK =
+      "oraoop.chunk.blocks";
+
   // The minimum number of active instances in an Oracle RAC required for OraOop
   // to use dynamically generated JDBC URLs...
   public static final String ORAOOP_MIN_RAC_ACTIVE_INSTANCES =
@@ -198,10 +204,11 @@ public enum OraOopOracleDataChunkMethod {
       "oraoop.block.allocation";
 
   /**
-   * How splits should be allocated to the mappers.
+   * How splits should be allocated to the mappers. DYNAMIC gives each mapper
+   * every data-chunk, and mappers claim the chunks they read as they go.
    */
   public enum OraOopOracleBlockToSplitAllocationMethod {
-    ROUNDROBIN, SEQUENTIAL, RANDOM
+    ROUNDROBIN, SEQUENTIAL, RANDOM, DYNAMIC
   }
 
   // Whether to omit LOB and LONG columns during an import...
@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.manager.oracle;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.sqoop.mapreduce.db.ChunkTable;
+import org.apache.sqoop.mapreduce.db.ChunkedInputSplit;
+
+/**
+ * An OraOopDBInputSplit used with the DYNAMIC block allocation method.
+ *
+ * Every split holds all of the job's data-chunks, and differs only in the
+ * chunk it starts from. A ChunkedDBRecordReader walks the chunks from there,
+ * reading those it manages to claim, so that a mapper which finishes its
+ * own share early goes on to read chunks from the next mapper's share.
+ *
+ * getDataChunks() returns only the current chunk, so that an
+ * OraOopDBRecordReader queries one data-chunk at a time; see
+ * setCurrentChunk().
+ *
+ * Once setChunkFile() has been called, the data-chunks are serialized as
+ * the path of the ChunkTable holding them, and are read back by
+ * loadChunks().
+ */
+class OraOopDBChunkedInputSplit extends OraOopDBInputSplit
+    implements ChunkedInputSplit {
+
+  private int firstChunk;
+  private int currentChunk;
+  private Path chunkFile;
+  private int numChunks;
+  private long length;
+
+  public OraOopDBChunkedInputSplit() {
+  }
+
+  public OraOopDBChunkedInputSplit(List<OraOopOracleDataChunk> dataChunks,
+      int first) {
+
+    setOracleDataChunks(dataChunks);
+    this.firstChunk = first;
+    this.currentChunk = first;
+  }
+
+  /**
+   * Serialize the data-chunks as the path of a ChunkTable holding them.
+   */
+  public void setChunkFile(Path file) {
+
+    this.numChunks = getNumChunks();
+    this.length = getLength();
+    this.chunkFile = file;
+  }
+
+  @Override
+  public void loadChunks(Configuration conf) throws IOException {
+
+    if (getAllDataChunks() != null || this.chunkFile == null) {
+      return;
+    }
+
+    List<OraOopOracleDataChunk> dataChunks =
+        ChunkTable.read(conf, this.chunkFile, OraOopOracleDataChunk.class);
+    if (dataChunks.size() != this.numChunks) {
+      throw new IOException(String.format(
+          "Expected %d data-chunks in %s; found %d.", this.numChunks,
+          this.chunkFile, dataChunks.size()));
+    }
+    setOracleDataChunks(dataChunks);
+  }
+
+  /**
+   * @return every data-chunk of the job, whichever is current.
+   */
+  public List<OraOopOracleDataChunk> getAllDataChunks() {
+
+    return super.getDataChunks();
+  }
+
+  @Override
+  public List<OraOopOracleDataChunk> getDataChunks() {
+
+    List<OraOopOracleDataChunk> dataChunks = getAllDataChunks();
+    if (dataChunks == null) {
+      return null;
+    }
+    return Collections.singletonList(dataChunks.get(currentChunk));
+  }
+
+  @Override
+  public int getNumChunks() {
+
+    List<OraOopOracleDataChunk> dataChunks = getAllDataChunks();
+    if (dataChunks == null) {
+      return this.numChunks;
+    }
+    return dataChunks.size();
+  }
+
+  @Override
+  public int getFirstChunk() {
+
+    return this.firstChunk;
+  }
+
+  @Override
+  public void setCurrentChunk(int chunk) {
+
+    if (chunk < 0 || chunk >= getNumChunks()) {
+      throw new IndexOutOfBoundsException("Chunk " + chunk + " requested; "
+          + getNumChunks() + " chunks in split");
+    }
+    this.currentChunk = chunk;
+  }
+
+  /**
+   * @return The total number of blocks within all the data-chunks
+   */
+  @Override
+  public long getLength() {
+
+    if (getAllDataChunks() == null) {
+      return this.length;
+    }
+
+    long result = 0;
+    for (OraOopOracleDataChunk dataChunk : getAllDataChunks()) {
+      result += dataChunk.getNumberOfBlocks();
+    }
+    return result;
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void write(DataOutput output) throws IOException {
+
+    if (this.chunkFile == null) {
+      super.write(output);
+    } else {
+      // Write the split without any of its data-chunks.
+      output.writeInt(getSplitId());
+      output.writeInt(0);
+    }
+    output.writeInt(this.firstChunk);
+    output.writeBoolean(this.chunkFile != null);
+    if (this.chunkFile != null) {
+      Text.writeString(output, this.chunkFile.toString());
+      output.writeInt(this.numChunks);
+      output.writeLong(this.length);
+    }
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void readFields(DataInput input) throws IOException {
+
+    super.readFields(input);
+    this.firstChunk = input.readInt();
+    this.currentChunk = this.firstChunk;
+    if (input.readBoolean()) {
+      this.chunkFile = new Path(Text.readString(input));
+      this.numChunks = input.readInt();
+      this.length = input.readLong();
+    } else {
+      this.chunkFile = null;
+    }
+  }
+
+  @Override
+  public String getDebugDetails() {
+
+    return String.format(
+        "Split[%s] starts from data-chunk %d of the %d Oracle data-chunks.",
+        getSplitId(), this.firstChunk, getNumChunks());
+  }
+
+  @Override
+  public String toString() {
+
+    if (getAllDataChunks() == null) {
+      return String.format("data-chunk %d of %d in %s", this.currentChunk,
+          getNumChunks(), this.chunkFile);
+    }
+    return String.format("data-chunk %s (%d of %d)",
+        getAllDataChunks().get(this.currentChunk).getId(), this.currentChunk,
+        getNumChunks());
+  }
+
+}
@@ -85,6 +85,10 @@
   private boolean profilingEnabled; // <- Whether to collect profiling metrics
   private long timeSpentInNextKeyValueInNanoSeconds; // <- Total time spent in
                                                      // super.nextKeyValue()
+  private OracleTableColumns oracleTableColumns; // <- The columns of the
+                                                 // table, kept for the query
+                                                 // of each data-chunk of a
+                                                 // chunked split.
 
   public OraOopDBRecordReader(DBInputFormat.DBInputSplit split,
       Class<T> inputClass, Configuration conf, Connection conn,
@@ -127,7 +131,7 @@ public static OraOopDBInputSplit castSplit(DBInputSplit split) {
 
     // Check that the split is the correct type...
     Class<?> desiredSplitClass = OraOopDBInputSplit.class;
-    if (!(split.getClass() == desiredSplitClass)) {
+    if (!desiredSplitClass.isInstance(split)) {
       String errMsg =
           String.format("The type of Split available within %s "
               + "should be an instance of class %s, "
@@ -189,25 +193,27 @@ protected String getSelectQuery() {
             OraOopConstants.OraOopTableImportWhereClauseLocation.SUBSPLIT);
 
     OracleTable tableContext = getOracleTableContext();
-    OracleTableColumns tableColumns = null;
-    try {
-
-      Configuration conf = this.getDBConf().getConf();
-
-      tableColumns =
-          OraOopOracleQueries.getTableColumns(getConnection(), tableContext,
-              OraOopUtilities.omitLobAndLongColumnsDuringImport(conf),
-              OraOopUtilities.recallSqoopJobType(conf)
-              , true // <- onlyOraOopSupportedTypes
-              , true // <- omitOraOopPseudoColumns
-              , OracleUtils.isOracleEscapingDisabled(conf)
-          );
-    } catch (SQLException ex) {
-      LOG.error(String.format(
-          "Unable to obtain the data-types of the columns in table %s.\n"
-              + "Error:\n%s", tableContext.toString(), ex.getMessage()));
-      throw new RuntimeException(ex);
+    if (this.oracleTableColumns == null) {
+      try {
+
+        Configuration conf = this.getDBConf().getConf();
+
+        this.oracleTableColumns =
+            OraOopOracleQueries.getTableColumns(getConnection(), tableContext,
+                OraOopUtilities.omitLobAndLongColumnsDuringImport(conf),
+                OraOopUtilities.recallSqoopJobType(conf)
+                , true // <- onlyOraOopSupportedTypes
+                , true // <- omitOraOopPseudoColumns
+                , OracleUtils.isOracleEscapingDisabled(conf)
+            );
+      } catch (SQLException ex) {
+        LOG.error(String.format(
+            "Unable to obtain the data-types of the columns in table %s.\n"
+                + "Error:\n%s", tableContext.toString(), ex.getMessage()));
+        throw new RuntimeException(ex);
+      }
     }
+    OracleTableColumns tableColumns = this.oracleTableColumns;
 
     int numberOfDataChunks = this.dbInputSplit.getNumberOfDataChunks();
     for (int idx = 0; idx < numberOfDataChunks; idx++) {
@@ -27,12 +27,14 @@
 
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 
 import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.mapreduce.db.ChunkTable;
 import org.apache.sqoop.mapreduce.db.DBConfiguration;
 import org.apache.sqoop.mapreduce.db.DataDrivenDBInputFormat;
 
@@ -75,6 +77,11 @@ public List<InputSplit> getSplits(JobContext jobContext) throws IOException {
       // each data-file...
       int numberOfChunksPerOracleDataFile = (desiredNumberOfMappers * 2) + 1;
 
+      // Alternatively, the user may size the chunks by the number of blocks
+      // in each...
+      long blocksPerChunk =
+          OraOopUtilities.getOraOopOracleBlocksPerChunk(getConf());
+
       // Get the Oracle data-chunks for the table...
       List<? extends OraOopOracleDataChunk> dataChunks;
       if (OraOopUtilities.getOraOopOracleDataChunkMethod(getConf()).equals(
@@ -86,7 +93,7 @@ public List<InputSplit> getSplits(JobContext jobContext) throws IOException {
         dataChunks =
             OraOopOracleQueries.getOracleDataChunksExtent(jobContext
                 .getConfiguration(), connection, table, partitionList,
-                numberOfChunksPerOracleDataFile);
+                numberOfChunksPerOracleDataFile, blocksPerChunk);
       }
 
       if (dataChunks.size() == 0) {
@@ -118,6 +125,10 @@ public List<InputSplit> getSplits(JobContext jobContext) throws IOException {
         splits =
             groupTableDataChunksIntoSplits(dataChunks, desiredNumberOfMappers,
                 blockAllocationMethod);
+        if (blockAllocationMethod == OraOopConstants.
+            OraOopOracleBlockToSplitAllocationMethod.DYNAMIC) {
+          shareDataChunks(jobContext.getConfiguration(), splits);
+        }
 
         String oraoopLocations =
             jobContext.getConfiguration().get("oraoop.locations", "");
@@ -266,6 +277,26 @@ private List<String> getPartitionList(JobContext jobContext) {
     return result;
   }
 
+  /**
+   * Write the data-chunks held by every DYNAMIC split to a ChunkTable once,
+   * so that each split need only hold its path.
+   */
+  private void shareDataChunks(Configuration conf, List<InputSplit> splits)
+      throws IOException {
+
+    List<OraOopOracleDataChunk> allDataChunks =
+        ((OraOopDBChunkedInputSplit) splits.get(0)).getAllDataChunks();
+    Path chunkFile = ChunkTable.write(conf, allDataChunks);
+    if (chunkFile == null) {
+      return;
+    }
+    for (InputSplit split : splits) {
+      ((OraOopDBChunkedInputSplit) split).setChunkFile(chunkFile);
+    }
+    LOG.info(String.format("Wrote the %d data-chunks of the splits to %s",
+        allDataChunks.size(), chunkFile));
+  }
+
   protected
       List<InputSplit>
       groupTableDataChunksIntoSplits(
@@ -292,9 +323,20 @@ private List<String> getPartitionList(JobContext jobContext) {
     LOG.info(debugMsg);
 
     List<InputSplit> splits = new ArrayList<InputSplit>(actualNumberOfSplits);
+    List<OraOopOracleDataChunk> allDataChunks =
+        new ArrayList<OraOopOracleDataChunk>(dataChunks);
 
     for (int i = 0; i < actualNumberOfSplits; i++) {
-      OraOopDBInputSplit split = new OraOopDBInputSplit();
+      OraOopDBInputSplit split;
+      if (blockAllocationMethod
+          == OraOopConstants.OraOopOracleBlockToSplitAllocationMethod.DYNAMIC) {
+        // Every split holds all the data-chunks, and starts from its own
+        // equally sized share of them...
+        split = new OraOopDBChunkedInputSplit(allDataChunks,
+            (int) ((long) i * numberOfDataChunks / actualNumberOfSplits));
+      } else {
+        split = new OraOopDBInputSplit();
+      }
       split.setSplitId(i);
       split.setTotalNumberOfBlocksInAllSplits(
           totalNumberOfBlocksInAllDataChunks);
@@ -347,6 +389,10 @@ private List<String> getPartitionList(JobContext jobContext) {
         }
         break;
 
+      case DYNAMIC:
+        // The data-chunks are claimed by the mappers as they read them...
+        break;
+
       default:
         throw new RuntimeException("Block allocation method not implemented.");
 
@@ -332,14 +332,31 @@ private static void bindPartitionBindVars(PreparedStatement statement,
     return result;
   }
 
+  /**
+   * Divide the extents of a table into ROWID data-chunks. Each data-file of
+   * the table is divided into numberOfChunksPerOracleDataFile chunks or, if
+   * blocksPerChunk is positive, into chunks of about blocksPerChunk blocks.
+   * In the latter case, an extent larger than blocksPerChunk is divided
+   * between several chunks.
+   */
   public static List<OraOopOracleDataChunkExtent> getOracleDataChunksExtent(
       Configuration conf, Connection connection, OracleTable table,
-      List<String> partitionList, int numberOfChunksPerOracleDataFile)
-      throws SQLException {
+      List<String> partitionList, int numberOfChunksPerOracleDataFile,
+      long blocksPerChunk) throws SQLException {
 
     List<OraOopOracleDataChunkExtent> result =
         new ArrayList<OraOopOracleDataChunkExtent>();
 
+    String batchSize;
+    if (blocksPerChunk > 0) {
+      batchSize = ":blockcount";
+    } else {
+      batchSize =
+          "(SUM (e.blocks) "
+          + "         OVER (PARTITION BY o.data_object_id, e.file_id) "
+          + "      / :numchunks)";
+    }
+
     String sql =
         "SELECT data_object_id, "
           + "file_id, "
@@ -359,9 +376,7 @@ public static List<OraOopOracleDataChunkExtent> getOracleDataChunksExtent(
           + "      e.blocks) "
           + "   OVER (PARTITION BY o.data_object_id, e.file_id "
           + "         ORDER BY e.block_id ASC) "
-          + "   / (SUM (e.blocks) "
-          + "         OVER (PARTITION BY o.data_object_id, e.file_id) "
-          + "      / :numchunks)) "
+          + "   / " + batchSize + ") "
           + "   file_batch "
           + "FROM dba_extents e, dba_objects o, dba_tab_subpartitions tsp "
           + "WHERE     o.owner = :owner "
@@ -392,8 +407,15 @@ public static List<OraOopOracleDataChunkExtent> getOracleDataChunksExtent(
     sql = conf.get(OraOopConstants.ORAOOP_ORACLE_DATA_CHUNKS_QUERY, sql);
 
     PreparedStatement statement = connection.prepareStatement(sql);
-    OraOopOracleQueries.setIntAtName(statement, "numchunks",
-        numberOfChunksPerOracleDataFile);
+    // A query supplied by the user may not use both of these...
+    if (sql.contains(":numchunks")) {
+      OraOopOracleQueries.setIntAtName(statement, "numchunks",
+          numberOfChunksPerOracleDataFile);
+    }
+    if (sql.contains(":blockcount")) {
+      OraOopOracleQueries.setLongAtName(statement, "blockcount",
+          blocksPerChunk);
+    }
     OraOopOracleQueries.setStringAtName(statement, "owner", table.getSchema());
     OraOopOracleQueries.setStringAtName(statement, "object_name", table
         .getName());
@@ -404,7 +426,8 @@ public static List<OraOopOracleDataChunkExtent> getOracleDataChunksExtent(
 
     trace(String.format("%s SQL Query =\n%s", OraOopUtilities
         .getCurrentMethodName(), sql.replace(":numchunks",
-        Integer.toString(numberOfChunksPerOracleDataFile)).replace(":owner",
+        Integer.toString(numberOfChunksPerOracleDataFile)).replace(
+        ":blockcount", Long.toString(blocksPerChunk)).replace(":owner",
         table.getSchema()).replace(":object_name", table.getName())));
 
     ResultSet resultSet = statement.executeQuery();
@@ -414,12 +437,24 @@ public static List<OraOopOracleDataChunkExtent> getOracleDataChunksExtent(
       int fileBatch = resultSet.getInt("file_batch");
       String dataChunkId =
           OraOopUtilities.generateDataChunkId(fileId, fileBatch);
-      OraOopOracleDataChunkExtent dataChunk =
-          new OraOopOracleDataChunkExtent(dataChunkId, resultSet
-              .getInt("data_object_id"), resultSet.getInt("relative_fno"),
-              resultSet.getLong("start_block_id"), resultSet
-                  .getLong("end_block_id"));
-      result.add(dataChunk);
+      long startBlock = resultSet.getLong("start_block_id");
+      long endBlock = resultSet.getLong("end_block_id");
+      if (blocksPerChunk > 0 && endBlock - startBlock + 1 > blocksPerChunk) {
+        // This batch holds an extent that is larger than a chunk...
+        int piece = 0;
+        for (long first = startBlock; first <= endBlock;
+            first += blocksPerChunk) {
+          result.add(new OraOopOracleDataChunkExtent(dataChunkId + "_"
+              + piece++, resultSet.getInt("data_object_id"), fileId, first,
+              Math.min(first + blocksPerChunk - 1, endBlock)));
+        }
+      } else {
+        OraOopOracleDataChunkExtent dataChunk =
+            new OraOopOracleDataChunkExtent(dataChunkId, resultSet
+                .getInt("data_object_id"), resultSet.getInt("relative_fno"),
+                startBlock, endBlock);
+        result.add(dataChunk);
+      }
     }
 
     resultSet.close();
@@ -322,6 +322,14 @@ protected boolean isBatchExec() {
       return true;
     }
 
+    @Override
+    protected boolean supportsConcurrentConnections() {
+
+      // The Oracle session is initialized on, and the mapper's table is
+      // created through, this writer's own connection only.
+      return false;
+    }
+
     @Override
     protected String getInsertStatement(int numRows) {
 
@@ -391,6 +391,29 @@ public static int getNumberOfDataChunksPerOracleDataFile(
     return result;
   }
 
+  /**
+   * @return the number of Oracle blocks to place in each ROWID data-chunk, or
+   * 0 to divide each data-file into a number of chunks based on the number of
+   * mappers.
+   */
+  public static long getOraOopOracleBlocksPerChunk(Configuration conf) {
+    if (conf == null) {
+      throw new IllegalArgumentException("The conf argument cannot be null");
+    }
+
+    long result =
+        conf.getLong(OraOopConstants.ORAOOP_ORACLE_BLOCKS_PER_CHUNK, 0L);
+    if (result < 0) {
+      LOG.error("An invalid value of \"" + result
+          + "\" was specified for the \""
+          + OraOopConstants.ORAOOP_ORACLE_BLOCKS_PER_CHUNK
+          + "\" configuration property value.\n"
+          + "\tThe data-chunks will be sized by the number of mappers.");
+      result = 0;
+    }
+    return result;
+  }
+
   public static
       OraOopConstants.OraOopOracleBlockToSplitAllocationMethod
       getOraOopOracleBlockToSplitAllocationMethod(
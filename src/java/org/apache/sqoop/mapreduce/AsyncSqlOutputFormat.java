@@ -23,6 +23,9 @@
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 
 import org.apache.commons.logging.Log;
@@ -34,6 +37,7 @@
 import org.apache.hadoop.util.StringUtils;
 
 import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.util.PhaseMetrics;
 
 /**
  * Abstract OutputFormat class that allows the RecordWriter to buffer
@@ -84,6 +88,34 @@
    */
   public static final int UNLIMITED_STATEMENTS_PER_TRANSACTION = -1;
 
+  /** conf key: number of statements which may be queued for execution
+   * while the database runs the current one. With a depth of 0 the
+   * RecordWriter prepares each statement itself and hands it directly
+   * to the executor thread. With a positive depth, the buffered records
+   * are queued instead, and the executor thread prepares and runs the
+   * statement, leaving the RecordWriter free to keep filling the next
+   * batch.
+   */
+  public static final String PIPELINE_DEPTH_KEY =
+      "sqoop.export.pipeline.depth";
+
+  /** Default pipeline depth; statements are handed off one at a time. */
+  public static final int DEFAULT_PIPELINE_DEPTH = 0;
+
+  /** conf key: number of database connections each task may use to
+   * execute statements concurrently. Each connection has its own executor
+   * thread and commits its own transactions; statements are assigned to
+   * the connections in turn, so there is no ordering between statements
+   * which run on different connections. This is only honored by
+   * RecordWriters whose statements are independent of each other, i.e.
+   * plain inserts; updates and upserts of the same key must apply in order.
+   */
+  public static final String CONNECTIONS_PER_TASK_KEY =
+      "sqoop.export.connections.per.task";
+
+  /** Default number of connections used by each task. */
+  public static final int DEFAULT_CONNECTIONS_PER_TASK = 1;
+
   private static final Log LOG = LogFactory.getLog(AsyncSqlOutputFormat.class);
 
   @Override
@@ -106,6 +138,9 @@ public OutputCommitter getOutputCommitter(TaskAttemptContext context)
    * They MAY contain a statement which should be executed. The
    * statement may also be null.
    *
+   * They may instead contain a list of records from which the executor
+   * should build the statement; see AsyncSqlExecThread.getStatement().
+   *
    * They may also set 'commitAndClose' to true. If true, then the
    * executor of this operation should commit the current
    * transaction, even if stmt is null, and then stop the executor
@@ -113,6 +148,7 @@ public OutputCommitter getOutputCommitter(TaskAttemptContext context)
    */
   public static class AsyncDBOperation {
     private final PreparedStatement stmt;
+    private final List<SqoopRecord> records;
     private final boolean isBatch;
     private final boolean commit;
     private final boolean stopThread;
@@ -139,7 +175,44 @@ public AsyncDBOperation(PreparedStatement s, boolean commitAndClose,
      */
     public AsyncDBOperation(PreparedStatement s, boolean batch,
         boolean commit, boolean stopThread) {
+      this(s, null, batch, commit, stopThread);
+    }
+
+    /**
+     * Create an asynchronous database operation whose statement is
+     * prepared by the executor from a list of records.
+     * @param userRecords the records to inject into the statement, if any.
+     * @param batch is true if this is a batch PreparedStatement, or false
+     * if it's a normal singleton statement.
+     * @param commit is true if this statement should be committed to the
+     * database.
+     * @param stopThread if true, the executor thread should stop after this
+     * operation.
+     */
+    public AsyncDBOperation(List<SqoopRecord> userRecords, boolean batch,
+        boolean commit, boolean stopThread) {
+      this(null, userRecords, batch, commit, stopThread);
+    }
+
+    /**
+     * Create an asynchronous database operation.
+     * @param s the statement, if any, to execute. If null, the executor
+     * prepares the statement from userRecords.
+     * @param userRecords the records the statement is prepared from. If s
+     * is non-null, they are those it was prepared from already, and must
+     * not be reused until it has run.
+     * @param batch is true if this is a batch PreparedStatement, or false
+     * if it's a normal singleton statement.
+     * @param commit is true if this statement should be committed to the
+     * database.
+     * @param stopThread if true, the executor thread should stop after this
+     * operation.
+     */
+    public AsyncDBOperation(PreparedStatement s,
+        List<SqoopRecord> userRecords, boolean batch, boolean commit,
+        boolean stopThread) {
       this.stmt = s;
+      this.records = userRecords;
       this.isBatch = batch;
       this.commit = commit;
       this.stopThread = stopThread;
@@ -152,6 +225,14 @@ public PreparedStatement getStatement() {
       return stmt;
     }
 
+    /**
+     * @return the records from which the executor should prepare the
+     * statement to run, or null.
+     */
+    public List<SqoopRecord> getRecords() {
+      return records;
+    }
+
     /**
      * @return true if the executor should commit the current transaction.
      * If getStatement() is non-null, the statement is run first.
@@ -185,7 +266,7 @@ public static class AsyncSqlExecThread extends Thread {
     private SQLException err; // Error from a previously-run statement.
 
     // How we receive database operations from the RecordWriter.
-    private SynchronousQueue<AsyncDBOperation> opsQueue;
+    private BlockingQueue<AsyncDBOperation> opsQueue;
 
     protected int curNumStatements; // statements executed thus far in the tx.
     protected final int stmtsPerTx;  // statements per transaction.
@@ -198,12 +279,72 @@ public static class AsyncSqlExecThread extends Thread {
      * the current transaction.
      */
     public AsyncSqlExecThread(Connection conn, int stmtsPerTx) {
+      this(conn, stmtsPerTx, DEFAULT_PIPELINE_DEPTH);
+    }
+
+    /**
+     * Create a new update thread that interacts with the database.
+     * @param conn the connection to use. This must only be used by this
+     * thread.
+     * @param stmtsPerTx the number of statements to execute before committing
+     * the current transaction.
+     * @param pipelineDepth the number of operations which may wait for
+     * this thread before put() blocks. If 0, put() blocks until this
+     * thread takes the operation.
+     */
+    public AsyncSqlExecThread(Connection conn, int stmtsPerTx,
+        int pipelineDepth) {
       this.conn = conn;
       this.err = null;
-      this.opsQueue = new SynchronousQueue<AsyncDBOperation>();
+      if (pipelineDepth > 0) {
+        this.opsQueue = new ArrayBlockingQueue<AsyncDBOperation>(pipelineDepth);
+      } else {
+        this.opsQueue = new SynchronousQueue<AsyncDBOperation>();
+      }
       this.stmtsPerTx = stmtsPerTx;
     }
 
+    /**
+     * @return the connection used by this thread.
+     */
+    protected Connection getConnection() {
+      return conn;
+    }
+
+    /**
+     * Dispose of a statement once it has been executed successfully.
+     * This is called by this thread, with the connection's lock held.
+     * @param stmt the statement which was executed.
+     */
+    protected void releaseStatement(PreparedStatement stmt)
+        throws SQLException {
+      stmt.close();
+    }
+
+    /**
+     * Return the statement to execute for an operation. This is called
+     * by this thread, with the connection's lock held. Operations which
+     * carry records rather than a statement must be handled by a subclass.
+     * @param op the operation being executed.
+     * @return the statement to run, or null if there is none.
+     */
+    protected PreparedStatement getStatement(AsyncDBOperation op)
+        throws SQLException {
+      if (null == op.getStatement() && null != op.getRecords()) {
+        throw new SQLException("Cannot prepare a statement from records in "
+            + getClass().getName());
+      }
+      return op.getStatement();
+    }
+
+    /**
+     * Called by this thread once an operation is finished with, whether or
+     * not it succeeded. Its statement has been run or closed by then.
+     * @param op the operation which was executed.
+     */
+    protected void operationDone(AsyncDBOperation op) {
+    }
+
     public void run() {
       while (true) {
         AsyncDBOperation op = null;
@@ -221,18 +362,22 @@ public void run() {
           continue;
         }
 
-        PreparedStatement stmt = op.getStatement();
         // Synchronize on the connection to ensure it does not conflict
         // with the prepareStatement() call in the main thread.
         synchronized (conn) {
+          PreparedStatement stmt = null;
+          PhaseMetrics metrics = PhaseMetrics.getMetrics();
           try {
+            stmt = getStatement(op);
             if (null != stmt) {
+              long execStart = metrics.start();
               if (op.execAsBatch()) {
                 stmt.executeBatch();
               } else {
                 stmt.execute();
               }
-              stmt.close();
+              metrics.end(PhaseMetrics.Phase.BATCH_EXECUTE, execStart);
+              releaseStatement(stmt);
               stmt = null;
               this.curNumStatements++;
             }
@@ -241,7 +386,9 @@ public void run() {
                 && stmtsPerTx != UNLIMITED_STATEMENTS_PER_TRANSACTION)) {
               LOG.debug("Committing transaction of " + curNumStatements
                   + " statements");
+              long commitStart = metrics.start();
               this.conn.commit();
+              metrics.end(PhaseMetrics.Phase.COMMIT, commitStart);
               this.curNumStatements = 0;
             }
           } catch (BatchUpdateException batchE) {
@@ -260,6 +407,11 @@ public void run() {
             }
           } catch (SQLException sqlE) {
             setLastError(sqlE);
+          } catch (Throwable t) {
+            // Record anything else too, and keep taking operations, so that
+            // put() does not block and the writer sees the failure.
+            setLastError(new SQLException("Unexpected error in update thread",
+                t));
           } finally {
             // Close the statement on our way out if that didn't happen
             // via the normal execution path.
@@ -270,6 +422,7 @@ public void run() {
                 setLastError(sqlE);
               }
             }
+            operationDone(op);
 
             // Always check whether we should end the loop, regardless
             // of the presence of an exception.
@@ -284,7 +437,8 @@ public void run() {
     /**
      * Allows a user to enqueue the next database operation to run.
      * Since the connection can only execute a single operation at a time,
-     * the put() method may block if another operation is already underway.
+     * the put() method may block if another operation is already underway
+     * and the pipeline is full.
      * @param op the database operation to perform.
      */
     public void put(AsyncDBOperation op) throws InterruptedException {
@@ -22,14 +22,23 @@
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.sqoop.util.LoggingUtils;
+import org.apache.sqoop.util.PhaseMetrics;
 import org.apache.sqoop.mapreduce.db.DBConfiguration;
 import org.apache.sqoop.lib.SqoopRecord;
 
@@ -40,6 +49,19 @@
  *
  * Record objects are buffered before actually performing the INSERT
  * statements; this requires that the key implement the SqoopRecord interface.
+ * The buffered copies are reused for later records via
+ * SqoopRecord.copyInto() once their statement has been executed, since
+ * drivers may keep references to the values bound to a statement.
+ *
+ * If AsyncSqlOutputFormat.PIPELINE_DEPTH_KEY is positive, or the task uses
+ * more than one connection, full buffers of records are queued to the
+ * background threads, which prepare and execute the statements themselves.
+ * In that case getPreparedStatement() is called by those threads, and
+ * getConnection() returns the connection of the calling thread.
+ *
+ * Subclasses may reuse their PreparedStatements between batches with
+ * getCachedStatement() and cacheStatement(). Cached statements are kept
+ * open after they are executed, and are closed along with the writer.
  *
  * Uses DBOutputFormat/DBConfiguration for configuring the output.
  */
@@ -54,15 +76,42 @@
 
   protected final int rowsPerStmt; // rows to insert per statement.
 
+  private final int stmtsPerTx; // statements per transaction.
+
+  private final int pipelineDepth; // statements queued per exec thread.
+
   // Buffer for records to be put into export SQL statements.
-  private List<SqoopRecord> records;
+  private RecordBuffer records;
 
-  // Background thread to actually perform the updates.
-  private AsyncSqlOutputFormat.AsyncSqlExecThread execThread;
+  // Emptied buffers returned by the exec threads in pipelined mode.
+  private final BlockingQueue<RecordBuffer> freeRecords;
+
+  // Background threads to actually perform the updates. The first one
+  // uses 'connection'; any others use the connections in pooledConnections.
+  private List<AsyncSqlOutputFormat.AsyncSqlExecThread> execThreads;
+  private List<Connection> pooledConnections;
   private boolean startedExecThread;
 
+  // True if exec threads prepare statements from queued records.
+  private boolean pipelined;
+
+  // The exec thread to receive the next statement.
+  private int nextExecThread;
+
+  // Set for the exec threads which prepare their own statements.
+  private final ThreadLocal<Connection> execConnection;
+
+  // Idle cached statements of each connection, by row count, and the row
+  // counts of the cached statements which are currently in use. Guarded
+  // by idleStatements.
+  private final Map<Connection, Map<Integer, Deque<PreparedStatement>>>
+      idleStatements;
+  private final Map<PreparedStatement, Integer> busyStatements;
+
   private boolean closed;
 
+  private final PhaseMetrics metrics;
+
   public AsyncSqlRecordWriter(TaskAttemptContext context)
       throws ClassNotFoundException, SQLException {
     this.conf = context.getConfiguration();
@@ -70,31 +119,44 @@ public AsyncSqlRecordWriter(TaskAttemptContext context)
     this.rowsPerStmt = conf.getInt(
         AsyncSqlOutputFormat.RECORDS_PER_STATEMENT_KEY,
         AsyncSqlOutputFormat.DEFAULT_RECORDS_PER_STATEMENT);
-    int stmtsPerTx = conf.getInt(
+    this.stmtsPerTx = conf.getInt(
         AsyncSqlOutputFormat.STATEMENTS_PER_TRANSACTION_KEY,
         AsyncSqlOutputFormat.DEFAULT_STATEMENTS_PER_TRANSACTION);
+    this.pipelineDepth = conf.getInt(
+        AsyncSqlOutputFormat.PIPELINE_DEPTH_KEY,
+        AsyncSqlOutputFormat.DEFAULT_PIPELINE_DEPTH);
 
     DBConfiguration dbConf = new DBConfiguration(conf);
     this.connection = dbConf.getConnection();
     this.connection.setAutoCommit(false);
 
-    this.records = new ArrayList<SqoopRecord>(this.rowsPerStmt);
+    this.records = new RecordBuffer(this.rowsPerStmt);
+    this.freeRecords = new LinkedBlockingQueue<RecordBuffer>();
 
-    this.execThread = new AsyncSqlOutputFormat.AsyncSqlExecThread(
-        connection, stmtsPerTx);
-    this.execThread.setDaemon(true);
+    this.execThreads = new ArrayList<AsyncSqlOutputFormat.AsyncSqlExecThread>();
+    this.pooledConnections = new ArrayList<Connection>();
+    this.execConnection = new ThreadLocal<Connection>();
+    this.idleStatements = new IdentityHashMap<>();
+    this.busyStatements = new IdentityHashMap<PreparedStatement, Integer>();
     this.startedExecThread = false;
 
     this.closed = false;
+    this.metrics = PhaseMetrics.getMetrics();
   }
 
   /**
    * Allow subclasses access to the Connection instance we hold.
    * This Connection is shared with the asynchronous SQL exec thread.
    * Any uses of the Connection must be synchronized on it.
+   * When called from an exec thread which prepares its own statements,
+   * this returns the connection used by that thread.
    * @return the Connection object used for this SQL transaction.
    */
   protected final Connection getConnection() {
+    Connection conn = this.execConnection.get();
+    if (null != conn) {
+      return conn;
+    }
     return this.connection;
   }
 
@@ -115,11 +177,24 @@ protected boolean isBatchExec() {
     return false;
   }
 
+  /**
+   * Should return 'true' if the statements generated by the RecordWriter
+   * may be executed on several connections at once, i.e. they do not depend
+   * on each other or on any state of the connection beyond what the
+   * DBConfiguration sets up, and getPreparedStatement() may be called from
+   * several threads. Only then is
+   * AsyncSqlOutputFormat.CONNECTIONS_PER_TASK_KEY honored.
+   */
+  protected boolean supportsConcurrentConnections() {
+    return false;
+  }
+
   /**
    * Generate the PreparedStatement object that will be fed into the execution
    * thread. All parameterized fields of the PreparedStatement must be set in
    * this method as well; this is usually based on the records collected from
-   * the user in the userRecords list.
+   * the user in the userRecords list. The records are reused once this
+   * method returns, so it must not hold on to them.
    *
    * Note that any uses of the Connection object here must be synchronized on
    * the Connection.
@@ -132,6 +207,158 @@ protected boolean isBatchExec() {
   protected abstract PreparedStatement getPreparedStatement(
       List<SqoopRecord> userRecords) throws SQLException;
 
+  /**
+   * Take an idle statement which was prepared on getConnection() for the
+   * specified number of rows, and registered with cacheStatement(). Its
+   * parameters have been cleared.
+   * @param numRows the number of rows the statement was prepared for.
+   * @return the statement, or null if there is no such idle statement.
+   */
+  protected final PreparedStatement getCachedStatement(int numRows) {
+    Connection conn = getConnection();
+    synchronized (idleStatements) {
+      Map<Integer, Deque<PreparedStatement>> byRows =
+          idleStatements.get(conn);
+      if (null == byRows) {
+        return null;
+      }
+
+      Deque<PreparedStatement> idle = byRows.get(numRows);
+      if (null == idle || idle.isEmpty()) {
+        return null;
+      }
+
+      PreparedStatement stmt = idle.pop();
+      busyStatements.put(stmt, numRows);
+      return stmt;
+    }
+  }
+
+  /**
+   * Register a statement prepared on getConnection() for the specified
+   * number of rows. Once it has been executed, the statement is kept for
+   * later calls to getCachedStatement() rather than closed.
+   * @param stmt the statement returned by getPreparedStatement().
+   * @param numRows the number of rows the statement was prepared for.
+   */
+  protected final void cacheStatement(PreparedStatement stmt, int numRows) {
+    synchronized (idleStatements) {
+      busyStatements.put(stmt, numRows);
+    }
+  }
+
+  /**
+   * Return an executed statement to the idle statements of its connection.
+   * @return false if the statement was not cached, and should be closed.
+   */
+  private boolean releaseCachedStatement(Connection conn,
+      PreparedStatement stmt) throws SQLException {
+    Integer numRows;
+    synchronized (idleStatements) {
+      numRows = busyStatements.remove(stmt);
+    }
+    if (null == numRows) {
+      return false;
+    }
+
+    stmt.clearParameters();
+    synchronized (idleStatements) {
+      Map<Integer, Deque<PreparedStatement>> byRows =
+          idleStatements.get(conn);
+      if (null == byRows) {
+        byRows = new HashMap<Integer, Deque<PreparedStatement>>();
+        idleStatements.put(conn, byRows);
+      }
+
+      Deque<PreparedStatement> idle = byRows.get(numRows);
+      if (null == idle) {
+        idle = new ArrayDeque<PreparedStatement>();
+        byRows.put(numRows, idle);
+      }
+      idle.push(stmt);
+    }
+    return true;
+  }
+
+  /**
+   * Close all the statements registered with cacheStatement().
+   */
+  private void closeCachedStatements() throws SQLException {
+    List<PreparedStatement> stmts = new ArrayList<PreparedStatement>();
+    synchronized (idleStatements) {
+      for (Map<Integer, Deque<PreparedStatement>> byRows
+          : idleStatements.values()) {
+        for (Deque<PreparedStatement> idle : byRows.values()) {
+          stmts.addAll(idle);
+        }
+      }
+      // Statements which failed to execute have been closed already, but
+      // closing them again is harmless.
+      stmts.addAll(busyStatements.keySet());
+      idleStatements.clear();
+      busyStatements.clear();
+    }
+
+    SQLException firstErr = null;
+    for (PreparedStatement stmt : stmts) {
+      try {
+        stmt.close();
+      } catch (SQLException sqle) {
+        LoggingUtils.logAll(LOG, sqle);
+        if (null == firstErr) {
+          firstErr = sqle;
+        }
+      }
+    }
+    if (null != firstErr) {
+      throw firstErr;
+    }
+  }
+
+  /**
+   * Create and start the exec threads, opening any additional
+   * connections the task is configured to use.
+   */
+  private void startExecThreads() throws SQLException {
+    int numConnections = conf.getInt(
+        AsyncSqlOutputFormat.CONNECTIONS_PER_TASK_KEY,
+        AsyncSqlOutputFormat.DEFAULT_CONNECTIONS_PER_TASK);
+    if (numConnections > 1 && !supportsConcurrentConnections()) {
+      LOG.warn(getClass().getName() + " does not support concurrent "
+          + "connections; ignoring "
+          + AsyncSqlOutputFormat.CONNECTIONS_PER_TASK_KEY + "="
+          + numConnections);
+      numConnections = 1;
+    }
+
+    this.pipelined = pipelineDepth > 0 || numConnections > 1;
+
+    for (int i = 0; i < numConnections; i++) {
+      Connection conn;
+      if (i == 0) {
+        conn = this.connection;
+      } else {
+        try {
+          conn = new DBConfiguration(conf).getConnection();
+        } catch (ClassNotFoundException cnfe) {
+          throw new SQLException("Could not open connection " + i, cnfe);
+        }
+        this.pooledConnections.add(conn);
+        conn.setAutoCommit(false);
+      }
+
+      AsyncSqlOutputFormat.AsyncSqlExecThread execThread =
+          new RecordExecThread(conn, stmtsPerTx, pipelineDepth);
+      execThread.setDaemon(true);
+      this.execThreads.add(execThread);
+    }
+
+    for (AsyncSqlOutputFormat.AsyncSqlExecThread execThread : execThreads) {
+      execThread.start();
+    }
+    this.startedExecThread = true;
+  }
+
   /**
    * Takes the current contents of 'records' and formats and executes the
    * INSERT statement.
@@ -142,40 +369,104 @@ private void execUpdate(boolean commit, boolean stopThread)
       throws InterruptedException, SQLException {
 
     if (!startedExecThread) {
-      this.execThread.start();
-      this.startedExecThread = true;
+      startExecThreads();
     }
 
-    PreparedStatement stmt = null;
-    boolean successfulPut = false;
-    try {
-      if (records.size() > 0) {
-        stmt = getPreparedStatement(records);
-        this.records.clear();
-      }
-
-      // Pass this operation off to the update thread. This will block if
-      // the update thread is already performing an update.
-      AsyncSqlOutputFormat.AsyncDBOperation op =
-          new AsyncSqlOutputFormat.AsyncDBOperation(stmt, isBatchExec(),
-                  commit, stopThread);
-      execThread.put(op);
-      successfulPut = true; // op has been posted to the other thread.
-    } finally {
-      if (!successfulPut && null != stmt) {
-        // We created a statement but failed to enqueue it. Close it.
-        stmt.close();
+    if (pipelined) {
+      queueUpdate(commit, stopThread);
+    } else {
+      AsyncSqlOutputFormat.AsyncSqlExecThread execThread = execThreads.get(0);
+      PreparedStatement stmt = null;
+      RecordBuffer userRecords = null;
+      boolean successfulPut = false;
+      try {
+        if (records.size() > 0) {
+          metrics.addBatchRows(records.size());
+          stmt = getPreparedStatement(records);
+          // The exec thread hands these back once the statement has run.
+          userRecords = records;
+          this.records = nextRecordBuffer();
+        }
+
+        // Pass this operation off to the update thread. This will block if
+        // the update thread is already performing an update.
+        AsyncSqlOutputFormat.AsyncDBOperation op =
+            new AsyncSqlOutputFormat.AsyncDBOperation(stmt, userRecords,
+                isBatchExec(), commit, stopThread);
+        long waitStart = metrics.start();
+        execThread.put(op);
+        metrics.end(PhaseMetrics.Phase.BATCH_WAIT, waitStart);
+        successfulPut = true; // op has been posted to the other thread.
+      } finally {
+        if (!successfulPut && null != stmt) {
+          // We created a statement but failed to enqueue it. Close it.
+          stmt.close();
+        }
       }
     }
 
     // Check for any previous SQLException. If one happened, rethrow it here.
-    SQLException lastException = execThread.getLastError();
+    SQLException lastException = getLastError();
     if (null != lastException) {
       LoggingUtils.logAll(LOG, lastException);
       throw lastException;
     }
   }
 
+  /**
+   * Queue the current contents of 'records' to the next exec thread, which
+   * will prepare and execute the statement. If a commit or stop is
+   * requested, it is sent to every exec thread.
+   */
+  private void queueUpdate(boolean commit, boolean stopThread)
+      throws InterruptedException {
+    if (records.size() > 0) {
+      AsyncSqlOutputFormat.AsyncSqlExecThread execThread =
+          execThreads.get(nextExecThread);
+      nextExecThread = (nextExecThread + 1) % execThreads.size();
+
+      RecordBuffer userRecords = records;
+      this.records = nextRecordBuffer();
+      metrics.addBatchRows(userRecords.size());
+
+      // This blocks while the thread's pipeline is full.
+      long waitStart = metrics.start();
+      execThread.put(new AsyncSqlOutputFormat.AsyncDBOperation(
+          userRecords, isBatchExec(), false, false));
+      metrics.end(PhaseMetrics.Phase.BATCH_WAIT, waitStart);
+    }
+
+    if (commit || stopThread) {
+      for (AsyncSqlOutputFormat.AsyncSqlExecThread execThread : execThreads) {
+        execThread.put(new AsyncSqlOutputFormat.AsyncDBOperation(
+            (PreparedStatement) null, isBatchExec(), commit, stopThread));
+      }
+    }
+  }
+
+  /**
+   * @return an empty buffer whose records' statement has been executed.
+   */
+  private RecordBuffer nextRecordBuffer() {
+    RecordBuffer next = freeRecords.poll();
+    return (null != next) ? next : new RecordBuffer(rowsPerStmt);
+  }
+
+  /**
+   * @return the first error reported by any of the exec threads since
+   * the last call, clearing the error slots of all of them.
+   */
+  private SQLException getLastError() {
+    SQLException first = null;
+    for (AsyncSqlOutputFormat.AsyncSqlExecThread execThread : execThreads) {
+      SQLException e = execThread.getLastError();
+      if (null == first) {
+        first = e;
+      }
+    }
+    return first;
+  }
+
   @Override
   /** {@inheritDoc} */
   public void close(TaskAttemptContext context)
@@ -192,20 +483,32 @@ public void close(TaskAttemptContext context)
     try {
       try {
         execUpdate(true, true);
-        execThread.join();
+        for (AsyncSqlOutputFormat.AsyncSqlExecThread execThread
+            : execThreads) {
+          execThread.join();
+        }
       } catch (SQLException sqle) {
         throw new IOException(sqle);
       }
 
       // If we're not leaving on an error return path already,
-      // now that execThread is definitely stopped, check that the
-      // error slot remains empty.
-      SQLException lastErr = execThread.getLastError();
+      // now that the exec threads are definitely stopped, check that the
+      // error slots remain empty.
+      SQLException lastErr = getLastError();
       if (null != lastErr) {
         throw new IOException(lastErr);
       }
+
+      // The final batches and commit ran after the mapper published its
+      // counters.
+      metrics.publishCounters(context);
+      if (metrics.isEnabled()) {
+        LOG.info("Task phases: " + metrics);
+      }
     } finally {
       try {
+        closeCachedStatements();
+        closePooledConnections();
         closeConnection(context);
       } catch (SQLException sqle) {
         throw new IOException(sqle);
@@ -213,6 +516,24 @@ public void close(TaskAttemptContext context)
     }
   }
 
+  private void closePooledConnections() throws SQLException {
+    SQLException firstErr = null;
+    for (Connection conn : pooledConnections) {
+      try {
+        conn.close();
+      } catch (SQLException sqle) {
+        LoggingUtils.logAll(LOG, sqle);
+        if (null == firstErr) {
+          firstErr = sqle;
+        }
+      }
+    }
+    pooledConnections.clear();
+    if (null != firstErr) {
+      throw firstErr;
+    }
+  }
+
   public void closeConnection(TaskAttemptContext context)
       throws SQLException {
     this.connection.close();
@@ -223,7 +544,7 @@ public void closeConnection(TaskAttemptContext context)
   public void write(K key, V value)
       throws InterruptedException, IOException {
     try {
-      records.add((SqoopRecord) key.clone());
+      records.addCopy(key);
       if (records.size() >= this.rowsPerStmt) {
         execUpdate(false, false);
       }
@@ -233,4 +554,84 @@ public void write(K key, V value)
       throw new IOException(sqlException);
     }
   }
+
+  /**
+   * A list of buffered records which keeps hold of the record instances
+   * it has contained, so that they can be reused for later records once
+   * the list is cleared.
+   */
+  private static class RecordBuffer extends ArrayList<SqoopRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    private SqoopRecord [] spares;
+
+    public RecordBuffer(int capacity) {
+      super(Math.max(capacity, 1));
+      this.spares = new SqoopRecord[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Append a copy of 'record', reusing the instance which previously
+     * occupied this position if there is one.
+     */
+    public void addCopy(SqoopRecord record)
+        throws CloneNotSupportedException {
+      int pos = size();
+      if (pos == spares.length) {
+        spares = Arrays.copyOf(spares, pos * 2);
+      }
+      spares[pos] = record.copyInto(spares[pos]);
+      add(spares[pos]);
+    }
+  }
+
+  /**
+   * An exec thread which prepares the statements for the buffers of records
+   * queued to it, on its own connection, and hands the emptied buffers back
+   * to the RecordWriter once the statements have run. Cached statements are
+   * kept open once executed.
+   */
+  private class RecordExecThread
+      extends AsyncSqlOutputFormat.AsyncSqlExecThread {
+
+    public RecordExecThread(Connection conn, int stmtsPerTx,
+        int pipelineDepth) {
+      super(conn, stmtsPerTx, pipelineDepth);
+    }
+
+    @Override
+    public void run() {
+      execConnection.set(getConnection());
+      super.run();
+    }
+
+    @Override
+    protected PreparedStatement getStatement(
+        AsyncSqlOutputFormat.AsyncDBOperation op) throws SQLException {
+      List<SqoopRecord> userRecords = op.getRecords();
+      if (null == userRecords || null != op.getStatement()) {
+        return super.getStatement(op);
+      }
+      return getPreparedStatement(userRecords);
+    }
+
+    @Override
+    protected void operationDone(AsyncSqlOutputFormat.AsyncDBOperation op) {
+      List<SqoopRecord> userRecords = op.getRecords();
+      if (null != userRecords) {
+        RecordBuffer buffer = (RecordBuffer) userRecords;
+        buffer.clear();
+        freeRecords.offer(buffer);
+      }
+    }
+
+    @Override
+    protected void releaseStatement(PreparedStatement stmt)
+        throws SQLException {
+      if (!releaseCachedStatement(getConnection(), stmt)) {
+        super.releaseStatement(stmt);
+      }
+    }
+  }
 }
@@ -28,7 +28,8 @@
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
-import org.apache.sqoop.avro.AvroUtil;
+import org.apache.sqoop.avro.AvroRecordConverter;
+import org.apache.sqoop.util.PhaseMetrics;
 
 import java.io.IOException;
 import java.sql.SQLException;
@@ -46,6 +47,8 @@
   private LargeObjectLoader lobLoader;
   private boolean bigDecimalFormatString;
   private boolean bigDecimalPadding;
+  private AvroRecordConverter converter;
+  private final PhaseMetrics metrics = PhaseMetrics.getMetrics();
 
   @Override
   protected void setup(Context context)
@@ -57,6 +60,8 @@ protected void setup(Context context)
         ImportJobBase.PROPERTY_BIGDECIMAL_FORMAT,
         ImportJobBase.PROPERTY_BIGDECIMAL_FORMAT_DEFAULT);
     bigDecimalPadding = conf.getBoolean(ConfigurationConstants.PROP_ENABLE_AVRO_DECIMAL_PADDING, false);
+    converter = new AvroRecordConverter(schema, bigDecimalFormatString,
+        bigDecimalPadding);
   }
 
   @Override
@@ -70,9 +75,11 @@ protected void map(LongWritable key, SqoopRecord val, Context context)
       throw new IOException(sqlE);
     }
 
-    GenericRecord outKey = AvroUtil.toGenericRecord(val.getFieldMap(), schema, bigDecimalFormatString, bigDecimalPadding);
+    GenericRecord outKey = converter.toGenericRecord(val);
     wrapper.datum(outKey);
+    long start = metrics.start();
     context.write(wrapper, NullWritable.get());
+    metrics.end(PhaseMetrics.Phase.OUTPUT_WRITE, start);
   }
 
   @Override
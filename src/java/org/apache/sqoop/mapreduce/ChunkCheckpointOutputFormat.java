@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.sqoop.mapreduce.db.ChunkCheckpoint;
+import org.apache.sqoop.util.AppendUtils;
+
+/**
+ * OutputFormat which writes the records of each chunk of a chunked split to
+ * files of their own, using another FileOutputFormat, so that the files of
+ * the chunks a task has finished can be kept by its ChunkCheckpoint.
+ *
+ * The files of chunk n are named like those of the task, with "-chunk-n"
+ * added to the base name, e.g. part-chunk-00042-m-00003. Records read
+ * outside of any chunk go to the task's usual file.
+ */
+public class ChunkCheckpointOutputFormat<K, V> extends OutputFormat<K, V> {
+
+  /** conf key: the FileOutputFormat class which writes the files. */
+  public static final String DELEGATE_CLASS_KEY =
+      "sqoop.import.chunk.checkpoint.output.format.class";
+
+  private FileOutputFormat<K, V> delegate;
+
+  /**
+   * Make the job write its output through a ChunkCheckpointOutputFormat,
+   * which writes its files with the specified FileOutputFormat.
+   */
+  @SuppressWarnings("rawtypes")
+  public static void setOutputFormatClass(Job job,
+      Class<? extends OutputFormat> outputFormatClass) {
+    if (!FileOutputFormat.class.isAssignableFrom(outputFormatClass)) {
+      throw new IllegalArgumentException(outputFormatClass.getName()
+          + " is not a FileOutputFormat");
+    }
+    job.getConfiguration().setClass(DELEGATE_CLASS_KEY, outputFormatClass,
+        OutputFormat.class);
+    job.setOutputFormatClass(ChunkCheckpointOutputFormat.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized FileOutputFormat<K, V> getDelegate(
+      Configuration conf) throws IOException {
+    if (null == delegate) {
+      Class<?> delegateClass = conf.getClass(DELEGATE_CLASS_KEY, null);
+      if (null == delegateClass) {
+        throw new IOException("Delegate OutputFormat class is not set.");
+      }
+      delegate = (FileOutputFormat<K, V>)
+          ReflectionUtils.newInstance(delegateClass, conf);
+    }
+    return delegate;
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void checkOutputSpecs(JobContext context)
+      throws IOException, InterruptedException {
+    getDelegate(context.getConfiguration()).checkOutputSpecs(context);
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public OutputCommitter getOutputCommitter(TaskAttemptContext context)
+      throws IOException, InterruptedException {
+    return getDelegate(context.getConfiguration())
+        .getOutputCommitter(context);
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public RecordWriter<K, V> getRecordWriter(TaskAttemptContext context)
+      throws IOException, InterruptedException {
+    return new ChunkRecordWriter(context);
+  }
+
+  /**
+   * @return the base name of the files holding the records of a chunk.
+   */
+  static String getChunkBaseName(Configuration conf, int chunk) {
+    return conf.get(AppendUtils.MAPREDUCE_OUTPUT_BASENAME_PROPERTY,
+        AppendUtils.DATA_PART_PATTERN_PREFIX)
+        + String.format("-chunk-%05d", chunk);
+  }
+
+  /**
+   * Opens a RecordWriter of the delegate for each chunk, and closes it when
+   * the chunk ends.
+   */
+  private class ChunkRecordWriter extends RecordWriter<K, V>
+      implements ChunkCheckpoint.Listener {
+
+    private final TaskAttemptContext context;
+    private final ChunkCheckpoint checkpoint;
+    private final FileOutputFormat<K, V> outputFormat;
+    private final Path workDir;
+
+    private RecordWriter<K, V> writer;
+    private int writerChunk = -1;
+
+    ChunkRecordWriter(TaskAttemptContext context)
+        throws IOException, InterruptedException {
+      this.context = context;
+      this.outputFormat = getDelegate(context.getConfiguration());
+      this.workDir = ((FileOutputCommitter)
+          outputFormat.getOutputCommitter(context)).getWorkPath();
+      this.checkpoint = ChunkCheckpoint.forTask(context);
+      checkpoint.setListener(this);
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public void write(K key, V value)
+        throws IOException, InterruptedException {
+      int chunk = checkpoint.getCurrentChunk();
+      if (null == writer || chunk != writerChunk) {
+        closeWriter();
+        writer = outputFormat.getRecordWriter(getChunkContext(chunk));
+        writerChunk = chunk;
+      }
+      writer.write(key, value);
+      if (chunk >= 0) {
+        checkpoint.recordWritten();
+      }
+    }
+
+    private TaskAttemptContext getChunkContext(int chunk) {
+      if (chunk < 0) {
+        return context;
+      }
+      Configuration conf = new Configuration(context.getConfiguration());
+      conf.set(AppendUtils.MAPREDUCE_OUTPUT_BASENAME_PROPERTY,
+          getChunkBaseName(context.getConfiguration(), chunk));
+      return new TaskAttemptContextImpl(conf, context.getTaskAttemptID());
+    }
+
+    private void closeWriter() throws IOException {
+      if (null != writer) {
+        try {
+          writer.close(context);
+        } catch (InterruptedException ie) {
+          throw new IOException(ie);
+        }
+        writer = null;
+      }
+    }
+
+    @Override
+    public List<Path> finishChunk(int chunk) throws IOException {
+      if (null == writer || writerChunk != chunk) {
+        // No records were written for the chunk.
+        return Collections.emptyList();
+      }
+      closeWriter();
+
+      FileSystem fs = workDir.getFileSystem(context.getConfiguration());
+      FileStatus [] files = fs.globStatus(new Path(workDir,
+          getChunkBaseName(context.getConfiguration(), chunk) + "-*"));
+      List<Path> paths = new ArrayList<Path>();
+      if (null != files) {
+        for (FileStatus file : files) {
+          paths.add(file.getPath());
+        }
+      }
+      return paths;
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public void close(TaskAttemptContext ctx)
+        throws IOException, InterruptedException {
+      closeWriter();
+      checkpoint.promote(workDir, context);
+    }
+  }
+}
@@ -35,6 +35,7 @@
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.sqoop.mapreduce.hcat.SqoopHCatUtilities;
 
@@ -44,10 +45,13 @@
 import org.apache.sqoop.manager.ConnManager;
 import org.apache.sqoop.manager.ImportJobContext;
 import org.apache.sqoop.mapreduce.ImportJobBase;
+import org.apache.sqoop.mapreduce.db.ChunkCheckpoint;
+import org.apache.sqoop.mapreduce.db.ChunkedDBRecordReader;
 import org.apache.sqoop.mapreduce.db.DBConfiguration;
 import org.apache.sqoop.mapreduce.db.DataDrivenDBInputFormat;
 import org.apache.sqoop.mapreduce.parquet.ParquetImportJobConfigurator;
 import org.apache.sqoop.orm.AvroSchemaGenerator;
+import org.apache.sqoop.util.ImportException;
 
 import static org.apache.sqoop.mapreduce.parquet.ParquetConstants.SQOOP_PARQUET_AVRO_SCHEMA_KEY;
 
@@ -80,6 +84,27 @@ public DataDrivenImportJob(final SqoopOptions opts) {
     this(opts, DataDrivenDBInputFormat.class, null);
   }
 
+  @Override
+  protected void configureOutputFormat(Job job, String tableName,
+      String tableClassName) throws ClassNotFoundException, IOException {
+    super.configureOutputFormat(job, tableName, tableClassName);
+
+    if (ChunkCheckpoint.isEnabled(job.getConfiguration())) {
+      Class<? extends OutputFormat<?, ?>> outputFormatClass =
+          job.getOutputFormatClass();
+      if (FileOutputFormat.class.isAssignableFrom(outputFormatClass)) {
+        LOG.info("Keeping the output of each chunk of chunked splits");
+        ChunkCheckpointOutputFormat.setOutputFormatClass(job,
+            outputFormatClass);
+      } else {
+        LOG.warn("Chunk checkpoints are not supported with "
+            + outputFormatClass.getName() + "; disabling them");
+        job.getConfiguration().setBoolean(ChunkCheckpoint.ENABLED_KEY,
+            false);
+      }
+    }
+  }
+
   @Override
   protected void configureMapper(Job job, String tableName,
       String tableClassName) throws IOException {
@@ -291,6 +316,13 @@ protected void configureInputFormat(Job job, String tableName,
         job.getConfiguration()
           .setBoolean(DBConfiguration.PROP_RELAXED_ISOLATION, true);
       }
+      if (ChunkedDBRecordReader.getChunksPerMapper(
+          job.getConfiguration()) > 1) {
+        // Concurrent attempts of a task could each read only some of the
+        // chunks claimed for that task.
+        LOG.info("Disabling speculative execution for chunked splits");
+        ConfigurationHelper.setJobMapSpeculativeExecution(job, false);
+      }
       LOG.debug("Using table class: " + tableClassName);
       job.getConfiguration().set(ConfigurationHelper.getDbInputClassProperty(),
           tableClassName);
@@ -313,5 +345,13 @@ protected void configureInputFormat(Job job, String tableName,
       }
     }
   }
+
+  @Override
+  protected void jobTeardown(Job job) throws IOException, ImportException {
+    super.jobTeardown(job);
+    // Chunked splits of any input format may have claimed chunks.
+    ChunkedDBRecordReader.deleteClaimDir(job.getConfiguration(),
+        job.getJobID());
+  }
 }
 
@@ -126,18 +126,30 @@ protected final int getColumnCount() {
       return columnCount;
     }
 
+    @Override
+    /** {@inheritDoc} */
+    protected boolean supportsConcurrentConnections() {
+      // Each statement inserts rows independently of the others.
+      return true;
+    }
+
     @Override
     /** {@inheritDoc} */
     protected PreparedStatement getPreparedStatement(
         List<SqoopRecord> userRecords) throws SQLException {
 
-      PreparedStatement stmt = null;
-
-      // Synchronize on connection to ensure this does not conflict
-      // with the operations in the update thread.
-      Connection conn = getConnection();
-      synchronized (conn) {
-        stmt = conn.prepareStatement(getInsertStatement(userRecords.size()));
+      // Full batches all reuse the same statement; only a final partial
+      // batch needs to prepare another one.
+      int numRows = userRecords.size();
+      PreparedStatement stmt = getCachedStatement(numRows);
+      if (null == stmt) {
+        // Synchronize on connection to ensure this does not conflict
+        // with the operations in the update thread.
+        Connection conn = getConnection();
+        synchronized (conn) {
+          stmt = conn.prepareStatement(getInsertStatement(numRows));
+        }
+        cacheStatement(stmt, numRows);
       }
 
       // Inject the record parameters into the VALUES clauses.
@@ -40,6 +40,7 @@
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.sqoop.mapreduce.db.SplitCountValidator;
 import org.apache.sqoop.mapreduce.hcat.SqoopHCatUtilities;
 import org.apache.sqoop.util.PerfCounters;
 import org.apache.sqoop.validation.ValidationContext;
@@ -261,6 +262,14 @@ public void runImport(String tableName, String ormJarFile, String splitByCol,
       }
 
       propagateOptionsToJob(job);
+      if (options.isValidationEnabled()) {
+        // Count the source rows split by split, in the map tasks.
+        Configuration jobConf = job.getConfiguration();
+        jobConf.setBoolean(SplitCountValidator.ENABLED_KEY,
+            jobConf.getBoolean(SplitCountValidator.ENABLED_KEY, true));
+        jobConf.set(SplitCountValidator.THRESHOLD_CLASS_KEY,
+            options.getValidationThresholdClass().getName());
+      }
       configureInputFormat(job, tableName, tableClassName, splitByCol);
       configureOutputFormat(job, tableName, tableClassName);
       configureMapper(job, tableName, tableClassName);
@@ -308,8 +317,11 @@ protected void validateImport(String tableName, Configuration conf, Job job)
     LOG.debug("Validating imported data.");
     try {
       ValidationContext validationContext = new ValidationContext(
-        getRowCountFromDB(context.getConnManager(), tableName), // source
+        getSourceRowCount(tableName, job),                      // source
         getRowCountFromHadoop(job));                            // target
+      validationContext.setMismatchedSplitCount(
+        getValidationCounter(job,
+            SplitCountValidator.MISMATCHED_SPLITS_COUNTER));
 
       doValidate(options, conf, validationContext);
     } catch (ValidationException e) {
@@ -323,6 +335,35 @@ protected void validateImport(String tableName, Configuration conf, Job job)
     }
   }
 
+  /**
+   * Get the number of rows in the source table. If the map tasks counted
+   * the rows of every query they ran, this is the sum of their counts;
+   * otherwise the table is counted now.
+   */
+  protected long getSourceRowCount(String tableName, Job job)
+      throws SQLException, IOException, InterruptedException {
+    long counted = getValidationCounter(job,
+        SplitCountValidator.COUNTED_QUERIES_COUNTER);
+    long uncounted = getValidationCounter(job,
+        SplitCountValidator.UNCOUNTED_QUERIES_COUNTER);
+    if (counted > 0 && uncounted == 0) {
+      LOG.info("Using the row counts of " + counted
+          + " split queries as the source row count.");
+      return getValidationCounter(job, SplitCountValidator.SOURCE_ROWS_COUNTER);
+    }
+    return getRowCountFromDB(context.getConnManager(), tableName);
+  }
+
+  private long getValidationCounter(Job job, String name)
+      throws IOException, InterruptedException {
+    Counters counters = job.getCounters();
+    if (null == counters) {
+      return 0;
+    }
+    return counters.findCounter(SplitCountValidator.COUNTER_GROUP, name)
+        .getValue();
+  }
+
   /**
    * Open-ended "setup" routine that is called after the job is configured
    * but just before it is submitted to MapReduce. Subclasses may override
@@ -40,8 +40,9 @@
  extends
     MergeMapperBase<AvroWrapper<GenericRecord>, NullWritable> {
 
-  private Map<String, Pair<String, String>> sqoopRecordFields = new HashMap<String, Pair<String, String>>();
+  private Map<String, Pair<String, String>> sqoopRecordFields;
   private SqoopRecord sqoopRecordImpl;
+  private AvroWrapper<GenericRecord> currentInput;
 
   @Override
   protected void setup(Context context) throws InterruptedException, IOException {
@@ -52,12 +53,7 @@ protected void setup(Context context) throws InterruptedException, IOException {
       final Class<? extends Object> clazz = Class.forName(userClassName, true,
           Thread.currentThread().getContextClassLoader());
       sqoopRecordImpl = (SqoopRecord) ReflectionUtils.newInstance(clazz, conf);
-      for (final Field field : clazz.getDeclaredFields()) {
-        final String fieldName = field.getName();
-        final String fieldTypeName = field.getType().getName();
-        sqoopRecordFields.put(fieldName.toLowerCase(), new Pair<String, String>(fieldName,
-            fieldTypeName));
-      }
+      sqoopRecordFields = getRecordFields(clazz);
     } catch (ClassNotFoundException e) {
       throw new IOException("Cannot find the user record class with class name"
           + userClassName, e);
@@ -67,10 +63,43 @@ protected void setup(Context context) throws InterruptedException, IOException {
   @Override
   public void map(AvroWrapper<GenericRecord> key, NullWritable val, Context c)
       throws IOException, InterruptedException {
-    processRecord(toSqoopRecord(key.datum()), c);
+    currentInput = key;
+    processRecord(toSqoopRecord(key.datum(), sqoopRecordImpl,
+        sqoopRecordFields), c);
+  }
+
+  @Override
+  protected Object getUnchangedOutput(SqoopRecord r) {
+    // Both datasets have the output schema, so the input can be written
+    // as it is.
+    return currentInput;
+  }
+
+  /**
+   * @return the name and type name of each field of the record class
+   * 'clazz', by lower-cased field name.
+   */
+  static Map<String, Pair<String, String>> getRecordFields(Class<?> clazz) {
+    Map<String, Pair<String, String>> fields =
+        new HashMap<String, Pair<String, String>>();
+    for (final Field field : clazz.getDeclaredFields()) {
+      final String fieldName = field.getName();
+      final String fieldTypeName = field.getType().getName();
+      fields.put(fieldName.toLowerCase(), new Pair<String, String>(fieldName,
+          fieldTypeName));
+    }
+    return fields;
   }
 
-  private SqoopRecord toSqoopRecord(GenericRecord genericRecord) throws IOException {
+  /**
+   * Copy the fields of 'genericRecord' into 'sqoopRecordImpl'.
+   * @param sqoopRecordFields the fields of the record class, as returned by
+   * getRecordFields().
+   * @return sqoopRecordImpl.
+   */
+  static SqoopRecord toSqoopRecord(GenericRecord genericRecord,
+      SqoopRecord sqoopRecordImpl,
+      Map<String, Pair<String, String>> sqoopRecordFields) throws IOException {
     Schema avroSchema = genericRecord.getSchema();
     for (Schema.Field field : avroSchema.getFields()) {
       Pair<String, String> sqoopRecordField = sqoopRecordFields.get(field.name().toLowerCase());
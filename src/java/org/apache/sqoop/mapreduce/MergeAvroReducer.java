@@ -23,13 +23,14 @@
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.mapred.AvroWrapper;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.sqoop.avro.AvroUtil;
+import org.apache.sqoop.avro.AvroRecordConverter;
 import org.apache.sqoop.lib.SqoopRecord;
 
 public class MergeAvroReducer extends MergeReducerBase<AvroWrapper<GenericRecord>, NullWritable> {
   private AvroWrapper<GenericRecord> wrapper;
   private Schema schema;
   private boolean bigDecimalFormatString;
+  private AvroRecordConverter converter;
 
   @Override
   protected void setup(Context context) throws IOException, InterruptedException {
@@ -37,13 +38,13 @@ protected void setup(Context context) throws IOException, InterruptedException {
     schema = AvroJob.getOutputSchema(context.getConfiguration());
     bigDecimalFormatString = context.getConfiguration().getBoolean(
         ImportJobBase.PROPERTY_BIGDECIMAL_FORMAT, ImportJobBase.PROPERTY_BIGDECIMAL_FORMAT_DEFAULT);
+    converter = new AvroRecordConverter(schema, bigDecimalFormatString, false);
   }
 
   @Override
   protected void writeRecord(SqoopRecord record, Context context)
       throws IOException, InterruptedException {
-    GenericRecord outKey = AvroUtil.toGenericRecord(record.getFieldMap(), schema,
-        bigDecimalFormatString);
+    GenericRecord outKey = converter.toGenericRecord(record);
     wrapper.datum(outKey);
     context.write(wrapper, NullWritable.get());
   }
@@ -19,7 +19,6 @@
 package org.apache.sqoop.mapreduce;
 
 import java.io.IOException;
-import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -37,10 +36,18 @@
   private String keyColName;
   private boolean isNewDatasetSplit;
 
+  // Reused for every record written.
+  private MergeKeyEncoder keyEncoder;
+  private final Text outKey = new Text();
+  private MergeRecord outRecord;
+
   @Override
   protected void setup(Context context) throws IOException, InterruptedException {
     Configuration conf = context.getConfiguration();
     keyColName = conf.get(MergeJob.MERGE_KEY_COL_KEY);
+    keyEncoder = new MergeKeyEncoder(keyColName);
+    outRecord = new MergeRecord();
+    outRecord.setConf(conf);
 
     InputSplit inputSplit = context.getInputSplit();
     FileSplit fileSplit = (FileSplit) inputSplit;
@@ -59,17 +66,9 @@ protected void setup(Context context) throws IOException, InterruptedException {
   }
 
   protected void processRecord(SqoopRecord sqoopRecord, Context context) throws IOException, InterruptedException {
-    MergeRecord mergeRecord = new MergeRecord(sqoopRecord, isNewDatasetSplit);
-    Map<String, Object> fieldMap = sqoopRecord.getFieldMap();
-    if (null == fieldMap) {
-      throw new IOException("No field map in record " + sqoopRecord);
-    }
-    Object keyObj = fieldMap.get(keyColName);
-    if (null == keyObj) {
-      throw new IOException(
-          "Cannot join values on null key. " + "Did you specify a key column that exists?");
-    } else {
-      context.write(new Text(keyObj.toString()), mergeRecord);
-    }
+    keyEncoder.encode(sqoopRecord, outKey);
+    outRecord.setSqoopRecord(sqoopRecord);
+    outRecord.setNewRecord(isNewDatasetSplit);
+    context.write(outKey, outRecord);
   }
 }
\ No newline at end of file
@@ -23,26 +23,35 @@
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.FileReader;
+import org.apache.avro.mapred.AvroWrapper;
 import org.apache.avro.mapred.FsInput;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.RemoteIterator;
 import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.PathFilter;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.sqoop.avro.AvroUtil;
+import org.apache.sqoop.config.ConfigurationHelper;
 import org.apache.sqoop.mapreduce.ExportJobBase.FileType;
 import org.apache.sqoop.mapreduce.parquet.ParquetMergeJobConfigurator;
 import org.apache.sqoop.util.Jars;
 
 import org.apache.sqoop.SqoopOptions;
 import org.apache.sqoop.mapreduce.JobBase;
+import org.apache.sqoop.util.AppendUtils;
 import org.apache.sqoop.util.FileSystemUtil;
 
 /**
@@ -64,6 +73,22 @@ public class MergeJob extends JobBase {
    */
   public static final String MERGE_SQOOP_RECORD_KEY = "sqoop.merge.class";
 
+  /**
+   * Configuration key which, when true, merges datasets which are sorted
+   * and bucketed on the merge key in a map-only job, without a shuffle.
+   * See MergeSortedInputFormat for the layout the datasets must have.
+   */
+  public static final String MERGE_SORTED_KEY = "sqoop.merge.sorted";
+
+  /** Skips hidden files and the markers written by output committers. */
+  private static final PathFilter DATA_FILES = new PathFilter() {
+    @Override
+    public boolean accept(Path p) {
+      String name = p.getName();
+      return !name.startsWith("_") && !name.startsWith(".");
+    }
+  };
+
   private final ParquetMergeJobConfigurator parquetMergeJobConfigurator;
 
   public MergeJob(final SqoopOptions opts, final ParquetMergeJobConfigurator parquetMergeJobConfigurator) {
@@ -107,6 +132,7 @@ public boolean runMergeJob() throws IOException {
       }
     }
 
+    Path keyFilterDir = null;
     try {
       Path oldPath = new Path(options.getMergeOldPath());
       Path newPath = new Path(options.getMergeNewPath());
@@ -129,34 +155,61 @@ public boolean runMergeJob() throws IOException {
       FileOutputFormat.setOutputPath(job, new Path(options.getTargetDir()));
 
       FileType fileType = ExportJobBase.getFileType(jobConf, oldPath);
-      switch (fileType) {
-        case PARQUET_FILE:
-          Path finalPath = new Path(options.getTargetDir());
-          finalPath = FileSystemUtil.makeQualified(finalPath, jobConf);
-          parquetMergeJobConfigurator.configureParquetMergeJob(jobConf, job, oldPath, newPath, finalPath);
-          break;
-        case AVRO_DATA_FILE:
-          configueAvroMergeJob(conf, job, oldPath, newPath);
-          break;
-        case SEQUENCE_FILE:
-          job.setInputFormatClass(SequenceFileInputFormat.class);
-          job.setOutputFormatClass(SequenceFileOutputFormat.class);
-          job.setMapperClass(MergeRecordMapper.class);
-          job.setReducerClass(MergeReducer.class);
-          break;
-        default:
-          job.setMapperClass(MergeTextMapper.class);
-          job.setOutputFormatClass(RawKeyTextOutputFormat.class);
-          job.setReducerClass(MergeReducer.class);
+      boolean sorted = jobConf.getBoolean(MERGE_SORTED_KEY, false);
+      if (sorted && fileType == FileType.PARQUET_FILE) {
+        LOG.warn("Sorted merge is not supported for Parquet files; "
+            + "merging with a shuffle instead.");
+        sorted = false;
+      }
+
+      if (sorted) {
+        configureSortedMergeJob(conf, job, fileType, oldPath, newPath);
+      } else {
+        switch (fileType) {
+          case PARQUET_FILE:
+            Path finalPath = new Path(options.getTargetDir());
+            finalPath = FileSystemUtil.makeQualified(finalPath, jobConf);
+            parquetMergeJobConfigurator.configureParquetMergeJob(jobConf, job, oldPath, newPath, finalPath);
+            break;
+          case AVRO_DATA_FILE:
+            configueAvroMergeJob(conf, job, oldPath, newPath);
+            break;
+          case SEQUENCE_FILE:
+            job.setInputFormatClass(SequenceFileInputFormat.class);
+            job.setOutputFormatClass(SequenceFileOutputFormat.class);
+            job.setMapperClass(MergeRecordMapper.class);
+            job.setReducerClass(MergeReducer.class);
+            break;
+          default:
+            job.setMapperClass(MergeTextMapper.class);
+            job.setOutputFormatClass(RawKeyTextOutputFormat.class);
+            job.setReducerClass(MergeReducer.class);
+        }
+
+        // Set the intermediate data types.
+        job.setMapOutputKeyClass(Text.class);
+        job.setMapOutputValueClass(MergeRecord.class);
+
+        String filterType = jobConf.get(MergeKeyFilter.FILTER_TYPE_KEY,
+            MergeKeyFilter.FILTER_TYPE_NONE).toLowerCase();
+        if (!MergeKeyFilter.FILTER_TYPE_NONE.equals(filterType)) {
+          if (fileType == FileType.PARQUET_FILE) {
+            LOG.warn("Merge key filters are not supported for Parquet "
+                + "files; shuffling all records.");
+          } else {
+            keyFilterDir = AppendUtils.getTempAppendDir("merge_keys",
+                options);
+            keyFilterDir = FileSystemUtil.makeQualified(keyFilterDir,
+                jobConf);
+            configureKeyFilter(job, fileType, newPath, filterType,
+                keyFilterDir);
+          }
+        }
       }
 
       jobConf.set("mapred.output.key.class", userClassName);
       job.setOutputValueClass(NullWritable.class);
 
-      // Set the intermediate data types.
-      job.setMapOutputKeyClass(Text.class);
-      job.setMapOutputValueClass(MergeRecord.class);
-
       // Make sure Sqoop and anything else we need is on the classpath.
       cacheJars(job, null);
       setJob(job);
@@ -165,12 +218,154 @@ public boolean runMergeJob() throws IOException {
       throw new IOException(ie);
     } catch (ClassNotFoundException cnfe) {
       throw new IOException(cnfe);
+    } finally {
+      if (null != keyFilterDir) {
+        FileSystem fs = keyFilterDir.getFileSystem(conf);
+        if (!fs.delete(keyFilterDir, true)) {
+          LOG.warn("Could not delete " + keyFilterDir);
+        }
+      }
+    }
+  }
+
+  /**
+   * Run a pre-pass over the new dataset which collects its merge keys,
+   * build a MergeKeyFilter of them in 'tempDir', and set up 'job' to
+   * write old records whose keys are not in it straight to the output.
+   */
+  private void configureKeyFilter(Job job, FileType fileType, Path newPath,
+      String filterType, Path tempDir)
+      throws IOException, InterruptedException, ClassNotFoundException {
+    Configuration jobConf = job.getConfiguration();
+    boolean exact;
+    if (MergeKeyFilter.FILTER_TYPE_EXACT.equals(filterType)) {
+      exact = true;
+    } else if (MergeKeyFilter.FILTER_TYPE_BLOOM.equals(filterType)) {
+      exact = false;
+    } else {
+      throw new IOException("Unknown merge key filter type " + filterType
+          + "; expected " + MergeKeyFilter.FILTER_TYPE_NONE + ", "
+          + MergeKeyFilter.FILTER_TYPE_BLOOM + " or "
+          + MergeKeyFilter.FILTER_TYPE_EXACT);
+    }
+
+    LOG.info("Collecting merge keys of " + newPath);
+    Path keysDir = new Path(tempDir, "keys");
+    Job keyJob = createJob(jobConf);
+    FileInputFormat.setInputPaths(keyJob, newPath);
+    FileOutputFormat.setOutputPath(keyJob, keysDir);
+    switch (fileType) {
+      case AVRO_DATA_FILE:
+        keyJob.setInputFormatClass(AvroInputFormat.class);
+        break;
+      case SEQUENCE_FILE:
+        keyJob.setInputFormatClass(SequenceFileInputFormat.class);
+        break;
+      default:
+        keyJob.setInputFormatClass(TextInputFormat.class);
+    }
+    keyJob.setMapperClass(MergeKeyFilterMapper.class);
+    keyJob.setNumReduceTasks(0);
+    keyJob.setOutputFormatClass(SequenceFileOutputFormat.class);
+    keyJob.setOutputKeyClass(Text.class);
+    keyJob.setOutputValueClass(NullWritable.class);
+    cacheJars(keyJob, null);
+    if (!runJob(keyJob)) {
+      throw new IOException("Failed to collect the merge keys of "
+          + newPath);
+    }
+
+    long numKeys = ConfigurationHelper.getNumMapOutputRecords(keyJob);
+    MergeKeyFilter filter;
+    if (exact) {
+      filter = MergeKeyFilter.newExactFilter();
+    } else {
+      filter = MergeKeyFilter.newBloomFilter(numKeys, jobConf.getFloat(
+          MergeKeyFilter.FALSE_POSITIVE_RATE_KEY,
+          (float) MergeKeyFilter.DEFAULT_FALSE_POSITIVE_RATE));
+    }
+
+    FileSystem fs = keysDir.getFileSystem(jobConf);
+    Text key = new Text();
+    for (FileStatus stat : fs.listStatus(keysDir, DATA_FILES)) {
+      SequenceFile.Reader reader = new SequenceFile.Reader(jobConf,
+          SequenceFile.Reader.file(stat.getPath()));
+      try {
+        while (reader.next(key)) {
+          filter.add(key);
+        }
+      } finally {
+        reader.close();
+      }
+    }
+
+    Path filterPath = new Path(tempDir, "filter");
+    filter.save(filterPath, jobConf);
+    jobConf.set(MergeKeyFilter.FILTER_PATH_KEY, filterPath.toString());
+    LOG.info("Built " + filter + " of " + numKeys + " new records");
+
+    // Old records which pass the filter are written by the mappers.
+    if (fileType == FileType.AVRO_DATA_FILE) {
+      MultipleOutputs.addNamedOutput(job, MergeKeyFilter.UNCHANGED_OUTPUT,
+          AvroOutputFormat.class, AvroWrapper.class, NullWritable.class);
+    } else {
+      MultipleOutputs.addNamedOutput(job, MergeKeyFilter.UNCHANGED_OUTPUT,
+          fileType == FileType.SEQUENCE_FILE
+          ? SequenceFileOutputFormat.class : RawKeyTextOutputFormat.class,
+          jobConf.getClassByName(options.getClassName()),
+          NullWritable.class);
+    }
+  }
+
+  /**
+   * Configure a map-only job which merges each file of the old dataset
+   * with the file of the new dataset at the same position.
+   */
+  private void configureSortedMergeJob(Configuration conf, Job job,
+      FileType fileType, Path oldPath, Path newPath) throws IOException {
+    LOG.info("Merging sorted datasets without a shuffle");
+    job.getConfiguration().set(MergeSortedInputFormat.FILE_TYPE_KEY,
+        fileType.name());
+    job.setInputFormatClass(MergeSortedInputFormat.class);
+    job.setNumReduceTasks(0);
+
+    // Records are written through MultipleOutputs, named by bucket.
+    switch (fileType) {
+      case AVRO_DATA_FILE:
+        Schema schema = getMergeAvroSchema(conf, oldPath, newPath);
+        job.setMapperClass(MergeSortedAvroMapper.class);
+        LazyOutputFormat.setOutputFormatClass(job, AvroOutputFormat.class);
+        AvroJob.setOutputSchema(job.getConfiguration(), schema);
+        break;
+      case SEQUENCE_FILE:
+        job.setMapperClass(MergeSortedRecordMapper.class);
+        LazyOutputFormat.setOutputFormatClass(job,
+            SequenceFileOutputFormat.class);
+        break;
+      default:
+        job.setMapperClass(MergeSortedRecordMapper.class);
+        LazyOutputFormat.setOutputFormatClass(job,
+            RawKeyTextOutputFormat.class);
     }
   }
 
   private void configueAvroMergeJob(Configuration conf, Job job, Path oldPath, Path newPath)
       throws IOException {
     LOG.info("Trying to merge avro files");
+    final Schema oldPathSchema = getMergeAvroSchema(conf, oldPath, newPath);
+    job.setInputFormatClass(AvroInputFormat.class);
+    job.setOutputFormatClass(AvroOutputFormat.class);
+    job.setMapperClass(MergeAvroMapper.class);
+    job.setReducerClass(MergeAvroReducer.class);
+    AvroJob.setOutputSchema(job.getConfiguration(), oldPathSchema);
+  }
+
+  /**
+   * @return the Avro schema of both datasets.
+   * @throws IOException if the datasets have different schemas.
+   */
+  private Schema getMergeAvroSchema(Configuration conf, Path oldPath,
+      Path newPath) throws IOException {
     final Schema oldPathSchema = AvroUtil.getAvroSchema(oldPath, conf);
     final Schema newPathSchema = AvroUtil.getAvroSchema(newPath, conf);
     if (oldPathSchema == null || newPathSchema == null || !oldPathSchema.equals(newPathSchema)) {
@@ -178,12 +373,6 @@ private void configueAvroMergeJob(Configuration conf, Job job, Path oldPath, Pat
           + oldPathSchema + "]. Schema for new data: [" + newPathSchema + "]");
     }
     LOG.debug("Avro Schema:" + oldPathSchema);
-    job.setInputFormatClass(AvroInputFormat.class);
-    job.setOutputFormatClass(AvroOutputFormat.class);
-    job.setMapperClass(MergeAvroMapper.class);
-    job.setReducerClass(MergeAvroReducer.class);
-    AvroJob.setOutputSchema(job.getConfiguration(), oldPathSchema);
+    return oldPathSchema;
   }
 }
-
-
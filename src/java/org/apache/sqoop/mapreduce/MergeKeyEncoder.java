@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.hadoop.io.Text;
+import org.apache.sqoop.lib.SqoopRecord;
+
+/**
+ * Extracts the merge key column of records and encodes it as the Text
+ * which records are grouped and sorted by.
+ *
+ * Keys are encoded so that their bytes compare in the order of the key
+ * column's type, as a database sorts them. Integral keys are encoded as
+ * eight big-endian bytes with the sign bit flipped, so that they compare
+ * as numbers. Decimal keys are encoded by sign, exponent and digits, so
+ * that they also compare as numbers; decimals which differ only in scale,
+ * such as 1.5 and 1.50, are the same key. Floating point keys are encoded
+ * as their bits, reordered to compare as numbers. Dates, times and
+ * timestamps are encoded as their milliseconds since the epoch, followed
+ * by the nanoseconds of a timestamp. Other keys are encoded as the UTF-8
+ * bytes of their string form. The encoding is only used to compare keys,
+ * and is never decoded.
+ */
+public class MergeKeyEncoder {
+
+  private static final int LONG_BYTES = 8;
+  private static final int INT_BYTES = 4;
+
+  // Leading bytes of decimal keys, which order them by sign.
+  private static final byte DECIMAL_NEGATIVE = 0;
+  private static final byte DECIMAL_ZERO = 1;
+  private static final byte DECIMAL_POSITIVE = 2;
+  // Ends the digits of a negative decimal, so that a prefix of its
+  // digits, the decimal of larger value, compares greater.
+  private static final byte NEGATIVE_DIGITS_END = (byte) 0xff;
+
+  private final String keyColName;
+
+  // The record class the key index below was resolved for.
+  private Class<?> resolvedClass;
+  // Index of the key column in getFieldValues(), or -1 to use the field map.
+  private int keyIndex;
+  private Object [] values;
+
+  private final byte [] keyBytes = new byte[LONG_BYTES + INT_BYTES];
+
+  public MergeKeyEncoder(String keyColName) {
+    this.keyColName = keyColName;
+  }
+
+  /**
+   * Set 'key' to the encoded merge key of 'record'.
+   * @throws IOException if the record has no key column, or its key is
+   * null.
+   */
+  public void encode(SqoopRecord record, Text key) throws IOException {
+    encodeValue(getKeyValue(record), key);
+  }
+
+  private Object getKeyValue(SqoopRecord record) throws IOException {
+    if (record.getClass() != resolvedClass) {
+      resolve(record);
+    }
+
+    Object keyObj;
+    if (keyIndex >= 0) {
+      record.getFieldValues(values);
+      keyObj = values[keyIndex];
+    } else {
+      Map<String, Object> fieldMap = record.getFieldMap();
+      if (null == fieldMap) {
+        throw new IOException("No field map in record " + record);
+      }
+      keyObj = fieldMap.get(keyColName);
+    }
+
+    if (null == keyObj) {
+      throw new IOException("Cannot join values on null key. "
+          + "Did you specify a key column that exists?");
+    }
+    return keyObj;
+  }
+
+  private void resolve(SqoopRecord record) {
+    resolvedClass = record.getClass();
+    keyIndex = -1;
+    String [] names = record.getFieldNames();
+    if (null == names) {
+      // The class predates getFieldValues().
+      return;
+    }
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(keyColName)) {
+        keyIndex = i;
+        values = new Object[names.length];
+        return;
+      }
+    }
+  }
+
+  /**
+   * Set 'key' to the encoding of the key column value 'keyObj'.
+   */
+  public void encodeValue(Object keyObj, Text key) {
+    if (keyObj instanceof Long || keyObj instanceof Integer
+        || keyObj instanceof Short || keyObj instanceof Byte) {
+      putLong(((Number) keyObj).longValue() ^ Long.MIN_VALUE, 0);
+      key.set(keyBytes, 0, LONG_BYTES);
+    } else if (keyObj instanceof BigDecimal) {
+      encodeDecimal((BigDecimal) keyObj, key);
+    } else if (keyObj instanceof Double || keyObj instanceof Float) {
+      long bits = Double.doubleToLongBits(((Number) keyObj).doubleValue());
+      // Negative numbers grow more negative as their bits grow.
+      putLong(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE, 0);
+      key.set(keyBytes, 0, LONG_BYTES);
+    } else if (keyObj instanceof Date) {
+      // java.sql.Date, Time or Timestamp.
+      putLong(((Date) keyObj).getTime() ^ Long.MIN_VALUE, 0);
+      if (keyObj instanceof Timestamp) {
+        putInt(((Timestamp) keyObj).getNanos(), LONG_BYTES);
+        key.set(keyBytes, 0, LONG_BYTES + INT_BYTES);
+      } else {
+        key.set(keyBytes, 0, LONG_BYTES);
+      }
+    } else {
+      key.set(keyObj.toString());
+    }
+  }
+
+  /**
+   * Encode 'd' as its sign, followed by the exponent and the digits of
+   * its normalized form 0.d1d2... * 10^exponent; for negative decimals
+   * the bits of both are inverted, so that larger magnitudes compare less.
+   */
+  private void encodeDecimal(BigDecimal d, Text key) {
+    int signum = d.signum();
+    if (signum == 0) {
+      key.set(new byte [] { DECIMAL_ZERO }, 0, 1);
+      return;
+    }
+
+    BigDecimal normal = d.stripTrailingZeros();
+    int exponent = normal.precision() - normal.scale();
+    byte [] digits = normal.unscaledValue().abs().toString()
+        .getBytes(StandardCharsets.US_ASCII);
+    boolean negative = signum < 0;
+
+    byte [] bytes = new byte[1 + INT_BYTES + digits.length
+        + (negative ? 1 : 0)];
+    bytes[0] = negative ? DECIMAL_NEGATIVE : DECIMAL_POSITIVE;
+    int e = exponent ^ Integer.MIN_VALUE;
+    if (negative) {
+      e = ~e;
+    }
+    for (int i = INT_BYTES; i >= 1; i--) {
+      bytes[i] = (byte) e;
+      e >>>= 8;
+    }
+    for (int i = 0; i < digits.length; i++) {
+      bytes[1 + INT_BYTES + i] = negative ? (byte) ~digits[i] : digits[i];
+    }
+    if (negative) {
+      bytes[bytes.length - 1] = NEGATIVE_DIGITS_END;
+    }
+    key.set(bytes, 0, bytes.length);
+  }
+
+  private void putLong(long l, int offset) {
+    for (int i = offset + LONG_BYTES - 1; i >= offset; i--) {
+      keyBytes[i] = (byte) l;
+      l >>>= 8;
+    }
+  }
+
+  private void putInt(int n, int offset) {
+    for (int i = offset + INT_BYTES - 1; i >= offset; i--) {
+      keyBytes[i] = (byte) n;
+      n >>>= 8;
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.util.hash.Hash;
+import org.apache.hadoop.util.hash.MurmurHash;
+
+/**
+ * The set of merge keys of the new dataset, as encoded by MergeKeyEncoder.
+ *
+ * Records of the old dataset whose key is not in the set cannot be
+ * replaced by a new record, so MergeMapperBase writes them straight to the
+ * output instead of sending them through the shuffle. The set is either
+ * exact, or a Bloom filter which may report keys that were never added
+ * but takes a few bits per key; a false positive only sends the record
+ * through the shuffle.
+ */
+public class MergeKeyFilter implements Writable {
+
+  /**
+   * Configuration key selecting the kind of filter to build of the new
+   * dataset's keys: "none" (the default), "bloom" or "exact".
+   */
+  public static final String FILTER_TYPE_KEY = "sqoop.merge.key.filter";
+
+  public static final String FILTER_TYPE_NONE = "none";
+  public static final String FILTER_TYPE_BLOOM = "bloom";
+  public static final String FILTER_TYPE_EXACT = "exact";
+
+  /** Configuration key for the false positive rate of a Bloom filter. */
+  public static final String FALSE_POSITIVE_RATE_KEY =
+      "sqoop.merge.key.filter.false.positive.rate";
+
+  public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+  /** Configuration key for the path of the filter built for the job. */
+  public static final String FILTER_PATH_KEY = "sqoop.merge.key.filter.path";
+
+  /** Named output of the old records written without a shuffle. */
+  public static final String UNCHANGED_OUTPUT = "unchanged";
+
+  public static final String COUNTER_GROUP = "Sqoop Merge";
+  public static final String UNCHANGED_RECORDS_COUNTER = "UNCHANGED_RECORDS";
+
+  // A Bloom filter is held in an array of longs, indexed by int.
+  private static final long MAX_BITS = (long) Integer.MAX_VALUE + 1;
+
+  private final Hash hash = MurmurHash.getInstance();
+
+  private boolean exact;
+
+  // The keys of an exact filter.
+  private Set<Text> keys;
+
+  // The bits of a Bloom filter.
+  private long [] bits;
+  private int numBits;
+  private int numHashes;
+
+  /** Create an empty filter to read with readFields(). */
+  public MergeKeyFilter() {
+  }
+
+  /** @return an empty filter which holds its keys exactly. */
+  public static MergeKeyFilter newExactFilter() {
+    MergeKeyFilter filter = new MergeKeyFilter();
+    filter.exact = true;
+    filter.keys = new HashSet<Text>();
+    return filter;
+  }
+
+  /**
+   * @return an empty Bloom filter, sized to hold 'expectedKeys' keys with
+   * the given false positive rate.
+   */
+  public static MergeKeyFilter newBloomFilter(long expectedKeys,
+      double falsePositiveRate) {
+    long n = Math.max(expectedKeys, 1);
+    double ln2 = Math.log(2);
+    long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+    m = Math.min(Math.max(m, Long.SIZE), MAX_BITS - Long.SIZE);
+
+    MergeKeyFilter filter = new MergeKeyFilter();
+    filter.exact = false;
+    filter.numBits = (int) m;
+    filter.numHashes = (int) Math.max(1, Math.round((double) m / n * ln2));
+    filter.bits = new long[(filter.numBits + Long.SIZE - 1) / Long.SIZE];
+    return filter;
+  }
+
+  public boolean isExact() {
+    return exact;
+  }
+
+  /** Add an encoded merge key to the filter. */
+  public void add(Text key) {
+    if (exact) {
+      keys.add(new Text(key));
+      return;
+    }
+    int h1 = hash.hash(key.getBytes(), key.getLength(), 0);
+    int h2 = hash.hash(key.getBytes(), key.getLength(), h1);
+    for (int i = 0; i < numHashes; i++) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+      bits[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  /**
+   * @return false if the encoded merge key was certainly not added to the
+   * filter.
+   */
+  public boolean mightContain(Text key) {
+    if (exact) {
+      return keys.contains(key);
+    }
+    int h1 = hash.hash(key.getBytes(), key.getLength(), 0);
+    int h2 = hash.hash(key.getBytes(), key.getLength(), h1);
+    for (int i = 0; i < numHashes; i++) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+      if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeBoolean(exact);
+    if (exact) {
+      out.writeInt(keys.size());
+      for (Text key : keys) {
+        key.write(out);
+      }
+    } else {
+      out.writeInt(numBits);
+      out.writeInt(numHashes);
+      for (long word : bits) {
+        out.writeLong(word);
+      }
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    exact = in.readBoolean();
+    if (exact) {
+      int size = in.readInt();
+      keys = new HashSet<Text>(Math.max(16, (int) (size / 0.75f) + 1));
+      for (int i = 0; i < size; i++) {
+        Text key = new Text();
+        key.readFields(in);
+        keys.add(key);
+      }
+      bits = null;
+    } else {
+      numBits = in.readInt();
+      numHashes = in.readInt();
+      bits = new long[(numBits + Long.SIZE - 1) / Long.SIZE];
+      for (int i = 0; i < bits.length; i++) {
+        bits[i] = in.readLong();
+      }
+      keys = null;
+    }
+  }
+
+  /** Write the filter to the file 'path'. */
+  public void save(Path path, Configuration conf) throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(fs.create(path, true)));
+    try {
+      write(out);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * @return the filter named by FILTER_PATH_KEY, or null if the job has
+   * none.
+   */
+  public static MergeKeyFilter load(Configuration conf) throws IOException {
+    String pathStr = conf.get(FILTER_PATH_KEY);
+    if (null == pathStr) {
+      return null;
+    }
+    Path path = new Path(pathStr);
+    FileSystem fs = path.getFileSystem(conf);
+    DataInputStream in = new DataInputStream(
+        new BufferedInputStream(fs.open(path)));
+    try {
+      MergeKeyFilter filter = new MergeKeyFilter();
+      filter.readFields(in);
+      return filter;
+    } finally {
+      in.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (exact) {
+      return "exact key set of " + keys.size() + " keys";
+    }
+    return "Bloom filter of " + numBits + " bits and " + numHashes
+        + " hash functions";
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.mapred.AvroWrapper;
+import org.apache.avro.mapred.Pair;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.sqoop.lib.RecordParser;
+import org.apache.sqoop.lib.SqoopRecord;
+
+/**
+ * Mapper for the pre-pass of a merge which collects the encoded merge
+ * keys of the new dataset, to build a MergeKeyFilter from. It reads text,
+ * SequenceFile or Avro inputs.
+ */
+public class MergeKeyFilterMapper
+    extends Mapper<Object, Object, Text, NullWritable> {
+
+  private SqoopRecord record;
+  private Map<String, Pair<String, String>> recordFields;
+  private MergeKeyEncoder keyEncoder;
+  private final Text outKey = new Text();
+
+  @Override
+  protected void setup(Context context)
+      throws IOException, InterruptedException {
+    Configuration conf = context.getConfiguration();
+    Class<? extends SqoopRecord> recordClass =
+        (Class<? extends SqoopRecord>) conf.getClass(
+        MergeJob.MERGE_SQOOP_RECORD_KEY, SqoopRecord.class);
+    record = ReflectionUtils.newInstance(recordClass, conf);
+    recordFields = MergeAvroMapper.getRecordFields(recordClass);
+    keyEncoder = new MergeKeyEncoder(conf.get(MergeJob.MERGE_KEY_COL_KEY));
+  }
+
+  @Override
+  public void map(Object key, Object val, Context context)
+      throws IOException, InterruptedException {
+    SqoopRecord r;
+    if (val instanceof SqoopRecord) {
+      r = (SqoopRecord) val;
+    } else if (val instanceof Text) {
+      try {
+        record.parse((Text) val);
+      } catch (RecordParser.ParseError pe) {
+        throw new IOException(pe);
+      }
+      r = record;
+    } else if (key instanceof AvroWrapper) {
+      GenericRecord datum = ((AvroWrapper<GenericRecord>) key).datum();
+      r = MergeAvroMapper.toSqoopRecord(datum, record, recordFields);
+    } else {
+      throw new IOException("Unexpected input value of type "
+          + val.getClass().getName());
+    }
+
+    keyEncoder.encode(r, outKey);
+    context.write(outKey, NullWritable.get());
+  }
+}
@@ -19,21 +19,27 @@
 package org.apache.sqoop.mapreduce;
 
 import java.io.IOException;
-import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
 import org.apache.sqoop.lib.SqoopRecord;
 
 /**
  * Given a set of SqoopRecord instances which are from a "new" dataset
  * or an "old" dataset, extract a key column from the record and tag
  * each record with a bit specifying whether it is a new or old record.
+ *
+ * If the job has a MergeKeyFilter of the new dataset's keys, old records
+ * whose key is not in it are written straight to the
+ * MergeKeyFilter.UNCHANGED_OUTPUT named output instead.
  */
 public class MergeMapperBase<INKEY, INVAL>
     extends Mapper<INKEY, INVAL, Text, MergeRecord> {
@@ -44,11 +50,24 @@
   private String keyColName; // name of the key column.
   private boolean isNew; // true if this split is from the new dataset.
 
+  // Reused for every record written.
+  private MergeKeyEncoder keyEncoder;
+  private final Text outKey = new Text();
+  private MergeRecord outRecord;
+
+  // Set if old records are filtered by the keys of the new dataset.
+  private MergeKeyFilter keyFilter;
+  private MultipleOutputs<Text, MergeRecord> unchangedOutput;
+  private Counter unchangedCounter;
+
   @Override
   protected void setup(Context context)
       throws IOException, InterruptedException {
     Configuration conf = context.getConfiguration();
     keyColName = conf.get(MergeJob.MERGE_KEY_COL_KEY);
+    keyEncoder = new MergeKeyEncoder(keyColName);
+    outRecord = new MergeRecord();
+    outRecord.setConf(conf);
 
     InputSplit is = context.getInputSplit();
     FileSplit fs = (FileSplit) is;
@@ -65,21 +84,49 @@ protected void setup(Context context)
           + conf.get(MergeJob.MERGE_NEW_PATH_KEY) + " or old path "
           + conf.get(MergeJob.MERGE_OLD_PATH_KEY));
     }
+
+    if (!isNew) {
+      keyFilter = MergeKeyFilter.load(conf);
+      if (null != keyFilter) {
+        LOG.info("Filtering old records with " + keyFilter);
+        unchangedOutput = new MultipleOutputs<Text, MergeRecord>(context);
+        unchangedCounter = context.getCounter(MergeKeyFilter.COUNTER_GROUP,
+            MergeKeyFilter.UNCHANGED_RECORDS_COUNTER);
+      }
+    }
   }
 
-  protected void processRecord(SqoopRecord r, Context c)
+  @Override
+  protected void cleanup(Context context)
       throws IOException, InterruptedException {
-    MergeRecord mr = new MergeRecord(r, isNew);
-    Map<String, Object> fieldMap = r.getFieldMap();
-    if (null == fieldMap) {
-      throw new IOException("No field map in record " + r);
+    if (null != unchangedOutput) {
+      unchangedOutput.close();
     }
-    Object keyObj = fieldMap.get(keyColName);
-    if (null == keyObj) {
-      throw new IOException("Cannot join values on null key. "
-          + "Did you specify a key column that exists?");
-    } else {
-      c.write(new Text(keyObj.toString()), mr);
+    super.cleanup(context);
+  }
+
+  /**
+   * @return the object to write to the unchanged output for the old record
+   * 'r'; its type must be the output key type of the job.
+   */
+  protected Object getUnchangedOutput(SqoopRecord r) {
+    return r;
+  }
+
+  protected void processRecord(SqoopRecord r, Context c)
+      throws IOException, InterruptedException {
+    // The record is serialized by write(), so both instances can be
+    // reused for the next record.
+    keyEncoder.encode(r, outKey);
+    if (null != keyFilter && !keyFilter.mightContain(outKey)) {
+      // No new record can replace this one.
+      unchangedOutput.write(MergeKeyFilter.UNCHANGED_OUTPUT,
+          getUnchangedOutput(r), NullWritable.get());
+      unchangedCounter.increment(1);
+      return;
     }
+    outRecord.setSqoopRecord(r);
+    outRecord.setNewRecord(isNew);
+    c.write(outKey, outRecord);
   }
 }
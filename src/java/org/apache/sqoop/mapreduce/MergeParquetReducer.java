@@ -29,7 +29,7 @@
 import org.apache.avro.mapred.Pair;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.apache.sqoop.avro.AvroUtil;
+import org.apache.sqoop.avro.AvroRecordConverter;
 
 import org.apache.sqoop.lib.SqoopRecord;
 
@@ -40,6 +40,7 @@
 
   private Schema schema = null;
   private boolean bigDecimalFormatString = true;
+  private AvroRecordConverter converter = null;
   private Map<String, Pair<String, String>> sqoopRecordFields = new HashMap<String, Pair<String, String>>();
 
     @Override
@@ -47,6 +48,8 @@ protected void setup(Context context) throws IOException, InterruptedException {
       schema = new Schema.Parser().parse(context.getConfiguration().get(SQOOP_PARQUET_AVRO_SCHEMA_KEY));
       bigDecimalFormatString = context.getConfiguration().getBoolean(
           ImportJobBase.PROPERTY_BIGDECIMAL_FORMAT, ImportJobBase.PROPERTY_BIGDECIMAL_FORMAT_DEFAULT);
+      converter = new AvroRecordConverter(schema, bigDecimalFormatString,
+          false);
     }
 
     @Override
@@ -67,8 +70,7 @@ public void reduce(Text key, Iterable<MergeRecord> vals, Context context)
       }
 
       if (null != bestRecord) {
-        GenericRecord record = AvroUtil.toGenericRecord(bestRecord.getFieldMap(), schema,
-            bigDecimalFormatString);
+        GenericRecord record = converter.toGenericRecord(bestRecord);
         write(context, record);
       }
     }
@@ -23,8 +23,8 @@
 import java.io.IOException;
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.sqoop.lib.SqoopRecord;
 
 /**
@@ -32,6 +32,9 @@
  * is the "guts" of the item, and a boolean value indicating whether it is a
  * "new" record or an "old" record. In the Reducer, we prefer to emit a new
  * record rather than an old one, if a new one is available.
+ *
+ * The class of the SqoopRecord is not serialized with each record; it is
+ * the class named by MergeJob.MERGE_SQOOP_RECORD_KEY in the configuration.
  */
 public class MergeRecord implements Configurable, Writable {
   private SqoopRecord sqoopRecord;
@@ -99,15 +102,19 @@ public void setSqoopRecord(SqoopRecord record) {
    */
   public void readFields(DataInput in) throws IOException {
     this.isNew = in.readBoolean();
-    String className = Text.readString(in);
     if (null == this.sqoopRecord) {
       // If we haven't already instantiated an inner SqoopRecord, do so here.
+      String className = config.get(MergeJob.MERGE_SQOOP_RECORD_KEY);
+      if (null == className) {
+        throw new IOException("Record class name ("
+            + MergeJob.MERGE_SQOOP_RECORD_KEY + ") is not set");
+      }
       try {
         Class<? extends SqoopRecord> recordClass =
-            (Class<? extends SqoopRecord>) config.getClassByName(className);
-        this.sqoopRecord = recordClass.newInstance();
-      } catch (Exception e) {
-        throw new IOException(e);
+            config.getClassByName(className).asSubclass(SqoopRecord.class);
+        this.sqoopRecord = ReflectionUtils.newInstance(recordClass, config);
+      } catch (ClassNotFoundException cnfe) {
+        throw new IOException(cnfe);
       }
     }
 
@@ -120,7 +127,6 @@ public void readFields(DataInput in) throws IOException {
    */
   public void write(DataOutput out) throws IOException {
     out.writeBoolean(this.isNew);
-    Text.writeString(out, this.sqoopRecord.getClass().getName());
     this.sqoopRecord.write(out);
   }
 
@@ -0,0 +1,297 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.sqoop.lib.SqoopRecord;
+
+/**
+ * InputFormat for merging datasets which are sorted and bucketed on the
+ * merge key, without a shuffle.
+ *
+ * Both datasets must consist of the same number of files. The files of
+ * each dataset are taken in order of their names, and the i-th file of
+ * the old dataset is merged with the i-th file of the new dataset by a
+ * single map task; together they form bucket i. Every key must be in the
+ * same bucket in both datasets, and each file must be sorted on the merge
+ * key, in the order defined by MergeKeyEncoder.
+ *
+ * Before the merge, the first and last keys of every file are read. The
+ * range of keys of each bucket, over both of its files, must not overlap
+ * the range of any other bucket; otherwise a key could be in different
+ * buckets in the two datasets, and would be kept twice.
+ */
+public class MergeSortedInputFormat
+    extends InputFormat<SqoopRecord, NullWritable> {
+
+  public static final Log LOG = LogFactory.getLog(
+      MergeSortedInputFormat.class.getName());
+
+  /** The ExportJobBase.FileType name of the files of both datasets. */
+  public static final String FILE_TYPE_KEY = "sqoop.merge.sorted.file.type";
+
+  /** Skips hidden files and the markers written by output committers. */
+  private static final PathFilter DATA_FILES = new PathFilter() {
+    @Override
+    public boolean accept(Path p) {
+      String name = p.getName();
+      return !name.startsWith("_") && !name.startsWith(".");
+    }
+  };
+
+  /**
+   * @return the base name of the output files for bucket 'bucket'. The
+   * names sort in bucket order, whatever task writes them, so that the
+   * output can be merged onto in turn.
+   */
+  public static String getBucketName(int bucket) {
+    return String.format("bucket-%05d", bucket);
+  }
+
+  @Override
+  public List<InputSplit> getSplits(JobContext context)
+      throws IOException, InterruptedException {
+    Configuration conf = context.getConfiguration();
+    FileStatus [] oldFiles = listDataFiles(conf,
+        new Path(conf.get(MergeJob.MERGE_OLD_PATH_KEY)));
+    FileStatus [] newFiles = listDataFiles(conf,
+        new Path(conf.get(MergeJob.MERGE_NEW_PATH_KEY)));
+
+    if (oldFiles.length != newFiles.length) {
+      throw new IOException("Cannot merge sorted datasets with different "
+          + "numbers of files: " + oldFiles.length + " old files and "
+          + newFiles.length + " new files");
+    }
+
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    for (int i = 0; i < oldFiles.length; i++) {
+      splits.add(new MergeSortedSplit(i, oldFiles[i].getPath(),
+          oldFiles[i].getLen(), newFiles[i].getPath(), newFiles[i].getLen(),
+          getHosts(conf, oldFiles[i])));
+    }
+    checkBucketRanges(conf, oldFiles, newFiles);
+    LOG.info("Merging " + splits.size() + " sorted buckets");
+    return splits;
+  }
+
+  /**
+   * Check that the key ranges of the buckets do not overlap.
+   * @throws IOException if they do.
+   */
+  private static void checkBucketRanges(Configuration conf,
+      FileStatus [] oldFiles, FileStatus [] newFiles)
+      throws IOException, InterruptedException {
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf,
+        new TaskAttemptID());
+    List<BucketRange> ranges = new ArrayList<BucketRange>();
+    for (int i = 0; i < oldFiles.length; i++) {
+      BucketRange range = new BucketRange(i);
+      range.add(oldFiles[i], context);
+      range.add(newFiles[i], context);
+      if (range.hasKeys) {
+        ranges.add(range);
+      }
+    }
+
+    Collections.sort(ranges);
+    for (int i = 1; i < ranges.size(); i++) {
+      BucketRange prev = ranges.get(i - 1);
+      BucketRange range = ranges.get(i);
+      if (range.first.compareTo(prev.last) <= 0) {
+        throw new IOException("Buckets " + prev.bucket + " and "
+            + range.bucket + " of the datasets overlap on the merge key, so "
+            + "the datasets are not bucketed alike; merge them without "
+            + MergeJob.MERGE_SORTED_KEY);
+      }
+    }
+  }
+
+  /** The range of merge keys in the files of a bucket. */
+  private static class BucketRange implements Comparable<BucketRange> {
+    private final int bucket;
+    private final Text first = new Text();
+    private final Text last = new Text();
+    private boolean hasKeys;
+
+    BucketRange(int bucket) {
+      this.bucket = bucket;
+    }
+
+    /** Widen the range to the keys of 'file'. */
+    void add(FileStatus file, TaskAttemptContext context)
+        throws IOException, InterruptedException {
+      Text fileFirst = new Text();
+      Text fileLast = new Text();
+      if (!MergeSortedRecordReader.readKeyRange(file.getPath(),
+          file.getLen(), context, fileFirst, fileLast)) {
+        return;
+      }
+      if (!hasKeys || fileFirst.compareTo(first) < 0) {
+        first.set(fileFirst);
+      }
+      if (!hasKeys || fileLast.compareTo(last) > 0) {
+        last.set(fileLast);
+      }
+      hasKeys = true;
+    }
+
+    @Override
+    public int compareTo(BucketRange other) {
+      return first.compareTo(other.first);
+    }
+  }
+
+  private static FileStatus [] listDataFiles(Configuration conf, Path dir)
+      throws IOException {
+    FileSystem fs = dir.getFileSystem(conf);
+    List<FileStatus> files = new ArrayList<FileStatus>();
+    for (FileStatus stat : fs.listStatus(dir, DATA_FILES)) {
+      if (!stat.isDirectory()) {
+        files.add(stat);
+      }
+    }
+    FileStatus [] sorted = files.toArray(new FileStatus[files.size()]);
+    // FileStatus sorts by path.
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  /** @return the hosts holding the first block of 'file'. */
+  private static String [] getHosts(Configuration conf, FileStatus file)
+      throws IOException {
+    FileSystem fs = file.getPath().getFileSystem(conf);
+    BlockLocation [] blocks = fs.getFileBlockLocations(file, 0,
+        Math.max(file.getLen(), 1));
+    if (null == blocks || blocks.length == 0) {
+      return new String[0];
+    }
+    return blocks[0].getHosts();
+  }
+
+  @Override
+  public RecordReader<SqoopRecord, NullWritable> createRecordReader(
+      InputSplit split, TaskAttemptContext context) {
+    return new MergeSortedRecordReader();
+  }
+
+  /**
+   * A bucket to merge: a file of the old dataset and the file of the new
+   * dataset which holds the same keys.
+   */
+  public static class MergeSortedSplit extends InputSplit implements Writable {
+    private int bucket;
+    private Path oldPath;
+    private long oldLength;
+    private Path newPath;
+    private long newLength;
+    private String [] hosts;
+
+    public MergeSortedSplit() {
+      this.hosts = new String[0];
+    }
+
+    public MergeSortedSplit(int bucket, Path oldPath, long oldLength,
+        Path newPath, long newLength, String [] hosts) {
+      this.bucket = bucket;
+      this.oldPath = oldPath;
+      this.oldLength = oldLength;
+      this.newPath = newPath;
+      this.newLength = newLength;
+      this.hosts = hosts;
+    }
+
+    public int getBucket() {
+      return bucket;
+    }
+
+    public Path getOldPath() {
+      return oldPath;
+    }
+
+    public long getOldLength() {
+      return oldLength;
+    }
+
+    public Path getNewPath() {
+      return newPath;
+    }
+
+    public long getNewLength() {
+      return newLength;
+    }
+
+    @Override
+    public long getLength() {
+      return oldLength + newLength;
+    }
+
+    @Override
+    public String [] getLocations() {
+      return hosts;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      out.writeInt(bucket);
+      Text.writeString(out, oldPath.toString());
+      out.writeLong(oldLength);
+      Text.writeString(out, newPath.toString());
+      out.writeLong(newLength);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+      bucket = in.readInt();
+      oldPath = new Path(Text.readString(in));
+      oldLength = in.readLong();
+      newPath = new Path(Text.readString(in));
+      newLength = in.readLong();
+    }
+
+    @Override
+    public String toString() {
+      return "bucket " + bucket + ": " + oldPath + " + " + newPath;
+    }
+  }
+}
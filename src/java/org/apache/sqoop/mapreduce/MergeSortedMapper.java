@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.mapreduce.MergeSortedInputFormat.MergeSortedSplit;
+
+/**
+ * Mapper for merging sorted datasets without a shuffle. The records it is
+ * given are already merged by MergeSortedRecordReader; each bucket is
+ * written to its own output file, named after the bucket, so that the
+ * merged dataset keeps the bucketing of its inputs.
+ */
+public abstract class MergeSortedMapper<KEY>
+    extends AutoProgressMapper<SqoopRecord, NullWritable, KEY, NullWritable> {
+
+  private MultipleOutputs<KEY, NullWritable> multiFileWriter;
+  private String bucketName;
+
+  @Override
+  protected void setup(Context context)
+      throws IOException, InterruptedException {
+    super.setup(context);
+    MergeSortedSplit split = (MergeSortedSplit) context.getInputSplit();
+    bucketName = MergeSortedInputFormat.getBucketName(split.getBucket());
+    multiFileWriter = new MultipleOutputs<KEY, NullWritable>(context);
+  }
+
+  @Override
+  public void map(SqoopRecord key, NullWritable val, Context context)
+      throws IOException, InterruptedException {
+    multiFileWriter.write(createOutKey(key), NullWritable.get(), bucketName);
+  }
+
+  @Override
+  protected void cleanup(Context context)
+      throws IOException, InterruptedException {
+    super.cleanup(context);
+    multiFileWriter.close();
+  }
+
+  protected abstract KEY createOutKey(SqoopRecord record) throws IOException;
+}
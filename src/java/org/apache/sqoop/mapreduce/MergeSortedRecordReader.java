@@ -0,0 +1,455 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.mapred.AvroWrapper;
+import org.apache.avro.mapred.Pair;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.sqoop.lib.RecordParser;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.mapreduce.ExportJobBase.FileType;
+import org.apache.sqoop.mapreduce.MergeSortedInputFormat.MergeSortedSplit;
+
+/**
+ * Merges the two sorted files of a MergeSortedSplit into a single sorted
+ * stream of records.
+ *
+ * For each key, the last record of the new file is returned if there is
+ * one; otherwise the first record of the old file is. This matches what
+ * MergeReducerBase emits for the key.
+ */
+public class MergeSortedRecordReader
+    extends RecordReader<SqoopRecord, NullWritable> {
+
+  private Side oldSide;
+  private Side newSide;
+  private long oldLength;
+  private long newLength;
+
+  // The key of the record last returned, whose duplicates are skipped.
+  private final Text lastKey = new Text();
+  private boolean hasLastKey;
+
+  private SqoopRecord current;
+
+  // How many bytes at the end of a file are first read for its last key.
+  private static final long TAIL_BYTES = 64 * 1024;
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context)
+      throws IOException, InterruptedException {
+    MergeSortedSplit mergeSplit = (MergeSortedSplit) split;
+    Configuration conf = context.getConfiguration();
+    FileType fileType = FileType.valueOf(conf.get(
+        MergeSortedInputFormat.FILE_TYPE_KEY, FileType.UNKNOWN.name()));
+    Class<? extends SqoopRecord> recordClass = getRecordClass(conf);
+    String keyColName = conf.get(MergeJob.MERGE_KEY_COL_KEY);
+
+    oldLength = mergeSplit.getOldLength();
+    newLength = mergeSplit.getNewLength();
+    oldSide = createSide(fileType, recordClass, conf, keyColName);
+    oldSide.initialize(mergeSplit.getOldPath(), 0, oldLength, context);
+    newSide = createSide(fileType, recordClass, conf, keyColName);
+    newSide.initialize(mergeSplit.getNewPath(), 0, newLength, context);
+    context.setStatus(mergeSplit.toString());
+  }
+
+  /**
+   * Read the first and last merge keys of a file, as encoded by
+   * MergeKeyEncoder, into 'first' and 'last'. The last key is read from
+   * the tail of the file, which is grown until a record starts in it, so
+   * that only the ends of the file are read.
+   * @return false if the file holds no records.
+   */
+  static boolean readKeyRange(Path file, long length,
+      TaskAttemptContext context, Text first, Text last)
+      throws IOException, InterruptedException {
+    Configuration conf = context.getConfiguration();
+    FileType fileType = FileType.valueOf(conf.get(
+        MergeSortedInputFormat.FILE_TYPE_KEY, FileType.UNKNOWN.name()));
+    Class<? extends SqoopRecord> recordClass = getRecordClass(conf);
+    String keyColName = conf.get(MergeJob.MERGE_KEY_COL_KEY);
+
+    Side side = createSide(fileType, recordClass, conf, keyColName);
+    try {
+      side.initialize(file, 0, length, context);
+      if (!side.hasHead()) {
+        return false;
+      }
+      first.set(side.getHeadKey());
+    } finally {
+      side.close();
+    }
+
+    long tail = Math.min(length, TAIL_BYTES);
+    if (fileType != FileType.SEQUENCE_FILE
+        && fileType != FileType.AVRO_DATA_FILE
+        && null != new CompressionCodecFactory(conf).getCodec(file)) {
+      // A compressed text file can only be read from its start.
+      tail = length;
+    }
+    while (true) {
+      side = createSide(fileType, recordClass, conf, keyColName);
+      try {
+        side.initialize(file, length - tail, tail, context);
+        if (side.hasHead()) {
+          while (side.hasHead()) {
+            last.set(side.getHeadKey());
+            side.take();
+          }
+          return true;
+        }
+      } finally {
+        side.close();
+      }
+      if (tail == length) {
+        // Only reached if the file changed since its first key was read.
+        last.set(first);
+        return true;
+      }
+      tail = Math.min(length, tail * 4);
+    }
+  }
+
+  private static Class<? extends SqoopRecord> getRecordClass(
+      Configuration conf) throws IOException {
+    String className = conf.get(MergeJob.MERGE_SQOOP_RECORD_KEY);
+    if (null == className) {
+      throw new IOException("Record class name ("
+          + MergeJob.MERGE_SQOOP_RECORD_KEY + ") is not set");
+    }
+    try {
+      return conf.getClassByName(className).asSubclass(SqoopRecord.class);
+    } catch (ClassNotFoundException cnfe) {
+      throw new IOException(cnfe);
+    }
+  }
+
+  private static Side createSide(FileType fileType,
+      Class<? extends SqoopRecord> recordClass, Configuration conf,
+      String keyColName) {
+    switch (fileType) {
+    case AVRO_DATA_FILE:
+      return new AvroSide(recordClass, conf, keyColName);
+    case SEQUENCE_FILE:
+      return new SequenceFileSide(recordClass, conf, keyColName);
+    default:
+      return new TextSide(recordClass, conf, keyColName);
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    if (hasLastKey) {
+      oldSide.skip(lastKey);
+      newSide.skip(lastKey);
+    }
+
+    if (!oldSide.hasHead() && !newSide.hasHead()) {
+      current = null;
+      return false;
+    }
+
+    if (newSide.hasHead() && (!oldSide.hasHead()
+        || newSide.getHeadKey().compareTo(oldSide.getHeadKey()) <= 0)) {
+      // The last new record wins; any old records with this key are
+      // skipped by the next call.
+      lastKey.set(newSide.getHeadKey());
+      do {
+        current = newSide.take();
+      } while (newSide.hasHead() && newSide.getHeadKey().equals(lastKey));
+    } else {
+      lastKey.set(oldSide.getHeadKey());
+      current = oldSide.take();
+    }
+    hasLastKey = true;
+    return true;
+  }
+
+  @Override
+  public SqoopRecord getCurrentKey() {
+    return current;
+  }
+
+  @Override
+  public NullWritable getCurrentValue() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public float getProgress() throws IOException, InterruptedException {
+    long total = oldLength + newLength;
+    if (total == 0) {
+      return 1.0f;
+    }
+    return (oldSide.getProgress() * oldLength
+        + newSide.getProgress() * newLength) / total;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (null != oldSide) {
+        oldSide.close();
+      }
+    } finally {
+      if (null != newSide) {
+        newSide.close();
+      }
+    }
+  }
+
+  /**
+   * One of the two files being merged, read one record ahead.
+   *
+   * The record returned by take() remains valid until the following call
+   * to take() or skip(); two record instances are swapped between the
+   * record returned and the record read ahead.
+   */
+  private abstract static class Side {
+    private final MergeKeyEncoder keyEncoder;
+    private Path path;
+
+    private SqoopRecord head;
+    private SqoopRecord spare;
+    private Text headKey = new Text();
+    private Text spareKey = new Text();
+    private boolean hasHead;
+
+    protected Side(Class<? extends SqoopRecord> recordClass,
+        Configuration conf, String keyColName) {
+      this.keyEncoder = new MergeKeyEncoder(keyColName);
+      this.head = ReflectionUtils.newInstance(recordClass, conf);
+      this.spare = ReflectionUtils.newInstance(recordClass, conf);
+    }
+
+    /**
+     * Open the records of 'file' which start in the given byte range, and
+     * read the first of them ahead.
+     */
+    void initialize(Path file, long start, long length,
+        TaskAttemptContext context) throws IOException, InterruptedException {
+      this.path = file;
+      FileSplit split = new FileSplit(file, start, length, new String[0]);
+      open(split, context);
+      advance();
+    }
+
+    boolean hasHead() {
+      return hasHead;
+    }
+
+    Text getHeadKey() {
+      return headKey;
+    }
+
+    SqoopRecord take() throws IOException, InterruptedException {
+      SqoopRecord r = head;
+      advance();
+      return r;
+    }
+
+    /** Discard records with the key 'key'. */
+    void skip(Text key) throws IOException, InterruptedException {
+      while (hasHead && headKey.equals(key)) {
+        advance();
+      }
+    }
+
+    private void advance() throws IOException, InterruptedException {
+      SqoopRecord next = readNext(spare);
+      if (null == next) {
+        hasHead = false;
+        return;
+      }
+      keyEncoder.encode(next, spareKey);
+      if (hasHead && spareKey.compareTo(headKey) < 0) {
+        throw new IOException("File " + path + " is not sorted on the "
+            + "merge key; merge it without " + MergeJob.MERGE_SORTED_KEY);
+      }
+
+      spare = head;
+      head = next;
+      Text t = spareKey;
+      spareKey = headKey;
+      headKey = t;
+      hasHead = true;
+    }
+
+    /** Open the underlying reader over 'split'. */
+    protected abstract void open(FileSplit split, TaskAttemptContext context)
+        throws IOException, InterruptedException;
+
+    /**
+     * Read the next record of the file.
+     * @param reuse a record which may be filled in and returned.
+     * @return the record read, or null at the end of the file.
+     */
+    protected abstract SqoopRecord readNext(SqoopRecord reuse)
+        throws IOException, InterruptedException;
+
+    abstract float getProgress() throws IOException, InterruptedException;
+
+    abstract void close() throws IOException;
+  }
+
+  /** Reads records from delimited text files. */
+  private static class TextSide extends Side {
+    private RecordReader<LongWritable, Text> reader;
+
+    TextSide(Class<? extends SqoopRecord> recordClass, Configuration conf,
+        String keyColName) {
+      super(recordClass, conf, keyColName);
+    }
+
+    @Override
+    protected void open(FileSplit split, TaskAttemptContext context)
+        throws IOException, InterruptedException {
+      reader = new TextInputFormat().createRecordReader(split, context);
+      reader.initialize(split, context);
+    }
+
+    @Override
+    protected SqoopRecord readNext(SqoopRecord reuse)
+        throws IOException, InterruptedException {
+      if (!reader.nextKeyValue()) {
+        return null;
+      }
+      try {
+        reuse.parse(reader.getCurrentValue());
+      } catch (RecordParser.ParseError pe) {
+        throw new IOException(pe);
+      }
+      return reuse;
+    }
+
+    @Override
+    float getProgress() throws IOException, InterruptedException {
+      return null == reader ? 0.0f : reader.getProgress();
+    }
+
+    @Override
+    void close() throws IOException {
+      if (null != reader) {
+        reader.close();
+      }
+    }
+  }
+
+  /** Reads records from SequenceFiles written by an import. */
+  private static class SequenceFileSide extends Side {
+    private RecordReader<LongWritable, SqoopRecord> reader;
+
+    SequenceFileSide(Class<? extends SqoopRecord> recordClass,
+        Configuration conf, String keyColName) {
+      super(recordClass, conf, keyColName);
+    }
+
+    @Override
+    protected void open(FileSplit split, TaskAttemptContext context)
+        throws IOException, InterruptedException {
+      reader = new SequenceFileInputFormat<LongWritable, SqoopRecord>()
+          .createRecordReader(split, context);
+      reader.initialize(split, context);
+    }
+
+    @Override
+    protected SqoopRecord readNext(SqoopRecord reuse)
+        throws IOException, InterruptedException {
+      if (!reader.nextKeyValue()) {
+        return null;
+      }
+      // The reader deserializes every record into the same instance.
+      try {
+        return reader.getCurrentValue().copyInto(reuse);
+      } catch (CloneNotSupportedException cnse) {
+        throw new IOException(cnse);
+      }
+    }
+
+    @Override
+    float getProgress() throws IOException, InterruptedException {
+      return null == reader ? 0.0f : reader.getProgress();
+    }
+
+    @Override
+    void close() throws IOException {
+      if (null != reader) {
+        reader.close();
+      }
+    }
+  }
+
+  /** Reads records from Avro data files. */
+  private static class AvroSide extends Side {
+    private final Map<String, Pair<String, String>> recordFields;
+    private RecordReader<AvroWrapper<GenericRecord>, NullWritable> reader;
+
+    AvroSide(Class<? extends SqoopRecord> recordClass, Configuration conf,
+        String keyColName) {
+      super(recordClass, conf, keyColName);
+      this.recordFields = MergeAvroMapper.getRecordFields(recordClass);
+    }
+
+    @Override
+    protected void open(FileSplit split, TaskAttemptContext context)
+        throws IOException, InterruptedException {
+      reader = new AvroRecordReader<GenericRecord>();
+      reader.initialize(split, context);
+    }
+
+    @Override
+    protected SqoopRecord readNext(SqoopRecord reuse)
+        throws IOException, InterruptedException {
+      if (!reader.nextKeyValue()) {
+        return null;
+      }
+      return MergeAvroMapper.toSqoopRecord(reader.getCurrentKey().datum(),
+          reuse, recordFields);
+    }
+
+    @Override
+    float getProgress() throws IOException, InterruptedException {
+      return null == reader ? 0.0f : reader.getProgress();
+    }
+
+    @Override
+    void close() throws IOException {
+      if (null != reader) {
+        reader.close();
+      }
+    }
+  }
+}
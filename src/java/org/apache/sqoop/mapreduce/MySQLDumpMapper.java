@@ -30,7 +30,9 @@
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.util.LineReader;
 import org.apache.sqoop.util.AsyncSink;
 import org.apache.sqoop.util.JdbcUrl;
 import org.apache.sqoop.util.PerfCounters;
@@ -47,7 +49,7 @@
  * Mapper that opens up a pipe to mysqldump and pulls data directly.
  */
 public class MySQLDumpMapper
-    extends SqoopMapper<String, NullWritable, String, NullWritable> {
+    extends SqoopMapper<String, NullWritable, Text, NullWritable> {
 
   public static final Log LOG = LogFactory.getLog(
       MySQLDumpMapper.class.getName());
@@ -57,74 +59,74 @@
   // AsyncSinks used to import data from mysqldump directly into HDFS.
 
   /**
-   * Copies data directly from mysqldump into HDFS, after stripping some
-   * header and footer characters that are attached to each line in mysqldump.
+   * Rewrites mysqldump's output into the user's delimiters with a
+   * MySQLDumpTranscoder, reading and writing bytes without decoding them.
    */
-  public static class CopyingAsyncSink extends ErrorableAsyncSink {
+  public static class TranscodingAsyncSink extends ErrorableAsyncSink {
     private final MySQLDumpMapper.Context context;
+    private final MySQLDumpTranscoder transcoder;
     private final PerfCounters counters;
 
-    protected CopyingAsyncSink(final MySQLDumpMapper.Context context,
-        final PerfCounters ctrs) {
+    protected TranscodingAsyncSink(final MySQLDumpMapper.Context context,
+        final MySQLDumpTranscoder transcoder, final PerfCounters ctrs) {
       this.context = context;
+      this.transcoder = transcoder;
       this.counters = ctrs;
     }
 
     public void processStream(InputStream is) {
-      child = new CopyingStreamThread(is, context, counters);
+      child = new TranscodingStreamThread(is, context, transcoder, counters);
       child.start();
     }
 
-    private static class CopyingStreamThread extends ErrorableThread {
+    private static class TranscodingStreamThread extends ErrorableThread {
       public static final Log LOG = LogFactory.getLog(
-          CopyingStreamThread.class.getName());
+          TranscodingStreamThread.class.getName());
+
+      private static final int BUFFER_SIZE = 64 * 1024;
 
       private final MySQLDumpMapper.Context context;
       private final InputStream stream;
+      private final MySQLDumpTranscoder transcoder;
       private final PerfCounters counters;
 
-      CopyingStreamThread(final InputStream is,
-          final Context c, final PerfCounters ctrs) {
+      TranscodingStreamThread(final InputStream is,
+          final Context c, final MySQLDumpTranscoder transcoder,
+          final PerfCounters ctrs) {
         this.context = c;
         this.stream = is;
+        this.transcoder = transcoder;
         this.counters = ctrs;
       }
 
       public void run() {
-        BufferedReader r = null;
+        LineReader r = null;
 
         try {
-          r = new BufferedReader(new InputStreamReader(this.stream));
-
-          // Actually do the read/write transfer loop here.
-          int preambleLen = -1; // set to this for "undefined"
-          while (true) {
-            String inLine = r.readLine();
-            if (null == inLine) {
-              break; // EOF.
-            }
+          r = new LineReader(this.stream, BUFFER_SIZE);
 
-            if (inLine.trim().length() == 0 || inLine.startsWith("--")) {
-              continue; // comments and empty lines are ignored
-            }
+          // Both of these are reused for every line; the record writer
+          // copies the output bytes out before write() returns.
+          Text inLine = new Text();
+          Text outRecord = new Text();
 
-            // this line is of the form "INSERT .. VALUES ( actual value text
-            // );" strip the leading preamble up to the '(' and the trailing
-            // ');'.
-            if (preambleLen == -1) {
-              // we haven't determined how long the preamble is. It's constant
-              // across all lines, so just figure this out once.
-              String recordStartMark = "VALUES (";
-              preambleLen = inLine.indexOf(recordStartMark)
-                  + recordStartMark.length();
+          // Actually do the read/write transfer loop here.
+          while (r.readLine(inLine) > 0) {
+            try {
+              if (!transcoder.transcode(inLine.getBytes(),
+                  inLine.getLength())) {
+                continue; // comments and empty lines are ignored
+              }
+            } catch (RecordParser.ParseError pe) {
+              LOG.warn("ParseError reading from mysqldump: "
+                  + pe.toString() + "; record skipped");
+              continue; // Skip emitting this row.
             }
 
-            // chop off the leading and trailing text as we write the
-            // output to HDFS.
-            int len = inLine.length() - 2 - preambleLen;
-            context.write(inLine.substring(preambleLen, inLine.length() - 2)
-                + "\n", null);
-            counters.addBytes(1 + len);
+            outRecord.set(transcoder.getRecordBytes(), 0,
+                transcoder.getRecordLength());
+            context.write(outRecord, null);
+            counters.addBytes(transcoder.getRecordLength());
           }
         } catch (IOException ioe) {
           LOG.error("IOException reading from mysqldump: " + ioe.toString());
@@ -148,10 +150,23 @@ public void run() {
     }
   }
 
+  /**
+   * Copies data directly from mysqldump into HDFS, after stripping some
+   * header and footer characters that are attached to each line in mysqldump.
+   */
+  public static class CopyingAsyncSink extends TranscodingAsyncSink {
+    protected CopyingAsyncSink(final MySQLDumpMapper.Context context,
+        final PerfCounters ctrs) {
+      super(context, new MySQLDumpTranscoder(), ctrs);
+    }
+  }
+
 
   /**
    * The ReparsingAsyncSink will instantiate a RecordParser to read mysqldump's
    * output, and re-emit the text in the user's specified output format.
+   * This is only used for delimiters which a MySQLDumpTranscoder cannot
+   * handle.
    */
   public static class ReparsingAsyncSink extends ErrorableAsyncSink {
     private final MySQLDumpMapper.Context context;
@@ -208,29 +223,11 @@ public void run() {
           r = new BufferedReader(new InputStreamReader(this.stream));
 
           // Configure the output with the user's delimiters.
-          char outputFieldDelim = (char) conf.getInt(
-              MySQLUtils.OUTPUT_FIELD_DELIM_KEY,
-              DelimiterSet.NULL_CHAR);
-          String outputFieldDelimStr = "" + outputFieldDelim;
-          char outputRecordDelim = (char) conf.getInt(
-              MySQLUtils.OUTPUT_RECORD_DELIM_KEY,
-              DelimiterSet.NULL_CHAR);
-          String outputRecordDelimStr = "" + outputRecordDelim;
-          char outputEnclose = (char) conf.getInt(
-              MySQLUtils.OUTPUT_ENCLOSED_BY_KEY,
-              DelimiterSet.NULL_CHAR);
-          char outputEscape = (char) conf.getInt(
-              MySQLUtils.OUTPUT_ESCAPED_BY_KEY,
-              DelimiterSet.NULL_CHAR);
-          boolean outputEncloseRequired = conf.getBoolean(
-              MySQLUtils.OUTPUT_ENCLOSE_REQUIRED_KEY, false);
-
-          DelimiterSet delimiters = new DelimiterSet(
-             outputFieldDelim,
-             outputRecordDelim,
-             outputEnclose,
-             outputEscape,
-             outputEncloseRequired);
+          DelimiterSet delimiters = MySQLUtils.getOutputDelimiters(conf);
+          String outputFieldDelimStr = "" + delimiters.getFieldsTerminatedBy();
+          String outputRecordDelimStr = ""
+              + delimiters.getLinesTerminatedBy();
+          Text outRecord = new Text();
 
           // Actually do the read/write transfer loop here.
           int preambleLen = -1; // set to this for "undefined"
@@ -289,7 +286,8 @@ public void run() {
             }
 
             sb.append(outputRecordDelimStr);
-            context.write(sb.toString(), null);
+            outRecord.set(sb.toString());
+            context.write(outRecord, null);
             counters.addBytes(recordLen);
           }
         } catch (IOException ioe) {
@@ -407,10 +405,15 @@ public void map(String splitConditions, NullWritable val, Context context)
       // read from the stdout pipe into the HDFS writer.
       InputStream is = p.getInputStream();
 
+      DelimiterSet delimiters = MySQLUtils.getOutputDelimiters(conf);
       if (MySQLUtils.outputDelimsAreMySQL(conf)) {
         LOG.debug("Output delimiters conform to mysqldump; "
             + "using straight copy");
         sink = new CopyingAsyncSink(context, counters);
+      } else if (MySQLDumpTranscoder.canTranscode(delimiters)) {
+        LOG.debug("User-specified delimiters; using transcoding import");
+        sink = new TranscodingAsyncSink(context,
+            new MySQLDumpTranscoder(delimiters), counters);
       } else {
         LOG.debug("User-specified delimiters; using reparsing import");
         LOG.info("Converting data to use specified delimiters.");
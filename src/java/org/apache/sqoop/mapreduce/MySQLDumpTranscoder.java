@@ -0,0 +1,372 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.mapreduce;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.sqoop.lib.DelimiterSet;
+import org.apache.sqoop.lib.RecordParser;
+
+/**
+ * Rewrites the lines of mysqldump's output into records that use the
+ * user's output delimiters, working directly on the bytes of each line.
+ *
+ * Each field is unescaped exactly as a RecordParser using
+ * DelimiterSet.MYSQL_DELIMITERS would, and then escaped and enclosed
+ * exactly as FieldFormatter.escapeAndEnclose() would, so the output is the
+ * same as that of MySQLDumpMapper.ReparsingAsyncSink. Since all of the
+ * characters involved are ASCII, which never appears within a multi-byte
+ * UTF-8 sequence, the text does not need to be decoded. Use canTranscode()
+ * to check whether a DelimiterSet meets this requirement.
+ *
+ * This class is not synchronized. The record returned by getRecordBytes()
+ * is overwritten by the next call to transcode().
+ */
+public class MySQLDumpTranscoder {
+
+  private static final byte [] RECORD_START_MARK =
+      "VALUES (".getBytes(StandardCharsets.US_ASCII);
+
+  // mysqldump's own delimiters.
+  private static final byte MYSQL_FIELD_DELIM = ',';
+  private static final byte MYSQL_ENCLOSE_CHAR = '\'';
+  private static final byte MYSQL_ESCAPE_CHAR = '\\';
+
+  private enum ParseState {
+    FIELD_START,
+    ENCLOSED_FIELD,
+    UNENCLOSED_FIELD,
+    ENCLOSED_ESCAPE,
+    ENCLOSED_EXPECT_DELIMITER,
+    UNENCLOSED_ESCAPE
+  }
+
+  // If true, the values are copied through unchanged.
+  private final boolean copy;
+
+  private final byte fieldDelim;
+  private final byte recordDelim;
+  private final byte enclose;
+  private final byte escape;
+  private final boolean encloseRequired;
+
+  // The length of the "INSERT INTO ... VALUES (" text ahead of the values.
+  // This is the same on every line, so it is measured once.
+  private int preambleLen = -1;
+
+  // The unescaped bytes of the current field.
+  private byte [] field = new byte[256];
+  private int fieldLen;
+  private boolean firstField;
+
+  // The transcoded record.
+  private byte [] record = new byte[1024];
+  private int recordLen;
+
+  /**
+   * Create a transcoder which copies the values of each record through
+   * unchanged, for use when the output delimiters match mysqldump's.
+   */
+  public MySQLDumpTranscoder() {
+    this.copy = true;
+    this.fieldDelim = MYSQL_FIELD_DELIM;
+    this.recordDelim = '\n';
+    this.enclose = MYSQL_ENCLOSE_CHAR;
+    this.escape = MYSQL_ESCAPE_CHAR;
+    this.encloseRequired = false;
+  }
+
+  /**
+   * Create a transcoder which formats records with the given delimiters.
+   * @throws IllegalArgumentException if canTranscode() is false for
+   * 'delimiters'.
+   */
+  public MySQLDumpTranscoder(DelimiterSet delimiters) {
+    if (!canTranscode(delimiters)) {
+      throw new IllegalArgumentException(
+          "Cannot transcode to delimiters " + delimiters);
+    }
+
+    this.copy = false;
+    this.fieldDelim = (byte) delimiters.getFieldsTerminatedBy();
+    this.recordDelim = (byte) delimiters.getLinesTerminatedBy();
+    this.enclose = (byte) delimiters.getEnclosedBy();
+    this.escape = (byte) delimiters.getEscapedBy();
+    this.encloseRequired = delimiters.isEncloseRequired();
+  }
+
+  /**
+   * @return true if records can be transcoded to the given delimiters.
+   * They must all be ASCII characters. When they overlap in ways which
+   * make FieldFormatter apply its substitutions on top of one another,
+   * the records must be reparsed instead.
+   */
+  public static boolean canTranscode(DelimiterSet delimiters) {
+    char fields = delimiters.getFieldsTerminatedBy();
+    char lines = delimiters.getLinesTerminatedBy();
+    char enclosedBy = delimiters.getEnclosedBy();
+    char escapedBy = delimiters.getEscapedBy();
+    if (fields > 0x7F || lines > 0x7F || enclosedBy > 0x7F
+        || escapedBy > 0x7F) {
+      return false;
+    }
+
+    if (DelimiterSet.NULL_CHAR == escapedBy) {
+      return true;
+    } else if (DelimiterSet.NULL_CHAR != enclosedBy) {
+      return escapedBy != enclosedBy;
+    } else {
+      return escapedBy != fields && escapedBy != lines && fields != lines;
+    }
+  }
+
+  /**
+   * Transcode one line of mysqldump's output, without its line terminator.
+   * @param line the buffer holding the line.
+   * @param len the length of the line.
+   * @return true if the line held a record, which can then be retrieved
+   * with getRecordBytes(); false if the line was blank or a comment.
+   * @throws RecordParser.ParseError if the line could not be parsed.
+   */
+  public boolean transcode(byte [] line, int len)
+      throws RecordParser.ParseError {
+    if (isBlank(line, len) || (len >= 2 && line[0] == '-' && line[1] == '-')) {
+      return false; // comments and empty lines are ignored
+    }
+
+    // The line is of the form "INSERT .. VALUES ( actual value text );".
+    // Strip the leading preamble up to the '(' and the trailing ');'.
+    if (preambleLen == -1) {
+      preambleLen = indexOf(line, len, RECORD_START_MARK)
+          + RECORD_START_MARK.length;
+    }
+
+    int end = len - 2;
+    if (end < preambleLen) {
+      throw new RecordParser.ParseError("Line is too short for a record");
+    }
+
+    recordLen = 0;
+    if (copy) {
+      append(line, preambleLen, end - preambleLen);
+      append(recordDelim);
+    } else {
+      parseFields(line, preambleLen, end);
+      append(recordDelim);
+    }
+    return true;
+  }
+
+  /**
+   * @return the buffer holding the last record transcoded. Only the
+   * first getRecordLength() bytes are valid.
+   */
+  public byte [] getRecordBytes() {
+    return record;
+  }
+
+  /**
+   * @return the length of the last record transcoded, in bytes.
+   */
+  public int getRecordLength() {
+    return recordLen;
+  }
+
+  private static boolean isBlank(byte [] line, int len) {
+    // Equivalent to String.trim().length() == 0.
+    for (int i = 0; i < len; i++) {
+      if ((line[i] & 0xFF) > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(byte [] line, int len, byte [] target) {
+    for (int i = 0; i <= len - target.length; i++) {
+      int j = 0;
+      while (j < target.length && line[i + j] == target[j]) {
+        j++;
+      }
+      if (j == target.length) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // CHECKSTYLE:OFF
+  /**
+   * Split the values between 'start' and 'end' into fields, following
+   * the state machine of RecordParser, and write each one to the record.
+   */
+  private void parseFields(byte [] line, int start, int end)
+      throws RecordParser.ParseError {
+    ParseState state = ParseState.FIELD_START;
+    boolean inField = false;
+    byte cur = 0;
+    firstField = true;
+
+    for (int pos = start; pos < end; pos++) {
+      cur = line[pos];
+      switch (state) {
+      case FIELD_START:
+        if (inField) {
+          writeField();
+        }
+
+        inField = true;
+        fieldLen = 0;
+        if (MYSQL_ENCLOSE_CHAR == cur) {
+          state = ParseState.ENCLOSED_FIELD;
+        } else if (MYSQL_ESCAPE_CHAR == cur) {
+          state = ParseState.UNENCLOSED_ESCAPE;
+        } else if (MYSQL_FIELD_DELIM != cur) {
+          state = ParseState.UNENCLOSED_FIELD;
+          appendToField(cur);
+        }
+        break;
+
+      case ENCLOSED_FIELD:
+        if (MYSQL_ESCAPE_CHAR == cur) {
+          state = ParseState.ENCLOSED_ESCAPE;
+        } else if (MYSQL_ENCLOSE_CHAR == cur) {
+          state = ParseState.ENCLOSED_EXPECT_DELIMITER;
+        } else {
+          appendToField(cur);
+        }
+        break;
+
+      case UNENCLOSED_FIELD:
+        if (MYSQL_ESCAPE_CHAR == cur) {
+          state = ParseState.UNENCLOSED_ESCAPE;
+        } else if (MYSQL_FIELD_DELIM == cur) {
+          state = ParseState.FIELD_START;
+        } else {
+          appendToField(cur);
+        }
+        break;
+
+      case ENCLOSED_ESCAPE:
+        appendToField(cur);
+        state = ParseState.ENCLOSED_FIELD;
+        break;
+
+      case ENCLOSED_EXPECT_DELIMITER:
+        if (MYSQL_FIELD_DELIM == cur) {
+          state = ParseState.FIELD_START;
+        } else {
+          throw new RecordParser.ParseError("Expected delimiter at position "
+              + (pos - start));
+        }
+        break;
+
+      case UNENCLOSED_ESCAPE:
+        appendToField(cur);
+        state = ParseState.UNENCLOSED_FIELD;
+        break;
+
+      default:
+        throw new RecordParser.ParseError(
+            "Unexpected parser state: " + state);
+      }
+    }
+
+    if (state == ParseState.FIELD_START && cur == MYSQL_FIELD_DELIM
+        && inField) {
+      // The values ended with a field delimiter, so there is one more
+      // (empty) field after the last one.
+      writeField();
+      fieldLen = 0;
+    }
+
+    if (inField) {
+      writeField();
+    }
+  }
+  // CHECKSTYLE:ON
+
+  private void appendToField(byte b) {
+    if (fieldLen == field.length) {
+      field = Arrays.copyOf(field, field.length * 2);
+    }
+    field[fieldLen++] = b;
+  }
+
+  /**
+   * Escape and enclose the current field as FieldFormatter would, and
+   * append it to the record.
+   */
+  private void writeField() {
+    if (!firstField) {
+      append(fieldDelim);
+    }
+    firstField = false;
+
+    boolean escapingLegal = DelimiterSet.NULL_CHAR != escape;
+    if (DelimiterSet.NULL_CHAR == enclose) {
+      for (int i = 0; i < fieldLen; i++) {
+        byte b = field[i];
+        if (escapingLegal
+            && (b == escape || b == fieldDelim || b == recordDelim)) {
+          append(escape);
+        }
+        append(b);
+      }
+      return;
+    }
+
+    boolean doEnclose = encloseRequired;
+    for (int i = 0; i < fieldLen && !doEnclose; i++) {
+      doEnclose = field[i] == fieldDelim || field[i] == recordDelim;
+    }
+
+    if (doEnclose) {
+      append(enclose);
+    }
+    for (int i = 0; i < fieldLen; i++) {
+      byte b = field[i];
+      if (escapingLegal && (b == escape || b == enclose)) {
+        append(escape);
+      }
+      append(b);
+    }
+    if (doEnclose) {
+      append(enclose);
+    }
+  }
+
+  private void ensureCapacity(int extra) {
+    if (recordLen + extra > record.length) {
+      record = Arrays.copyOf(record,
+          Math.max(recordLen + extra, record.length * 2));
+    }
+  }
+
+  private void append(byte b) {
+    ensureCapacity(1);
+    record[recordLen++] = b;
+  }
+
+  private void append(byte [] b, int off, int len) {
+    ensureCapacity(len);
+    System.arraycopy(b, off, record, recordLen, len);
+    recordLen += len;
+  }
+}
@@ -27,7 +27,8 @@
 import org.apache.avro.generic.GenericRecord;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
-import org.apache.sqoop.avro.AvroUtil;
+import org.apache.sqoop.avro.AvroRecordConverter;
+import org.apache.sqoop.util.PhaseMetrics;
 
 import java.io.IOException;
 import java.sql.SQLException;
@@ -43,6 +44,8 @@
   private boolean bigDecimalFormatString = true;
   private LargeObjectLoader lobLoader = null;
   private boolean bigDecimalPadding;
+  private AvroRecordConverter converter = null;
+  private final PhaseMetrics metrics = PhaseMetrics.getMetrics();
 
   @Override
   protected void setup(Context context)
@@ -55,6 +58,8 @@ protected void setup(Context context)
     lobLoader = createLobLoader(context);
     GenericData.get().addLogicalTypeConversion(new Conversions.DecimalConversion());
     bigDecimalPadding = conf.getBoolean(ConfigurationConstants.PROP_ENABLE_AVRO_DECIMAL_PADDING, false);
+    converter = new AvroRecordConverter(schema, bigDecimalFormatString,
+        bigDecimalPadding);
   }
 
   @Override
@@ -67,9 +72,10 @@ protected void map(LongWritable key, SqoopRecord val, Context context)
       throw new IOException(sqlE);
     }
 
-    GenericRecord record = AvroUtil.toGenericRecord(val.getFieldMap(), schema,
-        bigDecimalFormatString, bigDecimalPadding);
+    GenericRecord record = converter.toGenericRecord(val);
+    long start = metrics.start();
     write(context, record);
+    metrics.end(PhaseMetrics.Phase.OUTPUT_WRITE, start);
   }
 
   @Override
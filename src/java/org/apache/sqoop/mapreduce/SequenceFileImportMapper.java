@@ -24,6 +24,7 @@
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.sqoop.lib.LargeObjectLoader;
 import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.util.PhaseMetrics;
 
 /**
  * Imports records by writing them to a SequenceFile.
@@ -33,6 +34,7 @@
     SqoopRecord> {
 
   private LargeObjectLoader lobLoader;
+  private final PhaseMetrics metrics = PhaseMetrics.getMetrics();
 
   @Override
   protected void setup(Context context)
@@ -51,7 +53,9 @@ public void map(LongWritable key, SqoopRecord val, Context context)
       throw new IOException(sqlE);
     }
 
+    long start = metrics.start();
     context.write(key, val);
+    metrics.end(PhaseMetrics.Phase.OUTPUT_WRITE, start);
   }
 
   @Override
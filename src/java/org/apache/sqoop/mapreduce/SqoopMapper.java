@@ -18,9 +18,13 @@
 
 package org.apache.sqoop.mapreduce;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.sqoop.io.LobReaderCache;
 import org.apache.sqoop.util.LoggingUtils;
+import org.apache.sqoop.util.PhaseMetrics;
 
 import java.io.IOException;
 
@@ -31,6 +35,9 @@
 public abstract class SqoopMapper<KI, VI, KO, VO>
   extends Mapper<KI, VI, KO, VO> {
 
+  private static final Log LOG = LogFactory.getLog(
+      SqoopMapper.class.getName());
+
   @Override
   protected void setup(Context context)
     throws IOException, InterruptedException {
@@ -43,4 +50,34 @@ protected void setup(Context context)
       LoggingUtils.setDebugLevel();
     }
   }
+
+  @Override
+  public void run(Context context) throws IOException, InterruptedException {
+    PhaseMetrics metrics = PhaseMetrics.getMetrics();
+    metrics.configure(context.getConfiguration());
+
+    // As Mapper.run(), but timing the RecordReader.
+    setup(context);
+    try {
+      while (true) {
+        long start = metrics.start();
+        boolean hasNext = context.nextKeyValue();
+        metrics.end(PhaseMetrics.Phase.READ, start);
+        if (!hasNext) {
+          break;
+        }
+        map(context.getCurrentKey(), context.getCurrentValue(), context);
+      }
+    } finally {
+      cleanup(context);
+    }
+
+    // Report how well external LOB files were cached while mapping.
+    LobReaderCache.getCache().publishCounters(context);
+
+    metrics.publishCounters(context);
+    if (metrics.isEnabled()) {
+      LOG.info("Task phases: " + metrics);
+    }
+  }
 }
@@ -27,6 +27,7 @@
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.util.PhaseMetrics;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -47,6 +48,8 @@
 
   boolean enableDataDumpOnError;
 
+  private final PhaseMetrics metrics = PhaseMetrics.getMetrics();
+
   public TextExportMapper() {
   }
 
@@ -85,7 +88,9 @@ protected void setup(Context context)
   public void map(LongWritable key, Text val, Context context)
       throws IOException, InterruptedException {
     try {
+      long start = metrics.start();
       recordImpl.parse(val);
+      metrics.end(PhaseMetrics.Phase.PARSE, start);
       context.write(recordImpl, NullWritable.get());
     } catch (Exception e) {
       // Something bad has happened
@@ -27,6 +27,8 @@
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.sqoop.lib.LargeObjectLoader;
 import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.lib.Utf8OutputBuffer;
+import org.apache.sqoop.util.PhaseMetrics;
 
 /**
  * Imports records by transforming them to strings for a plain-text flat file.
@@ -35,10 +37,13 @@
     extends AutoProgressMapper<LongWritable, SqoopRecord, Text, NullWritable> {
 
   private Text outkey;
+  private Utf8OutputBuffer outbuf;
   private LargeObjectLoader lobLoader;
+  private final PhaseMetrics metrics = PhaseMetrics.getMetrics();
 
   public TextImportMapper() {
     outkey = new Text();
+    outbuf = new Utf8OutputBuffer();
   }
 
   @Override
@@ -58,8 +63,12 @@ public void map(LongWritable key, SqoopRecord val, Context context)
       throw new IOException(sqlE);
     }
 
-    outkey.set(val.toString());
+    outbuf.reset();
+    val.writeTo(outbuf);
+    outbuf.copyTo(outkey);
+    long start = metrics.start();
     context.write(outkey, NullWritable.get());
+    metrics.end(PhaseMetrics.Phase.OUTPUT_WRITE, start);
   }
 
   @Override
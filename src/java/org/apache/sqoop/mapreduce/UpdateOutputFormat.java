@@ -155,13 +155,17 @@ protected final String[] getUpdateColumns() {
     protected PreparedStatement getPreparedStatement(
         List<SqoopRecord> userRecords) throws SQLException {
 
-      PreparedStatement stmt = null;
-
-      // Synchronize on connection to ensure this does not conflict
-      // with the operations in the update thread.
-      Connection conn = getConnection();
-      synchronized (conn) {
-        stmt = conn.prepareStatement(getUpdateStatement());
+      // Each row is a separate UPDATE in the batch, so the same statement
+      // serves batches of any size.
+      PreparedStatement stmt = getCachedStatement(1);
+      if (null == stmt) {
+        // Synchronize on connection to ensure this does not conflict
+        // with the operations in the update thread.
+        Connection conn = getConnection();
+        synchronized (conn) {
+          stmt = conn.prepareStatement(getUpdateStatement());
+        }
+        cacheStatement(stmt, 1);
       }
 
       // Inject the record parameters into the UPDATE and WHERE clauses.  This
@@ -0,0 +1,359 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.db;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.sqoop.config.ConfigurationConstants;
+
+/**
+ * Keeps the output of each chunk that a map task has finished reading, so
+ * that a later attempt of the task need not read those chunks again.
+ *
+ * A ChunkedDBRecordReader reports where each chunk starts and ends. When a
+ * chunk ends, the Listener (the task's RecordWriter) closes the files it
+ * wrote the chunk's records to, and they are moved from the attempt's work
+ * directory to a directory kept for the task, which is not removed when an
+ * attempt fails. A manifest in that directory lists the chunks which are
+ * done, the number of records in each, and their files. When the task
+ * finishes, promote() moves the files back into the work directory of the
+ * attempt, to be committed with the rest of its output, and counts the
+ * records of the chunks done by earlier attempts as output of the task.
+ * The split queries of those chunks were counted by the attempts which
+ * ran them, whose counters are lost; they are counted as uncounted queries
+ * instead, so that --validate counts the source table as a whole.
+ *
+ * Large objects written to LobFiles are not kept. Once the task writes one,
+ * the files of later chunks stay in the work directory, and those chunks
+ * are read again if the attempt fails.
+ *
+ * Like PhaseMetrics, the checkpoint of a task is shared by its RecordReader
+ * and RecordWriter, which do not share any other state; see forTask().
+ */
+public final class ChunkCheckpoint {
+
+  public static final Log LOG = LogFactory.getLog(
+      ChunkCheckpoint.class.getName());
+
+  /** If true, keep the output of each chunk of a chunked split. */
+  public static final String ENABLED_KEY = "sqoop.import.chunk.checkpoint";
+
+  /** The directory under the output directory that tasks keep chunks in. */
+  public static final String CHECKPOINT_DIR = "_temporary/_sqoop-checkpoints";
+
+  static final String MANIFEST = "_manifest";
+  static final String LOB_DIR = "_lob";
+
+  /**
+   * Writes the records of each chunk to its own files.
+   */
+  public interface Listener {
+    /**
+     * Close the files holding the records of the chunk which has ended.
+     * Each of its records must have been reported by recordWritten().
+     * @return the files written for the chunk; none if it was empty.
+     */
+    List<Path> finishChunk(int chunk) throws IOException;
+  }
+
+  private static final Map<TaskAttemptID, ChunkCheckpoint> CHECKPOINTS =
+      new HashMap<TaskAttemptID, ChunkCheckpoint>();
+
+  private final TaskAttemptID attemptId;
+  private final FileSystem fs;
+  private final Path dir;
+  private final Path manifest;
+  private final boolean countSplits;
+
+  // The names of the files kept for each chunk which is done.
+  private final Map<Integer, List<String>> doneChunks =
+      new TreeMap<Integer, List<String>>();
+  // The number of records kept for each chunk which is done.
+  private final Map<Integer, Long> doneRecords = new HashMap<Integer, Long>();
+  // The chunks done by earlier attempts, whose records this attempt has not
+  // written.
+  private final Set<Integer> earlierChunks = new HashSet<Integer>();
+
+  private Listener listener;
+  private int currentChunk = -1;
+  private long currentRecords;
+  private boolean keeping = true;
+
+  private ChunkCheckpoint(TaskAttemptContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    this.attemptId = context.getTaskAttemptID();
+    Path outputPath = FileOutputFormat.getOutputPath(context);
+    if (null == outputPath) {
+      throw new IOException("Cannot keep chunk checkpoints: no output "
+          + "directory is set");
+    }
+    this.dir = new Path(new Path(outputPath, CHECKPOINT_DIR),
+        attemptId.getTaskID().toString());
+    this.fs = dir.getFileSystem(conf);
+    this.manifest = new Path(dir, MANIFEST);
+    this.countSplits = conf.getBoolean(SplitCountValidator.ENABLED_KEY, false);
+    load();
+  }
+
+  /**
+   * @return true if chunk checkpoints are enabled for the job.
+   */
+  public static boolean isEnabled(Configuration conf) {
+    return conf.getBoolean(ENABLED_KEY, false);
+  }
+
+  /**
+   * @return the checkpoint of the task attempt, loading the chunks done by
+   * earlier attempts of the task the first time it is called.
+   */
+  public static synchronized ChunkCheckpoint forTask(
+      TaskAttemptContext context) throws IOException {
+    ChunkCheckpoint checkpoint = CHECKPOINTS.get(context.getTaskAttemptID());
+    if (null == checkpoint) {
+      checkpoint = new ChunkCheckpoint(context);
+      CHECKPOINTS.put(context.getTaskAttemptID(), checkpoint);
+    }
+    return checkpoint;
+  }
+
+  private void load() throws IOException {
+    if (!fs.exists(manifest)) {
+      return;
+    }
+
+    FSDataInputStream in = fs.open(manifest);
+    try {
+      BufferedReader r = new BufferedReader(
+          new InputStreamReader(in, StandardCharsets.UTF_8));
+      String line;
+      while (null != (line = r.readLine())) {
+        String [] fields = line.split("\t");
+        List<String> files = new ArrayList<String>();
+        boolean complete = true;
+        for (int i = 2; i < fields.length; i++) {
+          files.add(fields[i]);
+          complete &= fs.exists(new Path(dir, fields[i]));
+        }
+        if (complete) {
+          Integer chunk = Integer.valueOf(fields[0]);
+          doneChunks.put(chunk, files);
+          doneRecords.put(chunk, Long.valueOf(fields[1]));
+          earlierChunks.add(chunk);
+        } else {
+          LOG.warn("Files of chunk " + fields[0] + " are missing from "
+              + dir + "; reading it again");
+        }
+      }
+    } finally {
+      in.close();
+    }
+
+    LOG.info("Earlier attempts of " + attemptId.getTaskID() + " finished "
+        + doneChunks.size() + " chunks: " + doneChunks.keySet());
+  }
+
+  /**
+   * Set the RecordWriter which writes the records of each chunk.
+   */
+  public synchronized void setListener(Listener newListener) {
+    this.listener = newListener;
+  }
+
+  /**
+   * @return true if an earlier attempt of the task finished the chunk.
+   */
+  public synchronized boolean isDone(int chunk) {
+    // Without a writer, the files of the chunk would never be committed.
+    return null != listener && doneChunks.containsKey(chunk);
+  }
+
+  /**
+   * @return the chunk being read, or -1 if no chunk has been started.
+   */
+  public synchronized int getCurrentChunk() {
+    return currentChunk;
+  }
+
+  /**
+   * Mark the start of a chunk; the records read from now on belong to it.
+   */
+  public synchronized void startChunk(int chunk) {
+    this.currentChunk = chunk;
+    this.currentRecords = 0;
+  }
+
+  /**
+   * Count a record written for the current chunk.
+   */
+  public synchronized void recordWritten() {
+    currentRecords++;
+  }
+
+  /**
+   * Mark the end of the current chunk, once all of its records have been
+   * written, and keep the files holding them.
+   */
+  public synchronized void endChunk() throws IOException {
+    if (currentChunk < 0) {
+      return;
+    }
+    int chunk = currentChunk;
+    currentChunk = -1;
+
+    if (null == listener) {
+      if (keeping) {
+        LOG.warn("The output format of the job does not write chunks to "
+            + "files of their own; no chunks will be kept for "
+            + attemptId.getTaskID());
+        keeping = false;
+      }
+      return;
+    }
+    List<Path> files = listener.finishChunk(chunk);
+    if (!keeping) {
+      return;
+    }
+
+    if (!files.isEmpty()
+        && fs.exists(new Path(files.get(0).getParent(), LOB_DIR))) {
+      // The chunk's records may refer to LobFiles, which are left in the
+      // work directory of the attempt.
+      LOG.warn("Large objects were written to LobFiles; no more chunks "
+          + "will be kept for " + attemptId.getTaskID());
+      keeping = false;
+      return;
+    }
+
+    fs.mkdirs(dir);
+    List<String> names = new ArrayList<String>(files.size());
+    for (Path file : files) {
+      Path kept = new Path(dir, file.getName());
+      // Left behind by an attempt which failed before listing it.
+      fs.delete(kept, false);
+      if (!fs.rename(file, kept)) {
+        throw new IOException("Could not move " + file + " to " + kept);
+      }
+      names.add(file.getName());
+    }
+    doneChunks.put(chunk, names);
+    doneRecords.put(chunk, currentRecords);
+    earlierChunks.remove(chunk);
+    writeManifest();
+  }
+
+  private void writeManifest() throws IOException {
+    Path tmp = new Path(dir, "_" + MANIFEST + "." + attemptId);
+    Writer w = new OutputStreamWriter(fs.create(tmp, true),
+        StandardCharsets.UTF_8);
+    try {
+      for (Map.Entry<Integer, List<String>> e : doneChunks.entrySet()) {
+        w.write(e.getKey().toString());
+        w.write('\t');
+        w.write(doneRecords.get(e.getKey()).toString());
+        for (String name : e.getValue()) {
+          w.write('\t');
+          w.write(name);
+        }
+        w.write('\n');
+      }
+    } finally {
+      w.close();
+    }
+
+    fs.delete(manifest, false);
+    if (!fs.rename(tmp, manifest)) {
+      throw new IOException("Could not write manifest " + manifest);
+    }
+  }
+
+  /**
+   * Move the files of every chunk which is done into the work directory of
+   * the attempt, so that they are committed with the rest of its output,
+   * and forget the checkpoint of this attempt.
+   *
+   * The records of the chunks done by earlier attempts never pass through
+   * this attempt's mapper, so they are added to its map output records
+   * counter here; otherwise, the job would report, and validate, fewer
+   * records than it imported.
+   */
+  public synchronized void promote(Path workDir, TaskAttemptContext context)
+      throws IOException {
+    synchronized (ChunkCheckpoint.class) {
+      CHECKPOINTS.remove(attemptId);
+    }
+    if (doneChunks.isEmpty()) {
+      return;
+    }
+
+    // Remove the manifest first: if this attempt fails from here on, the
+    // next attempt reads every chunk again, instead of relying on files
+    // which may have been moved into this attempt's work directory.
+    fs.delete(manifest, false);
+    int numFiles = 0;
+    for (List<String> names : doneChunks.values()) {
+      for (String name : names) {
+        Path kept = new Path(dir, name);
+        if (!fs.rename(kept, new Path(workDir, name))) {
+          throw new IOException("Could not move " + kept + " to " + workDir);
+        }
+        numFiles++;
+      }
+    }
+    LOG.info("Moved " + numFiles + " files of " + doneChunks.size()
+        + " kept chunks to " + workDir);
+
+    long earlierRecords = 0;
+    for (Integer chunk : earlierChunks) {
+      earlierRecords += doneRecords.get(chunk);
+    }
+    context.getCounter(
+        ConfigurationConstants.COUNTER_GROUP_MAPRED_TASK_COUNTERS,
+        ConfigurationConstants.COUNTER_MAP_OUTPUT_RECORDS)
+        .increment(earlierRecords);
+    LOG.info("Counted " + earlierRecords + " records of the "
+        + earlierChunks.size() + " chunks kept by earlier attempts");
+
+    if (countSplits && !earlierChunks.isEmpty()) {
+      context.getCounter(SplitCountValidator.COUNTER_GROUP,
+          SplitCountValidator.UNCOUNTED_QUERIES_COUNTER)
+          .increment(earlierChunks.size());
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.db;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Stores the chunks of a job's chunked splits in a single file in the job's
+ * staging directory, so that each split need only hold its path rather
+ * than a copy of every chunk.
+ */
+public final class ChunkTable {
+
+  /** The name of the file holding the chunks, in the job directory. */
+  public static final String FILE_NAME = "sqoop-chunks";
+
+  private ChunkTable() {
+  }
+
+  /**
+   * Write a list of chunks to the job's staging directory.
+   * @return the path of the file, or null if the configuration does not
+   * name a job directory, in which case the splits must hold the chunks
+   * themselves.
+   */
+  public static Path write(Configuration conf,
+      List<? extends Writable> chunks) throws IOException {
+    String jobDir = conf.get(MRJobConfig.MAPREDUCE_JOB_DIR);
+    if (null == jobDir) {
+      return null;
+    }
+
+    Path file = new Path(jobDir, FILE_NAME);
+    FileSystem fs = file.getFileSystem(conf);
+    FSDataOutputStream out = fs.create(file, true);
+    try {
+      WritableUtils.writeVInt(out, chunks.size());
+      for (Writable chunk : chunks) {
+        Text.writeString(out, chunk.getClass().getName());
+        chunk.write(out);
+      }
+    } finally {
+      out.close();
+    }
+    return fs.makeQualified(file);
+  }
+
+  /**
+   * Read the chunks written by write().
+   * @param type the class every chunk must be an instance of.
+   */
+  public static <T extends Writable> List<T> read(Configuration conf,
+      Path file, Class<T> type) throws IOException {
+    FileSystem fs = file.getFileSystem(conf);
+    FSDataInputStream in = fs.open(file);
+    try {
+      int numChunks = WritableUtils.readVInt(in);
+      List<T> chunks = new ArrayList<T>(numChunks);
+      for (int i = 0; i < numChunks; i++) {
+        Class<? extends T> chunkClass;
+        try {
+          chunkClass = conf.getClassByName(Text.readString(in))
+              .asSubclass(type);
+        } catch (ClassNotFoundException e) {
+          throw new IOException("Cannot read chunk " + i + " of " + file, e);
+        }
+        T chunk = ReflectionUtils.newInstance(chunkClass, conf);
+        chunk.readFields(in);
+        chunks.add(chunk);
+      }
+      return chunks;
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,298 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.mapreduce.db;
+
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.sqoop.mapreduce.DBWritable;
+
+/**
+ * A RecordReader which reads a ChunkedInputSplit, such as a
+ * DataDrivenDBChunkedInputSplit, one chunk at a time, using the
+ * DBRecordReader of the input format to run the query of each chunk.
+ *
+ * Before reading a chunk, the task claims it by atomically renaming a file
+ * holding its task id into a directory shared by all the tasks of the job.
+ * Chunks are claimed in batches of consecutive chunks, to bound the number
+ * of claims made. Batches claimed by other tasks are skipped. A later
+ * attempt of the same task reads the chunks claimed by the earlier attempts
+ * again, so that no chunk is lost when an attempt fails. Speculative
+ * execution of map tasks must be disabled, as two attempts of a task running
+ * at the same time may each read only some of the task's chunks.
+ *
+ * If ChunkCheckpoint.ENABLED_KEY is set, the start and end of each chunk is
+ * reported to the task's ChunkCheckpoint, and chunks which an earlier
+ * attempt finished are skipped.
+ */
+public class ChunkedDBRecordReader<T extends DBWritable>
+    extends RecordReader<LongWritable, T> {
+
+  private static final Log LOG =
+      LogFactory.getLog(ChunkedDBRecordReader.class);
+
+  /**
+   * The number of chunks to divide the split column's range into for each
+   * map task. Values greater than 1 enable chunked splits.
+   */
+  public static final String CHUNKS_PER_MAPPER_PROPERTY =
+      "org.apache.sqoop.splitter.chunks_per_mapper";
+
+  /**
+   * The directory under which the tasks of a job claim their chunks. The
+   * file system must support atomic renames, as HDFS does. Defaults to the
+   * job's staging directory.
+   */
+  public static final String CLAIM_DIR_PROPERTY =
+      "org.apache.sqoop.splitter.chunk_claim_dir";
+
+  /**
+   * The number of consecutive chunks a task claims at once. Defaults to an
+   * eighth of the chunks of each map task, so that a task makes no more
+   * than about eight claims for its own share.
+   */
+  public static final String CHUNKS_PER_CLAIM_PROPERTY =
+      "org.apache.sqoop.splitter.chunks_per_claim";
+
+  private final DBRecordReader<T> reader;
+  private final ChunkedInputSplit split;
+
+  private FileSystem fs;
+  private Path claimDir;
+  private String owner;
+  private ChunkCheckpoint checkpoint;
+
+  private int batchSize;
+  private int numBatches;
+
+  // The number of batches visited so far, whether claimed or not.
+  private int visited;
+  // The next chunk to read in the batch claimed last, and the chunk after
+  // the end of that batch.
+  private int nextChunk;
+  private int batchEnd;
+  private int chunksRead;
+  private boolean inChunk;
+
+  public ChunkedDBRecordReader(DBRecordReader<T> reader,
+      ChunkedInputSplit split) {
+    this.reader = reader;
+    this.split = split;
+  }
+
+  /**
+   * @return the number of chunks to create for each map task, or 1 if
+   * chunked splits are disabled.
+   */
+  public static int getChunksPerMapper(Configuration conf) {
+    return Math.max(1, conf.getInt(CHUNKS_PER_MAPPER_PROPERTY, 1));
+  }
+
+  /**
+   * @return the number of consecutive chunks to claim at once, for a job
+   * with the specified number of chunks.
+   */
+  public static int getChunksPerClaim(Configuration conf, int numChunks) {
+    int numMaps = Math.max(1, conf.getInt(MRJobConfig.NUM_MAPS, 1));
+    return Math.max(1,
+        conf.getInt(CHUNKS_PER_CLAIM_PROPERTY, numChunks / (numMaps * 8)));
+  }
+
+  /**
+   * @return the directory in which the tasks of a job claim their chunks,
+   * or null if there is none.
+   */
+  public static Path getClaimDir(Configuration conf, JobID jobId) {
+    String dir = conf.get(CLAIM_DIR_PROPERTY);
+    if (null != dir) {
+      // A user-supplied directory may be shared by several jobs.
+      return new Path(dir, jobId.toString());
+    } else if (null != conf.get(MRJobConfig.MAPREDUCE_JOB_DIR)) {
+      return new Path(conf.get(MRJobConfig.MAPREDUCE_JOB_DIR),
+          "sqoop-chunk-claims");
+    }
+    return null;
+  }
+
+  /**
+   * Delete the claims of a finished job from a user-supplied claim
+   * directory. Claims made in the job's staging directory are removed with
+   * the rest of it.
+   */
+  public static void deleteClaimDir(Configuration conf, JobID jobId)
+      throws IOException {
+    if (null == conf.get(CLAIM_DIR_PROPERTY) || null == jobId) {
+      return;
+    }
+    Path dir = getClaimDir(conf, jobId);
+    FileSystem dirFs = dir.getFileSystem(conf);
+    if (dirFs.exists(dir) && !dirFs.delete(dir, true)) {
+      LOG.warn("Could not delete chunk claim directory " + dir);
+    }
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext context)
+      throws IOException, InterruptedException {
+    Configuration conf = context.getConfiguration();
+    split.loadChunks(conf);
+    reader.initialize(inputSplit, context);
+
+    int numChunks = split.getNumChunks();
+    batchSize = getChunksPerClaim(conf, numChunks);
+    numBatches = (numChunks + batchSize - 1) / batchSize;
+
+    claimDir = getClaimDir(conf, context.getJobID());
+    if (null == claimDir) {
+      throw new IOException("Cannot claim chunks: neither "
+          + CLAIM_DIR_PROPERTY + " nor " + MRJobConfig.MAPREDUCE_JOB_DIR
+          + " is set");
+    }
+
+    fs = claimDir.getFileSystem(conf);
+    fs.mkdirs(claimDir);
+    // Claims are made on behalf of the task rather than the attempt, so
+    // that a retry reads the same chunks as the failed attempt.
+    owner = context.getTaskAttemptID().getTaskID().toString();
+
+    if (ChunkCheckpoint.isEnabled(conf)) {
+      checkpoint = ChunkCheckpoint.forTask(context);
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    while (true) {
+      if (inChunk && reader.nextKeyValue()) {
+        return true;
+      }
+
+      if (inChunk && null != checkpoint) {
+        // Every record of the chunk has been passed to the mapper.
+        checkpoint.endChunk();
+      }
+
+      if (!claimNextChunk()) {
+        inChunk = false;
+        return false;
+      }
+
+      reader.resetQuery();
+      inChunk = true;
+    }
+  }
+
+  /**
+   * Move the split on to the next chunk this task can read, claiming the
+   * next batch of chunks once those already claimed have been read.
+   * @return false if there are no more chunks to read.
+   */
+  private boolean claimNextChunk() throws IOException {
+    int firstBatch = split.getFirstChunk() / batchSize;
+    while (true) {
+      while (nextChunk < batchEnd) {
+        int chunk = nextChunk++;
+        if (null != checkpoint && checkpoint.isDone(chunk)) {
+          // An earlier attempt of this task read it.
+          continue;
+        }
+        split.setCurrentChunk(chunk);
+        if (null != checkpoint) {
+          checkpoint.startChunk(chunk);
+        }
+        chunksRead++;
+        return true;
+      }
+
+      if (visited == numBatches) {
+        return false;
+      }
+      int batch = (firstBatch + visited) % numBatches;
+      visited++;
+      if (claim(batch)) {
+        nextChunk = batch * batchSize;
+        batchEnd = Math.min(nextChunk + batchSize, split.getNumChunks());
+      }
+    }
+  }
+
+  /**
+   * Claim a batch of chunks for this task.
+   * @return true if the batch is now, or already was, claimed by this task.
+   */
+  private boolean claim(int batch) throws IOException {
+    Path claim = new Path(claimDir, "batch-" + batch);
+    if (!fs.exists(claim)) {
+      // Write the claim in full before publishing it, so that it is never
+      // seen without its owner.
+      Path tmp = new Path(claimDir, "_" + claim.getName() + "." + owner);
+      FSDataOutputStream out = fs.create(tmp, true);
+      try {
+        out.writeUTF(owner);
+      } finally {
+        out.close();
+      }
+
+      if (fs.rename(tmp, claim)) {
+        return true;
+      }
+      fs.delete(tmp, false);
+    }
+
+    FSDataInputStream in = fs.open(claim);
+    try {
+      return owner.equals(in.readUTF());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Override
+  public LongWritable getCurrentKey() {
+    return reader.getCurrentKey();
+  }
+
+  @Override
+  public T getCurrentValue() {
+    return reader.getCurrentValue();
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    return visited / (float) numBatches;
+  }
+
+  @Override
+  public void close() throws IOException {
+    LOG.info("Read " + chunksRead + " of " + split.getNumChunks()
+        + " chunks");
+    reader.close();
+  }
+}
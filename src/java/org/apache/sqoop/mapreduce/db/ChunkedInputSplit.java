@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.db;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * An input split which holds many chunks, any of which its task may read.
+ * A ChunkedDBRecordReader walks the chunks from getFirstChunk(), reading
+ * those its task manages to claim. The record reader it wraps builds its
+ * query from the chunk last passed to setCurrentChunk().
+ *
+ * The chunks themselves may be kept in a ChunkTable rather than in the
+ * split, in which case they are read by loadChunks().
+ */
+public interface ChunkedInputSplit {
+
+  /**
+   * @return the total number of chunks, across all splits.
+   */
+  int getNumChunks();
+
+  /**
+   * @return the chunk this split starts from.
+   */
+  int getFirstChunk();
+
+  /**
+   * Make the specified chunk the one which is read from now on.
+   */
+  void setCurrentChunk(int chunk);
+
+  /**
+   * Read the chunks from the ChunkTable the split refers to, if any. Must
+   * be called before a chunk is made current.
+   */
+  void loadChunks(Configuration conf) throws IOException;
+}
@@ -103,6 +103,16 @@ public class DBConfiguration {
   public static final String INPUT_BOUNDING_QUERY =
       "mapred.jdbc.input.bounding.query";
 
+  /**
+   * Number of rows per page when DBInputFormat reads its splits by keyset
+   * pagination on the ORDER BY column. Zero or unset uses LIMIT...OFFSET.
+   * To find the bounds of the splits, getSplits() reads the ORDER BY value
+   * of every row once; for character and floating point columns it also
+   * counts their distinct values in the database.
+   */
+  public static final String INPUT_KEYSET_PAGE_SIZE =
+    "mapreduce.jdbc.input.keyset.pagesize";
+
   /** Class name implementing DBWritable which will hold input tuples. */
   public static final String INPUT_CLASS_PROPERTY =
     "mapreduce.jdbc.input.class";
@@ -331,6 +341,14 @@ public void setFetchSize(Integer fetchSize) {
       conf.set(FETCH_SIZE, null);
     }
   }
+  public int getInputKeysetPageSize() {
+    return conf.getInt(DBConfiguration.INPUT_KEYSET_PAGE_SIZE, 0);
+  }
+
+  public void setInputKeysetPageSize(int pageSize) {
+    conf.setInt(DBConfiguration.INPUT_KEYSET_PAGE_SIZE, pageSize);
+  }
+
   public String getInputTableName() {
     return conf.get(DBConfiguration.INPUT_TABLE_NAME_PROPERTY);
   }
@@ -26,6 +26,7 @@
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,6 +35,7 @@
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.InputSplit;
@@ -142,6 +144,81 @@ public void write(DataOutput output) throws IOException {
     }
   }
 
+  /**
+   * A DBInputSplit whose rows are also bounded by values of the ORDER BY
+   * column, so that it can be read by keyset pagination instead of
+   * LIMIT...OFFSET. The lower key is inclusive and the upper key exclusive;
+   * a null key leaves that end of the split open.
+   */
+  public static class KeysetDBInputSplit extends DBInputSplit {
+
+    private String lowerKey;
+    private String upperKey;
+    private int keyType;
+
+    /**
+     * Default Constructor.
+     */
+    public KeysetDBInputSplit() {
+    }
+
+    /**
+     * @param start the index of the first row to select
+     * @param end the index of the last row to select
+     * @param lower the ORDER BY value of the first row, or null.
+     * @param upper the ORDER BY value of the row after the last, or null.
+     * @param sqlType the java.sql.Types type of the ORDER BY column.
+     */
+    public KeysetDBInputSplit(long start, long end, String lower,
+        String upper, int sqlType) {
+      super(start, end);
+      this.lowerKey = lower;
+      this.upperKey = upper;
+      this.keyType = sqlType;
+    }
+
+    public String getLowerKey() {
+      return lowerKey;
+    }
+
+    public String getUpperKey() {
+      return upperKey;
+    }
+
+    public int getKeyType() {
+      return keyType;
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public void readFields(DataInput input) throws IOException {
+      super.readFields(input);
+      lowerKey = input.readBoolean() ? Text.readString(input) : null;
+      upperKey = input.readBoolean() ? Text.readString(input) : null;
+      keyType = input.readInt();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public void write(DataOutput output) throws IOException {
+      super.write(output);
+      output.writeBoolean(null != lowerKey);
+      if (null != lowerKey) {
+        Text.writeString(output, lowerKey);
+      }
+      output.writeBoolean(null != upperKey);
+      if (null != upperKey) {
+        Text.writeString(output, upperKey);
+      }
+      output.writeInt(keyType);
+    }
+
+    @Override
+    public String toString() {
+      return "[" + lowerKey + ", " + upperKey + ")";
+    }
+  }
+
   private String conditions;
 
   private Connection connection;
@@ -244,6 +321,10 @@ conf, getConnection(), getDBConf(), conditions, fieldNames,
         return new Db2DBRecordReader<T>(split, inputClass,
             conf, getConnection(), getDBConf(), conditions, fieldNames,
             tableName);
+      } else if (split instanceof KeysetDBInputSplit) {
+        return new KeysetDBRecordReader<T>(split, inputClass,
+            conf, getConnection(), getDBConf(), conditions, fieldNames,
+            tableName);
       } else {
         // Generic reader.
         return new DBRecordReader<T>(split, inputClass,
@@ -301,6 +382,10 @@ public List<InputSplit> getSplits(JobContext job) throws IOException {
         splits.add(split);
       }
 
+      if (canPageByKey()) {
+        splits = getKeysetSplits(splits);
+      }
+
       connection.commit();
       return splits;
     } catch (SQLException e) {
@@ -317,6 +402,181 @@ public List<InputSplit> getSplits(JobContext job) throws IOException {
     }
   }
 
+  /**
+   * @return true if the splits should be read by keyset pagination. This
+   * requires a single ORDER BY column. getKeysetSplits() also checks that
+   * the column is unique and not null.
+   */
+  protected boolean canPageByKey() {
+    String orderBy = dbConf.getInputOrderBy();
+    if (dbConf.getInputKeysetPageSize() <= 0) {
+      return false;
+    } else if (null == orderBy || orderBy.isEmpty()
+        || orderBy.indexOf(',') != -1) {
+      LOG.warn("Keyset pagination requires a single ORDER BY column; "
+          + "using LIMIT and OFFSET");
+      return false;
+    } else if (dbProductName.startsWith("ORACLE")
+        || dbProductName.startsWith("DB2")) {
+      LOG.warn("Keyset pagination is not supported for " + dbProductName
+          + "; using its own paging");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Look up the ORDER BY value of the first row of each split, so that
+   * the splits can be read without skipping over the rows before them.
+   * The ORDER BY column of the rows to import is read once, in order; as
+   * equal values are adjacent, the same pass checks that the column is
+   * unique and not null. Pages are bounded by "key &gt; last key", so a
+   * page that ended part way through a run of equal keys would skip the
+   * rest of them.
+   * @return the splits bounded by ORDER BY values, or the original splits
+   * if no such bounds could be found.
+   */
+  private List<InputSplit> getKeysetSplits(List<InputSplit> splits)
+      throws SQLException {
+    int numSplits = splits.size();
+    String [] keys = new String[numSplits + 1];
+    int keyType = Types.OTHER;
+    PreparedStatement statement = connection.prepareStatement(getKeyQuery(),
+        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    try {
+      Integer fetchSize = dbConf.getFetchSize();
+      if (fetchSize != null) {
+        statement.setFetchSize(fetchSize);
+      }
+      ResultSet results = statement.executeQuery();
+      try {
+        keyType = results.getMetaData().getColumnType(1);
+        int next = 1;
+        long row = 0;
+        String lastKey = null;
+        while (results.next()) {
+          String key = KeysetDBRecordReader.getKey(results, 1, keyType);
+          if (null == key || key.equals(lastKey)) {
+            LOG.warn("ORDER BY column is not unique and not null; "
+                + "using LIMIT and OFFSET");
+            return splits;
+          }
+          if (next < numSplits
+              && row == ((DBInputSplit) splits.get(next)).getStart()) {
+            keys[next++] = key;
+          }
+          lastKey = key;
+          row++;
+        }
+        if (next < numSplits) {
+          LOG.warn("No ORDER BY value at row "
+              + ((DBInputSplit) splits.get(next)).getStart()
+              + "; using LIMIT and OFFSET");
+          return splits;
+        }
+      } finally {
+        results.close();
+      }
+    } finally {
+      statement.close();
+    }
+
+    if (!hasExactKeys(keyType) && !isOrderByUnique()) {
+      LOG.warn("ORDER BY column is not unique in the database's collation; "
+          + "using LIMIT and OFFSET");
+      return splits;
+    }
+
+    List<InputSplit> keysetSplits = new ArrayList<InputSplit>(numSplits);
+    for (int i = 0; i < numSplits; i++) {
+      DBInputSplit split = (DBInputSplit) splits.get(i);
+      keysetSplits.add(new KeysetDBInputSplit(split.getStart(),
+          split.getEnd(), keys[i], keys[i + 1], keyType));
+    }
+    return keysetSplits;
+  }
+
+  /**
+   * @return true if two ORDER BY values of the given type are equal in the
+   * database exactly when getKey() reads them as equal strings. Strings
+   * may be equal under a case- or accent-insensitive collation although
+   * they differ, and floating point values may be rounded when read.
+   */
+  private static boolean hasExactKeys(int keyType) {
+    switch (keyType) {
+    case Types.TINYINT:
+    case Types.SMALLINT:
+    case Types.INTEGER:
+    case Types.BIGINT:
+    case Types.NUMERIC:
+    case Types.DECIMAL:
+    case Types.DATE:
+    case Types.TIME:
+    case Types.TIMESTAMP:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Check, in the database, that no two rows to import share an ORDER BY
+   * value. This scans the table again, so getKeysetSplits() only runs it
+   * for keys that cannot be compared on the client.
+   */
+  private boolean isOrderByUnique() throws SQLException {
+    Statement statement = connection.createStatement();
+    try {
+      ResultSet results = statement.executeQuery(getKeyCountQuery());
+      try {
+        return results.next()
+            && results.getLong(1) == results.getLong(2);
+      } finally {
+        results.close();
+      }
+    } finally {
+      statement.close();
+    }
+  }
+
+  /**
+   * Returns the query for the number of rows to import and the number of
+   * distinct, non-null ORDER BY values among them.
+   */
+  protected String getKeyCountQuery() {
+    String orderBy = dbConf.getInputOrderBy();
+    StringBuilder query = new StringBuilder();
+    query.append("SELECT COUNT(*), COUNT(DISTINCT ").append(orderBy);
+    query.append(")");
+    appendKeySource(query);
+    return query.toString();
+  }
+
+  /**
+   * Returns the query for the ORDER BY values of the rows to import, in
+   * order. This scans the ORDER BY column only, and runs once per job.
+   */
+  protected String getKeyQuery() {
+    String orderBy = dbConf.getInputOrderBy();
+    StringBuilder query = new StringBuilder();
+    query.append("SELECT ").append(orderBy);
+    appendKeySource(query);
+    query.append(" ORDER BY ").append(orderBy);
+    return query.toString();
+  }
+
+  private void appendKeySource(StringBuilder query) {
+    if (dbConf.getInputQuery() == null) {
+      query.append(" FROM ").append(tableName);
+      if (conditions != null && conditions.length() > 0) {
+        query.append(" WHERE (").append(conditions).append(")");
+      }
+    } else {
+      query.append(" FROM (").append(dbConf.getInputQuery());
+      query.append(") AS ").append(KeysetDBRecordReader.QUERY_ALIAS);
+    }
+  }
+
   /** Returns the query for getting the total number of rows,
    * subclasses can override this for custom behaviour.*/
   protected String getCountQuery() {
@@ -35,6 +35,7 @@
 import org.apache.hadoop.util.ReflectionUtils;
 
 import org.apache.sqoop.util.LoggingUtils;
+import org.apache.sqoop.util.PhaseMetrics;
 
 /**
  * A RecordReader that reads records from a SQL table.
@@ -72,6 +73,11 @@
 
   private String tableName;
 
+  private final PhaseMetrics metrics = PhaseMetrics.getMetrics();
+
+  // Counts the rows of each query, if --validate counts splits.
+  private SplitCountValidator splitValidator;
+
   /**
    * @param split The InputSplit to read data for
    * @throws SQLException
@@ -172,9 +178,38 @@ public void close() throws IOException {
     }
   }
 
+  /**
+   * Close the current result set and statement, leaving the connection
+   * open. The next call to nextKeyValue() runs getSelectQuery() again;
+   * ChunkedDBRecordReader uses this to read its split one chunk at a time.
+   */
+  protected void resetQuery() throws IOException {
+    try {
+      if (null != results) {
+        results.close();
+        results = null;
+      }
+      if (null != statement) {
+        statement.close();
+        statement = null;
+      }
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
   public void initialize(InputSplit inputSplit, TaskAttemptContext context)
       throws IOException, InterruptedException {
-    //do nothing
+    splitValidator = SplitCountValidator.create(conf, context);
+  }
+
+  /**
+   * Returns the query which counts the rows selected by 'selectQuery' for
+   * validation, or null if it cannot be counted. Subclasses whose queries
+   * take parameters must override this.
+   */
+  protected String getCountQuery(String selectQuery) {
+    return splitValidator.getCountQuery(selectQuery);
   }
 
   @Override
@@ -230,9 +265,19 @@ public boolean nextKeyValue() throws IOException {
       if (null == this.results) {
         // First time into this method, run the query.
         LOG.info("Working on split: " + split);
-        this.results = executeQuery(getSelectQuery());
+        String query = getSelectQuery();
+        if (null != splitValidator) {
+          splitValidator.begin(connection, getCountQuery(query));
+        }
+        long queryStart = metrics.start();
+        this.results = executeQuery(query);
+        metrics.end(PhaseMetrics.Phase.QUERY, queryStart);
       }
+      long fetchStart = metrics.start();
       if (!results.next()) {
+        if (null != splitValidator) {
+          splitValidator.end(split.toString());
+        }
         return false;
       }
 
@@ -240,10 +285,17 @@ public boolean nextKeyValue() throws IOException {
       key.set(pos + split.getStart());
 
       value.readFields(results);
+      metrics.end(PhaseMetrics.Phase.FETCH, fetchStart);
+      if (null != splitValidator) {
+        splitValidator.add(value);
+      }
 
       pos++;
     } catch (SQLException e) {
       LoggingUtils.logAll(LOG, e);
+      if (null != splitValidator) {
+        splitValidator.abort();
+      }
       if (this.statement != null) {
         try {
           statement.close();
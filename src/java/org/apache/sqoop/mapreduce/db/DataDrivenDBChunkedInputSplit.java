@@ -0,0 +1,258 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.mapreduce.db;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+/**
+ * A DataDrivenDBInputSplit that holds many small chunks of the split
+ * column's range instead of one.
+ *
+ * Every split of a job holds all of the job's chunks, and differs only in
+ * the chunk it starts from. A ChunkedDBRecordReader walks the chunks from
+ * there, reading those it manages to claim and skipping those which another
+ * task has claimed first. A task which finishes its own chunks early thus
+ * goes on to take chunks from the start of the next task's share.
+ *
+ * The lower and upper clauses reported by this split are those of the
+ * current chunk; see setCurrentChunk().
+ *
+ * When the job has a staging directory, the clauses of the chunks are
+ * written there once, in a ChunkTable, and each split holds only its path.
+ * They are read back by loadChunks().
+ */
+public class DataDrivenDBChunkedInputSplit
+    extends DataDrivenDBInputFormat.DataDrivenDBInputSplit
+    implements ChunkedInputSplit {
+
+  private String [] lowerClauses;
+  private String [] upperClauses;
+  private Path chunkFile;
+  private int numChunks;
+  private int firstChunk;
+  private int currentChunk;
+
+  /**
+   * Default Constructor.
+   */
+  public DataDrivenDBChunkedInputSplit() {
+  }
+
+  /**
+   * @param lowers the lower bound clause of each chunk.
+   * @param uppers the upper bound clause of each chunk.
+   * @param first the chunk this split starts from.
+   */
+  public DataDrivenDBChunkedInputSplit(String [] lowers, String [] uppers,
+      int first) {
+    if (lowers.length != uppers.length || lowers.length == 0) {
+      throw new IllegalArgumentException("Expected the same, non-zero number "
+          + "of lower and upper clauses; got " + lowers.length + " and "
+          + uppers.length);
+    }
+    this.lowerClauses = lowers;
+    this.upperClauses = uppers;
+    this.numChunks = lowers.length;
+    this.firstChunk = first;
+    this.currentChunk = first;
+  }
+
+  /**
+   * @param file the ChunkTable holding the chunks.
+   * @param chunkCount the number of chunks in the file.
+   * @param first the chunk this split starts from.
+   */
+  public DataDrivenDBChunkedInputSplit(Path file, int chunkCount,
+      int first) {
+    this.chunkFile = file;
+    this.numChunks = chunkCount;
+    this.firstChunk = first;
+    this.currentChunk = first;
+  }
+
+  /**
+   * Group a list of DataDrivenDBInputSplits into numSplits chunked splits.
+   * The chunks are given out as contiguous, equally sized shares, so that
+   * each task starts on its own part of the range. The chunks are written
+   * to a ChunkTable if the configuration names a job directory.
+   * @return the chunked splits, or the original splits if there are no more
+   * of them than numSplits.
+   */
+  public static List<InputSplit> group(List<InputSplit> chunks,
+      int numSplits, Configuration conf) throws IOException {
+    if (chunks.size() <= numSplits || numSplits < 1) {
+      return chunks;
+    }
+
+    int numChunks = chunks.size();
+    List<DataDrivenDBInputFormat.DataDrivenDBInputSplit> ranges =
+        new ArrayList<DataDrivenDBInputFormat.DataDrivenDBInputSplit>(
+            numChunks);
+    for (InputSplit chunk : chunks) {
+      ranges.add((DataDrivenDBInputFormat.DataDrivenDBInputSplit) chunk);
+    }
+
+    List<InputSplit> splits = new ArrayList<InputSplit>(numSplits);
+    Path file = ChunkTable.write(conf, ranges);
+    String [] lowers = null;
+    String [] uppers = null;
+    if (null == file) {
+      lowers = new String[numChunks];
+      uppers = new String[numChunks];
+      for (int i = 0; i < numChunks; i++) {
+        lowers[i] = ranges.get(i).getLowerClause();
+        uppers[i] = ranges.get(i).getUpperClause();
+      }
+    }
+
+    for (int i = 0; i < numSplits; i++) {
+      int first = (int) ((long) i * numChunks / numSplits);
+      if (null != file) {
+        splits.add(new DataDrivenDBChunkedInputSplit(file, numChunks, first));
+      } else {
+        splits.add(new DataDrivenDBChunkedInputSplit(lowers, uppers, first));
+      }
+    }
+    return splits;
+  }
+
+  /**
+   * @return the total number of chunks, across all splits.
+   */
+  @Override
+  public int getNumChunks() {
+    return numChunks;
+  }
+
+  /**
+   * @return the chunk this split starts from.
+   */
+  @Override
+  public int getFirstChunk() {
+    return firstChunk;
+  }
+
+  /**
+   * @return the chunk whose clauses are reported by this split.
+   */
+  public int getCurrentChunk() {
+    return currentChunk;
+  }
+
+  /**
+   * Report the lower and upper clauses of the specified chunk from now on.
+   */
+  @Override
+  public void setCurrentChunk(int chunk) {
+    if (chunk < 0 || chunk >= numChunks) {
+      throw new IndexOutOfBoundsException("Chunk " + chunk + " requested; "
+          + numChunks + " chunks in split");
+    }
+    this.currentChunk = chunk;
+  }
+
+  @Override
+  public void loadChunks(Configuration conf) throws IOException {
+    if (null != lowerClauses || null == chunkFile) {
+      return;
+    }
+
+    List<DataDrivenDBInputFormat.DataDrivenDBInputSplit> chunks =
+        ChunkTable.read(conf, chunkFile,
+            DataDrivenDBInputFormat.DataDrivenDBInputSplit.class);
+    if (chunks.size() != numChunks) {
+      throw new IOException("Expected " + numChunks + " chunks in "
+          + chunkFile + "; found " + chunks.size());
+    }
+    String [] lowers = new String[numChunks];
+    String [] uppers = new String[numChunks];
+    for (int i = 0; i < numChunks; i++) {
+      lowers[i] = chunks.get(i).getLowerClause();
+      uppers[i] = chunks.get(i).getUpperClause();
+    }
+    this.lowerClauses = lowers;
+    this.upperClauses = uppers;
+  }
+
+  @Override
+  public String getLowerClause() {
+    return lowerClauses[currentChunk];
+  }
+
+  @Override
+  public String getUpperClause() {
+    return upperClauses[currentChunk];
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void readFields(DataInput input) throws IOException {
+    this.numChunks = WritableUtils.readVInt(input);
+    if (input.readBoolean()) {
+      this.chunkFile = new Path(Text.readString(input));
+      this.lowerClauses = null;
+      this.upperClauses = null;
+    } else {
+      this.chunkFile = null;
+      this.lowerClauses = new String[numChunks];
+      this.upperClauses = new String[numChunks];
+      for (int i = 0; i < numChunks; i++) {
+        this.lowerClauses[i] = Text.readString(input);
+        this.upperClauses[i] = Text.readString(input);
+      }
+    }
+    this.firstChunk = WritableUtils.readVInt(input);
+    this.currentChunk = firstChunk;
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void write(DataOutput output) throws IOException {
+    WritableUtils.writeVInt(output, numChunks);
+    output.writeBoolean(null != chunkFile);
+    if (null != chunkFile) {
+      Text.writeString(output, chunkFile.toString());
+    } else {
+      for (int i = 0; i < numChunks; i++) {
+        Text.writeString(output, lowerClauses[i]);
+        Text.writeString(output, upperClauses[i]);
+      }
+    }
+    WritableUtils.writeVInt(output, firstChunk);
+  }
+
+  @Override
+  public String toString() {
+    if (null == lowerClauses) {
+      return "chunk " + currentChunk + " of " + numChunks + " in "
+          + chunkFile;
+    }
+    return getLowerClause() + " AND " + getUpperClause() + " (chunk "
+        + currentChunk + " of " + numChunks + ")";
+  }
+}
@@ -38,8 +38,10 @@
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.sqoop.mapreduce.DBWritable;
 
+import org.apache.sqoop.config.ConfigurationConstants;
 import org.apache.sqoop.config.ConfigurationHelper;
 import org.apache.sqoop.mapreduce.db.DataDrivenDBRecordReader;
 import org.apache.sqoop.validation.ValidationException;
@@ -188,9 +190,33 @@ public List<InputSplit> getSplits(JobContext job) throws IOException {
           + " type: " + sqlDataType);
       }
 
+      if (HistogramSplitter.isEnabled(job.getConfiguration())
+          && HistogramSplitter.canWrap(splitter)) {
+        splitter = new HistogramSplitter(splitter, sqlDataType, connection,
+            getDBConf());
+      }
+
+      Configuration splitConf = job.getConfiguration();
+      int chunksPerMapper =
+          ChunkedDBRecordReader.getChunksPerMapper(splitConf);
+      if (chunksPerMapper > 1) {
+        // Cut the range into more chunks than tasks, then give every task
+        // a split from which it can take any of them.
+        splitConf = new Configuration(splitConf);
+        splitConf.setInt(ConfigurationConstants.PROP_MAPRED_MAP_TASKS,
+            targetNumTasks * chunksPerMapper);
+      }
+
       try {
-        return splitter.split(job.getConfiguration(), results,
+        List<InputSplit> splits = splitter.split(splitConf, results,
                   getDBConf().getInputOrderBy());
+        if (chunksPerMapper > 1) {
+          LOG.info("Dividing " + splits.size() + " chunks between "
+              + targetNumTasks + " tasks");
+          splits = DataDrivenDBChunkedInputSplit.group(splits, targetNumTasks,
+              splitConf);
+        }
+        return splits;
       } catch (ValidationException e) {
         throw new IOException(e);
       }
@@ -253,6 +279,23 @@ protected String getBoundingValsQuery() {
     return query.toString();
   }
 
+  @Override
+  /** {@inheritDoc} */
+  public RecordReader<LongWritable, T> createRecordReader(InputSplit split,
+      TaskAttemptContext context) throws IOException, InterruptedException {
+    if (split instanceof ChunkedInputSplit) {
+      // The record reader may look at the chunks as soon as it is created.
+      ((ChunkedInputSplit) split).loadChunks(context.getConfiguration());
+    }
+    RecordReader<LongWritable, T> reader =
+        super.createRecordReader(split, context);
+    if (split instanceof ChunkedInputSplit) {
+      return new ChunkedDBRecordReader<T>((DBRecordReader<T>) reader,
+          (ChunkedInputSplit) split);
+    }
+    return reader;
+  }
+
   protected RecordReader<LongWritable, T> createDBRecordReader(
       DBInputSplit split, Configuration conf) throws IOException {
 
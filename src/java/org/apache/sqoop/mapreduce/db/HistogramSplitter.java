@@ -0,0 +1,412 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.mapreduce.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+import org.apache.sqoop.config.ConfigurationHelper;
+import org.apache.sqoop.validation.ValidationException;
+
+/**
+ * Implement DBSplitter by choosing split points from the distribution of
+ * the split column rather than by dividing its range into equal intervals.
+ * Each split then holds roughly the same number of rows, even when the
+ * values of the column are clustered.
+ *
+ * The split points are the first values of the NTILE()s of the column,
+ * computed by the database. If asked to, numeric and date split points
+ * can instead be taken from a client-side sample of the column, either
+ * always or where NTILE() is not available; this reads the whole column
+ * once, so it is never done by default. Textual split points always come
+ * from the database, as only it knows the collation of the column.
+ *
+ * This wraps the IntegerSplitter, DateSplitter or TextSplitter which would
+ * otherwise be used, and falls back to it if the split points cannot be
+ * computed.
+ */
+public class HistogramSplitter implements DBSplitter {
+
+  private static final Log LOG = LogFactory.getLog(HistogramSplitter.class);
+
+  /** If true, DataDrivenDBInputFormat uses a HistogramSplitter. */
+  public static final String HISTOGRAM_SPLITTER_PROPERTY =
+      "org.apache.sqoop.splitter.histogram";
+
+  /**
+   * How to compute the split points: "ntile" (the default), "sample", or
+   * "auto" to try NTILE() and then sampling.
+   */
+  public static final String HISTOGRAM_METHOD_PROPERTY =
+      "org.apache.sqoop.splitter.histogram.method";
+
+  public static final String METHOD_AUTO = "auto";
+  public static final String METHOD_NTILE = "ntile";
+  public static final String METHOD_SAMPLE = "sample";
+
+  /** The number of values kept by the "sample" method. */
+  public static final String SAMPLE_SIZE_PROPERTY =
+      "org.apache.sqoop.splitter.histogram.sample_size";
+
+  public static final int DEFAULT_SAMPLE_SIZE = 10000;
+
+  // Seed for the sample, so that split points are repeatable.
+  private static final long SAMPLE_SEED = 0x5C00L;
+
+  private final DBSplitter fallback;
+  private final int sqlDataType;
+  private final Connection connection;
+  private final DBConfiguration dbConf;
+
+  /**
+   * @param fallback the splitter for the column's type; one for which
+   * canWrap() returns true.
+   * @param sqlDataType the type of the split column.
+   * @param connection the connection on which to examine the column.
+   * @param dbConf the configuration of the import.
+   */
+  public HistogramSplitter(DBSplitter fallback, int sqlDataType,
+      Connection connection, DBConfiguration dbConf) {
+    this.fallback = fallback;
+    this.sqlDataType = sqlDataType;
+    this.connection = connection;
+    this.dbConf = dbConf;
+  }
+
+  /**
+   * @return true if the histogram splitter is enabled in 'conf'.
+   */
+  public static boolean isEnabled(Configuration conf) {
+    return conf.getBoolean(HISTOGRAM_SPLITTER_PROPERTY, false);
+  }
+
+  /**
+   * @return true if a HistogramSplitter can render split points for the
+   * values handled by 'splitter'.
+   */
+  public static boolean canWrap(DBSplitter splitter) {
+    // DateSplitter extends IntegerSplitter.
+    return splitter instanceof IntegerSplitter
+        || splitter instanceof TextSplitter;
+  }
+
+  @Override
+  public List<InputSplit> split(Configuration conf, ResultSet results,
+      String colName) throws SQLException, ValidationException {
+
+    // Compute the usual splits first; they are returned if anything goes
+    // wrong, and they perform the checks particular to each type.
+    List<InputSplit> uniformSplits = fallback.split(conf, results, colName);
+
+    int numSplits = ConfigurationHelper.getConfNumMaps(conf);
+    if (numSplits <= 1
+        || ConfigurationHelper.getSplitLimit(conf) > 0
+        || null == results.getObject(1) || null == results.getObject(2)) {
+      // split-limit defines splits by their width, and null extrema need
+      // the special null split which the uniform splits already have.
+      return uniformSplits;
+    }
+
+    Object minVal = getValue(results, 1);
+    Object maxVal = getValue(results, 2);
+
+    List<Object> splitPoints;
+    try {
+      splitPoints = getSplitPoints(conf, colName, numSplits);
+    } catch (SQLException sqlE) {
+      LOG.warn("Could not compute split points for " + colName
+          + "; using uniform splits: " + sqlE.toString());
+      rollbackFailedQuery();
+      return uniformSplits;
+    }
+
+    if (null == splitPoints) {
+      return uniformSplits;
+    }
+
+    List<String> boundaries = new ArrayList<String>();
+    boundaries.add(toSqlLiteral(minVal));
+    for (Object point : splitPoints) {
+      if (isText() || (compare(point, minVal) > 0
+          && compare(point, maxVal) <= 0)) {
+        boundaries.add(toSqlLiteral(point));
+      }
+    }
+    boundaries.add(toSqlLiteral(maxVal));
+
+    List<InputSplit> splits = buildSplits(colName, boundaries);
+    LOG.info("Histogram split points for " + colName + ": " + boundaries);
+    return splits;
+  }
+
+  /**
+   * @return the split points strictly inside the column's range, in
+   * ascending order, or null if the configured method is unavailable.
+   */
+  private List<Object> getSplitPoints(Configuration conf, String colName,
+      int numSplits) throws SQLException {
+    String method = conf.get(HISTOGRAM_METHOD_PROPERTY, METHOD_NTILE);
+    boolean canSample = !isText();
+
+    if (METHOD_SAMPLE.equals(method)) {
+      if (!canSample) {
+        LOG.warn("Textual split columns cannot be sampled; "
+            + "using uniform splits.");
+        return null;
+      }
+      return sampleSplitPoints(conf, colName, numSplits);
+    } else if (!METHOD_AUTO.equals(method) || !canSample) {
+      if (!METHOD_NTILE.equals(method) && !METHOD_AUTO.equals(method)) {
+        LOG.warn("Unknown " + HISTOGRAM_METHOD_PROPERTY + " '" + method
+            + "'; using " + METHOD_NTILE);
+      }
+      return ntileSplitPoints(colName, numSplits);
+    }
+
+    try {
+      return ntileSplitPoints(colName, numSplits);
+    } catch (SQLException sqlE) {
+      LOG.info("NTILE() is not available (" + sqlE.getMessage()
+          + "); sampling " + colName + " instead.");
+      rollbackFailedQuery();
+      return sampleSplitPoints(conf, colName, numSplits);
+    }
+  }
+
+  /**
+   * Roll back the transaction of a split point query which failed, as some
+   * databases refuse further statements in a failed transaction.
+   */
+  private void rollbackFailedQuery() throws SQLException {
+    if (!connection.getAutoCommit()) {
+      connection.rollback();
+    }
+  }
+
+  /**
+   * Ask the database for the first value in each NTILE of the column.
+   */
+  private List<Object> ntileSplitPoints(String colName, int numSplits)
+      throws SQLException {
+    StringBuilder query = new StringBuilder();
+    query.append("SELECT MIN(").append(colName).append(") FROM (SELECT ");
+    query.append(colName).append(", NTILE(").append(numSplits);
+    query.append(") OVER (ORDER BY ").append(colName);
+    query.append(") AS SQOOP_TILE ").append(getSourceClause(colName));
+    query.append(") SQOOP_TILES GROUP BY SQOOP_TILE ORDER BY 1");
+
+    List<Object> points = new ArrayList<Object>();
+    List<Object> tileStarts = queryValues(query.toString(), -1);
+    // The first tile starts at the minimum value, which is a boundary
+    // anyway. Tiles may share values; keep each split point only once.
+    for (int i = 1; i < tileStarts.size(); i++) {
+      Object point = tileStarts.get(i);
+      if (points.isEmpty()
+          || !points.get(points.size() - 1).equals(point)) {
+        points.add(point);
+      }
+    }
+    return points;
+  }
+
+  /**
+   * Read the column and take the split points from a uniform random sample
+   * of its values.
+   */
+  private List<Object> sampleSplitPoints(Configuration conf, String colName,
+      int numSplits) throws SQLException {
+    int sampleSize = conf.getInt(SAMPLE_SIZE_PROPERTY, DEFAULT_SAMPLE_SIZE);
+    String query = "SELECT " + colName + " " + getSourceClause(colName);
+    List<Object> sample = queryValues(query, Math.max(sampleSize, numSplits));
+    return quantiles(sample, numSplits);
+  }
+
+  /**
+   * @return the FROM and WHERE clauses selecting the non-null values of
+   * the split column from the rows being imported.
+   */
+  private String getSourceClause(String colName) {
+    StringBuilder sb = new StringBuilder();
+    String table = dbConf.getInputTableName();
+    if (null != table) {
+      sb.append("FROM ").append(table).append(" WHERE ");
+      String conditions = dbConf.getInputConditions();
+      if (null != conditions) {
+        sb.append("( ").append(conditions).append(" ) AND ");
+      }
+    } else {
+      String query = dbConf.getInputQuery().replace(
+          DataDrivenDBInputFormat.SUBSTITUTE_TOKEN, "(1 = 1)");
+      sb.append("FROM (").append(query).append(") SQOOP_SPLIT_SRC WHERE ");
+    }
+    sb.append(colName).append(" IS NOT NULL");
+    return sb.toString();
+  }
+
+  /**
+   * Run 'query' and return the values of its first column.
+   * @param reservoirSize if positive, return a uniform random sample of at
+   * most this many values, in ascending order.
+   */
+  private List<Object> queryValues(String query, int reservoirSize)
+      throws SQLException {
+    LOG.debug("Split point query: " + query);
+    List<Object> values = new ArrayList<Object>();
+    Random random = new Random(SAMPLE_SEED);
+    long seen = 0;
+
+    Statement stmt = connection.createStatement();
+    try {
+      stmt.setFetchSize(1000);
+      ResultSet rs = stmt.executeQuery(query);
+      try {
+        while (rs.next()) {
+          Object val = getValue(rs, 1);
+          if (null == val) {
+            continue;
+          }
+          seen++;
+          if (reservoirSize <= 0 || values.size() < reservoirSize) {
+            values.add(val);
+          } else {
+            long slot = (long) (random.nextDouble() * seen);
+            if (slot < reservoirSize) {
+              values.set((int) slot, val);
+            }
+          }
+        }
+      } finally {
+        rs.close();
+      }
+    } finally {
+      stmt.close();
+    }
+
+    if (reservoirSize > 0) {
+      sortValues(values);
+    }
+    return values;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void sortValues(List<Object> values) {
+    Collections.sort((List) values);
+  }
+
+  /**
+   * Choose the values which divide a sorted sample into numSplits parts of
+   * equal size.
+   * @return the distinct split points, excluding the smallest value.
+   */
+  static <T> List<T> quantiles(List<T> sortedSample, int numSplits) {
+    List<T> points = new ArrayList<T>();
+    int n = sortedSample.size();
+    for (int i = 1; i < numSplits && n > 0; i++) {
+      T point = sortedSample.get((int) ((long) i * n / numSplits));
+      if (point.equals(sortedSample.get(0))) {
+        continue;
+      }
+      if (points.isEmpty() || !points.get(points.size() - 1).equals(point)) {
+        points.add(point);
+      }
+    }
+    return points;
+  }
+
+  /**
+   * Turn a list of SQL literals, starting with the minimum value and ending
+   * with the maximum value, into splits which are closed at the bottom
+   * end and open at the top end, except for the last one.
+   */
+  static List<InputSplit> buildSplits(String colName,
+      List<String> boundaries) {
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    String start = boundaries.get(0);
+    for (int i = 1; i < boundaries.size(); i++) {
+      String end = boundaries.get(i);
+      if (i == boundaries.size() - 1) {
+        // This is the last one; use a closed interval.
+        splits.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(
+            colName + " >= " + start, colName + " <= " + end));
+      } else {
+        splits.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(
+            colName + " >= " + start, colName + " < " + end));
+      }
+      start = end;
+    }
+    return splits;
+  }
+
+  private boolean isText() {
+    return fallback instanceof TextSplitter;
+  }
+
+  /**
+   * Read a value of the split column: a Long, a java.util.Date or a String.
+   */
+  private Object getValue(ResultSet rs, int colNum) throws SQLException {
+    if (isText()) {
+      return rs.getString(colNum);
+    }
+
+    switch (sqlDataType) {
+    case Types.DATE:
+      return rs.getDate(colNum);
+    case Types.TIME:
+      return rs.getTime(colNum);
+    case Types.TIMESTAMP:
+      return rs.getTimestamp(colNum);
+    default:
+      long val = rs.getLong(colNum);
+      return rs.wasNull() ? null : Long.valueOf(val);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compare(Object a, Object b) {
+    return ((Comparable<Object>) a).compareTo(b);
+  }
+
+  /**
+   * Format a value of the split column as the splitter being wrapped would.
+   */
+  private String toSqlLiteral(Object val) {
+    if (val instanceof Date) {
+      return ((DateSplitter) fallback).dateToString((Date) val);
+    } else if (val instanceof String) {
+      String quote = ((TextSplitter) fallback).isUseNCharStrings()
+          ? "N'" : "'";
+      return quote + ((String) val).replaceAll("'", "''") + "'";
+    } else {
+      return val.toString();
+    }
+  }
+}
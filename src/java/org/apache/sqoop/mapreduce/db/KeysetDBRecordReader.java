@@ -0,0 +1,257 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.mapreduce.db;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sqoop.mapreduce.DBWritable;
+
+/**
+ * A RecordReader that reads a KeysetDBInputSplit in pages of rows ordered
+ * by the ORDER BY column. Each page starts after the last ORDER BY value of
+ * the previous page, so that no rows are skipped over with OFFSET, and no
+ * cursor is held open between pages.
+ *
+ * The ORDER BY column is added to the end of the selected columns, where
+ * it is ignored by the DBWritable, and must be unique and not null;
+ * DBInputFormat checks this before creating keyset splits.
+ */
+public class KeysetDBRecordReader<T extends DBWritable>
+    extends DBRecordReader<T> {
+
+  private static final Log LOG =
+      LogFactory.getLog(KeysetDBRecordReader.class);
+
+  /** The alias given to a user-supplied query when it is paged. */
+  public static final String QUERY_ALIAS = "SQOOP_KEYSET";
+
+  private final int pageSize;
+
+  // The ORDER BY value of the last row read, or null before the first row.
+  private Object lastKey;
+  private int rowsInPage;
+  private ResultSet page;
+  private int keyColumn;
+
+  // CHECKSTYLE:OFF
+  public KeysetDBRecordReader(DBInputFormat.DBInputSplit split,
+      Class<T> inputClass, Configuration conf, Connection conn,
+      DBConfiguration dbConfig, String cond, String [] fields,
+      String table) throws SQLException {
+    super(split, inputClass, conf, conn, dbConfig, cond, fields, table);
+    this.pageSize = dbConfig.getInputKeysetPageSize();
+  }
+  // CHECKSTYLE:ON
+
+  /** Returns the query for selecting the next page of records. */
+  @Override
+  protected String getSelectQuery() {
+    StringBuilder query = new StringBuilder();
+    DBConfiguration dbConf = getDBConf();
+    String orderBy = dbConf.getInputOrderBy();
+
+    if (dbConf.getInputQuery() == null) {
+      String [] fieldNames = getFieldNames();
+      String tableName = getTableName();
+      String conditions = getConditions();
+
+      query.append("SELECT ");
+      for (int i = 0; i < fieldNames.length; i++) {
+        query.append(fieldNames[i]).append(", ");
+      }
+      query.append(orderBy);
+      query.append(" FROM ").append(tableName);
+      query.append(" AS ").append(tableName); //in hsqldb this is necessary
+      query.append(" WHERE ");
+      if (conditions != null && conditions.length() > 0) {
+        query.append("(").append(conditions).append(") AND ");
+      }
+    } else {
+      query.append("SELECT ").append(QUERY_ALIAS).append(".*, ");
+      query.append(orderBy);
+      query.append(" FROM (").append(dbConf.getInputQuery());
+      query.append(") AS ").append(QUERY_ALIAS);
+      query.append(" WHERE ");
+    }
+
+    DBInputFormat.KeysetDBInputSplit split =
+        (DBInputFormat.KeysetDBInputSplit) getSplit();
+    query.append("1 = 1");
+    if (null != split.getLowerKey()) {
+      query.append(" AND ").append(orderBy).append(" >= ?");
+    }
+    if (null != split.getUpperKey()) {
+      query.append(" AND ").append(orderBy).append(" < ?");
+    }
+    if (null != lastKey) {
+      query.append(" AND ").append(orderBy).append(" > ?");
+    }
+
+    query.append(" ORDER BY ").append(orderBy);
+    query.append(" LIMIT ").append(pageSize);
+
+    return query.toString();
+  }
+
+  @Override
+  protected String getCountQuery(String selectQuery) {
+    // The page query binds the split's keys as parameters.
+    return null;
+  }
+
+  @Override
+  protected ResultSet executeQuery(String query) throws SQLException {
+    PreparedStatement stmt = getConnection().prepareStatement(query,
+        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    setStatement(stmt);
+
+    Integer fetchSize = getDBConf().getFetchSize();
+    if (fetchSize != null) {
+      stmt.setFetchSize(fetchSize);
+    }
+
+    DBInputFormat.KeysetDBInputSplit split =
+        (DBInputFormat.KeysetDBInputSplit) getSplit();
+    int param = 1;
+    if (null != split.getLowerKey()) {
+      setKey(stmt, param++, split.getLowerKey(), split.getKeyType());
+    }
+    if (null != split.getUpperKey()) {
+      setKey(stmt, param++, split.getUpperKey(), split.getKeyType());
+    }
+    if (null != lastKey) {
+      stmt.setObject(param++, lastKey);
+    }
+
+    LOG.debug("Executing query: " + query + " after " + lastKey);
+    page = stmt.executeQuery();
+    keyColumn = page.getMetaData().getColumnCount();
+    rowsInPage = 0;
+    return page;
+  }
+
+  /**
+   * Read an ORDER BY value as the string form setKey() binds it from.
+   * Temporal and numeric values are read with their typed getters, so the
+   * string does not depend on how the driver formats them.
+   * @return the value, or null if it is SQL NULL.
+   */
+  static String getKey(ResultSet results, int column, int sqlType)
+      throws SQLException {
+    Object value;
+    switch (sqlType) {
+    case Types.TINYINT:
+    case Types.SMALLINT:
+    case Types.INTEGER:
+    case Types.BIGINT:
+      long l = results.getLong(column);
+      value = results.wasNull() ? null : Long.valueOf(l);
+      break;
+    case Types.NUMERIC:
+    case Types.DECIMAL:
+      value = results.getBigDecimal(column);
+      break;
+    case Types.DATE:
+      value = results.getDate(column);
+      break;
+    case Types.TIME:
+      // Time.toString() drops the milliseconds.
+      Time t = results.getTime(column);
+      value = null == t ? null : Long.valueOf(t.getTime());
+      break;
+    case Types.TIMESTAMP:
+      value = results.getTimestamp(column);
+      break;
+    default:
+      value = results.getString(column);
+      break;
+    }
+    return null == value ? null : value.toString();
+  }
+
+  /**
+   * Bind an ORDER BY value read by getKey() with the setter for its type.
+   */
+  static void setKey(PreparedStatement stmt, int param, String key,
+      int sqlType) throws SQLException {
+    switch (sqlType) {
+    case Types.TINYINT:
+    case Types.SMALLINT:
+    case Types.INTEGER:
+    case Types.BIGINT:
+      stmt.setLong(param, Long.parseLong(key));
+      break;
+    case Types.NUMERIC:
+    case Types.DECIMAL:
+      stmt.setBigDecimal(param, new BigDecimal(key));
+      break;
+    case Types.DATE:
+      stmt.setDate(param, Date.valueOf(key));
+      break;
+    case Types.TIME:
+      stmt.setTime(param, new Time(Long.parseLong(key)));
+      break;
+    case Types.TIMESTAMP:
+      stmt.setTimestamp(param, Timestamp.valueOf(key));
+      break;
+    default:
+      stmt.setObject(param, key, sqlType);
+      break;
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    while (true) {
+      if (super.nextKeyValue()) {
+        rowsInPage++;
+        try {
+          lastKey = page.getObject(keyColumn);
+        } catch (SQLException e) {
+          throw new IOException(e);
+        }
+        return true;
+      }
+
+      if (rowsInPage < pageSize) {
+        // A short page is the last one.
+        return false;
+      }
+
+      // Close this page and end its transaction before reading the next.
+      resetQuery();
+      try {
+        getConnection().commit();
+      } catch (SQLException e) {
+        throw new IOException(e);
+      }
+    }
+  }
+}
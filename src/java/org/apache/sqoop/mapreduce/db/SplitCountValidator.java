@@ -0,0 +1,317 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.db;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.mapreduce.DBWritable;
+import org.apache.sqoop.orm.ClassWriter;
+import org.apache.sqoop.util.LoggingUtils;
+import org.apache.sqoop.validation.AbsoluteValidationThreshold;
+import org.apache.sqoop.validation.ValidationThreshold;
+
+/**
+ * Counts the source rows of each query a DBRecordReader runs, so that
+ * --validate can compare the import against the sum of the counts of its
+ * splits instead of counting the whole table from the client.
+ *
+ * Before a query is run, the rows it selects are counted with
+ * SELECT COUNT(*) FROM (query). When the query has been read, the count is
+ * compared with the number of rows read, and a mismatch is logged with the
+ * split it occurred in. If a checksum column is configured, the SUM of the
+ * column is compared with the sum of the values read as well. Both are
+ * compared with the ValidationThreshold of the import.
+ *
+ * Each count runs in its own statement just before its query, not in a
+ * snapshot shared with the other splits or even with the query itself, so
+ * rows written to the table during the import can make a split mismatch.
+ * Validate quiescent tables, or use a threshold which allows for the
+ * expected writes.
+ *
+ * The results are published as counters in COUNTER_GROUP, which
+ * ImportJobBase reads after the job.
+ */
+public class SplitCountValidator {
+
+  public static final Log LOG = LogFactory.getLog(
+      SplitCountValidator.class.getName());
+
+  /**
+   * Configuration key which enables counting the rows of each split. It is
+   * set for imports run with --validate, unless already set.
+   */
+  public static final String ENABLED_KEY = "sqoop.validation.split.count";
+
+  /**
+   * Configuration key naming a numeric column whose SUM is compared for
+   * each split as well as its row count.
+   */
+  public static final String CHECKSUM_COLUMN_KEY =
+      "sqoop.validation.checksum.column";
+
+  /**
+   * Configuration key naming the ValidationThreshold class which the count
+   * and checksum of each split are compared with. It is set to the
+   * threshold of imports run with --validate.
+   */
+  public static final String THRESHOLD_CLASS_KEY =
+      "sqoop.validation.split.threshold.class";
+
+  public static final String COUNTER_GROUP = "Sqoop Validation";
+
+  /** The sum of the row counts of the counted queries. */
+  public static final String SOURCE_ROWS_COUNTER = "SOURCE_ROWS";
+
+  /** The number of queries whose rows were counted. */
+  public static final String COUNTED_QUERIES_COUNTER = "COUNTED_QUERIES";
+
+  /** The number of queries whose rows could not be counted. */
+  public static final String UNCOUNTED_QUERIES_COUNTER = "UNCOUNTED_QUERIES";
+
+  /**
+   * The number of queries which read a count or checksum outside the
+   * threshold.
+   */
+  public static final String MISMATCHED_SPLITS_COUNTER = "MISMATCHED_SPLITS";
+
+  // The derived table alias of the counting query.
+  private static final String ALIAS = "sqoop_split";
+
+  private final String checksumColumn;
+  private final ValidationThreshold threshold;
+
+  private final Counter sourceRows;
+  private final Counter countedQueries;
+  private final Counter uncountedQueries;
+  private final Counter mismatchedSplits;
+
+  // Index of the checksum column in the values of the records read, or -1
+  // if the records have no such field.
+  private boolean checksumResolved;
+  private int checksumIndex = -1;
+  private Object [] values;
+
+  // The query being read, if it was counted.
+  private boolean active;
+  private long expectedRows;
+  private BigDecimal expectedSum;
+  private long rows;
+  private BigDecimal sum;
+
+  SplitCountValidator(String checksumColumn, ValidationThreshold threshold,
+      TaskAttemptContext context) {
+    this.checksumColumn = checksumColumn;
+    this.threshold = threshold;
+    this.sourceRows = context.getCounter(COUNTER_GROUP, SOURCE_ROWS_COUNTER);
+    this.countedQueries = context.getCounter(COUNTER_GROUP,
+        COUNTED_QUERIES_COUNTER);
+    this.uncountedQueries = context.getCounter(COUNTER_GROUP,
+        UNCOUNTED_QUERIES_COUNTER);
+    this.mismatchedSplits = context.getCounter(COUNTER_GROUP,
+        MISMATCHED_SPLITS_COUNTER);
+  }
+
+  /**
+   * @return a validator for the task, or null if split counting is not
+   * enabled.
+   */
+  public static SplitCountValidator create(Configuration conf,
+      TaskAttemptContext context) {
+    if (null == context || null == conf
+        || !conf.getBoolean(ENABLED_KEY, false)) {
+      return null;
+    }
+    ValidationThreshold threshold = ReflectionUtils.newInstance(
+        conf.getClass(THRESHOLD_CLASS_KEY, AbsoluteValidationThreshold.class,
+            ValidationThreshold.class), conf);
+    return new SplitCountValidator(conf.get(CHECKSUM_COLUMN_KEY), threshold,
+        context);
+  }
+
+  /**
+   * @return a query which counts the rows selected by 'selectQuery', and
+   * sums the checksum column if one is configured.
+   */
+  public String getCountQuery(String selectQuery) {
+    StringBuilder sb = new StringBuilder("SELECT COUNT(*)");
+    if (null != checksumColumn) {
+      sb.append(", SUM(").append(checksumColumn).append(")");
+    }
+    sb.append(" FROM (").append(selectQuery).append(") ").append(ALIAS);
+    return sb.toString();
+  }
+
+  /**
+   * Count the rows of the next query to be read.
+   * @param countQuery the query returned by getCountQuery(), or null if the
+   * query cannot be counted.
+   */
+  public void begin(Connection conn, String countQuery) {
+    active = false;
+    rows = 0;
+    sum = BigDecimal.ZERO;
+    if (null == countQuery) {
+      uncountedQueries.increment(1);
+      return;
+    }
+
+    Statement stmt = null;
+    try {
+      stmt = conn.createStatement();
+      LOG.debug("Counting split rows with: " + countQuery);
+      ResultSet rs = stmt.executeQuery(countQuery);
+      try {
+        rs.next();
+        expectedRows = rs.getLong(1);
+        expectedSum = null == checksumColumn ? null : rs.getBigDecimal(2);
+      } finally {
+        rs.close();
+      }
+      active = true;
+    } catch (SQLException sqlE) {
+      LoggingUtils.logAll(LOG, "Could not count the rows of the split; "
+          + "the table will be counted after the import instead", sqlE);
+      uncountedQueries.increment(1);
+      try {
+        // Some databases refuse further statements in a failed transaction.
+        conn.rollback();
+      } catch (SQLException rollbackE) {
+        LOG.debug("Rollback failed", rollbackE);
+      }
+    } finally {
+      if (null != stmt) {
+        try {
+          stmt.close();
+        } catch (SQLException sqlE) {
+          LoggingUtils.logAll(LOG, "Failed to close statement", sqlE);
+        }
+      }
+    }
+  }
+
+  /** Account for a row read by the query. */
+  public void add(DBWritable value) {
+    if (!active) {
+      return;
+    }
+    rows++;
+    if (null != checksumColumn) {
+      addToChecksum(value);
+    }
+  }
+
+  private void addToChecksum(DBWritable value) {
+    if (!(value instanceof SqoopRecord)) {
+      return;
+    }
+    SqoopRecord record = (SqoopRecord) value;
+    if (!checksumResolved) {
+      checksumIndex = resolveChecksumIndex(record);
+      checksumResolved = true;
+      if (checksumIndex < 0) {
+        LOG.warn("Checksum column " + checksumColumn + " is not a field of "
+            + record.getClass().getName() + "; comparing row counts only");
+      }
+    }
+    if (checksumIndex < 0) {
+      expectedSum = null;
+      return;
+    }
+
+    record.getFieldValues(values);
+    Object v = values[checksumIndex];
+    if (v instanceof BigDecimal) {
+      sum = sum.add((BigDecimal) v);
+    } else if (v instanceof Long || v instanceof Integer
+        || v instanceof Short || v instanceof Byte) {
+      sum = sum.add(BigDecimal.valueOf(((Number) v).longValue()));
+    } else if (v instanceof Number) {
+      sum = sum.add(new BigDecimal(v.toString()));
+    }
+  }
+
+  private int resolveChecksumIndex(SqoopRecord record) {
+    String [] names = record.getFieldNames();
+    if (null == names) {
+      return -1;
+    }
+    values = new Object[names.length];
+    String javaName = ClassWriter.toJavaIdentifier(checksumColumn);
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equalsIgnoreCase(checksumColumn)
+          || names[i].equals(javaName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Compare the rows read by the query with its count.
+   * @param split a description of the split, to log a mismatch with.
+   */
+  public void end(String split) {
+    if (!active) {
+      return;
+    }
+    active = false;
+    countedQueries.increment(1);
+    sourceRows.increment(expectedRows);
+
+    boolean countMatches = threshold.compare(expectedRows, rows);
+    boolean sumMatches = null == expectedSum
+        || threshold.compare(expectedSum, sum);
+    if (!countMatches || !sumMatches) {
+      mismatchedSplits.increment(1);
+      StringBuilder sb = new StringBuilder("Split ").append(split)
+          .append(": counted ").append(expectedRows)
+          .append(" source rows but read ").append(rows);
+      if (!sumMatches) {
+        sb.append("; SUM(").append(checksumColumn).append(") was ")
+            .append(expectedSum).append(" in the source but ").append(sum)
+            .append(" in the rows read");
+      }
+      LOG.error(sb.toString());
+    }
+  }
+
+  /**
+   * Stop counting the current query, which failed before it was read to
+   * its end. The rows read so far are counted as source rows; the rest are
+   * counted by the query which reads them after the failure, if any.
+   */
+  public void abort() {
+    if (!active) {
+      return;
+    }
+    active = false;
+    sourceRows.increment(rows);
+  }
+}
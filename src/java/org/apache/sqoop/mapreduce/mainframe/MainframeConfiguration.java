@@ -46,4 +46,7 @@
   public static final String MAINFRAME_FTP_TRANSFER_BINARY_BUFFER_SIZE = "mainframe.ftp.buffersize";
 
   public static final String MAINFRAME_FTP_CUSTOM_COMMANDS = "mainframe.ftp.commands";
+
+  // download the next dataset of a split over a second connection while the current one is read
+  public static final String MAINFRAME_FTP_PREFETCH = "mainframe.ftp.prefetch";
 }
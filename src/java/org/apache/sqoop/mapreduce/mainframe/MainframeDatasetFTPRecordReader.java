@@ -21,8 +21,9 @@
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,12 +36,20 @@
 
 /**
  * A RecordReader that returns a record from a mainframe dataset.
+ *
+ * If mainframe.ftp.prefetch is set, the dataset after the current one is
+ * downloaded over a second connection while the current one is read.
  */
 public class MainframeDatasetFTPRecordReader <T extends SqoopRecord>
     extends MainframeDatasetRecordReader<T> {
   private FTPClient ftp = null;
   private BufferedReader datasetReader = null;
   private BufferedInputStream inputStream = null;
+  private MainframeDatasetPrefetcher prefetcher = null;
+  // Whether the open dataset is a prefetched copy rather than an FTP transfer.
+  private boolean fromPrefetch = false;
+  // Read buffer for binary transfers, reused for every record.
+  private byte[] buffer = null;
 
   private static final Log LOG = LogFactory.getLog(
       MainframeDatasetFTPRecordReader.class.getName());
@@ -73,7 +82,11 @@ public void initialize(FTPClient ftpClient, Configuration conf)
       if (dsType != null && p != null) {
         dsName = p.getMainframeDatasetFolder();
       }
-      ftp.changeWorkingDirectory("'" + dsName + "'");
+      String workingDirectory = "'" + dsName + "'";
+      ftp.changeWorkingDirectory(workingDirectory);
+      if (conf.getBoolean(MainframeConfiguration.MAINFRAME_FTP_PREFETCH, false)) {
+        prefetcher = new MainframeDatasetPrefetcher(conf, workingDirectory);
+      }
     }
   }
 
@@ -82,6 +95,9 @@ public void close() throws IOException {
     if (datasetReader != null) {
       datasetReader.close();
     }
+    if (prefetcher != null) {
+      prefetcher.close();
+    }
     if (ftp != null) {
       MainframeFTPClientUtils.closeFTPConnection(ftp);
     }
@@ -96,18 +112,17 @@ protected boolean getNextRecord(T sqoopRecord) throws IOException {
     try {
       do {
         if (datasetReader == null) {
-          String dsName = getNextDataset();
-          if (dsName == null) {
+          InputStream is = openNextDataset();
+          if (is == null) {
             break;
           }
-          datasetReader = new BufferedReader(new InputStreamReader(
-              ftp.retrieveFileStream(dsName)));
+          datasetReader = new BufferedReader(new InputStreamReader(is));
         }
         line = datasetReader.readLine();
         if (line == null) {
           datasetReader.close();
           datasetReader = null;
-          if (!ftp.completePendingCommand()) {
+          if (!completeTransfer()) {
             throw new IOException("Failed to complete ftp command.");
           } else {
             LOG.info("Data transfer completed.");
@@ -132,7 +147,10 @@ protected boolean getNextBinaryRecord(T sqoopRecord) throws IOException {
     if (conf != null) {
       BUFFER_SIZE = conf.getInt(MainframeConfiguration.MAINFRAME_FTP_TRANSFER_BINARY_BUFFER_SIZE, MainframeConfiguration.MAINFRAME_FTP_TRANSFER_BINARY_DEFAULT_BUFFER_SIZE);
     }
-    byte[] buf = new byte[BUFFER_SIZE];
+    if (buffer == null || buffer.length != BUFFER_SIZE) {
+      buffer = new byte[BUFFER_SIZE];
+    }
+    byte[] buf = buffer;
     int bytesRead = -1;
     int cumulativeBytesRead = 0;
     try {
@@ -162,17 +180,13 @@ protected boolean getNextBinaryRecord(T sqoopRecord) throws IOException {
 
   protected Boolean initInputStream(int bufferSize) throws IOException {
     if (inputStream == null) {
-      String dsName = getNextDataset();
-      if (dsName == null) {
+      LOG.info("Buffer size: "+bufferSize);
+      InputStream is = openNextDataset();
+      if (is == null) {
         LOG.info("No more datasets to process. Returning.");
         return false;
       }
-      LOG.info("Attempting to retrieve file stream for: "+dsName);
-      LOG.info("Buffer size: "+bufferSize);
-      inputStream = new BufferedInputStream(ftp.retrieveFileStream(dsName));
-      if (inputStream == null) {
-        throw new IOException("Failed to retrieve FTP file stream.");
-      }
+      inputStream = new BufferedInputStream(is);
     }
     return true;
   }
@@ -180,18 +194,68 @@ protected Boolean initInputStream(int bufferSize) throws IOException {
   protected void closeFtpInputStream() throws IOException {
     inputStream.close();
     inputStream = null;
-    if (!ftp.completePendingCommand()) {
+    if (!completeTransfer()) {
       throw new IOException("Failed to complete ftp command. FTP Response: "+ftp.getReplyString());
     }
   }
 
+  /**
+   * Open the next dataset of the split, from its prefetched copy if there
+   * is one, and start prefetching the dataset after it.
+   * @return a stream over the dataset, or null if there are no more.
+   */
+  private InputStream openNextDataset() throws IOException {
+    String dsName = getNextDataset();
+    if (dsName == null) {
+      return null;
+    }
+    InputStream is = null;
+    if (prefetcher != null) {
+      is = prefetcher.open(dsName);
+      String nextDsName = peekNextDataset();
+      if (nextDsName != null) {
+        prefetcher.prefetch(nextDsName);
+      }
+    }
+    fromPrefetch = is != null;
+    if (is == null) {
+      LOG.info("Attempting to retrieve file stream for: "+dsName);
+      is = ftp.retrieveFileStream(dsName);
+      if (is == null) {
+        throw new IOException("Failed to retrieve FTP file stream.");
+      }
+    }
+    return is;
+  }
+
+  /**
+   * Finish the transfer of a dataset whose stream has been closed.
+   * @return false if the FTP server reported a failure.
+   */
+  private boolean completeTransfer() throws IOException {
+    if (fromPrefetch) {
+      fromPrefetch = false;
+      return true;
+    }
+    return ftp.completePendingCommand();
+  }
+
+  /**
+   * Set the record's field to the bytes read. A full buffer is handed
+   * over as it is and will be overwritten by the next read, in the same
+   * way that record readers reuse their values; only a short final record
+   * is copied.
+   */
   protected Boolean writeBytesToSqoopRecord(byte[] buf, int cumulativeBytesRead, SqoopRecord sqoopRecord) {
     if (cumulativeBytesRead <= 0) {
       return false;
     }
-    ByteBuffer buffer = ByteBuffer.allocate(cumulativeBytesRead);
-    buffer.put(buf,0,cumulativeBytesRead);
-    convertToSqoopRecord(buffer.array(), sqoopRecord);
+    if (cumulativeBytesRead == buf.length) {
+      convertToSqoopRecord(buf, sqoopRecord);
+    } else {
+      convertToSqoopRecord(Arrays.copyOf(buf, cumulativeBytesRead),
+          sqoopRecord);
+    }
     return true;
   }
 
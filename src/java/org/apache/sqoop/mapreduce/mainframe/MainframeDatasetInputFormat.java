@@ -19,10 +19,14 @@
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.commons.net.ftp.FTPFile;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.InputFormat;
@@ -38,7 +42,7 @@
 /**
  * A InputFormat that retrieves a list of sequential dataset names in
  * a mainframe partitioned dataset. It then creates splits containing one or
- * more dataset names.
+ * more dataset names, balanced by the dataset sizes in the listing.
  */
 public class MainframeDatasetInputFormat<T extends SqoopRecord>
     extends InputFormat<LongWritable, T>   {
@@ -64,7 +68,7 @@ public List<InputSplit> getSplits(JobContext job) throws IOException {
     LOG.info("Dataset type: " + dsType);
     String dsTape = conf.get(MainframeConfiguration.MAINFRAME_INPUT_DATASET_TAPE);
     LOG.info("Dataset on tape?: " + dsTape);
-    List<String> datasets = retrieveDatasets(dsName, conf);
+    List<FTPFile> datasets = retrieveDatasetFiles(dsName, conf);
     if (datasets.isEmpty()) {
       throw new IOException ("No datasets retrieved from " + dsName);
     } else {
@@ -73,23 +77,68 @@ public List<InputSplit> getSplits(JobContext job) throws IOException {
       for (int i = 0; i < chunks; i++) {
         splits.add(new MainframeDatasetInputSplit());
       }
+      assignDatasets(datasets, splits);
+    }
+    return splits;
+  }
 
-      int j = 0;
-      while(j < count) {
-        for (InputSplit sp : splits) {
-          if (j == count) {
-            break;
+  /**
+   * Assign the datasets to the splits, largest first, each to the split
+   * with the least data so far. Datasets of unknown size are counted as
+   * the average known size, so without any sizes this is a round robin.
+   */
+  protected void assignDatasets(List<FTPFile> datasets,
+      List<InputSplit> splits) {
+    long knownTotal = 0;
+    int knownCount = 0;
+    for (FTPFile f : datasets) {
+      if (f.getSize() > 0) {
+        knownTotal += f.getSize();
+        knownCount++;
+      }
+    }
+    final long defaultSize = knownCount > 0 ? knownTotal / knownCount : 1;
+
+    final List<FTPFile> ordered = new ArrayList<FTPFile>(datasets);
+    Collections.sort(ordered, new Comparator<FTPFile>() {
+      @Override
+      public int compare(FTPFile a, FTPFile b) {
+        return Long.compare(sizeOf(b, defaultSize), sizeOf(a, defaultSize));
+      }
+    });
+
+    // Each entry is { bytes assigned, split index }.
+    PriorityQueue<long[]> loads = new PriorityQueue<long[]>(splits.size(),
+        new Comparator<long[]>() {
+          @Override
+          public int compare(long[] a, long[] b) {
+            int c = Long.compare(a[0], b[0]);
+            return c != 0 ? c : Long.compare(a[1], b[1]);
           }
-          ((MainframeDatasetInputSplit)sp).addDataset(datasets.get(j));
-          j++;
-        }
+        });
+    for (int i = 0; i < splits.size(); i++) {
+      loads.add(new long[] { 0, i });
+    }
+    for (FTPFile f : ordered) {
+      long[] load = loads.poll();
+      ((MainframeDatasetInputSplit) splits.get((int) load[1]))
+          .addDataset(f.getName());
+      load[0] += sizeOf(f, defaultSize);
+      loads.add(load);
+    }
+    if (knownCount > 0) {
+      for (long[] load : loads) {
+        LOG.info("Split " + load[1] + ": about " + load[0] + " bytes");
       }
     }
-    return splits;
   }
 
-  protected List<String> retrieveDatasets(String dsName, Configuration conf)
-      throws IOException {
-    return MainframeFTPClientUtils.listSequentialDatasets(dsName, conf);
+  private static long sizeOf(FTPFile f, long defaultSize) {
+    return f.getSize() > 0 ? f.getSize() : defaultSize;
+  }
+
+  protected List<FTPFile> retrieveDatasetFiles(String dsName,
+      Configuration conf) throws IOException {
+    return MainframeFTPClientUtils.listSequentialDatasetFiles(dsName, conf);
   }
 }
@@ -60,6 +60,17 @@ public String getNextDataset() {
     return currentDataset;
   }
 
+  /**
+   * @return the dataset which getNextDataset() will return next, without
+   * moving on to it, or null if this is the last one.
+   */
+  public String peekNextDataset() {
+    if (hasMore()) {
+      return mainframeDatasets.get(currentIndex + 1);
+    }
+    return null;
+  }
+
   public boolean hasMore() {
     return currentIndex < (mainframeDatasets.size() -1);
   }
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.mainframe;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sqoop.util.MainframeFTPClientUtils;
+
+/**
+ * Downloads the next dataset of a split over a second FTP connection while
+ * the record reader decodes the current one.
+ *
+ * The dataset is spooled to a local temporary file, so that a slow reader
+ * never stalls the FTP data connection. The reader then reads the file
+ * instead of opening its own transfer; the file is deleted when that stream
+ * is closed. At most one dataset is prefetched at a time.
+ */
+class MainframeDatasetPrefetcher implements Closeable {
+
+  private static final Log LOG = LogFactory.getLog(
+      MainframeDatasetPrefetcher.class.getName());
+
+  private final Configuration conf;
+  private final String workingDirectory;
+  private final File spoolDir;
+  private final ExecutorService executor;
+
+  // Connected lazily by the prefetch thread.
+  private volatile FTPClient ftp = null;
+
+  private String pendingName = null;
+  private Future<File> pending = null;
+
+  /**
+   * @param conf the job configuration, used to open the connection.
+   * @param workingDirectory the quoted directory the datasets are in, or
+   * null to stay in the login directory.
+   */
+  MainframeDatasetPrefetcher(Configuration conf, String workingDirectory) {
+    this.conf = conf;
+    this.workingDirectory = workingDirectory;
+    this.spoolDir = new File(System.getProperty("java.io.tmpdir"));
+    this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "mainframe-prefetch");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /** Start downloading the named dataset, unless one is already pending. */
+  void prefetch(final String dsName) {
+    if (null != pending) {
+      return;
+    }
+    LOG.info("Prefetching dataset " + dsName);
+    pendingName = dsName;
+    pending = executor.submit(new Callable<File>() {
+      @Override
+      public File call() throws IOException {
+        return download(dsName);
+      }
+    });
+  }
+
+  private File download(String dsName) throws IOException {
+    if (null == ftp) {
+      FTPClient client = MainframeFTPClientUtils.getFTPConnection(conf);
+      if (null != workingDirectory) {
+        client.changeWorkingDirectory(workingDirectory);
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        // close() ran while we were connecting.
+        MainframeFTPClientUtils.closeFTPConnection(client);
+        throw new IOException("Prefetch of " + dsName + " cancelled");
+      }
+      ftp = client;
+    }
+
+    File file = File.createTempFile("sqoop-mainframe-", ".tmp", spoolDir);
+    boolean success = false;
+    try {
+      OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+      try {
+        if (!ftp.retrieveFile(dsName, out)) {
+          throw new IOException("Failed to prefetch " + dsName
+              + ". FTP Response: " + ftp.getReplyString());
+        }
+      } finally {
+        out.close();
+      }
+      success = true;
+      return file;
+    } finally {
+      if (!success && !file.delete()) {
+        LOG.warn("Could not remove prefetch file " + file);
+      }
+    }
+  }
+
+  /**
+   * Open the named dataset if it was prefetched, waiting for the download
+   * to finish.
+   * @return a stream over the dataset which deletes its local copy when
+   * closed, or null if this dataset was not prefetched.
+   */
+  InputStream open(String dsName) throws IOException {
+    if (null == pending || !dsName.equals(pendingName)) {
+      return null;
+    }
+    Future<File> f = pending;
+    pending = null;
+    pendingName = null;
+
+    final File file;
+    try {
+      file = f.get();
+    } catch (InterruptedException ie) {
+      throw new IOException("Interrupted waiting for dataset " + dsName, ie);
+    } catch (ExecutionException ee) {
+      throw new IOException("Failed to prefetch dataset " + dsName,
+          ee.getCause());
+    }
+    return new FileInputStream(file) {
+      @Override
+      public void close() throws IOException {
+        super.close();
+        if (file.exists() && !file.delete()) {
+          LOG.warn("Could not remove prefetch file " + file);
+        }
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    executor.shutdownNow();
+    // Closing the connection aborts any transfer still in progress.
+    FTPClient client = ftp;
+    if (null != client) {
+      MainframeFTPClientUtils.closeFTPConnection(client);
+    }
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+    }
+    if (null != pending && pending.isDone() && !pending.isCancelled()) {
+      try {
+        File file = pending.get();
+        if (!file.delete()) {
+          LOG.warn("Could not remove prefetch file " + file);
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException ee) {
+        // The download failed and cleaned up after itself.
+      }
+    }
+    pending = null;
+  }
+}
@@ -106,6 +106,11 @@ protected String getNextDataset() {
     return datasetName;
   }
 
+  /** @return the dataset to be transferred after the current one, if any. */
+  protected String peekNextDataset() {
+    return split.peekNextDataset();
+  }
+
   protected Configuration getConfiguration() {
     return conf;
   }
@@ -63,6 +63,11 @@ public class MainframeFTPFileEntryParser extends ConfigurableFTPFileEntryParserI
 	private static String dsOrgPDSExtendedString = "PO-E";
 	private static String dsOrgSeqString = "PS";
 	private static Pattern nonTapePattern = Pattern.compile(NON_TAPE_REGEX);
+  // match Used (tracks) in a full DASD listing line
+  private static String USED_REGEX = "^\\S+\\s+\\S+\\s+\\S+\\s+\\d+\\s+(\\d+)\\s+\\S+\\s+\\d+\\s+\\d+\\s+\\S+\\s+\\S+$";
+  private static Pattern usedPattern = Pattern.compile(USED_REGEX);
+  // usable bytes on a 3390 track
+  static final long TRACK_BYTES = 56664L;
   private static final String MIGRATED_STRING = "Migrated";
   private static Pattern migratedPattern = Pattern.compile(MIGRATED_REGEX);
 	private static final Log LOG = LogFactory.getLog(MainframeFTPFileEntryParser.class.getName());
@@ -96,9 +101,8 @@ public FTPFile parseFTPEntry(String entry) {
 	        	if (m.matches()) {
 	        		// PO/PO-E = PDS = directory
 	        		// PS = Sequential data set = file
-	        		String size = m.group(2);
 	        		String dsOrg = m.group(3);
-	        		file.setSize(Long.parseLong(size));
+	        		file.setSize(estimateSize(entry));
 	        		LOG.info(String.format("Non tape match: %s, %s, %s", file.getName(), file.getSize(), dsOrg));
 	        		if (dsOrg.equals(dsOrgPDSString) || dsOrg.equals(dsOrgPDSExtendedString)) {
 	        			file.setType(FTPFile.DIRECTORY_TYPE);
@@ -122,6 +126,18 @@ protected FTPClientConfig getDefaultConfiguration() {
 				DEFAULT_DATE_FORMAT, null, null, null, null);
 	} 
 
+  /**
+   * Estimate the size in bytes of a DASD dataset from the tracks it uses.
+   * @return the estimate, or -1 if the entry does not show its usage.
+   */
+  static long estimateSize(String entry) {
+    Matcher m = usedPattern.matcher(entry);
+    if (m.matches()) {
+      return Long.parseLong(m.group(1)) * TRACK_BYTES;
+    }
+    return -1;
+  }
+
   private FTPFile parseMigratedEntry(String entry) {
     // check for Migrated dataset
     Matcher m = migratedPattern.matcher(entry);
@@ -0,0 +1,403 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.postgresql;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.apache.hadoop.io.BytesWritable;
+
+/**
+ * Encodes rows in the binary format of PostgreSQL's
+ * COPY ... WITH (FORMAT binary).
+ *
+ * Each column is written according to the PostgreSQL type it is copied
+ * into, as named by ResultSetMetaData.getColumnTypeName() (e.g. "int4",
+ * "numeric", "timestamptz"), so that the server does not have to parse a
+ * text representation of numbers or dates. Use isSupportedType() to check
+ * the columns of a table before choosing this format.
+ *
+ * This class is not thread-safe.
+ */
+public class PostgreSQLBinaryCopyEncoder {
+
+  /** The signature which starts every binary COPY stream. */
+  private static final byte [] SIGNATURE = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0,
+  };
+
+  /** Seconds from the Unix epoch to the PostgreSQL epoch, 2000-01-01. */
+  private static final long PG_EPOCH_SECONDS = 946684800L;
+
+  /** Days from the Unix epoch to the PostgreSQL epoch. */
+  private static final long PG_EPOCH_DAYS = 10957L;
+
+  private static final int NUMERIC_POS = 0x0000;
+  private static final int NUMERIC_NEG = 0x4000;
+  private static final int NBASE = 10000;
+  private static final BigInteger BIG_NBASE = BigInteger.valueOf(NBASE);
+
+  private enum PgType {
+    BOOL, INT2, INT4, INT8, FLOAT4, FLOAT8, NUMERIC, TEXT, BYTEA,
+    DATE, TIME, TIMESTAMP, TIMESTAMPTZ,
+  }
+
+  private final PgType [] types;
+  private final String [] typeNames;
+
+  // Base-10000 digits of the numeric being written, least significant first.
+  private short [] digits = new short[16];
+
+  /**
+   * @param columnTypes the PostgreSQL type name of each column, in the
+   * order in which record values are passed to writeRow().
+   * @throws IOException if a type is not supported.
+   */
+  public PostgreSQLBinaryCopyEncoder(String [] columnTypes)
+      throws IOException {
+    this.typeNames = columnTypes.clone();
+    this.types = new PgType[columnTypes.length];
+    for (int i = 0; i < columnTypes.length; i++) {
+      types[i] = toPgType(columnTypes[i]);
+      if (null == types[i]) {
+        throw new IOException("Column type " + columnTypes[i]
+            + " is not supported by binary COPY.");
+      }
+    }
+  }
+
+  /**
+   * @return true if values can be encoded for columns of the named
+   * PostgreSQL type.
+   */
+  public static boolean isSupportedType(String typeName) {
+    return null != toPgType(typeName);
+  }
+
+  private static PgType toPgType(String typeName) {
+    if (null == typeName) {
+      return null;
+    }
+    String t = typeName.toLowerCase();
+    if (t.equals("bool")) {
+      return PgType.BOOL;
+    } else if (t.equals("int2")) {
+      return PgType.INT2;
+    } else if (t.equals("int4") || t.equals("serial")) {
+      return PgType.INT4;
+    } else if (t.equals("int8") || t.equals("bigserial")) {
+      return PgType.INT8;
+    } else if (t.equals("float4")) {
+      return PgType.FLOAT4;
+    } else if (t.equals("float8")) {
+      return PgType.FLOAT8;
+    } else if (t.equals("numeric")) {
+      return PgType.NUMERIC;
+    } else if (t.equals("text") || t.equals("varchar")
+        || t.equals("bpchar") || t.equals("name")) {
+      return PgType.TEXT;
+    } else if (t.equals("bytea")) {
+      return PgType.BYTEA;
+    } else if (t.equals("date")) {
+      return PgType.DATE;
+    } else if (t.equals("time")) {
+      return PgType.TIME;
+    } else if (t.equals("timestamp")) {
+      return PgType.TIMESTAMP;
+    } else if (t.equals("timestamptz")) {
+      return PgType.TIMESTAMPTZ;
+    }
+    return null;
+  }
+
+  /** @return the number of columns in each row. */
+  public int getColumnCount() {
+    return types.length;
+  }
+
+  /** Write the header which must precede the first row. */
+  public void writeHeader(DataOutput out) throws IOException {
+    out.write(SIGNATURE);
+    out.writeInt(0); // flags.
+    out.writeInt(0); // header extension length.
+  }
+
+  /** Write the trailer which must follow the last row. */
+  public void writeTrailer(DataOutput out) throws IOException {
+    out.writeShort(-1);
+  }
+
+  /**
+   * Write one row.
+   * @param values the column values, in the order of the column types
+   * given to the constructor. Null elements are written as SQL NULL.
+   */
+  public void writeRow(DataOutput out, Object [] values) throws IOException {
+    out.writeShort(types.length);
+    for (int i = 0; i < types.length; i++) {
+      Object v = values[i];
+      if (null == v) {
+        out.writeInt(-1);
+      } else {
+        writeValue(out, i, v);
+      }
+    }
+  }
+
+  private void writeValue(DataOutput out, int col, Object v)
+      throws IOException {
+    switch (types[col]) {
+    case BOOL:
+      out.writeInt(1);
+      out.writeByte(toBoolean(col, v) ? 1 : 0);
+      break;
+    case INT2:
+      out.writeInt(2);
+      out.writeShort((short) toLong(col, v, Short.MIN_VALUE,
+          Short.MAX_VALUE));
+      break;
+    case INT4:
+      out.writeInt(4);
+      out.writeInt((int) toLong(col, v, Integer.MIN_VALUE,
+          Integer.MAX_VALUE));
+      break;
+    case INT8:
+      out.writeInt(8);
+      out.writeLong(toLong(col, v, Long.MIN_VALUE, Long.MAX_VALUE));
+      break;
+    case FLOAT4:
+      out.writeInt(4);
+      out.writeFloat(toNumber(col, v).floatValue());
+      break;
+    case FLOAT8:
+      out.writeInt(8);
+      out.writeDouble(toNumber(col, v).doubleValue());
+      break;
+    case NUMERIC:
+      writeNumeric(out, toBigDecimal(col, v));
+      break;
+    case TEXT:
+      byte [] text = v.toString().getBytes(StandardCharsets.UTF_8);
+      out.writeInt(text.length);
+      out.write(text);
+      break;
+    case BYTEA:
+      writeBytes(out, col, v);
+      break;
+    case DATE:
+      out.writeInt(4);
+      out.writeInt((int) (toDate(col, v).toLocalDate().toEpochDay()
+          - PG_EPOCH_DAYS));
+      break;
+    case TIME:
+      out.writeInt(8);
+      out.writeLong(toTime(col, v).toLocalTime().toNanoOfDay() / 1000L);
+      break;
+    case TIMESTAMP:
+      // A timestamp without time zone holds the wall-clock time, as its
+      // text form would.
+      LocalDateTime ldt = toTimestamp(col, v).toLocalDateTime();
+      out.writeInt(8);
+      out.writeLong((ldt.toEpochSecond(ZoneOffset.UTC) - PG_EPOCH_SECONDS)
+          * 1000000L + ldt.getNano() / 1000);
+      break;
+    case TIMESTAMPTZ:
+      Timestamp ts = toTimestamp(col, v);
+      long seconds = Math.floorDiv(ts.getTime(), 1000L);
+      out.writeInt(8);
+      out.writeLong((seconds - PG_EPOCH_SECONDS) * 1000000L
+          + ts.getNanos() / 1000);
+      break;
+    default:
+      throw new IOException("Unexpected column type " + typeNames[col]);
+    }
+  }
+
+  private void writeBytes(DataOutput out, int col, Object v)
+      throws IOException {
+    if (v instanceof BytesWritable) {
+      BytesWritable bw = (BytesWritable) v;
+      out.writeInt(bw.getLength());
+      out.write(bw.getBytes(), 0, bw.getLength());
+    } else if (v instanceof byte []) {
+      byte [] b = (byte []) v;
+      out.writeInt(b.length);
+      out.write(b);
+    } else {
+      throw mismatch(col, v);
+    }
+  }
+
+  /**
+   * Write a numeric as its weight, sign, display scale and base-10000
+   * digits, with the digits aligned on the decimal point.
+   */
+  void writeNumeric(DataOutput out, BigDecimal value) throws IOException {
+    int dscale = Math.max(value.scale(), 0);
+    BigInteger unscaled = value.unscaledValue().abs();
+    if (value.scale() < 0) {
+      unscaled = unscaled.multiply(BigInteger.TEN.pow(-value.scale()));
+    }
+
+    // Pad the fraction out to whole base-10000 digits.
+    int pad = (4 - dscale % 4) % 4;
+    if (pad > 0) {
+      unscaled = unscaled.multiply(BigInteger.TEN.pow(pad));
+    }
+    int fracDigits = (dscale + pad) / 4;
+
+    int n = 0;
+    if (unscaled.bitLength() < 63) {
+      long l = unscaled.longValue();
+      while (l != 0) {
+        addDigit(n++, (int) (l % NBASE));
+        l /= NBASE;
+      }
+    } else {
+      while (unscaled.signum() != 0) {
+        BigInteger [] qr = unscaled.divideAndRemainder(BIG_NBASE);
+        addDigit(n++, qr[1].intValue());
+        unscaled = qr[0];
+      }
+    }
+
+    int weight = n - fracDigits - 1;
+
+    // Trailing zero digits carry no information.
+    int low = 0;
+    while (low < n && digits[low] == 0) {
+      low++;
+    }
+    int ndigits = n - low;
+    if (ndigits == 0) {
+      weight = 0;
+    }
+
+    out.writeInt(8 + 2 * ndigits);
+    out.writeShort(ndigits);
+    out.writeShort(weight);
+    out.writeShort(value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS);
+    out.writeShort(dscale);
+    for (int i = n - 1; i >= low; i--) {
+      out.writeShort(digits[i]);
+    }
+  }
+
+  private void addDigit(int pos, int digit) {
+    if (pos == digits.length) {
+      short [] grown = new short[digits.length * 2];
+      System.arraycopy(digits, 0, grown, 0, digits.length);
+      digits = grown;
+    }
+    digits[pos] = (short) digit;
+  }
+
+  private boolean toBoolean(int col, Object v) throws IOException {
+    if (v instanceof Boolean) {
+      return ((Boolean) v).booleanValue();
+    }
+    throw mismatch(col, v);
+  }
+
+  private Number toNumber(int col, Object v) throws IOException {
+    if (v instanceof Number) {
+      return (Number) v;
+    }
+    throw mismatch(col, v);
+  }
+
+  /**
+   * @return the integral value 'v', which must lie in [min, max].
+   * @throws IOException if 'v' is not a whole number in the range, rather
+   * than truncating it to one.
+   */
+  private long toLong(int col, Object v, long min, long max)
+      throws IOException {
+    long l;
+    if (v instanceof Long || v instanceof Integer
+        || v instanceof Short || v instanceof Byte) {
+      l = ((Number) v).longValue();
+    } else {
+      try {
+        l = toBigDecimal(col, v).longValueExact();
+      } catch (ArithmeticException ae) {
+        throw outOfRange(col, v);
+      } catch (NumberFormatException nfe) {
+        // NaN or infinity.
+        throw outOfRange(col, v);
+      }
+    }
+    if (l < min || l > max) {
+      throw outOfRange(col, v);
+    }
+    return l;
+  }
+
+  private BigDecimal toBigDecimal(int col, Object v) throws IOException {
+    if (v instanceof BigDecimal) {
+      return (BigDecimal) v;
+    } else if (v instanceof Long || v instanceof Integer
+        || v instanceof Short || v instanceof Byte) {
+      return BigDecimal.valueOf(((Number) v).longValue());
+    } else if (v instanceof Number) {
+      return new BigDecimal(v.toString());
+    }
+    throw mismatch(col, v);
+  }
+
+  private Date toDate(int col, Object v) throws IOException {
+    if (v instanceof Date) {
+      return (Date) v;
+    }
+    throw mismatch(col, v);
+  }
+
+  private Time toTime(int col, Object v) throws IOException {
+    if (v instanceof Time) {
+      return (Time) v;
+    }
+    throw mismatch(col, v);
+  }
+
+  private Timestamp toTimestamp(int col, Object v) throws IOException {
+    if (v instanceof Timestamp) {
+      return (Timestamp) v;
+    }
+    throw mismatch(col, v);
+  }
+
+  private IOException outOfRange(int col, Object v) {
+    return new IOException("Value " + v + " is out of range for column "
+        + col + " of type " + typeNames[col]);
+  }
+
+  private IOException mismatch(int col, Object v) {
+    return new IOException("Cannot write value of type "
+        + v.getClass().getName() + " to column " + col + " of type "
+        + typeNames[col]);
+  }
+}
@@ -22,6 +22,7 @@
 import org.apache.sqoop.config.ConfigurationHelper;
 import org.apache.sqoop.manager.ExportJobContext;
 import java.io.IOException;
+import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -31,6 +32,7 @@
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.sqoop.lib.DelimiterSet;
+import org.apache.sqoop.manager.ConnManager;
 import org.apache.sqoop.mapreduce.JdbcExportJob;
 import org.apache.sqoop.mapreduce.parquet.ParquetExportJobConfigurator;
 
@@ -42,6 +44,12 @@ public class PostgreSQLCopyExportJob extends JdbcExportJob {
   public static final Log LOG =
     LogFactory.getLog(PostgreSQLCopyExportJob.class.getName());
 
+  /** Send rows in the binary COPY format instead of CSV. */
+  public static final String BINARY_COPY_KEY = "postgresql.copy.binary";
+
+  /** PostgreSQL type name of each exported column, for binary COPY. */
+  public static final String COLUMN_TYPES_KEY = "postgresql.copy.column.types";
+
   public PostgreSQLCopyExportJob(final ExportJobContext context, final ParquetExportJobConfigurator parquetExportJobConfigurator) {
     super(context, parquetExportJobConfigurator);
   }
@@ -97,6 +105,43 @@ protected void propagateOptionsToJob(Job job) {
                  opts.getInputEscapedBy(), conf);
     conf.setBoolean("postgresql.input.encloserequired",
                     opts.isInputEncloseRequired());
+    if (conf.getBoolean(BINARY_COPY_KEY, false)) {
+      configureBinaryCopy(conf);
+    }
+  }
+
+  /**
+   * Record the PostgreSQL type of each exported column for the binary
+   * encoder, or fall back to CSV if a column has a type it cannot write.
+   */
+  private void configureBinaryCopy(Configuration conf) {
+    SqoopOptions opts = context.getOptions();
+    ConnManager mgr = context.getConnManager();
+    String tableName = context.getTableName();
+    String [] colNames = opts.getColumns();
+    if (null == colNames) {
+      colNames = mgr.getColumnNames(tableName);
+    }
+    Map<String, String> typeNames = mgr.getColumnTypeNamesForTable(tableName);
+    if (null == colNames || null == typeNames) {
+      LOG.warn("Could not read column types of " + tableName
+          + "; binary COPY is disabled.");
+      conf.setBoolean(BINARY_COPY_KEY, false);
+      return;
+    }
+
+    String [] types = new String[colNames.length];
+    for (int i = 0; i < colNames.length; i++) {
+      types[i] = typeNames.get(colNames[i]);
+      if (!PostgreSQLBinaryCopyEncoder.isSupportedType(types[i])) {
+        LOG.warn("Column " + colNames[i] + " of type " + types[i]
+            + " cannot be sent with binary COPY; using CSV instead.");
+        conf.setBoolean(BINARY_COPY_KEY, false);
+        return;
+      }
+    }
+    LOG.info("Exporting with binary COPY");
+    conf.setStrings(COLUMN_TYPES_KEY, types);
   }
 
   private void setDelimiter(String prop, char val, Configuration conf) {
@@ -19,18 +19,26 @@
 package org.apache.sqoop.mapreduce.postgresql;
 
 import org.apache.sqoop.lib.DelimiterSet;
+import org.apache.sqoop.lib.RecordParser;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.lib.Utf8OutputBuffer;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.regex.Pattern;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Mapper.Context;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.sqoop.mapreduce.AutoProgressMapper;
+import org.apache.sqoop.mapreduce.ExportJobBase;
 import org.apache.sqoop.mapreduce.db.DBConfiguration;
 import org.apache.sqoop.util.LoggingUtils;
 import org.postgresql.PGConnection;
@@ -45,6 +53,12 @@
  * map() methods read from SequenceFiles (containing existing SqoopRecords)
  * or text files (containing delimited lines)
  * and deliver these results to the CopyIn object of PostgreSQL JDBC.
+ *
+ * Rows are collected in a buffer of postgresql.copy.buffer.size bytes and
+ * handed to the CopyIn in one call when it fills up. When
+ * postgresql.copy.binary is set, rows are sent in the binary COPY format,
+ * encoded from the typed fields of the record class rather than from its
+ * delimited text.
  */
 public class PostgreSQLCopyExportMapper
     extends AutoProgressMapper<LongWritable, Writable,
@@ -52,11 +66,27 @@
   public static final Log LOG =
     LogFactory.getLog(PostgreSQLCopyExportMapper.class.getName());
 
+  /** Number of bytes of rows to collect before each writeToCopy() call. */
+  public static final String BUFFER_SIZE_KEY = "postgresql.copy.buffer.size";
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
   private Configuration conf;
   private DBConfiguration dbConf;
   private Connection conn = null;
   private CopyIn copyin = null;
-  private StringBuilder line = new StringBuilder();
+  private DataOutputBuffer buffer = new DataOutputBuffer();
+  private int bufferSize;
+  private byte [] lineSeparator;
+  private Utf8OutputBuffer line = new Utf8OutputBuffer();
+
+  // A column name which PostgreSQL accepts without quotes.
+  private static final Pattern PLAIN_IDENTIFIER =
+      Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+
+  // Set only for binary COPY.
+  private PostgreSQLBinaryCopyEncoder encoder = null;
+  private SqoopRecord recordImpl = null;
+  private Object [] values;
   private DelimiterSet delimiters =
     new DelimiterSet(',', '\n',
                      DelimiterSet.NULL_CHAR, DelimiterSet.NULL_CHAR, false);
@@ -71,6 +101,12 @@ protected void setup(Context context)
     super.setup(context);
     conf = context.getConfiguration();
     dbConf = new DBConfiguration(conf);
+    bufferSize = conf.getInt(BUFFER_SIZE_KEY, DEFAULT_BUFFER_SIZE);
+    lineSeparator = System.getProperty("line.separator")
+        .getBytes(StandardCharsets.UTF_8);
+    if (conf.getBoolean(PostgreSQLCopyExportJob.BINARY_COPY_KEY, false)) {
+      setupBinary();
+    }
     CopyManager cm = null;
     try {
       conn = dbConf.getConnection();
@@ -83,33 +119,13 @@ protected void setup(Context context)
       throw new IOException(ex);
     }
     try {
-      StringBuilder sql = new StringBuilder();
-      sql.append("COPY ");
-      sql.append(dbConf.getOutputTableName());
-      sql.append(" FROM STDIN WITH (");
-      sql.append(" ENCODING 'UTF-8' ");
-      sql.append(", FORMAT csv ");
-      sql.append(", DELIMITER ");
-      sql.append("'");
-      sql.append(conf.get("postgresql.input.field.delim", ","));
-      sql.append("'");
-      sql.append(", QUOTE ");
-      sql.append("'");
-      sql.append(conf.get("postgresql.input.enclosedby", "\""));
-      sql.append("'");
-      sql.append(", ESCAPE ");
-      sql.append("'");
-      sql.append(conf.get("postgresql.input.escapedby", "\""));
-      sql.append("'");
-      if (conf.get("postgresql.null.string") != null) {
-        sql.append(", NULL ");
-        sql.append("'");
-        sql.append(conf.get("postgresql.null.string"));
-        sql.append("'");
-      }
-      sql.append(")");
+      String sql = null == encoder ? getCsvCopyCommand()
+          : getBinaryCopyCommand();
       LOG.debug("Starting export with copy: " + sql);
-      copyin = cm.copyIn(sql.toString());
+      copyin = cm.copyIn(sql);
+      if (null != encoder) {
+        encoder.writeHeader(buffer);
+      }
     } catch (SQLException ex) {
       LoggingUtils.logAll(LOG, "Unable to get CopyIn", ex);
       close();
@@ -117,27 +133,176 @@ protected void setup(Context context)
     }
   }
 
+  /**
+   * Instantiate the record class to parse text input into, and the encoder
+   * for the column types the job recorded.
+   */
+  private void setupBinary() throws IOException {
+    String [] columnTypes =
+        conf.getStrings(PostgreSQLCopyExportJob.COLUMN_TYPES_KEY);
+    if (null == columnTypes) {
+      throw new IOException("Column types ("
+          + PostgreSQLCopyExportJob.COLUMN_TYPES_KEY
+          + ") are not set for binary COPY");
+    }
+    encoder = new PostgreSQLBinaryCopyEncoder(columnTypes);
+    values = new Object[columnTypes.length];
+
+    String recordClassName = conf.get(
+        ExportJobBase.SQOOP_EXPORT_TABLE_CLASS_KEY);
+    if (null != recordClassName) {
+      try {
+        Class cls = Class.forName(recordClassName, true,
+            Thread.currentThread().getContextClassLoader());
+        recordImpl = (SqoopRecord) ReflectionUtils.newInstance(cls, conf);
+      } catch (ClassNotFoundException cnfe) {
+        throw new IOException(cnfe);
+      }
+    }
+  }
+
+  private String getBinaryCopyCommand() {
+    StringBuilder sql = new StringBuilder();
+    sql.append("COPY ");
+    sql.append(dbConf.getOutputTableName());
+    String [] cols = dbConf.getOutputFieldNames();
+    if (null != cols && cols.length > 0) {
+      sql.append(" (");
+      for (int i = 0; i < cols.length; i++) {
+        if (i > 0) {
+          sql.append(", ");
+        }
+        sql.append(quoteIdentifier(cols[i]));
+      }
+      sql.append(")");
+    }
+    sql.append(" FROM STDIN WITH (FORMAT binary)");
+    return sql.toString();
+  }
+
+  /**
+   * Quote a column name of the binary COPY column list if it is not a
+   * plain identifier. Plain identifiers are passed as they are, so that
+   * PostgreSQL folds them to lower case just as in the text COPY path; a
+   * name which the ConnManager already quoted is also kept as it is.
+   */
+  static String quoteIdentifier(String name) {
+    if (PLAIN_IDENTIFIER.matcher(name).matches()
+        || (name.length() > 1 && name.startsWith("\"")
+            && name.endsWith("\""))) {
+      return name;
+    }
+    return "\"" + name.replace("\"", "\"\"") + "\"";
+  }
+
+  private String getCsvCopyCommand() {
+    StringBuilder sql = new StringBuilder();
+    sql.append("COPY ");
+    sql.append(dbConf.getOutputTableName());
+    sql.append(" FROM STDIN WITH (");
+    sql.append(" ENCODING 'UTF-8' ");
+    sql.append(", FORMAT csv ");
+    sql.append(", DELIMITER ");
+    sql.append("'");
+    sql.append(conf.get("postgresql.input.field.delim", ","));
+    sql.append("'");
+    sql.append(", QUOTE ");
+    sql.append("'");
+    sql.append(conf.get("postgresql.input.enclosedby", "\""));
+    sql.append("'");
+    sql.append(", ESCAPE ");
+    sql.append("'");
+    sql.append(conf.get("postgresql.input.escapedby", "\""));
+    sql.append("'");
+    if (conf.get("postgresql.null.string") != null) {
+      sql.append(", NULL ");
+      sql.append("'");
+      sql.append(conf.get("postgresql.null.string"));
+      sql.append("'");
+    }
+    sql.append(")");
+    return sql.toString();
+  }
+
   @Override
   public void map(LongWritable key, Writable value, Context context)
     throws IOException, InterruptedException {
-    line.setLength(0);
-    line.append(value.toString());
-    if (value instanceof Text) {
-      line.append(System.getProperty("line.separator"));
+    if (null != encoder) {
+      writeBinary(value);
+    } else if (value instanceof Text) {
+      Text text = (Text) value;
+      buffer.write(text.getBytes(), 0, text.getLength());
+      buffer.write(lineSeparator);
+    } else if (value instanceof SqoopRecord) {
+      line.reset();
+      ((SqoopRecord) value).writeTo(line);
+      buffer.write(line.getBytes(), 0, line.getLength());
+    } else {
+      line.reset();
+      line.append(value.toString());
+      buffer.write(line.getBytes(), 0, line.getLength());
+    }
+    if (buffer.getLength() >= bufferSize) {
+      flush();
+    }
+  }
+
+  private void writeBinary(Writable value) throws IOException {
+    SqoopRecord record;
+    if (value instanceof SqoopRecord) {
+      record = (SqoopRecord) value;
+    } else if (!(value instanceof Text)) {
+      throw new IOException("Cannot export " + value.getClass().getName()
+          + " with binary COPY; expected Text or SqoopRecord input");
+    } else if (null != recordImpl) {
+      try {
+        recordImpl.parse((Text) value);
+      } catch (RecordParser.ParseError pe) {
+        throw new IOException("Could not parse record: " + value, pe);
+      }
+      record = recordImpl;
+    } else {
+      throw new IOException("Export table class name ("
+          + ExportJobBase.SQOOP_EXPORT_TABLE_CLASS_KEY
+          + ") is not set!");
+    }
+
+    String [] names = record.getFieldNames();
+    if (null == names) {
+      throw new IOException("Record class " + record.getClass().getName()
+          + " does not support binary COPY. Regenerate your record class.");
+    }
+    if (names.length != encoder.getColumnCount()) {
+      throw new IOException("Record has " + names.length
+          + " fields but the table has " + encoder.getColumnCount()
+          + " columns");
+    }
+    record.getFieldValues(values);
+    encoder.writeRow(buffer, values);
+  }
+
+  /** Send the buffered rows to the server. */
+  private void flush() throws IOException {
+    if (buffer.getLength() == 0) {
+      return;
     }
     try {
-      byte[]data = line.toString().getBytes("UTF-8");
-      copyin.writeToCopy(data, 0, data.length);
+      copyin.writeToCopy(buffer.getData(), 0, buffer.getLength());
     } catch (SQLException ex) {
       LoggingUtils.logAll(LOG, "Unable to execute copy", ex);
       close();
       throw new IOException(ex);
     }
+    buffer.reset();
   }
 
   @Override
   protected void cleanup(Context context)
     throws IOException, InterruptedException {
+    if (null != encoder) {
+      encoder.writeTrailer(buffer);
+    }
+    flush();
     try {
       copyin.endCopy();
     } catch (SQLException ex) {
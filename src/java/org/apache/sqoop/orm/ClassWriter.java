@@ -26,6 +26,7 @@
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +51,8 @@
 import org.apache.sqoop.lib.LobSerializer;
 import org.apache.sqoop.lib.RecordParser;
 import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.lib.Utf8Field;
+import org.apache.sqoop.lib.Utf8RecordParser;
 import org.apache.sqoop.manager.ConnManager;
 import org.apache.sqoop.util.DirCleanupHook;
 
@@ -131,6 +134,26 @@ public class ClassWriter {
   public static final String PROPERTY_CODEGEN_METHODS_MAXCOLS =
       "codegen.methods.maxcols";
 
+  /**
+   * If true, the generated parse(Text) method scans the UTF-8 bytes of its
+   * input with a Utf8RecordParser instead of decoding it to a String first.
+   */
+  public static final String PROPERTY_CODEGEN_UTF8_PARSER =
+      "codegen.parser.utf8";
+
+  public static final boolean PROPERTY_CODEGEN_UTF8_PARSER_DEFAULT = false;
+
+  /**
+   * If true, Integer, Long, Float and Double columns are stored in primitive
+   * fields of the generated class, with nulls tracked in a bitmap, so that
+   * reading and writing them does not box every value.
+   */
+  public static final String PROPERTY_CODEGEN_PRIMITIVE_FIELDS =
+      "codegen.primitive.fields";
+
+  public static final boolean PROPERTY_CODEGEN_PRIMITIVE_FIELDS_DEFAULT =
+      false;
+
   /**
    * This version number is injected into all generated Java classes to denote
    * which version of the ClassWriter's output format was used to generate the
@@ -142,6 +165,12 @@ public class ClassWriter {
    */
   public static final int CLASS_WRITER_VERSION = 3;
 
+  /**
+   * Starts the header comment line recording when a class was generated.
+   * CompiledClassCache leaves this line out of its keys.
+   */
+  public static final String GENERATED_DATE_PREFIX = "// Generated date: ";
+
   /**
    * Default maximum number of columns per method.
    */
@@ -159,6 +188,11 @@ public class ClassWriter {
   private String tableName;
   private CompilationManager compileManager;
   private boolean bigDecimalFormatString;
+  private boolean primitiveFields;
+
+  // Maps each column stored in a primitive field to its bit in the
+  // generated null bitmap. Empty unless primitiveFields is set.
+  private Map<String, Integer> primitiveNullBits;
 
   /**
    * Creates a new ClassWriter to generate an ORM class for a table
@@ -180,6 +214,10 @@ public ClassWriter(final SqoopOptions opts, final ConnManager connMgr,
     this.maxColumnsPerMethod = this.options.getConf().getInt(
         PROPERTY_CODEGEN_METHODS_MAXCOLS,
         MAX_COLUMNS_PER_METHOD_DEFAULT);
+    this.primitiveFields = this.options.getConf().getBoolean(
+        PROPERTY_CODEGEN_PRIMITIVE_FIELDS,
+        PROPERTY_CODEGEN_PRIMITIVE_FIELDS_DEFAULT);
+    this.primitiveNullBits = new HashMap<String, Integer>();
   }
 
   /**
@@ -302,6 +340,117 @@ private String toJavaType(String columnName, int sqlType) {
     return connManager.toJavaType(tableName, columnName, sqlType);
   }
 
+  /**
+   * @param javaType a boxed Java type name, e.g. "Integer".
+   * @return the primitive type stored for javaType when primitive fields are
+   * enabled, or null if the type is always stored as an object.
+   */
+  private static String primitiveForType(String javaType) {
+    if (javaType.equals("Integer")) {
+      return "int";
+    } else if (javaType.equals("Long")) {
+      return "long";
+    } else if (javaType.equals("Float")) {
+      return "float";
+    } else if (javaType.equals("Double")) {
+      return "double";
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * @param primitiveType a type returned by primitiveForType().
+   * @return the suffix of the ResultSet, PreparedStatement, DataInput and
+   * DataOutput methods handling that type, e.g. "Int" for getInt().
+   */
+  private static String primitiveAccessorSuffix(String primitiveType) {
+    return Character.toUpperCase(primitiveType.charAt(0))
+        + primitiveType.substring(1);
+  }
+
+  /**
+   * Assign a bit of the null bitmap to each column which will be stored in
+   * a primitive field.
+   */
+  private void initPrimitiveNullBits(Map<String, Integer> columnTypes,
+      String [] colNames) {
+    primitiveNullBits.clear();
+    if (!primitiveFields) {
+      return;
+    }
+
+    for (int i = 0; i < colNames.length; i++) {
+      String javaType = toJavaType(colNames[i], columnTypes.get(colNames[i]));
+      if (null != javaType && null != primitiveForType(javaType)) {
+        primitiveNullBits.put(colNames[i], i);
+      }
+    }
+  }
+
+  /**
+   * @return true if the named column is stored in a primitive field.
+   */
+  private boolean isPrimitiveColumn(String colName) {
+    return primitiveNullBits.containsKey(colName);
+  }
+
+  /**
+   * @return an expression testing whether a primitive column is null.
+   */
+  private String isNullExpr(String colName) {
+    return "__isNull(" + primitiveNullBits.get(colName) + ")";
+  }
+
+  /**
+   * @return a statement marking a primitive column as null or not null.
+   */
+  private String setNullStmt(String colName, String isNull) {
+    return "__setNull(" + primitiveNullBits.get(colName) + ", " + isNull
+        + ");";
+  }
+
+  /**
+   * @return a statement setting a column to null.
+   */
+  private String assignNullStmt(String colName) {
+    if (isPrimitiveColumn(colName)) {
+      return setNullStmt(colName, "true");
+    } else {
+      return "this." + colName + " = null;";
+    }
+  }
+
+  /**
+   * Generate the null bitmap used by primitive fields, and the methods
+   * which access it. Every column starts out null.
+   * @param colNames - ordered list of column names for table.
+   * @param sb - StringBuilder to append code to
+   */
+  private void generateNullBitmap(String [] colNames, StringBuilder sb) {
+    if (primitiveNullBits.isEmpty()) {
+      return;
+    }
+
+    int words = (colNames.length + 63) / 64;
+    sb.append("  private long [] __sqoop$null_bits = new long[" + words
+        + "];\n");
+    sb.append("  {\n");
+    sb.append("    Arrays.fill(__sqoop$null_bits, -1L);\n");
+    sb.append("  }\n");
+    sb.append("  private boolean __isNull(int __bit) {\n");
+    sb.append("    return (__sqoop$null_bits[__bit >>> 6] & (1L << __bit)) "
+        + "!= 0;\n");
+    sb.append("  }\n");
+    sb.append("  private void __setNull(int __bit, boolean __null) {\n");
+    sb.append("    if (__null) {\n");
+    sb.append("      __sqoop$null_bits[__bit >>> 6] |= (1L << __bit);\n");
+    sb.append("    } else {\n");
+    sb.append("      __sqoop$null_bits[__bit >>> 6] &= ~(1L << __bit);\n");
+    sb.append("    }\n");
+    sb.append("  }\n");
+  }
+
   /**
    * @param javaType
    * @return the name of the method of JdbcWritableBridge to read an entry
@@ -360,7 +509,12 @@ private String dbSetterForType(String javaType) {
   }
 
   private String stringifierForType(String javaType, String colName) {
-    if (javaType.equals("String")) {
+    if (isPrimitiveColumn(colName)) {
+      // String concatenation formats primitives without boxing them.
+      String r = isNullExpr(colName) + "?\"" + this.options.getNullNonStringValue()
+          + "\":" + "\"\" + " + colName;
+      return r;
+    } else if (javaType.equals("String")) {
       // Check if it is null, and write the null representation in such case
       String r = colName  + "==null?\"" + this.options.getNullStringValue()
           + "\":" + colName;
@@ -447,6 +601,15 @@ private String rpcGetterForType(String javaType, String inputObj,
    */
   private String rpcGetterForMaybeNull(String javaType, String inputObj,
       String colName) {
+    if (isPrimitiveColumn(colName)) {
+      return "    if (" + inputObj + ".readBoolean()) { \n"
+          + "        " + setNullStmt(colName, "true") + "\n"
+          + "    } else {\n"
+          + "        this." + colName + " = " + inputObj + ".read"
+          + primitiveAccessorSuffix(primitiveForType(javaType)) + "();\n"
+          + "        " + setNullStmt(colName, "false") + "\n"
+          + "    }\n";
+    }
     return "    if (" + inputObj + ".readBoolean()) { \n"
         + "        this." + colName + " = null;\n"
         + "    } else {\n"
@@ -512,6 +675,16 @@ private String rpcSetterForType(String javaType, String outputObj,
    */
   private String rpcSetterForMaybeNull(String javaType, String outputObj,
       String colName) {
+    if (isPrimitiveColumn(colName)) {
+      return "    if (" + isNullExpr(colName) + ") { \n"
+          + "        " + outputObj + ".writeBoolean(true);\n"
+          + "    } else {\n"
+          + "        " + outputObj + ".writeBoolean(false);\n"
+          + "        " + outputObj + ".write"
+          + primitiveAccessorSuffix(primitiveForType(javaType)) + "(this."
+          + colName + ");\n"
+          + "    }\n";
+    }
     return "    if (null == this." + colName + ") { \n"
         + "        " + outputObj + ".writeBoolean(true);\n"
         + "    } else {\n"
@@ -566,6 +739,11 @@ private void generateFields(Map<String, Integer> columnTypes,
         continue;
       }
 
+      if (isPrimitiveColumn(col)) {
+        generatePrimitiveField(javaType, col, className, sb);
+        continue;
+      }
+
       sb.append("  private " + javaType + " " + col + ";\n");
       sb.append("  public " + javaType + " get_" + col + "() {\n");
       sb.append("    return " + col + ";\n");
@@ -582,6 +760,37 @@ private void generateFields(Map<String, Integer> columnTypes,
     }
   }
 
+  /**
+   * Generate a primitive member field with boxed getter, setter and with
+   * methods, which map null to the column's bit in the null bitmap.
+   * @param javaType - the boxed Java type of the column
+   * @param col - the column name
+   * @param className - name of the generated class
+   * @param sb - StringBuilder to append code to
+   */
+  private void generatePrimitiveField(String javaType, String col,
+      String className, StringBuilder sb) {
+    sb.append("  private " + primitiveForType(javaType) + " " + col + ";\n");
+    sb.append("  public " + javaType + " get_" + col + "() {\n");
+    sb.append("    return " + isNullExpr(col) + " ? null : " + javaType
+        + ".valueOf(" + col + ");\n");
+    sb.append("  }\n");
+    sb.append("  public void set_" + col + "(" + javaType + " " + col
+        + ") {\n");
+    sb.append("    if (null == " + col + ") {\n");
+    sb.append("      " + setNullStmt(col, "true") + "\n");
+    sb.append("    } else {\n");
+    sb.append("      this." + col + " = " + col + ";\n");
+    sb.append("      " + setNullStmt(col, "false") + "\n");
+    sb.append("    }\n");
+    sb.append("  }\n");
+    sb.append("  public " + className + " with_" + col + "(" + javaType + " "
+        + col + ") {\n");
+    sb.append("    set_" + col + "(" + col + ");\n");
+    sb.append("    return this;\n");
+    sb.append("  }\n");
+  }
+
   /**
    * Generate an equals method that compares the fields for each column.
    * @param columnTypes - mapping from column names to sql types
@@ -650,6 +859,13 @@ private void myGenerateEquals(Map<String, Integer> columnTypes,
         LOG.error("Cannot resolve SQL type " + sqlType);
         continue;
       }
+      if (isPrimitiveColumn(col)) {
+        sb.append("    equal = equal && (this." + isNullExpr(col) + " ? that."
+            + isNullExpr(col) + " : !that." + isNullExpr(col) + " && "
+            + javaType + ".compare(this." + col + ", that." + col
+            + ") == 0);\n");
+        continue;
+      }
       sb.append("    equal = equal && (this." + col + " == null ? that." + col
           + " == null : this." + col + ".equals(that." + col + "));\n");
     }
@@ -725,6 +941,14 @@ private void myGenerateDbRead(Map<String, Integer> columnTypes,
         continue;
       }
 
+      if (isPrimitiveColumn(col)) {
+        sb.append("    this." + col + " = __dbResults.get"
+            + primitiveAccessorSuffix(primitiveForType(javaType)) + "("
+            + (i + 1) + ");\n");
+        sb.append("    " + setNullStmt(col, "__dbResults.wasNull()") + "\n");
+        continue;
+      }
+
       String getterMethod = dbGetterForType(javaType);
       if (null == getterMethod) {
         LOG.error("No db getter method for Java type " + javaType);
@@ -891,6 +1115,18 @@ private void myGenerateDbWrite(Map<String, Integer> columnTypes,
         continue;
       }
 
+      if (isPrimitiveColumn(col)) {
+        sb.append("    if (" + isNullExpr(col) + ") {\n");
+        sb.append("      __dbStmt.setNull(" + (i + 1) + " + __off, " + sqlType
+            + ");\n");
+        sb.append("    } else {\n");
+        sb.append("      __dbStmt.set"
+            + primitiveAccessorSuffix(primitiveForType(javaType)) + "("
+            + (i + 1) + " + __off, " + col + ");\n");
+        sb.append("    }\n");
+        continue;
+      }
+
       String setterMethod = dbSetterForType(javaType);
       if (null == setterMethod) {
         LOG.error("No db setter method for Java type " + javaType);
@@ -1007,6 +1243,9 @@ private void generateCloneMethod(Map<String, Integer> columnTypes,
               maxColumnsPerMethod, false);
     }
 
+    if (!primitiveNullBits.isEmpty()) {
+      sb.append("    o.__sqoop$null_bits = o.__sqoop$null_bits.clone();\n");
+    }
     sb.append("    return o;\n");
     sb.append("  }\n\n");
 
@@ -1064,6 +1303,121 @@ private void myGenerateCloneMethod(Map<String, Integer> columnTypes,
     }
   }
 
+  /**
+   * Generate the copyInto() method, which copies this record's fields into
+   * an existing instance of the class rather than allocating a clone.
+   * @param columnTypes - mapping from column names to sql types
+   * @param colNames - ordered list of column names for table.
+   * @param sb - StringBuilder to append code to
+   */
+  private void generateCopyIntoMethod(Map<String, Integer> columnTypes,
+      String [] colNames, StringBuilder sb) {
+
+    int numberOfMethods =
+            this.getNumberOfMethods(colNames, maxColumnsPerMethod);
+
+    TableClassName tableNameInfo = new TableClassName(options);
+    String className = tableNameInfo.getShortClassForTable(tableName);
+
+    sb.append("  public SqoopRecord copyInto(SqoopRecord target)\n");
+    sb.append("      throws CloneNotSupportedException {\n");
+    sb.append("    if (null == target || target.getClass() != getClass()) {\n");
+    sb.append("      return (SqoopRecord) clone();\n");
+    sb.append("    }\n");
+    sb.append("    " + className + " o = (" + className + ") target;\n");
+
+    if (numberOfMethods > 1) {
+      for (int i = 0; i < numberOfMethods; ++i) {
+        sb.append("    this.copyInto" + i + "(o);\n");
+      }
+    } else {
+      myGenerateCopyIntoMethod(columnTypes, colNames, sb, 0,
+              maxColumnsPerMethod, false);
+    }
+
+    if (!primitiveNullBits.isEmpty()) {
+      sb.append("    System.arraycopy(this.__sqoop$null_bits, 0, "
+          + "o.__sqoop$null_bits, 0, this.__sqoop$null_bits.length);\n");
+    }
+    sb.append("    return o;\n");
+    sb.append("  }\n\n");
+
+    for (int i = 0; i < numberOfMethods; ++i) {
+      myGenerateCopyIntoMethod(columnTypes, colNames, sb, i,
+              maxColumnsPerMethod, true);
+    }
+  }
+
+  /**
+   * Generate the body of the copyInto() method.
+   * @param columnTypes - mapping from column names to sql types
+   * @param colNames - ordered list of column names for table.
+   * @param sb - StringBuilder to append code to
+   * @param methodNumber - method number
+   * @param size - number of columns per method
+   * @param wrapInMethod - wrap body in a method.
+   */
+  private void myGenerateCopyIntoMethod(Map<String, Integer> columnTypes,
+                                        String[] colNames, StringBuilder sb,
+                                        int methodNumber, int size,
+                                        boolean wrapInMethod) {
+    TableClassName tableNameInfo = new TableClassName(options);
+    String className = tableNameInfo.getShortClassForTable(tableName);
+
+    if (wrapInMethod) {
+      sb.append("  public void copyInto" + methodNumber
+              + "(" + className + " o) throws CloneNotSupportedException {\n");
+    }
+
+    // Immutable values are shared; mutable ones are copied into the
+    // target's existing instance where there is one.
+    for (int i = methodNumber * size;
+         i < topBoundary(colNames, methodNumber, size); ++i) {
+      String colName = colNames[i];
+      int sqlType = columnTypes.get(colName);
+      String javaType = toJavaType(colName, sqlType);
+      if (null == javaType) {
+        continue;
+      } else if (javaType.equals("java.sql.Date")
+          || javaType.equals("java.sql.Time")
+          || javaType.equals("java.sql.Timestamp")) {
+        sb.append("    if (null == this." + colName + ") {\n");
+        sb.append("      o." + colName + " = null;\n");
+        sb.append("    } else if (null == o." + colName + ") {\n");
+        sb.append("      o." + colName + " = (" + javaType + ") this."
+            + colName + ".clone();\n");
+        sb.append("    } else {\n");
+        sb.append("      o." + colName + ".setTime(this." + colName
+            + ".getTime());\n");
+        if (javaType.equals("java.sql.Timestamp")) {
+          sb.append("      o." + colName + ".setNanos(this." + colName
+              + ".getNanos());\n");
+        }
+        sb.append("    }\n");
+      } else if (javaType.equals(ClobRef.class.getName())
+          || javaType.equals(BlobRef.class.getName())) {
+        sb.append("    o." + colName + " = (this." + colName + " != null) ? ("
+            + javaType + ") this." + colName + ".clone() : null;\n");
+      } else if (javaType.equals(BytesWritable.class.getName())) {
+        sb.append("    if (null == this." + colName + ") {\n");
+        sb.append("      o." + colName + " = null;\n");
+        sb.append("    } else if (null == o." + colName + ") {\n");
+        sb.append("      o." + colName + " = new BytesWritable(Arrays.copyOf("
+            + "this." + colName + ".getBytes(), this." + colName
+            + ".getLength()));\n");
+        sb.append("    } else {\n");
+        sb.append("      o." + colName + ".set(this." + colName + ");\n");
+        sb.append("    }\n");
+      } else {
+        sb.append("    o." + colName + " = this." + colName + ";\n");
+      }
+    }
+
+    if (wrapInMethod) {
+      sb.append("  }\n\n");
+    }
+  }
+
   /**
    * Generate the setField() method.
    * @param columnTypes - mapping from column names to sql types
@@ -1100,7 +1454,11 @@ private void generateConstructorAndInitMethods(Map<String, Integer> colTypes, St
           sb.append("    setters.put(\"" + serializeRawColName(rawColName) + "\", new FieldSetterCommand() {" + sep);
           sb.append("      @Override" + sep);
           sb.append("      public void setField(Object value) {" + sep);
-          sb.append("        " +typeName+".this." + colName + " = (" + javaType + ")value;" + sep);
+          if (isPrimitiveColumn(colName)) {
+            sb.append("        " + typeName + ".this.set_" + colName + "((" + javaType + ")value);" + sep);
+          } else {
+            sb.append("        " +typeName+".this." + colName + " = (" + javaType + ")value;" + sep);
+          }
           sb.append("      }" + sep);
           sb.append("    });" + sep);
         }
@@ -1220,7 +1578,105 @@ private void myGenerateGetFieldMap(Map<String, Integer> columnTypes,
 
     for (int i = methodNumber * size;
          i < topBoundary(colNames, methodNumber, size); ++i) {
-      sb.append("    __sqoop$field_map.put(\"" + serializeRawColName(rawColNames[i]) + "\", this." + colNames[i] + ");\n");
+      String fieldExpr = isPrimitiveColumn(colNames[i])
+          ? "this.get_" + colNames[i] + "()" : "this." + colNames[i];
+      sb.append("    __sqoop$field_map.put(\"" + serializeRawColName(rawColNames[i]) + "\", " + fieldExpr + ");\n");
+    }
+
+    if (wrapInMethod) {
+      sb.append("  }\n\n");
+    }
+  }
+
+  /**
+   * Generate the getFieldNames() and getFieldValues() methods, which give
+   * positional access to the same fields as getFieldMap().
+   * @param columnTypes - mapping from column names to sql types
+   * @param colNames - ordered list of column names for table.
+   * @param rawColNames - the column names used as field map keys.
+   * @param sb - StringBuilder to append code to
+   */
+  private void generateGetFieldValues(Map<String, Integer> columnTypes,
+      String [] colNames, String [] rawColNames, StringBuilder sb) {
+    String [] nameExprs = new String[colNames.length];
+    String [] valueExprs = new String[colNames.length];
+    for (int i = 0; i < colNames.length; i++) {
+      nameExprs[i] = "\"" + serializeRawColName(rawColNames[i]) + "\"";
+      valueExprs[i] = isPrimitiveColumn(colNames[i])
+          ? "this.get_" + colNames[i] + "()" : "this." + colNames[i];
+    }
+
+    sb.append("  public String [] getFieldNames() {\n");
+    sb.append("    String [] __sqoop$names = new String["
+        + colNames.length + "];\n");
+    generateFillArray("getFieldNames", "String", "__sqoop$names", nameExprs,
+        sb);
+    sb.append("    return __sqoop$names;\n");
+    sb.append("  }\n\n");
+
+    sb.append("  public void getFieldValues(Object [] __sqoop$values) {\n");
+    generateFillArray("getFieldValues", "Object", "__sqoop$values",
+        valueExprs, sb);
+    sb.append("  }\n\n");
+
+    int numberOfMethods =
+            this.getNumberOfMethods(colNames, maxColumnsPerMethod);
+    if (numberOfMethods > 1) {
+      for (int i = 0; i < numberOfMethods; ++i) {
+        myGenerateFillArray("getFieldNames", "String", "__sqoop$names",
+            nameExprs, sb, i, maxColumnsPerMethod, true);
+        myGenerateFillArray("getFieldValues", "Object", "__sqoop$values",
+            valueExprs, sb, i, maxColumnsPerMethod, true);
+      }
+    }
+  }
+
+  /**
+   * Generate the statements that store each of 'exprs' into the array
+   * named 'arrayName', calling out to numbered helper methods if there are
+   * too many columns for one method.
+   * @param methodName - name prefix for the numbered helper methods
+   * @param elementType - element type of the array
+   * @param arrayName - name of the array variable
+   * @param exprs - ordered list of expressions, one per column
+   * @param sb - StringBuilder to append code to
+   */
+  private void generateFillArray(String methodName, String elementType,
+      String arrayName, String [] exprs, StringBuilder sb) {
+    int numberOfMethods =
+            this.getNumberOfMethods(exprs, maxColumnsPerMethod);
+    if (numberOfMethods > 1) {
+      for (int i = 0; i < numberOfMethods; ++i) {
+        sb.append("    this." + methodName + i + "(" + arrayName + ");\n");
+      }
+    } else {
+      myGenerateFillArray(methodName, elementType, arrayName, exprs, sb, 0,
+          maxColumnsPerMethod, false);
+    }
+  }
+
+  /**
+   * Generate the statements that store one method's share of 'exprs'.
+   * @param methodName - name prefix for the numbered helper methods
+   * @param elementType - element type of the array
+   * @param arrayName - name of the array variable
+   * @param exprs - ordered list of expressions, one per column
+   * @param sb - StringBuilder to append code to
+   * @param methodNumber - method number
+   * @param size - number of columns per method
+   * @param wrapInMethod - wrap body in a method.
+   */
+  private void myGenerateFillArray(String methodName, String elementType,
+      String arrayName, String [] exprs, StringBuilder sb, int methodNumber,
+      int size, boolean wrapInMethod) {
+    if (wrapInMethod) {
+      sb.append("  public void " + methodName + methodNumber + "("
+          + elementType + " [] " + arrayName + ") {\n");
+    }
+
+    for (int i = methodNumber * size;
+         i < topBoundary(exprs, methodNumber, size); ++i) {
+      sb.append("    " + arrayName + "[" + i + "] = " + exprs[i] + ";\n");
     }
 
     if (wrapInMethod) {
@@ -1367,6 +1823,115 @@ private void myGenerateToString(Map<String, Integer> columnTypes,
     }
   }
 
+  /**
+   * Generate the writeTo() methods, which format the record like toString()
+   * but escape and enclose each field directly into an Appendable.
+   * @param columnTypes - mapping from column names to sql types
+   * @param colNames - ordered list of column names for table.
+   * @param sb - StringBuilder to append code to
+   */
+  private void generateWriteTo(Map<String, Integer> columnTypes,
+      String [] colNames, StringBuilder sb) {
+
+    int numberOfMethods =
+            this.getNumberOfMethods(colNames, maxColumnsPerMethod);
+
+    // Relies on __outputDelimiters from generateToString().
+    sb.append("  public void writeTo(Appendable __out) throws IOException {\n");
+    sb.append("    writeTo(__out, __outputDelimiters, true);\n");
+    sb.append("  }\n");
+
+    sb.append("  public void writeTo(Appendable __out, DelimiterSet delimiters, ");
+    sb.append("boolean useRecordDelim) throws IOException {\n");
+    sb.append("    char fieldDelim = delimiters.getFieldsTerminatedBy();\n");
+
+    if (numberOfMethods > 1) {
+      for (int i = 0; i < numberOfMethods; ++i) {
+        sb.append("    this.writeTo" + i
+                + "(__out, delimiters, fieldDelim);\n");
+      }
+    } else {
+      myGenerateWriteTo(columnTypes, colNames, sb, true, 0,
+              maxColumnsPerMethod, false);
+    }
+
+    sb.append("    if (useRecordDelim) {\n");
+    sb.append("      __out.append(delimiters.getLinesTerminatedBy());\n");
+    sb.append("    }\n");
+    sb.append("  }\n");
+
+    boolean first = true;
+    for (int i = 0; i < numberOfMethods; ++i) {
+      myGenerateWriteTo(columnTypes, colNames, sb, first, i,
+              maxColumnsPerMethod, true);
+      first = false;
+    }
+  }
+
+  /**
+   * Generate the writeTo() method.
+   * @param columnTypes - mapping from column names to sql types
+   * @param colNames - ordered list of column names for table.
+   * @param sb - StringBuilder to append code to
+   * @param methodNumber - method number
+   * @param size - number of columns per method
+   * @param wrapInMethod - wrap body in a method.
+   */
+  private void myGenerateWriteTo(Map<String, Integer> columnTypes,
+                                 String[] colNames, StringBuilder sb,
+                                 boolean first, int methodNumber, int size,
+                                 boolean wrapInMethod) {
+    if (wrapInMethod) {
+      sb.append("  public void writeTo" + methodNumber
+              + "(Appendable __out, DelimiterSet delimiters, ");
+      sb.append("char fieldDelim) throws IOException {\n");
+    }
+
+    for (int i = methodNumber * size;
+         i < topBoundary(colNames, methodNumber, size); ++i) {
+      String col = colNames[i];
+      int sqlType = columnTypes.get(col);
+      String javaType = toJavaType(col, sqlType);
+      if (null == javaType) {
+        LOG.error("No Java type for SQL type " + sqlType
+            + " for column " + col);
+        continue;
+      }
+
+      if (!first) {
+        // print inter-field tokens.
+        sb.append("    __out.append(fieldDelim);\n");
+      }
+
+      first = false;
+
+      String stringExpr = stringifierForType(javaType, col);
+      if (null == stringExpr) {
+        LOG.error("No toString method for Java type " + javaType);
+        continue;
+      }
+
+      // The hive delimiter handling is rarely used, and keeps the String
+      // based formatting from toString().
+      if (javaType.equals("String") && options.doHiveDropDelims()) {
+        sb.append("    __out.append(FieldFormatter.hiveStringDropDelims("
+            + stringExpr + ", delimiters));\n");
+      } else if (javaType.equals("String")
+          && options.getHiveDelimsReplacement() != null) {
+        sb.append("    __out.append(FieldFormatter.hiveStringReplaceDelims("
+            + stringExpr + ", \"" + options.getHiveDelimsReplacement() + "\", "
+            + "delimiters));\n");
+      } else {
+        sb.append("    FieldFormatter.appendEscapedAndEnclosed(__out, "
+            + stringExpr + ", delimiters);\n");
+      }
+    }
+
+    if (wrapInMethod) {
+      sb.append("  }\n");
+    }
+  }
+
   /**
    * Helper method for generateParser(). Writes out the parse() method for one
    * particular type we support as an input string-ish type.
@@ -1390,15 +1955,15 @@ private void generateParseMethod(String typ, StringBuilder sb) {
   private void parseNullVal(String javaType, String colName, StringBuilder sb) {
     if (javaType.equals("String")) {
       sb.append("    if (__cur_str.equals(\""
-         + this.options.getInNullStringValue() + "\")) { this.");
-      sb.append(colName);
-      sb.append(" = null; } else {\n");
+         + this.options.getInNullStringValue() + "\")) { ");
+      sb.append(assignNullStmt(colName));
+      sb.append(" } else {\n");
     } else {
       sb.append("    if (__cur_str.equals(\""
          + this.options.getInNullNonStringValue());
-      sb.append("\") || __cur_str.length() == 0) { this.");
-      sb.append(colName);
-      sb.append(" = null; } else {\n");
+      sb.append("\") || __cur_str.length() == 0) { ");
+      sb.append(assignNullStmt(colName));
+      sb.append(" } else {\n");
     }
   }
 
@@ -1427,7 +1992,21 @@ private void parseColumn(String colName, int colType, StringBuilder sb) {
     sb.append("    }\n");
 
     parseNullVal(javaType, colName, sb);
-    if (javaType.equals("String")) {
+    parseValue(javaType, colName, sb);
+    sb.append("    }\n\n"); // the closing '{' based on code in parseNullVal();
+  }
+
+  /**
+   * Helper method for parseColumn() and parseUtf8Column(). Generates the code
+   * that converts the non-null string in __cur_str to the column's type.
+   */
+  private void parseValue(String javaType, String colName, StringBuilder sb) {
+    if (isPrimitiveColumn(colName)) {
+      sb.append("      this." + colName + " = " + javaType + ".parse"
+          + primitiveAccessorSuffix(primitiveForType(javaType))
+          + "(__cur_str);\n");
+      sb.append("      " + setNullStmt(colName, "false") + "\n");
+    } else if (javaType.equals("String")) {
       // TODO(aaron): Distinguish between 'null' and null. Currently they both
       // set the actual object to null.
       sb.append("      this." + colName + " = __cur_str;\n");
@@ -1471,8 +2050,54 @@ private void parseColumn(String colName, int colType, StringBuilder sb) {
     } else {
       LOG.error("No parser available for Java type " + javaType);
     }
+  }
 
-    sb.append("    }\n\n"); // the closing '{' based on code in parseNullVal();
+  /**
+   * Helper method for generateUtf8Parser(). Generates the code that loads one
+   * field of a specified name and type from the i'th field of the
+   * Utf8RecordParser, converting numeric types without decoding a String.
+   */
+  private void parseUtf8Column(String colName, int colType, int i,
+      StringBuilder sb) {
+    // assume that we have __p, __cur_field and __cur_str vars, based on
+    // __loadFromUtf8Fields() code.
+
+    String javaType = toJavaType(colName, colType);
+
+    sb.append("    __cur_field = " + i + " < __p.getNumFields() ? __p.getField("
+        + i + ") : null;\n");
+    if (javaType.equals("String")) {
+      sb.append("    if (null == __cur_field || __cur_field.contentEquals(\""
+          + this.options.getInNullStringValue() + "\")) { ");
+    } else {
+      sb.append("    if (null == __cur_field || __cur_field.contentEquals(\""
+          + this.options.getInNullNonStringValue()
+          + "\") || __cur_field.getLength() == 0) { ");
+    }
+    sb.append(assignNullStmt(colName));
+    sb.append(" } else {\n");
+
+    if (isPrimitiveColumn(colName) && !javaType.equals("Float")
+        && !javaType.equals("Double")) {
+      sb.append("      this." + colName + " = __cur_field.parse"
+          + primitiveAccessorSuffix(primitiveForType(javaType)) + "();\n");
+      sb.append("      " + setNullStmt(colName, "false") + "\n");
+    } else if (javaType.equals("String")) {
+      sb.append("      this." + colName + " = __cur_field.toString();\n");
+    } else if (javaType.equals("Integer")) {
+      sb.append("      this." + colName
+          + " = Integer.valueOf(__cur_field.parseInt());\n");
+    } else if (javaType.equals("Long")) {
+      sb.append("      this." + colName
+          + " = Long.valueOf(__cur_field.parseLong());\n");
+    } else if (javaType.equals("java.math.BigDecimal")) {
+      sb.append("      this." + colName + " = __cur_field.toBigDecimal();\n");
+    } else {
+      sb.append("      __cur_str = __cur_field.toString();\n");
+      parseValue(javaType, colName, sb);
+    }
+
+    sb.append("    }\n\n");
   }
 
   /**
@@ -1498,7 +2123,11 @@ private void generateParser(Map<String, Integer> columnTypes,
     sb.append("  private RecordParser __parser;\n");
 
     // Generate wrapper methods which will invoke the parser.
-    generateParseMethod("Text", sb);
+    if (useUtf8Parser()) {
+      generateUtf8Parser(columnTypes, colNames, sb);
+    } else {
+      generateParseMethod("Text", sb);
+    }
     generateParseMethod("CharSequence", sb);
     generateParseMethod("byte []", sb);
     generateParseMethod("char []", sb);
@@ -1526,6 +2155,102 @@ private void generateParser(Map<String, Integer> columnTypes,
     }
   }
 
+  /**
+   * @return true if parse(Text) should be generated on top of the
+   * Utf8RecordParser rather than the String-based RecordParser.
+   */
+  private boolean useUtf8Parser() {
+    if (!options.getConf().getBoolean(PROPERTY_CODEGEN_UTF8_PARSER,
+        PROPERTY_CODEGEN_UTF8_PARSER_DEFAULT)) {
+      return false;
+    }
+
+    DelimiterSet inputDelims = options.getInputDelimiters();
+    if (!Utf8RecordParser.canParse(inputDelims)) {
+      LOG.warn("Input delimiters " + inputDelims + " are not all 7-bit ASCII;"
+          + " falling back to the String-based parser for Text input.");
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Generate the parse(Text) method using a Utf8RecordParser, which scans
+   * the bytes of the Text directly.
+   * @param columnTypes - mapping from column names to sql types
+   * @param colNames - ordered list of column names for table.
+   * @param sb - StringBuilder to append code to
+   */
+  private void generateUtf8Parser(Map<String, Integer> columnTypes,
+      String [] colNames, StringBuilder sb) {
+
+    int numberOfMethods =
+            this.getNumberOfMethods(colNames, maxColumnsPerMethod);
+
+    sb.append("  private Utf8RecordParser __utf8Parser;\n");
+    sb.append("  public void parse(Text __record) "
+        + "throws RecordParser.ParseError {\n");
+    sb.append("    if (null == this.__utf8Parser) {\n");
+    sb.append("      this.__utf8Parser = "
+        + "new Utf8RecordParser(__inputDelimiters);\n");
+    sb.append("    }\n");
+    sb.append("    this.__utf8Parser.parseRecord(__record);\n");
+    sb.append("    __loadFromUtf8Fields(this.__utf8Parser);\n");
+    sb.append("  }\n\n");
+
+    sb.append("  private void __loadFromUtf8Fields(Utf8RecordParser __p) {\n");
+    if (numberOfMethods > 1) {
+      for (int i = 0; i < numberOfMethods; ++i) {
+        sb.append("    this.__loadFromUtf8Fields" + i + "(__p);\n");
+      }
+    } else {
+      myGenerateUtf8Parser(columnTypes, colNames, sb, 0,
+              maxColumnsPerMethod, false);
+    }
+    sb.append("  }\n\n");
+
+    for (int i = 0; i < numberOfMethods; ++i) {
+      myGenerateUtf8Parser(columnTypes, colNames, sb, i,
+              maxColumnsPerMethod, true);
+    }
+  }
+
+  /**
+   * Generate the body of __loadFromUtf8Fields().
+   * @param columnTypes - mapping from column names to sql types
+   * @param colNames - ordered list of column names for table.
+   * @param sb - StringBuilder to append code to
+   * @param methodNumber - method number
+   * @param size - number of columns per method
+   * @param wrapInMethod - wrap body in a method.
+   */
+  private void myGenerateUtf8Parser(Map<String, Integer> columnTypes,
+                                    String[] colNames, StringBuilder sb,
+                                    int methodNumber, int size,
+                                    boolean wrapInMethod) {
+    if (wrapInMethod) {
+      sb.append("  private void __loadFromUtf8Fields" + methodNumber
+              + "(Utf8RecordParser __p) {\n");
+    }
+    sb.append("    Utf8Field __cur_field = null;\n");
+    sb.append("    String __cur_str = null;\n");
+    sb.append("    try {\n");
+    for (int i = methodNumber * size;
+         i < topBoundary(colNames, methodNumber, size); ++i) {
+      String colName = colNames[i];
+      int colType = columnTypes.get(colName);
+      parseUtf8Column(colName, colType, i, sb);
+    }
+    sb.append("    } catch (RuntimeException e) {");
+    sb.append("    throw new RuntimeException("
+        + "\"Can't parse input data: '\" + __cur_field + \"'\", e);");
+    sb.append("    }");
+    if (wrapInMethod) {
+      sb.append("  }\n\n");
+    }
+  }
+
   /**
    * Generate the parse() method.
    * @param columnTypes - mapping from column names to sql types
@@ -1911,7 +2636,7 @@ private StringBuilder generateClassForColumns(
         + "Modify at your own risk.\n");
     sb.append("//\n");
     sb.append("// Debug information:\n");
-    sb.append("// Generated date: " + (new Date()) + "\n");
+    sb.append(GENERATED_DATE_PREFIX + (new Date()) + "\n");
     sb.append("// For connector: " + connManager.getClass().getCanonicalName()
       + "\n");
 
@@ -1932,6 +2657,8 @@ private StringBuilder generateClassForColumns(
     sb.append("import " + DelimiterSet.class.getCanonicalName() + ";\n");
     sb.append("import " + FieldFormatter.class.getCanonicalName() + ";\n");
     sb.append("import " + RecordParser.class.getCanonicalName() + ";\n");
+    sb.append("import " + Utf8RecordParser.class.getCanonicalName() + ";\n");
+    sb.append("import " + Utf8Field.class.getCanonicalName() + ";\n");
     sb.append("import " + BooleanParser.class.getCanonicalName() + ";\n");
     sb.append("import " + BlobRef.class.getCanonicalName() + ";\n");
     sb.append("import " + ClobRef.class.getCanonicalName() + ";\n");
@@ -1967,6 +2694,8 @@ private StringBuilder generateClassForColumns(
     sb.append("  }");
     sb.append("  protected ResultSet __cur_result_set;\n");
     sb.append("  private Map<String, FieldSetterCommand> setters = new HashMap<String, FieldSetterCommand>();\n");
+    initPrimitiveNullBits(columnTypes, colNames);
+    generateNullBitmap(colNames, sb);
     generateConstructorAndInitMethods(columnTypes, colNames, rawColNames, className, sb);
     generateFields(columnTypes, colNames, className, sb);
     generateEquals(columnTypes, colNames, className, sb);
@@ -1976,9 +2705,12 @@ private StringBuilder generateClassForColumns(
     generateHadoopRead(columnTypes, colNames, sb);
     generateHadoopWrite(columnTypes, colNames, sb);
     generateToString(columnTypes, colNames, sb);
+    generateWriteTo(columnTypes, colNames, sb);
     generateParser(columnTypes, colNames, sb);
     generateCloneMethod(columnTypes, colNames, sb);
+    generateCopyIntoMethod(columnTypes, colNames, sb);
     generateGetFieldMap(columnTypes, colNames, rawColNames, sb);
+    generateGetFieldValues(columnTypes, colNames, rawColNames, sb);
     generateSetField(columnTypes, colNames, rawColNames, sb);
 
     // TODO(aaron): Generate hashCode(), compareTo(), equals() so it can be a
@@ -69,6 +69,14 @@ public class CompilationManager {
   private SqoopOptions options;
   private List<String> sources;
 
+  // Cache of compiled jars, and the key of the current sources within it.
+  private CompiledClassCache classCache;
+  private String cacheKey;
+
+  // True if compile() found the jar in the cache and there is nothing
+  // left for jar() to build.
+  private boolean jarFromCache;
+
   public CompilationManager(final SqoopOptions opts) {
     options = opts;
     sources = new ArrayList<String>();
@@ -78,6 +86,14 @@ public void addSourceFile(String sourceName) {
     sources.add(sourceName);
   }
 
+  /**
+   * @return true if compile() took the jar from the compiled class cache
+   * instead of running javac.
+   */
+  public boolean isJarFromCache() {
+    return jarFromCache;
+  }
+
   /**
    * locate the hadoop-*-core.jar in $HADOOP_MAPRED_HOME or
    * --hadoop-mapred-home.
@@ -127,6 +143,9 @@ private String findHadoopJars() {
   /**
    * Compile the .java files into .class files via embedded javac call.
    * On success, move .java files to the code output dir.
+   *
+   * If a compiled class cache is configured and already holds a jar for
+   * these exact sources, that jar is used instead and javac is not run.
    */
   public void compile() throws IOException {
     List<String> args = new ArrayList<String>();
@@ -148,6 +167,18 @@ public void compile() throws IOException {
       jarOutDir = jarOutDir + File.separator;
     }
 
+    classCache = CompiledClassCache.get(options);
+    if (null != classCache) {
+      cacheKey = CompiledClassCache.getKey(jarOutDir, sources);
+      if (classCache.fetch(cacheKey, new File(getJarFilename()))) {
+        LOG.info("Generated code is unchanged; using cached jar "
+            + cacheKey);
+        jarFromCache = true;
+        moveSourcesToCodeOutputDir(jarOutDir);
+        return;
+      }
+    }
+
     // find hadoop-*-core.jar for classpath.
     String coreJar = findHadoopJars();
     if (null == coreJar) {
@@ -226,6 +257,14 @@ public void compile() throws IOException {
       throw new IOException("Error returned by javac");
     }
 
+    moveSourcesToCodeOutputDir(jarOutDir);
+  }
+
+  /**
+   * Move the source files from the jar output dir, where they were
+   * generated, to the user-visible code output dir.
+   */
+  private void moveSourcesToCodeOutputDir(String jarOutDir) {
     // Where we should move source files after compilation.
     String srcOutDir = new File(options.getCodeOutputDir()).getAbsolutePath();
     if (!srcOutDir.endsWith(File.separator)) {
@@ -360,6 +399,11 @@ public void jar() throws IOException {
 
     String jarFilename = getJarFilename();
 
+    if (jarFromCache) {
+      LOG.info("Using jar file from cache: " + jarFilename);
+      return;
+    }
+
     LOG.info("Writing jar file: " + jarFilename);
 
     File jarFileObj = new File(jarFilename);
@@ -397,6 +441,10 @@ public void jar() throws IOException {
     }
 
     LOG.debug("Finished writing jar file " + jarFilename);
+
+    if (null != classCache) {
+      classCache.store(cacheKey, jarFileObj);
+    }
   }
 
   private static final int BUFFER_SZ = 4096;
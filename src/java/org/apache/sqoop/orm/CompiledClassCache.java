@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.orm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.StringUtils;
+
+import org.apache.sqoop.SqoopOptions;
+import org.apache.sqoop.SqoopVersion;
+
+/**
+ * A persistent cache of the jars built by CompilationManager, so that a
+ * table whose schema has not changed since the last run does not need to
+ * be compiled again.
+ *
+ * Entries are keyed by a digest of the generated source files. ClassWriter
+ * writes every column name, SQL type and delimiter into the source, so the
+ * key changes whenever any of these do. The generation timestamp in the
+ * header comment is left out of the digest. The key also covers
+ * CLASS_WRITER_VERSION, the Sqoop build and the Java specification version.
+ *
+ * The cache directory may be on any Hadoop filesystem, local or HDFS.
+ * Entries are published with a rename, so several clients may share one
+ * directory. The cache is best-effort: errors reading or writing it are
+ * logged and the caller compiles as usual.
+ */
+public class CompiledClassCache {
+
+  public static final Log LOG = LogFactory.getLog(
+      CompiledClassCache.class.getName());
+
+  /** Directory holding cached jars; the cache is disabled if unset. */
+  public static final String CACHE_DIR_KEY = "sqoop.codegen.cache.dir";
+
+  private static final String JAR_EXTENSION = ".jar";
+
+  /** Matches the timestamp line ClassWriter puts in each header. */
+  private static final Pattern GENERATED_DATE_LINE = Pattern.compile(
+      "^" + Pattern.quote(ClassWriter.GENERATED_DATE_PREFIX) + ".*$\\n?",
+      Pattern.MULTILINE);
+
+  private final FileSystem fs;
+  private final Path cacheDir;
+
+  public CompiledClassCache(Configuration conf, Path cacheDir)
+      throws IOException {
+    this.fs = cacheDir.getFileSystem(conf);
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * @return the cache configured for these options, or null if the cache
+   * is not enabled.
+   */
+  public static CompiledClassCache get(SqoopOptions options)
+      throws IOException {
+    Configuration conf = options.getConf();
+    if (null == conf) {
+      return null;
+    }
+    String dir = conf.getTrimmed(CACHE_DIR_KEY);
+    if (null == dir || dir.isEmpty()) {
+      return null;
+    }
+    return new CompiledClassCache(conf, new Path(dir));
+  }
+
+  /**
+   * Compute the cache key for a set of generated source files.
+   * @param srcDir the directory the source file names are relative to.
+   * @param sources the source file names, as passed to
+   * CompilationManager.addSourceFile().
+   * @return the key, as a hex string.
+   */
+  public static String getKey(String srcDir, List<String> sources)
+      throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IOException(nsae);
+    }
+
+    update(digest, Integer.toString(ClassWriter.CLASS_WRITER_VERSION));
+    update(digest, SqoopVersion.VERSION);
+    update(digest, SqoopVersion.GIT_HASH);
+    update(digest, System.getProperty("java.specification.version"));
+
+    List<String> sorted = new ArrayList<String>(sources);
+    Collections.sort(sorted);
+    for (String source : sorted) {
+      update(digest, source);
+      String text = new String(
+          Files.readAllBytes(new File(srcDir, source).toPath()),
+          StandardCharsets.UTF_8);
+      update(digest, GENERATED_DATE_LINE.matcher(text).replaceFirst(""));
+    }
+
+    return StringUtils.byteToHexString(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, String s) {
+    update(digest, String.valueOf(s).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Add a length-prefixed byte array, so adjacent fields cannot blur. */
+  private static void update(MessageDigest digest, byte [] bytes) {
+    int len = bytes.length;
+    digest.update(new byte[] {
+      (byte) (len >>> 24), (byte) (len >>> 16), (byte) (len >>> 8),
+      (byte) len,
+    });
+    digest.update(bytes);
+  }
+
+  private Path getEntryPath(String key) {
+    return new Path(cacheDir, key + JAR_EXTENSION);
+  }
+
+  /**
+   * Copy the cached jar for 'key' to the local file 'dest'.
+   * @return true if the jar was found and copied.
+   */
+  public boolean fetch(String key, File dest) {
+    Path entry = getEntryPath(key);
+    try {
+      if (!fs.exists(entry)) {
+        LOG.debug("No cached jar at " + entry);
+        return false;
+      }
+      fs.copyToLocalFile(false, entry, new Path(dest.getAbsolutePath()),
+          true);
+      LOG.debug("Copied cached jar " + entry + " to " + dest);
+      return true;
+    } catch (IOException ioe) {
+      LOG.warn("Could not read cached jar " + entry + ": " + ioe);
+      if (dest.exists() && !dest.delete()) {
+        LOG.warn("Could not remove partial copy " + dest);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Add the local jar file 'jar' to the cache under 'key'. If another
+   * client has already stored an entry for the key, that one is kept.
+   */
+  public void store(String key, File jar) {
+    Path entry = getEntryPath(key);
+    Path tmp = new Path(cacheDir, "_" + key + "." + UUID.randomUUID());
+    try {
+      fs.mkdirs(cacheDir);
+      fs.copyFromLocalFile(false, true, new Path(jar.getAbsolutePath()), tmp);
+      if (fs.rename(tmp, entry)) {
+        LOG.debug("Cached jar " + jar + " as " + entry);
+      } else {
+        LOG.debug("Jar for " + key + " is already cached");
+        fs.delete(tmp, false);
+      }
+    } catch (IOException ioe) {
+      LOG.warn("Could not cache jar " + jar + " at " + entry + ": " + ioe);
+      try {
+        fs.delete(tmp, false);
+      } catch (IOException e) {
+        LOG.debug("Could not remove " + tmp + ": " + e);
+      }
+    }
+  }
+}
@@ -18,10 +18,23 @@
 
 package org.apache.sqoop.tool;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.OptionBuilder;
@@ -56,6 +69,10 @@ protected RelatedOptions getImportOptions() {
         .hasArg().withDescription("Tables to exclude when importing all tables")
         .withLongOpt(ALL_TABLE_EXCLUDES_ARG)
         .create());
+    importOpts.addOption(OptionBuilder.withArgName("n")
+        .hasArg().withDescription("Import 'n' tables at once, largest first")
+        .withLongOpt(ALL_TABLES_PARALLELISM_ARG)
+        .create());
 
     return importOpts;
   }
@@ -69,6 +86,21 @@ public void applyOptions(CommandLine in, SqoopOptions out)
     if (in.hasOption(ALL_TABLE_EXCLUDES_ARG)) {
       out.setAllTablesExclude(in.getOptionValue(ALL_TABLE_EXCLUDES_ARG));
     }
+
+    if (in.hasOption(ALL_TABLES_PARALLELISM_ARG)) {
+      int parallelism;
+      try {
+        parallelism = Integer.parseInt(
+            in.getOptionValue(ALL_TABLES_PARALLELISM_ARG));
+      } catch (NumberFormatException nfe) {
+        parallelism = 0;
+      }
+      if (parallelism < 1) {
+        throw new InvalidOptionsException("--" + ALL_TABLES_PARALLELISM_ARG
+            + " requires a positive number of tables." + HELP_STR);
+      }
+      out.setAllTablesParallelism(parallelism);
+    }
   }
 
   @Override
@@ -92,15 +124,25 @@ public int run(SqoopOptions options) {
         LOG.error("manager.listTables() returned null");
         return 1;
       } else {
+        List<String> tablesToImport = new ArrayList<String>();
         for (String tableName : tables) {
           if (excludes.contains(tableName)) {
             System.out.println("Skipping table: " + tableName);
           } else {
-            SqoopOptions clonedOptions = (SqoopOptions) options.clone();
-            clonedOptions.setTableName(tableName);
-            importTable(clonedOptions);
+            tablesToImport.add(tableName);
           }
         }
+
+        if (options.getAllTablesParallelism() > 1
+            && tablesToImport.size() > 1) {
+          return importTablesInParallel(options, tablesToImport);
+        }
+
+        for (String tableName : tablesToImport) {
+          SqoopOptions clonedOptions = (SqoopOptions) options.clone();
+          clonedOptions.setTableName(tableName);
+          importTable(clonedOptions);
+        }
       }
     } catch (IOException ioe) {
       LOG.error("Encountered IOException running import job: "
@@ -118,5 +160,127 @@ public int run(SqoopOptions options) {
     return 0;
   }
 
+  /**
+   * Import the tables using getAllTablesParallelism() threads, starting
+   * with the largest tables so that the longest imports are not left until
+   * last. Each thread imports with its own connection manager. Once an
+   * import fails, no further imports are started.
+   * @return the exit status of the tool.
+   */
+  private int importTablesInParallel(final SqoopOptions options,
+      List<String> tables) {
+    sortLargestFirst(tables);
+
+    int numThreads = Math.min(options.getAllTablesParallelism(),
+        tables.size());
+    LOG.info("Importing " + tables.size() + " tables, " + numThreads
+        + " at a time");
+
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    List<Future<Void>> imports = new ArrayList<Future<Void>>();
+    try {
+      for (final String tableName : tables) {
+        final int tableNum = imports.size();
+        imports.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            if (failed.get()) {
+              LOG.info("Not importing table " + tableName
+                  + " after an earlier failure");
+              return null;
+            }
+            try {
+              importTableWithOwnManager(options, tableName, tableNum);
+              return null;
+            } catch (Exception e) {
+              failed.set(true);
+              throw e;
+            }
+          }
+        }));
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    Exception firstError = null;
+    for (int i = 0; i < imports.size(); i++) {
+      String tableName = tables.get(i);
+      try {
+        imports.get(i).get();
+      } catch (ExecutionException ee) {
+        Exception cause = ee.getCause() instanceof Exception
+            ? (Exception) ee.getCause() : ee;
+        LOG.error("Import of table " + tableName + " failed: "
+            + cause.toString());
+        if (null == firstError) {
+          firstError = cause;
+        }
+      } catch (InterruptedException ie) {
+        executor.shutdownNow();
+        Thread.currentThread().interrupt();
+        LOG.error("Interrupted while importing table " + tableName);
+        if (null == firstError) {
+          firstError = ie;
+        }
+        break;
+      }
+    }
+
+    if (null != firstError) {
+      rethrowIfRequired(options, firstError);
+      return 1;
+    }
+    return 0;
+  }
+
+  /**
+   * Import a single table using a connection manager of its own, as the
+   * tool's manager and code generator must not be shared between threads.
+   * The table is also compiled in a directory of its own, because the jar
+   * is built from every class file in the compile directory.
+   * @param tableNum the position of the table in the import order, which
+   * keeps the compile directories of similarly named tables apart.
+   */
+  private void importTableWithOwnManager(SqoopOptions options,
+      String tableName, int tableNum) throws IOException, ImportException {
+    SqoopOptions clonedOptions = (SqoopOptions) options.clone();
+    clonedOptions.setTableName(tableName);
+    clonedOptions.setJarOutputDir(new File(options.getJarOutputDir(),
+        tableName.replaceAll("[^A-Za-z0-9_]", "_") + "-" + tableNum)
+        .getPath());
+
+    ImportAllTablesTool tableImporter = new ImportAllTablesTool();
+    if (!tableImporter.init(clonedOptions)) {
+      throw new ImportException("Could not create a connection manager "
+          + "for table " + tableName);
+    }
+    try {
+      tableImporter.importTable(clonedOptions);
+    } finally {
+      tableImporter.destroy(clonedOptions);
+    }
+  }
+
+  /**
+   * Sort the tables by their estimated number of rows, largest first.
+   * Tables without an estimate go last, in their original order.
+   */
+  private void sortLargestFirst(List<String> tables) {
+    final Map<String, Long> estimates = new HashMap<String, Long>();
+    for (String tableName : tables) {
+      estimates.put(tableName, manager.getTableRowCountEstimate(tableName));
+    }
+
+    Collections.sort(tables, new Comparator<String>() {
+      @Override
+      public int compare(String a, String b) {
+        return Long.compare(estimates.get(b), estimates.get(a));
+      }
+    });
+    LOG.debug("Estimated table sizes: " + estimates);
+  }
+
 }
 
@@ -56,6 +56,19 @@ private MainframeFTPClientUtils() {
 
   public static List<String> listSequentialDatasets(String pdsName, Configuration conf) throws IOException {
     List<String> datasets = new ArrayList<String>();
+    for (FTPFile f : listSequentialDatasetFiles(pdsName, conf)) {
+      datasets.add(f.getName());
+    }
+    return datasets;
+  }
+
+  /**
+   * List the sequential datasets to import, as returned by the FTP listing.
+   * Where the listing includes space usage, the size of each entry is an
+   * estimate of its size in bytes; otherwise it is negative.
+   */
+  public static List<FTPFile> listSequentialDatasetFiles(String pdsName, Configuration conf) throws IOException {
+    List<FTPFile> datasets = new ArrayList<FTPFile>();
     String dsName = pdsName;
     String fileName = "";
     MainframeDatasetPath p = null;
@@ -127,7 +140,7 @@ public static List<String> listSequentialDatasets(String pdsName, Configuration
 					// only add datasets if default behaviour of partitioned data sets
 					// or if it is a sequential data set, only add if the file name matches exactly
 					if (!isSequentialDs || isSequentialDs && f.getName().equals(fileName) && !fileName.equals("")) {
-						datasets.add(f.getName());
+						datasets.add(f);
 					}
 				}
 			}
@@ -138,7 +151,7 @@ public static List<String> listSequentialDatasets(String pdsName, Configuration
 			}
 			if (ftpFiles.length > 0 && ftpFiles[ftpFiles.length-1].getType() == FTPFile.FILE_TYPE) {
 				// for GDG - add the last file in the collection
-				datasets.add(ftpFiles[ftpFiles.length-1].getName());
+				datasets.add(ftpFiles[ftpFiles.length-1]);
 			}
 		}
       }
@@ -0,0 +1,372 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+/**
+ * Measures where a map task spends its time, for each phase of moving a
+ * record between the database and HDFS.
+ *
+ * Each phase keeps a count, a total time and a latency histogram with
+ * power-of-two buckets, so that occasional slow operations (e.g. a JDBC
+ * fetch which goes to the server) stand out from the common fast ones.
+ * publishCounters() adds the counts and total times to the task's
+ * counters, in the COUNTER_GROUP group; the histograms are summarized in
+ * toString() and, if JMX_ENABLED_KEY is set, exposed through the platform
+ * MBean server.
+ *
+ * Like LobReaderCache, this is a singleton: the phases are spread across
+ * the mapper, its RecordReader and RecordWriter, and the export executor
+ * threads, which do not share any other state. Recording is thread-safe.
+ */
+public final class PhaseMetrics implements PhaseMetricsMXBean {
+
+  public static final Log LOG = LogFactory.getLog(
+      PhaseMetrics.class.getName());
+
+  /**
+   * If true, the phases are timed. Timing reads the clock twice per record
+   * and phase, so it is off unless asked for.
+   */
+  public static final String ENABLED_KEY = "sqoop.metrics.phases.enabled";
+  public static final boolean DEFAULT_ENABLED = false;
+
+  /** If true, register the metrics with the platform MBean server. */
+  public static final String JMX_ENABLED_KEY = "sqoop.metrics.jmx.enabled";
+  public static final boolean DEFAULT_JMX_ENABLED = false;
+
+  /** The name the metrics are registered under in JMX. */
+  public static final String JMX_NAME = "org.apache.sqoop:type=PhaseMetrics";
+
+  /** The counter group the phases are published to. */
+  public static final String COUNTER_GROUP = "Sqoop Task Phases";
+
+  /** The counter holding the number of rows sent in export batches. */
+  public static final String BATCH_ROWS_COUNTER = "BATCH_ROWS";
+
+  /** The phases of a task which are timed. */
+  public enum Phase {
+    /** Reading the next input record, as seen by the mapper. */
+    READ,
+    /** Running the import query, until its first rows are available. */
+    QUERY,
+    /** Fetching a row from a JDBC ResultSet into a record. */
+    FETCH,
+    /** Parsing a record from delimited text. */
+    PARSE,
+    /** Reading a large object and storing it inline or in a LobFile. */
+    LOB_LOAD,
+    /** Writing an imported record to its output file. */
+    OUTPUT_WRITE,
+    /** Waiting for an export executor thread to accept a batch. */
+    BATCH_WAIT,
+    /** Executing an export statement or batch. */
+    BATCH_EXECUTE,
+    /** Committing an export transaction. */
+    COMMIT,
+  }
+
+  // Buckets of the latency histograms; bucket i holds latencies of less
+  // than 2^i nanoseconds, and at least half that.
+  private static final int NUM_BUCKETS = 40;
+
+  private static final PhaseMetrics METRICS = new PhaseMetrics();
+
+  private volatile boolean enabled;
+  private boolean jmxRegistered;
+
+  private final Histogram [] histograms;
+  private final AtomicLong batchRows;
+
+  // Counter values already published to a task: the count and total
+  // time of each phase, then the batch rows.
+  private final long [] published;
+
+  private PhaseMetrics() {
+    this.enabled = DEFAULT_ENABLED;
+    this.histograms = new Histogram[Phase.values().length];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new Histogram();
+    }
+    this.batchRows = new AtomicLong();
+    this.published = new long[histograms.length * 2 + 1];
+  }
+
+  /**
+   * @return the singleton PhaseMetrics instance.
+   */
+  public static PhaseMetrics getMetrics() {
+    return METRICS;
+  }
+
+  /**
+   * Enable or disable timing and JMX registration as set in 'conf'.
+   */
+  public synchronized void configure(Configuration conf) {
+    this.enabled = conf.getBoolean(ENABLED_KEY, DEFAULT_ENABLED);
+    if (enabled && !jmxRegistered
+        && conf.getBoolean(JMX_ENABLED_KEY, DEFAULT_JMX_ENABLED)) {
+      registerMBean();
+    }
+  }
+
+  private void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(JMX_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+      }
+      jmxRegistered = true;
+    } catch (JMException jme) {
+      LOG.warn("Could not register phase metrics with JMX: " + jme);
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the time at which a phase starts, to be passed to end(); or 0
+   * if timing is disabled.
+   */
+  public long start() {
+    return enabled ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * Record one occurrence of 'phase', which started at 'startTime' as
+   * returned by start().
+   */
+  public void end(Phase phase, long startTime) {
+    if (0L != startTime) {
+      record(phase, System.nanoTime() - startTime);
+    }
+  }
+
+  /** Record one occurrence of 'phase', which took 'nanos' nanoseconds. */
+  public void record(Phase phase, long nanos) {
+    if (enabled) {
+      histograms[phase.ordinal()].add(nanos);
+    }
+  }
+
+  /** Record the number of rows in an export statement or batch. */
+  public void addBatchRows(int rows) {
+    if (enabled) {
+      batchRows.addAndGet(rows);
+    }
+  }
+
+  public long getCount(Phase phase) {
+    return histograms[phase.ordinal()].count.get();
+  }
+
+  public long getTotalNanos(Phase phase) {
+    return histograms[phase.ordinal()].totalNanos.get();
+  }
+
+  /**
+   * @return an upper bound of the 'percentile'th percentile of the
+   * latencies of 'phase', in nanoseconds, or 0 if none were recorded.
+   */
+  public long getPercentileNanos(Phase phase, double percentile) {
+    return histograms[phase.ordinal()].percentile(percentile);
+  }
+
+  public long getMaxNanos(Phase phase) {
+    return histograms[phase.ordinal()].maxNanos.get();
+  }
+
+  @Override
+  public long getBatchRows() {
+    return batchRows.get();
+  }
+
+  @Override
+  public Map<String, PhaseSnapshot> getPhases() {
+    Map<String, PhaseSnapshot> phases =
+        new LinkedHashMap<String, PhaseSnapshot>();
+    for (Phase phase : Phase.values()) {
+      phases.put(phase.name(), new PhaseSnapshot(getCount(phase),
+          toMicros(getTotalNanos(phase)),
+          toMicros(getPercentileNanos(phase, 50)),
+          toMicros(getPercentileNanos(phase, 99)),
+          toMicros(getMaxNanos(phase))));
+    }
+    return phases;
+  }
+
+  /**
+   * Add the phase counts, total phase times and batch rows recorded since
+   * the last call to the counters of 'context'.
+   */
+  public void publishCounters(TaskAttemptContext context) {
+    for (Phase phase : Phase.values()) {
+      int i = phase.ordinal();
+      publish(context, 2 * i, phase.name() + "_COUNT", getCount(phase));
+      // Publish whole milliseconds, carrying the remainder to the next call.
+      publish(context, 2 * i + 1, phase.name() + "_MILLIS",
+          TimeUnit.NANOSECONDS.toMillis(getTotalNanos(phase)));
+    }
+    publish(context, published.length - 1, BATCH_ROWS_COUNTER,
+        batchRows.get());
+  }
+
+  private void publish(TaskAttemptContext context, int slot, String name,
+      long value) {
+    long delta;
+    synchronized (published) {
+      delta = value - published[slot];
+      published[slot] = value;
+    }
+    if (delta > 0) {
+      Counter counter = context.getCounter(COUNTER_GROUP, name);
+      // Not every TaskAttemptContext implementation keeps counters.
+      if (null != counter) {
+        counter.increment(delta);
+      }
+    }
+  }
+
+  /**
+   * Clear all the metrics. Counters already published are not affected.
+   */
+  public void reset() {
+    for (Histogram h : histograms) {
+      h.reset();
+    }
+    batchRows.set(0);
+    synchronized (published) {
+      for (int i = 0; i < published.length; i++) {
+        published[i] = 0;
+      }
+    }
+  }
+
+  private static long toMicros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+
+  /**
+   * @return a summary of the phases which occurred, with their total
+   * time, median, 99th percentile and maximum latency.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (Phase phase : Phase.values()) {
+      long count = getCount(phase);
+      if (0 == count) {
+        continue;
+      }
+      if (sb.length() > 0) {
+        sb.append("; ");
+      }
+      sb.append(phase.name()).append(": ").append(count).append(" in ")
+          .append(TimeUnit.NANOSECONDS.toMillis(getTotalNanos(phase)))
+          .append(" ms (p50 < ")
+          .append(toMicros(getPercentileNanos(phase, 50)))
+          .append(" us, p99 < ")
+          .append(toMicros(getPercentileNanos(phase, 99)))
+          .append(" us, max ").append(toMicros(getMaxNanos(phase)))
+          .append(" us)");
+    }
+    long rows = batchRows.get();
+    long batches = getCount(Phase.BATCH_EXECUTE);
+    if (batches > 0) {
+      sb.append("; ").append(rows / batches).append(" rows per batch");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Latencies of a single phase.
+   */
+  private static final class Histogram {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    void add(long nanos) {
+      if (nanos < 0) {
+        nanos = 0;
+      }
+      count.incrementAndGet();
+      totalNanos.addAndGet(nanos);
+      int bucket = Math.min(64 - Long.numberOfLeadingZeros(nanos),
+          NUM_BUCKETS - 1);
+      buckets.incrementAndGet(bucket);
+
+      long max = maxNanos.get();
+      while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+        max = maxNanos.get();
+      }
+    }
+
+    long percentile(double percentile) {
+      long total = 0;
+      long [] snapshot = new long[NUM_BUCKETS];
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        snapshot[i] = buckets.get(i);
+        total += snapshot[i];
+      }
+      if (0 == total) {
+        return 0;
+      }
+
+      long rank = (long) Math.ceil(total * percentile / 100.0);
+      long seen = 0;
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        seen += snapshot[i];
+        if (seen >= rank) {
+          return Math.min(1L << i, maxNanos.get());
+        }
+      }
+      return maxNanos.get();
+    }
+
+    void reset() {
+      count.set(0);
+      totalNanos.set(0);
+      maxNanos.set(0);
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        buckets.set(i, 0);
+      }
+    }
+  }
+}
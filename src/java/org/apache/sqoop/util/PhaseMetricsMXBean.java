@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.util;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+
+/**
+ * The view of PhaseMetrics which is exposed through JMX.
+ */
+public interface PhaseMetricsMXBean {
+
+  /** @return the metrics of each phase, by phase name. */
+  Map<String, PhaseSnapshot> getPhases();
+
+  /** @return the number of rows sent in export statements or batches. */
+  long getBatchRows();
+
+  /**
+   * The metrics of one phase at some point in time. Latencies are upper
+   * bounds, rounded up to a power of two nanoseconds.
+   */
+  class PhaseSnapshot {
+    private final long count;
+    private final long totalMicros;
+    private final long medianMicros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    @ConstructorProperties({"count", "totalMicros", "medianMicros",
+        "p99Micros", "maxMicros"})
+    public PhaseSnapshot(long count, long totalMicros, long medianMicros,
+        long p99Micros, long maxMicros) {
+      this.count = count;
+      this.totalMicros = totalMicros;
+      this.medianMicros = medianMicros;
+      this.p99Micros = p99Micros;
+      this.maxMicros = maxMicros;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalMicros() {
+      return totalMicros;
+    }
+
+    public long getMedianMicros() {
+      return medianMicros;
+    }
+
+    public long getP99Micros() {
+      return p99Micros;
+    }
+
+    public long getMaxMicros() {
+      return maxMicros;
+    }
+  }
+}
@@ -49,17 +49,23 @@ public boolean validate(ValidationContext validationContext,
       + validationContext.getSourceRowCount() + "] with Target["
       + validationContext.getTargetRowCount() + "]");
 
-    if (validationThreshold.compare(validationContext.getSourceRowCount(),
+    if (!validationThreshold.compare(validationContext.getSourceRowCount(),
       validationContext.getTargetRowCount())) {
+      validationContext.setMessage(this.getClass().getSimpleName());
+      validationContext.setReason("The expected counter value was "
+        + validationContext.getSourceRowCount() + " but the actual value was "
+        + validationContext.getTargetRowCount());
+    } else if (validationContext.getMismatchedSplitCount() > 0) {
+      validationContext.setMessage(this.getClass().getSimpleName());
+      validationContext.setReason("The rows read from "
+        + validationContext.getMismatchedSplitCount() + " splits did not match"
+        + " their source rows within the threshold; the task logs name the"
+        + " splits");
+    } else {
       LOG.info("Data successfully validated");
       return true;
     }
 
-    validationContext.setMessage(this.getClass().getSimpleName());
-    validationContext.setReason("The expected counter value was "
-      + validationContext.getSourceRowCount() + " but the actual value was "
-      + validationContext.getTargetRowCount());
-
     return validationFailureHandler.handle(validationContext);
   }
 }
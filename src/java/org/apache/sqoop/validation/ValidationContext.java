@@ -27,6 +27,9 @@ public class ValidationContext {
   private final long sourceRowCount;
   private final long targetRowCount;
 
+  // The number of splits whose rows did not match their source rows.
+  private long mismatchedSplitCount;
+
   private String message;
   private String reason;
 
@@ -58,4 +61,12 @@ public long getSourceRowCount() {
   public long getTargetRowCount() {
     return targetRowCount;
   }
+
+  public long getMismatchedSplitCount() {
+    return mismatchedSplitCount;
+  }
+
+  public void setMismatchedSplitCount(long count) {
+    this.mismatchedSplitCount = count;
+  }
 }
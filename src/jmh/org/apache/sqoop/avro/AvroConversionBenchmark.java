@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.avro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.orm.BenchmarkRecords;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of a generated record into an Avro record, as done for each
+ * row of an Avro or Parquet import.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AvroConversionBenchmark {
+
+  private SqoopRecord record;
+  private Schema schema;
+  private AvroRecordConverter converter;
+
+  @Setup
+  public void setup() throws Exception {
+    record = BenchmarkRecords.newRecord(false);
+    schema = BenchmarkRecords.getAvroSchema();
+    converter = new AvroRecordConverter(schema, false, false);
+  }
+
+  /** The field map path, which builds a map and a record per row. */
+  @Benchmark
+  public GenericRecord fieldMap() {
+    return AvroUtil.toGenericRecord(record.getFieldMap(), schema, false);
+  }
+
+  @Benchmark
+  public GenericRecord converter() {
+    return converter.toGenericRecord(record);
+  }
+}
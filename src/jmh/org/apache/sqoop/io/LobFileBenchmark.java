@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing and reading large objects through a LobFile on the local
+ * filesystem.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LobFileBenchmark {
+
+  private static final int RECORD_COUNT = 256;
+
+  /** Size in bytes of each large object. */
+  @Param({"1024", "65536", "1048576"})
+  public int recordSize;
+
+  private Configuration conf;
+  private File dir;
+  private Path readPath;
+  private long [] offsets;
+  private byte [] data;
+  private byte [] readBuf;
+  private Random random;
+  private int writeCount;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    dir = Files.createTempDirectory("sqoop-jmh-lob-").toFile();
+    data = new byte[recordSize];
+    new Random(42).nextBytes(data);
+    readBuf = new byte[64 * 1024];
+    random = new Random(42);
+
+    readPath = new Path(dir.toString(), "read.lob");
+    offsets = new long[RECORD_COUNT];
+    LobFile.Writer w = LobFile.create(readPath, conf);
+    try {
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        offsets[i] = w.tell();
+        writeRecord(w);
+      }
+    } finally {
+      w.close();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    FileUtil.fullyDelete(dir);
+  }
+
+  private void writeRecord(LobFile.Writer w) throws IOException {
+    OutputStream os = w.writeBlobRecord(data.length);
+    os.write(data);
+    os.close();
+    w.finishRecord();
+  }
+
+  private long drain(LobFile.Reader r) throws IOException {
+    long total = 0;
+    InputStream is = r.readBlobRecord();
+    int n;
+    while ((n = is.read(readBuf)) > 0) {
+      total += n;
+    }
+    is.close();
+    return total;
+  }
+
+  /** Write a file of RECORD_COUNT objects. */
+  @Benchmark
+  public long write() throws IOException {
+    Path p = new Path(dir.toString(), "write-" + (writeCount++ % 2) + ".lob");
+    LobFile.Writer w = LobFile.create(p, conf);
+    try {
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        writeRecord(w);
+      }
+      return w.tell();
+    } finally {
+      w.close();
+    }
+  }
+
+  /** Read every object of a file in order. */
+  @Benchmark
+  public long readSequential() throws IOException {
+    long total = 0;
+    LobFile.Reader r = LobFile.open(readPath, conf);
+    try {
+      while (r.next()) {
+        total += drain(r);
+      }
+    } finally {
+      r.close();
+    }
+    return total;
+  }
+
+  /**
+   * Open a file and read one object at a random offset, as a BlobRef
+   * does when a large object is dereferenced.
+   */
+  @Benchmark
+  public long readRandom() throws IOException {
+    LobFile.Reader r = LobFile.open(readPath, conf);
+    try {
+      r.seek(offsets[random.nextInt(RECORD_COUNT)]);
+      if (!r.next()) {
+        throw new IOException("No record at offset");
+      }
+      return drain(r);
+    } finally {
+      r.close();
+    }
+  }
+}
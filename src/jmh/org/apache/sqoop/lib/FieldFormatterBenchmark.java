@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.lib;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Escaping and enclosing of a single field, which text imports do for
+ * every string column.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldFormatterBenchmark {
+
+  /** Whether the field holds characters which must be escaped. */
+  @Param({"false", "true"})
+  public boolean needsEscape;
+
+  private DelimiterSet delimiters;
+  private String field;
+  private StringBuilder sb;
+
+  @Setup
+  public void setup() {
+    delimiters = DelimiterSet.MYSQL_DELIMITERS;
+    field = needsEscape
+        ? "O'Brien, Pat \\ Sons, 42 Main St, Springfield"
+        : "Pat and Sons Hardware 42 Main St Springfield";
+    sb = new StringBuilder();
+  }
+
+  @Benchmark
+  public String escapeAndEnclose() {
+    return FieldFormatter.escapeAndEnclose(field, delimiters);
+  }
+
+  @Benchmark
+  public int appendEscapedAndEnclosed() throws IOException {
+    sb.setLength(0);
+    FieldFormatter.appendEscapedAndEnclosed(sb, field, delimiters);
+    return sb.length();
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.lib;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Delimited-text parsing, as done by export mappers and by parse() in
+ * generated record classes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordParserBenchmark {
+
+  /** Whether fields are enclosed and contain escaped characters. */
+  @Param({"false", "true"})
+  public boolean enclosed;
+
+  private RecordParser parser;
+  private String line;
+  private Text text;
+
+  @Setup
+  public void setup() {
+    DelimiterSet delimiters = enclosed
+        ? DelimiterSet.MYSQL_DELIMITERS : DelimiterSet.DEFAULT_DELIMITERS;
+    parser = new RecordParser(delimiters);
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 12; i++) {
+      if (i > 0) {
+        sb.append(delimiters.getFieldsTerminatedBy());
+      }
+      String field = (i % 3 == 0) ? Integer.toString(i * 7919)
+          : "field value " + i;
+      if (enclosed) {
+        sb.append(FieldFormatter.escapeAndEnclose(field + ", it's",
+            delimiters));
+      } else {
+        sb.append(field);
+      }
+    }
+    line = sb.toString();
+    text = new Text(line);
+  }
+
+  @Benchmark
+  public List<String> parseString() throws RecordParser.ParseError {
+    return parser.parseRecord(line);
+  }
+
+  @Benchmark
+  public List<String> parseText() throws RecordParser.ParseError {
+    return parser.parseRecord(text);
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sqoop.validation.ValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Computation of split points from the bounds of the split column. The
+ * queries which find those bounds are not part of the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplitterBenchmark {
+
+  @Param({"4", "64", "1024"})
+  public int numSplits;
+
+  private IntegerSplitter integerSplitter;
+  private TextSplitter textSplitter;
+  private List<Long> sample;
+
+  @Setup
+  public void setup() {
+    integerSplitter = new IntegerSplitter();
+    textSplitter = new TextSplitter();
+
+    // A skewed sample, like the one HistogramSplitter draws.
+    Random random = new Random(42);
+    sample = new ArrayList<Long>();
+    for (int i = 0; i < HistogramSplitter.DEFAULT_SAMPLE_SIZE; i++) {
+      double g = Math.abs(random.nextGaussian());
+      sample.add((long) (g * g * 1000000L));
+    }
+    Collections.sort(sample);
+  }
+
+  @Benchmark
+  public List<Long> integer() throws SQLException {
+    return integerSplitter.split(numSplits, -1L, 0L, 1000000000000L);
+  }
+
+  @Benchmark
+  public List<String> text() throws SQLException, ValidationException {
+    return textSplitter.split(numSplits, "AAAAAAAA", "zzzzzzzz", "");
+  }
+
+  @Benchmark
+  public List<Long> histogram() {
+    return HistogramSplitter.quantiles(sample, numSplits);
+  }
+}
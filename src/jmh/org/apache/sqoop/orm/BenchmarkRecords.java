@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.orm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.avro.Schema;
+import org.apache.sqoop.SqoopOptions;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.manager.ConnManager;
+import org.apache.sqoop.testutil.HsqldbTestServer;
+import org.apache.sqoop.util.ClassLoaderStack;
+
+/**
+ * Generates the record classes used by the benchmarks.
+ *
+ * The classes are generated by ClassWriter from a table in an in-memory
+ * HSQLDB database, so that the benchmarks measure the same code that
+ * import and export jobs run. Each class is generated once per JVM.
+ */
+public final class BenchmarkRecords {
+
+  public static final String TABLE_NAME = "BENCH_ROWS";
+
+  /** A delimited row of TABLE_NAME, as written by a text import. */
+  public static final String SAMPLE_LINE = "1234567890123,42,1234.5678,0.25,"
+      + "widget,a longer free text note about this row,"
+      + "2018-05-01 12:34:56.0";
+
+  private static Class<? extends SqoopRecord> boxedClass;
+  private static Class<? extends SqoopRecord> primitiveClass;
+  private static Schema avroSchema;
+
+  private BenchmarkRecords() {
+  }
+
+  /**
+   * @param primitiveFields whether to generate the class with
+   * codegen.primitive.fields.
+   * @return a new record of the generated class, holding SAMPLE_LINE.
+   */
+  public static SqoopRecord newRecord(boolean primitiveFields)
+      throws Exception {
+    SqoopRecord record = getRecordClass(primitiveFields).newInstance();
+    record.parse(SAMPLE_LINE);
+    return record;
+  }
+
+  public static synchronized Class<? extends SqoopRecord> getRecordClass(
+      boolean primitiveFields) throws IOException, SQLException {
+    if (primitiveFields) {
+      if (null == primitiveClass) {
+        primitiveClass = generate("BenchRecordPrimitive", true);
+      }
+      return primitiveClass;
+    }
+    if (null == boxedClass) {
+      boxedClass = generate("BenchRecord", false);
+    }
+    return boxedClass;
+  }
+
+  /** @return the Avro schema an Avro import of TABLE_NAME would use. */
+  public static synchronized Schema getAvroSchema()
+      throws IOException, SQLException {
+    if (null == avroSchema) {
+      SqoopOptions options = createTable();
+      ConnManager manager = new HsqldbTestServer().getManager();
+      try {
+        avroSchema = new AvroSchemaGenerator(options, manager, TABLE_NAME)
+            .generate();
+      } finally {
+        manager.close();
+      }
+    }
+    return avroSchema;
+  }
+
+  private static SqoopOptions createTable() throws SQLException {
+    HsqldbTestServer server = new HsqldbTestServer();
+    server.start();
+    Connection conn = server.getConnection();
+    try {
+      Statement st = conn.createStatement();
+      try {
+        st.executeUpdate("DROP TABLE \"" + TABLE_NAME + "\" IF EXISTS");
+        st.executeUpdate("CREATE TABLE \"" + TABLE_NAME + "\" ("
+            + "ID BIGINT, QTY INT, PRICE DECIMAL(18,4), RATE DOUBLE, "
+            + "NAME VARCHAR(64), NOTE VARCHAR(256), CREATED TIMESTAMP)");
+        conn.commit();
+      } finally {
+        st.close();
+      }
+    } finally {
+      conn.close();
+    }
+    return new SqoopOptions(HsqldbTestServer.getUrl(), TABLE_NAME);
+  }
+
+  private static Class<? extends SqoopRecord> generate(String className,
+      boolean primitiveFields) throws IOException, SQLException {
+    SqoopOptions options = createTable();
+    File dir = Files.createTempDirectory("sqoop-jmh-").toFile();
+    options.setCodeOutputDir(new File(dir, "src").toString());
+    options.setJarOutputDir(new File(dir, "classes").toString());
+    options.setClassName(className);
+    options.getConf().setBoolean(
+        ClassWriter.PROPERTY_CODEGEN_PRIMITIVE_FIELDS, primitiveFields);
+
+    ConnManager manager = new HsqldbTestServer().getManager();
+    try {
+      CompilationManager compileMgr = new CompilationManager(options);
+      new ClassWriter(options, manager, TABLE_NAME, compileMgr).generate();
+      compileMgr.compile();
+      compileMgr.jar();
+      ClassLoader loader = ClassLoaderStack.addJarFile(
+          compileMgr.getJarFilename(), className);
+      return Class.forName(className, true, loader)
+          .asSubclass(SqoopRecord.class);
+    } catch (ClassNotFoundException cnfe) {
+      throw new IOException(cnfe);
+    } finally {
+      manager.close();
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.orm;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.sqoop.lib.RecordParser;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.lib.Utf8OutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-row costs of a generated record class: the work every mapper does
+ * once for each imported or exported row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratedRecordBenchmark {
+
+  @Param({"false", "true"})
+  public boolean primitiveFields;
+
+  private SqoopRecord record;
+  private Text line;
+  private DataOutputBuffer out;
+  private DataInputBuffer in;
+  private byte [] serialized;
+  private int serializedLength;
+  private Utf8OutputBuffer utf8;
+
+  @Setup
+  public void setup() throws Exception {
+    record = BenchmarkRecords.newRecord(primitiveFields);
+    line = new Text(BenchmarkRecords.SAMPLE_LINE);
+    out = new DataOutputBuffer();
+    in = new DataInputBuffer();
+    utf8 = new Utf8OutputBuffer();
+
+    record.write(out);
+    serialized = out.getData().clone();
+    serializedLength = out.getLength();
+  }
+
+  @Benchmark
+  public String format() {
+    return record.toString();
+  }
+
+  @Benchmark
+  public int writeUtf8() throws IOException {
+    utf8.reset();
+    record.writeTo(utf8);
+    return utf8.getLength();
+  }
+
+  @Benchmark
+  public SqoopRecord parse() throws RecordParser.ParseError {
+    record.parse(line);
+    return record;
+  }
+
+  @Benchmark
+  public int write() throws IOException {
+    out.reset();
+    record.write(out);
+    return out.getLength();
+  }
+
+  @Benchmark
+  public SqoopRecord readFields() throws IOException {
+    in.reset(serialized, serializedLength);
+    record.readFields(in);
+    return record;
+  }
+}
@@ -136,7 +136,18 @@ public void tearDown() {
   public void testMultiTableImport() throws IOException {
     String [] argv = getArgv(null, null);
     runImport(new ImportAllTablesTool(), argv);
+    assertTablesImported();
+  }
+
+  @Test
+  public void testMultiTableImportInParallel() throws IOException {
+    String [] argv = getArgv(new String[]{"--parallel-tables", "2"}, null);
+    runImport(new ImportAllTablesTool(), argv);
+    assertTablesImported();
+  }
 
+  /** Check that each table was imported to its own directory. */
+  private void assertTablesImported() throws IOException {
     Path warehousePath = new Path(this.getWarehouseDir());
     int i = 0;
     for (String tableName : this.tableNames) {
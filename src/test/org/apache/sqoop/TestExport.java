@@ -48,6 +48,7 @@
 
 import org.apache.sqoop.lib.RecordParser;
 import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.mapreduce.ExportOutputFormat;
 import org.apache.sqoop.testutil.ExportJobTestCase;
 import org.apache.sqoop.tool.CodeGenTool;
 import org.apache.sqoop.util.ClassLoaderStack;
@@ -569,6 +570,33 @@ public void testUnlimitedTransactionSize() throws IOException, SQLException {
     verifyExport(TOTAL_RECORDS);
   }
 
+  /**
+   * Queue several statements at a time to the executor thread.
+   */
+  @Test
+  public void testPipelinedExport() throws IOException, SQLException {
+    final int TOTAL_RECORDS = 20;
+    createTextFile(0, TOTAL_RECORDS, true);
+    createTable();
+    runExport(getArgv(true, 5, 2, "-D",
+        ExportOutputFormat.PIPELINE_DEPTH_KEY + "=2"));
+    verifyExport(TOTAL_RECORDS);
+  }
+
+  /**
+   * Execute the statements of a single mapper over several connections.
+   */
+  @Test
+  public void testMultiConnectionExport() throws IOException, SQLException {
+    final int TOTAL_RECORDS = 20;
+    createTextFile(0, TOTAL_RECORDS, true);
+    createTable();
+    runExport(getArgv(true, 3, 2,
+        "-D", ExportOutputFormat.PIPELINE_DEPTH_KEY + "=1",
+        "-D", ExportOutputFormat.CONNECTIONS_PER_TASK_KEY + "=3"));
+    verifyExport(TOTAL_RECORDS);
+  }
+
   /** Run 2 mappers, make sure all records load in correctly. */
   @Test
   public void testMultiMapTextExport() throws IOException, SQLException {
@@ -786,6 +814,23 @@ public void testDatesAndTimes() throws IOException, SQLException {
     assertColMinAndMax(forIdx(1), genTime);
   }
 
+  @Test
+  public void testPipelinedDatesAndTimes() throws IOException, SQLException {
+    final int TOTAL_RECORDS = 10;
+
+    ColumnGenerator genDate = getDateColumnGenerator();
+    ColumnGenerator genTime = getTimeColumnGenerator();
+
+    // Buffered records, and their dates, are reused between statements.
+    createTextFile(0, TOTAL_RECORDS, false, genDate, genTime);
+    createTable(genDate, genTime);
+    runExport(getArgv(true, 3, 10, "-D",
+        ExportOutputFormat.PIPELINE_DEPTH_KEY + "=2"));
+    verifyExport(TOTAL_RECORDS);
+    assertColMinAndMax(forIdx(0), genDate);
+    assertColMinAndMax(forIdx(1), genTime);
+  }
+
   @Test
   public void testNumericTypes() throws IOException, SQLException {
     final int TOTAL_RECORDS = 9;
@@ -27,12 +27,15 @@
 import java.io.Writer;
 import java.net.URI;
 import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.crypto.CryptoOutputStream;
 import org.apache.hadoop.crypto.JceAesCtrCryptoCodec;
+import org.apache.hadoop.fs.ChecksumException;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -465,6 +468,74 @@ public void testManySeeks() throws Exception {
     reader.close();
   }
 
+  @Test
+  public void testSeeksWithMmap() throws Exception {
+    // The same seeks should work through a memory-mapped file.
+    conf.setBoolean(LobFile.MMAP_LOCAL_KEY, true);
+    LobFile.clearIndexCache();
+    testManySeeks();
+  }
+
+  @Test
+  public void testChecksumVerifiedByDefault() throws Exception {
+    LobFile.clearIndexCache();
+    Path p = new Path(TEMP_BASE_DIR, "corrupt.lob");
+    String record = "a record which will be corrupted";
+    writeClobFile(p, null, record);
+
+    // Change one byte of the record behind the checksum's back.
+    File file = new File(p.toUri().getPath());
+    byte[] data = Files.readAllBytes(file.toPath());
+    String contents = new String(data, StandardCharsets.ISO_8859_1);
+    data[contents.indexOf("corrupted")] = 'C';
+    Files.write(file.toPath(), data);
+
+    thrown.expect(ChecksumException.class);
+    verifyClobFile(p, record);
+  }
+
+  @Test
+  public void testIndexCacheSharedBetweenReaders() throws Exception {
+    LobFile.clearIndexCache();
+    Path p = new Path(TEMP_BASE_DIR, "indexcache.lob");
+    String[] records = {
+        "first record",
+        "second record",
+        "the third record",
+        "rec4 is the last in IndexSeg 0",
+        "rec5 is first in IndexSeg 1",
+    };
+
+    long[] offsets = writeClobFile(p, null, records);
+    verifyClobFile(p, records);
+    assertEquals(1, LobFile.getIndexCacheSize());
+
+    // A second reader uses the cached index, including for seeks.
+    LobFile.Reader reader = LobFile.open(p, conf);
+    reader.seek(offsets[4]);
+    verifyNextRecord(reader, 4, records[4]);
+    reader.seek(offsets[1]);
+    verifyNextRecord(reader, 1, records[1]);
+    reader.close();
+    assertEquals(1, LobFile.getIndexCacheSize());
+
+    // Rewriting the file must not reuse the old index.
+    String[] newRecords = {
+        "a different first record",
+        "and a different second one",
+    };
+    writeClobFile(p, null, newRecords);
+    verifyClobFile(p, newRecords);
+    assertEquals(2, LobFile.getIndexCacheSize());
+
+    // Disabling the cache leaves it untouched.
+    LobFile.clearIndexCache();
+    conf.setInt(LobFile.INDEX_CACHE_SIZE_KEY, 0);
+    verifyClobFile(p, newRecords);
+    assertEquals(0, LobFile.getIndexCacheSize());
+    fs.delete(p, false);
+  }
+
   /**
    * Verifies that a record to be read from a lob file has
    * as many bytes as we expect, and that the bytes are what we
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the limits and counters of LobReaderCache.
+ */
+@Category(UnitTest.class)
+public class TestLobReaderCache {
+
+  private static final Path TEMP_BASE_DIR;
+
+  static {
+    String tmpDir = System.getProperty("test.build.data", "/tmp/");
+    if (!tmpDir.endsWith(File.separator)) {
+      tmpDir = tmpDir + File.separator;
+    }
+
+    TEMP_BASE_DIR = new Path(new Path(tmpDir), "lobcachetest");
+  }
+
+  /** A cache whose clock the test controls. */
+  private static class ManualClockCache extends LobReaderCache {
+    private long time;
+
+    @Override
+    protected long now() {
+      return time;
+    }
+  }
+
+  private Configuration conf;
+  private ManualClockCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new Configuration();
+    conf.set("fs.default.name", "file:///");
+    conf.setInt(LobReaderCache.MAX_READERS_KEY, 2);
+    conf.setLong(LobReaderCache.MAX_IDLE_MS_KEY, 1000);
+
+    FileSystem fs = FileSystem.getLocal(conf);
+    fs.mkdirs(TEMP_BASE_DIR);
+    cache = new ManualClockCache();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    cache.clear();
+  }
+
+  private Path writeLobFile(String name) throws IOException {
+    Path p = new Path(TEMP_BASE_DIR, name);
+    LobFile.Writer writer = LobFile.create(p, conf, true);
+    Writer w = writer.writeClobRecord(4);
+    w.write("data");
+    w.close();
+    writer.close();
+    return p;
+  }
+
+  @Test
+  public void testRecycledReaderIsReused() throws IOException {
+    Path p = writeLobFile("reuse.lob");
+
+    LobFile.Reader reader = cache.get(p, conf);
+    cache.recycle(reader);
+    assertEquals(1, cache.getIdleCount());
+
+    assertSame(reader, cache.get(p, conf));
+    assertEquals(0, cache.getIdleCount());
+    cache.recycle(reader);
+
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(0, cache.getEvictions());
+  }
+
+  @Test
+  public void testLeastRecentlyRecycledReaderIsEvicted() throws IOException {
+    Path [] paths = {
+      writeLobFile("lru0.lob"), writeLobFile("lru1.lob"),
+      writeLobFile("lru2.lob"),
+    };
+    LobFile.Reader [] readers = new LobFile.Reader[paths.length];
+    for (int i = 0; i < paths.length; i++) {
+      readers[i] = cache.get(paths[i], conf);
+    }
+    for (int i = 0; i < paths.length; i++) {
+      cache.time = i;
+      cache.recycle(readers[i]);
+    }
+
+    // Only two readers may stay open; the first recycled one was closed.
+    assertEquals(2, cache.getIdleCount());
+    assertEquals(1, cache.getEvictions());
+    assertTrue(readers[0].isClosed());
+    assertFalse(readers[1].isClosed());
+    assertFalse(readers[2].isClosed());
+    assertNotSame(readers[0], cache.get(paths[0], conf));
+  }
+
+  @Test
+  public void testIdleReaderIsClosed() throws IOException {
+    Path p = writeLobFile("idle.lob");
+    LobFile.Reader reader = cache.get(p, conf);
+    cache.recycle(reader);
+
+    cache.time = 2000;
+    LobFile.Reader newReader = cache.get(p, conf);
+    assertNotSame(reader, newReader);
+    assertTrue(reader.isClosed());
+    assertEquals(1, cache.getEvictions());
+    assertEquals(2, cache.getMisses());
+    newReader.close();
+  }
+
+  @Test
+  public void testSeveralReadersPerPath() throws IOException {
+    Path p = writeLobFile("shared.lob");
+    LobFile.Reader r1 = cache.get(p, conf);
+    LobFile.Reader r2 = cache.get(p, conf);
+    cache.recycle(r1);
+    cache.recycle(r2);
+
+    assertEquals(2, cache.getIdleCount());
+    assertFalse(r1.isClosed());
+    assertFalse(r2.isClosed());
+  }
+}
@@ -33,6 +33,7 @@
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.io.compress.GzipCodec;
 
 import org.apache.sqoop.testcategories.sqooptest.UnitTest;
@@ -318,4 +319,112 @@ public void testSplittingGzipFile() throws IOException {
         new GZIPInputStream(new FileInputStream(new File(getWriteDir(),
         "splitz-00001.gz"))), expectedLines1);
   }
+
+  private void verifyTextFile(String filename, String [] expectedLines)
+      throws IOException {
+    verifyFileContents(new FileInputStream(new File(getWriteDir(),
+        filename)), expectedLines);
+  }
+
+  @Test
+  public void testSplittingByRecords() throws IOException {
+    Configuration conf = getConf();
+    conf.setLong(SplittingOutputStream.SPLIT_RECORDS_KEY, 2);
+    SplittingOutputStream os = new SplittingOutputStream(conf,
+        getWritePath(), "rows-", 0, null);
+    SplittableBufferedWriter w = new SplittableBufferedWriter(os);
+    try {
+      for (int i = 1; i <= 5; i++) {
+        w.write("record " + i);
+        w.newLine();
+      }
+    } finally {
+      w.close();
+    }
+
+    verifyTextFile("rows-00000", new String [] { "record 1", "record 2" });
+    verifyTextFile("rows-00001", new String [] { "record 3", "record 4" });
+    verifyTextFile("rows-00002", new String [] { "record 5" });
+    verifyFileDoesNotExist(new Path(getWritePath(), "rows-00003"));
+  }
+
+  /** A SplittingOutputStream whose clock is set by the test. */
+  private static class ManualClockStream extends SplittingOutputStream {
+    private long time;
+
+    ManualClockStream(Configuration conf, Path destDir, String filePrefix)
+        throws IOException {
+      super(conf, destDir, filePrefix, 0, null);
+    }
+
+    @Override
+    protected long now() {
+      return time;
+    }
+  }
+
+  @Test
+  public void testSplittingByTime() throws IOException {
+    Configuration conf = getConf();
+    conf.setLong(SplittingOutputStream.SPLIT_MILLIS_KEY, 1000);
+    ManualClockStream os = new ManualClockStream(conf, getWritePath(),
+        "timed-");
+    SplittableBufferedWriter w = new SplittableBufferedWriter(os);
+    try {
+      w.write("first");
+      w.newLine();
+      os.time = 999;
+      w.write("second");
+      w.newLine();
+      os.time = 1000;
+      w.write("third");
+      w.newLine();
+      w.write("fourth");
+      w.newLine();
+    } finally {
+      w.close();
+    }
+
+    verifyTextFile("timed-00000",
+        new String [] { "first", "second", "third" });
+    verifyTextFile("timed-00001", new String [] { "fourth" });
+    verifyFileDoesNotExist(new Path(getWritePath(), "timed-00002"));
+  }
+
+  @Test
+  public void testParallelGzipFile() throws IOException {
+    Configuration conf = getConf();
+    conf.setInt(SplittingOutputStream.COMPRESS_THREADS_KEY, 3);
+    conf.setInt(SplittingOutputStream.COMPRESS_BLOCK_SIZE_KEY, 16);
+    conf.setLong(SplittingOutputStream.SPLIT_RECORDS_KEY, 100);
+    CompressionCodec codec = new GzipCodec();
+    SplittingOutputStream os = new SplittingOutputStream(conf,
+        getWritePath(), "parallel-", 0, codec);
+    SplittableBufferedWriter w = new SplittableBufferedWriter(os);
+    String [] expectedLines0 = new String[100];
+    String [] expectedLines1 = new String[50];
+    try {
+      for (int i = 0; i < 150; i++) {
+        String line = "line number " + i + " of the parallel gzip test";
+        if (i < 100) {
+          expectedLines0[i] = line;
+        } else {
+          expectedLines1[i - 100] = line;
+        }
+        w.write(line);
+        w.newLine();
+      }
+    } finally {
+      w.close();
+    }
+
+    // Each file is a series of gzip members, written in order.
+    verifyFileContents(
+        new GZIPInputStream(new FileInputStream(new File(getWriteDir(),
+        "parallel-00000.gz"))), expectedLines0);
+    verifyFileContents(
+        new GZIPInputStream(new FileInputStream(new File(getWriteDir(),
+        "parallel-00001.gz"))), expectedLines1);
+    verifyFileDoesNotExist(new Path(getWritePath(), "parallel-00002.gz"));
+  }
 }
@@ -18,6 +18,8 @@
 
 package org.apache.sqoop.lib;
 
+import java.io.IOException;
+
 import org.apache.sqoop.testcategories.sqooptest.UnitTest;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -150,4 +152,48 @@ public void testQuotedEscape() {
         new DelimiterSet(',', '\n', '\"', '\\', false));
     assertEquals("\"foo\\\\,bar\"", result);
   }
+
+  private void assertAppendMatchesEscape(String str, DelimiterSet delims)
+      throws IOException {
+    StringBuilder sb = new StringBuilder();
+    FieldFormatter.appendEscapedAndEnclosed(sb, str, delims);
+    assertEquals("Formatting [" + str + "] with " + delims,
+        String.valueOf(FieldFormatter.escapeAndEnclose(str, delims)),
+        sb.toString());
+  }
+
+  @Test
+  public void testAppendMatchesEscapeAndEnclose() throws IOException {
+    char nul = DelimiterSet.NULL_CHAR;
+    DelimiterSet [] delimSets = {
+      DelimiterSet.DEFAULT_DELIMITERS,
+      new DelimiterSet(',', '\n', '\"', '\\', false),
+      new DelimiterSet(',', '\n', '\"', '\\', true),
+      new DelimiterSet(',', '\n', '\"', nul, false),
+      new DelimiterSet(',', '\n', nul, '\\', false),
+      new DelimiterSet(',', '\n', nul, nul, false),
+      new DelimiterSet(',', ',', '\"', '\\', false),
+      new DelimiterSet(',', ',', nul, '\\', false),
+      new DelimiterSet(',', '\n', '\\', '\\', false),
+      new DelimiterSet('\\', '\n', nul, '\\', false),
+      new DelimiterSet(nul, nul, nul, nul, false),
+    };
+    String [] strs = {
+      null,
+      "",
+      "foo",
+      "foo,bar",
+      "foo\nbar",
+      "foo\"bar",
+      "foo\\bar",
+      "foo\\\",bar\\",
+      "\000",
+    };
+
+    for (DelimiterSet delims : delimSets) {
+      for (String str : strs) {
+        assertAppendMatchesEscape(str, delims);
+      }
+    }
+  }
 }
@@ -18,6 +18,7 @@
 
 package org.apache.sqoop.lib;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -40,6 +41,7 @@
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Test deserialization of ClobRef and BlobRef fields.
@@ -123,5 +125,90 @@ public void testReadBlobRef()
       assertEquals(blobData[i], buf[i]);
     }
   }
-}
 
+  @Test
+  public void testReadManyLobsWithBackgroundWriters()
+      throws IOException, InterruptedException, SQLException {
+    // Several writers, and chunks much smaller than each LOB.
+    conf.setLong(LargeObjectLoader.MAX_INLINE_LOB_LEN_KEY, 4);
+    conf.setInt(LargeObjectLoader.LOB_WRITER_THREADS_KEY, 3);
+    conf.setInt(LargeObjectLoader.LOB_WRITER_BUFFERS_KEY, 2);
+    conf.setInt(LargeObjectLoader.LOB_WRITER_BUFFER_SIZE_KEY, 3);
+
+    ResultSet resultSet = new MockResultSet();
+    BlobRef [] blobs = new BlobRef[10];
+    ClobRef [] clobs = new ClobRef[10];
+    for (int i = 0; i < blobs.length; i++) {
+      blobs[i] = loader.readBlobRef(0, resultSet);
+      clobs[i] = loader.readClobRef(0, resultSet);
+    }
+    loader.close();
+
+    byte [] blobData = MockResultSet.blobData();
+    for (BlobRef blob : blobs) {
+      assertTrue(blob.isExternal());
+      InputStream is = blob.getDataStream(conf, outDir);
+      byte [] buf = new byte[4096];
+      int bytes = is.read(buf, 0, 4096);
+      is.close();
+      assertEquals(blobData.length, bytes);
+      for (int i = 0; i < bytes; i++) {
+        assertEquals(blobData[i], buf[i]);
+      }
+    }
+
+    for (ClobRef clob : clobs) {
+      assertTrue(clob.isExternal());
+      Reader r = clob.getDataStream(conf, outDir);
+      char [] buf = new char[4096];
+      int chars = r.read(buf, 0, 4096);
+      r.close();
+      assertEquals(MockResultSet.CLOB_DATA, new String(buf, 0, chars));
+    }
+  }
+
+  @Test(timeout = 20000)
+  public void testUnreadableLobFailsWriterPool()
+      throws IOException, InterruptedException {
+    LobWriterPool pool = new LobWriterPool(conf, false, 1, 2, 3) {
+      @Override
+      protected Path getNextLobFilePath() {
+        return new Path(outDir, "pool.lob");
+      }
+    };
+
+    // The stream fails after the first chunk has been queued.
+    InputStream failing = new InputStream() {
+      private int count = 0;
+
+      @Override
+      public int read() throws IOException {
+        if (count++ >= 4) {
+          throw new IOException("connection reset");
+        }
+        return 'x';
+      }
+    };
+    try {
+      pool.writeBlob(failing, 10);
+      fail("Expected the read error");
+    } catch (IOException expected) {
+      assertEquals("connection reset", expected.getMessage());
+    }
+
+    // The sink goes back to the pool, so later calls report the failure
+    // instead of waiting for it.
+    try {
+      pool.writeBlob(new ByteArrayInputStream(new byte[4]), 4);
+      fail("Expected the pool to have failed");
+    } catch (IOException expected) {
+      // Expected.
+    }
+    try {
+      pool.close();
+      fail("Expected close() to report the discarded record");
+    } catch (IOException expected) {
+      // Expected.
+    }
+  }
+}
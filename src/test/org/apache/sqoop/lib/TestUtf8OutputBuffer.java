@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.lib;
+
+import org.apache.hadoop.io.Text;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test that Utf8OutputBuffer encodes characters like Text does.
+ */
+@Category(UnitTest.class)
+public class TestUtf8OutputBuffer {
+
+  private void assertEncodesLikeText(String str) {
+    Utf8OutputBuffer buf = new Utf8OutputBuffer(1);
+    buf.append(str);
+    Text actual = new Text();
+    buf.copyTo(actual);
+    assertEquals(new Text(str).toString(), actual.toString());
+    assertEquals(new Text(str).getLength(), buf.getLength());
+  }
+
+  @Test
+  public void testAscii() {
+    assertEncodesLikeText("");
+    assertEncodesLikeText("plain ascii,with\tdelims\n");
+  }
+
+  @Test
+  public void testMultiByte() {
+    assertEncodesLikeText("caf\u00e9 \u65e5\u672c\u8a9e \u0800\uffff");
+  }
+
+  @Test
+  public void testSurrogatePairs() {
+    assertEncodesLikeText("smile \ud83d\ude00 and \ud800\udc00");
+  }
+
+  @Test
+  public void testUnpairedSurrogates() {
+    assertEncodesLikeText("high \ud83d then text");
+    assertEncodesLikeText("low \ude00 alone");
+    assertEncodesLikeText("trailing high \ud83d");
+  }
+
+  @Test
+  public void testReset() {
+    Utf8OutputBuffer buf = new Utf8OutputBuffer();
+    buf.append("first record");
+    buf.reset();
+    buf.append('x').append("yz", 1, 2);
+    assertEquals("xz", buf.toString());
+    assertEquals(2, buf.getLength());
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.lib;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.io.Text;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test that the UTF-8 record parser splits records exactly like the
+ * String-based RecordParser.
+ */
+@Category(UnitTest.class)
+public class TestUtf8RecordParser {
+
+  private static final DelimiterSet OPTIONAL_QUOTES =
+      new DelimiterSet(',', '\n', '\"', '\\', false);
+
+  private static final DelimiterSet REQUIRED_QUOTES =
+      new DelimiterSet(',', '\n', '\"', '\\', true);
+
+  private List<String> parse(Utf8RecordParser parser, String record)
+      throws RecordParser.ParseError {
+    int numFields = parser.parseRecord(new Text(record));
+    List<String> out = new ArrayList<String>();
+    for (int i = 0; i < numFields; i++) {
+      out.add(parser.getField(i).toString());
+    }
+    return out;
+  }
+
+  private void assertSameAsRecordParser(DelimiterSet delims, String record)
+      throws RecordParser.ParseError {
+    List<String> expected = new RecordParser(delims).parseRecord(record);
+    List<String> actual = parse(new Utf8RecordParser(delims), record);
+    assertEquals("Parsing [" + record + "]", expected, actual);
+  }
+
+  @Test
+  public void testMatchesRecordParser() throws RecordParser.ParseError {
+    String [] records = {
+      "",
+      "\n",
+      ",",
+      ",,\n",
+      "the field",
+      "the field\n",
+      "\"the field\"\n",
+      "\"the ,\nfield\"",
+      "\"the \\\"field\"",
+      "the \\,field",
+      "the \\\\field",
+      "field1,field2",
+      "field1,field2\n",
+      "field1,\"field2\",field3\n",
+      "field1,",
+      "field1,\n",
+      "\\,start,mid\\\\dle,end\\\n",
+      "unenclosed \"quote\",x",
+    };
+
+    for (String record : records) {
+      assertSameAsRecordParser(OPTIONAL_QUOTES, record);
+    }
+  }
+
+  @Test
+  public void testMultiByteCharacters() throws RecordParser.ParseError {
+    assertSameAsRecordParser(OPTIONAL_QUOTES,
+        "caf\u00e9,\"\u65e5\u672c\u8a9e\",\\\u00e9x,\ud83d\ude00\n");
+    assertSameAsRecordParser(new DelimiterSet('\001', '\n', '\000', '\000',
+        false), "caf\u00e9\001\u65e5\u672c\001\n");
+  }
+
+  @Test
+  public void testRequiredEncloser() throws RecordParser.ParseError {
+    assertSameAsRecordParser(REQUIRED_QUOTES, "\"field1\",\"field2\"\n");
+
+    Utf8RecordParser parser = new Utf8RecordParser(REQUIRED_QUOTES);
+    try {
+      parser.parseRecord(new Text("\"field1\",field2\n"));
+      fail("Expected ParseError for missing encloser");
+    } catch (RecordParser.ParseError pe) {
+      // expected.
+    }
+  }
+
+  @Test
+  public void testExpectDelimiterError() {
+    Utf8RecordParser parser = new Utf8RecordParser(OPTIONAL_QUOTES);
+    try {
+      parser.parseRecord(new Text("\"field1\"x,field2\n"));
+      fail("Expected ParseError for trailing characters after encloser");
+    } catch (RecordParser.ParseError pe) {
+      // expected.
+    }
+  }
+
+  @Test
+  public void testParserIsReusable() throws RecordParser.ParseError {
+    Utf8RecordParser parser = new Utf8RecordParser(OPTIONAL_QUOTES);
+    List<String> expected = new ArrayList<String>();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      expected.add("f\\" + i);
+      sb.append("f\\\\" + i).append(',');
+    }
+    sb.setLength(sb.length() - 1);
+
+    assertEquals(expected, parse(parser, sb.toString()));
+    assertEquals(1, parser.parseRecord(new Text("a\n")));
+    assertEquals("a", parser.getField(0).toString());
+  }
+
+  @Test
+  public void testCanParse() {
+    assertTrue(Utf8RecordParser.canParse(OPTIONAL_QUOTES));
+    assertFalse(Utf8RecordParser.canParse(
+        new DelimiterSet('\u00fe', '\n', '\000', '\000', false)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsNonAsciiDelimiters() {
+    new Utf8RecordParser(new DelimiterSet('\u00fe', '\n', '\000', '\000',
+        false));
+  }
+
+  @Test
+  public void testNumericConversions() throws RecordParser.ParseError {
+    Utf8RecordParser parser = new Utf8RecordParser(OPTIONAL_QUOTES);
+    parser.parseRecord(new Text("42,-17,+3,9223372036854775807,"
+        + "-2147483648,3.14159,1e10,\\N\n"));
+
+    assertEquals(42, parser.getField(0).parseInt());
+    assertEquals(-17L, parser.getField(1).parseLong());
+    assertEquals(3, parser.getField(2).parseInt());
+    assertEquals(Long.MAX_VALUE, parser.getField(3).parseLong());
+    assertEquals(Integer.MIN_VALUE, parser.getField(4).parseInt());
+    assertEquals(new BigDecimal("3.14159"), parser.getField(5).toBigDecimal());
+    assertEquals(new BigDecimal("1e10"), parser.getField(6).toBigDecimal());
+    assertTrue(parser.getField(7).contentEquals("N"));
+    assertFalse(parser.getField(7).contentEquals("\\N"));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testIntOverflow() throws RecordParser.ParseError {
+    Utf8RecordParser parser = new Utf8RecordParser(OPTIONAL_QUOTES);
+    parser.parseRecord(new Text("2147483648"));
+    parser.getField(0).parseInt();
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testNotANumber() throws RecordParser.ParseError {
+    Utf8RecordParser parser = new Utf8RecordParser(OPTIONAL_QUOTES);
+    parser.parseRecord(new Text("12a"));
+    parser.getField(0).parseLong();
+  }
+}
@@ -19,13 +19,23 @@
 package org.apache.sqoop.manager.oracle;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.mapreduce.db.ChunkTable;
 
 import org.apache.sqoop.manager.oracle.OraOopConstants.
            OraOopOracleBlockToSplitAllocationMethod;
@@ -35,6 +45,9 @@
  */
 public class TestOraOopDataDrivenDBInputFormat extends OraOopTestCase {
 
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
   /**
    * We're just exposing a protected method so that it can be called by this
    * unit test...
@@ -128,4 +141,111 @@ public void testgroupTableDataChunksIntoSplits() {
     }
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testDynamicAllocation() throws Exception {
+
+    List<OraOopOracleDataChunk> dataChunks =
+        new ArrayList<OraOopOracleDataChunk>();
+    for (int idx = 0; idx < 100; idx++) {
+      dataChunks.add(new OraOopOracleDataChunkExtent("1_" + idx, 666, 1,
+          idx * 8 + 1, idx * 8 + 8));
+    }
+
+    @SuppressWarnings("rawtypes")
+    Exposer e = new Exposer();
+    boolean logIsBeingCached = Exposer.LOG.getCacheLogEntries();
+    Exposer.LOG.setCacheLogEntries(true);
+
+    List<InputSplit> splits =
+        e.groupTableDataChunksIntoSplits(dataChunks, 8,
+            OraOopOracleBlockToSplitAllocationMethod.DYNAMIC);
+
+    Exposer.LOG.setCacheLogEntries(logIsBeingCached);
+
+    Assert.assertEquals(8, splits.size());
+
+    // Every split holds all the data-chunks, and starts on its own share...
+    Set<Integer> firstChunks = new HashSet<Integer>();
+    for (InputSplit split : splits) {
+      OraOopDBChunkedInputSplit chunkedSplit =
+          (OraOopDBChunkedInputSplit) split;
+      Assert.assertEquals(100, chunkedSplit.getNumChunks());
+      Assert.assertEquals(800, chunkedSplit.getLength());
+      firstChunks.add(chunkedSplit.getFirstChunk());
+    }
+    Assert.assertEquals(8, firstChunks.size());
+
+    // ...and reports only the current data-chunk to the record reader...
+    OraOopDBChunkedInputSplit split = (OraOopDBChunkedInputSplit) splits.get(3);
+    split.setCurrentChunk(42);
+    Assert.assertEquals(1, split.getNumberOfDataChunks());
+    Assert.assertEquals("1_42", split.getDataChunks().get(0).getId());
+    Assert.assertEquals(8, split.getTotalNumberOfBlocksInThisSplit());
+
+    // ...starting from its first data-chunk after being deserialized.
+    DataOutputBuffer out = new DataOutputBuffer();
+    split.write(out);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    OraOopDBChunkedInputSplit copy = new OraOopDBChunkedInputSplit();
+    copy.readFields(in);
+    Assert.assertEquals(split.getSplitId(), copy.getSplitId());
+    Assert.assertEquals(split.getFirstChunk(), copy.getFirstChunk());
+    Assert.assertEquals(100, copy.getNumChunks());
+    Assert.assertEquals(dataChunks.get(split.getFirstChunk()).getId(),
+        copy.getDataChunks().get(0).getId());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testDynamicSplitsShareChunkFile() throws Exception {
+
+    List<OraOopOracleDataChunk> dataChunks =
+        new ArrayList<OraOopOracleDataChunk>();
+    for (int idx = 0; idx < 100; idx++) {
+      dataChunks.add(new OraOopOracleDataChunkExtent("1_" + idx, 666, 1,
+          idx * 8 + 1, idx * 8 + 8));
+    }
+
+    @SuppressWarnings("rawtypes")
+    Exposer e = new Exposer();
+    List<InputSplit> splits =
+        e.groupTableDataChunksIntoSplits(dataChunks, 8,
+            OraOopOracleBlockToSplitAllocationMethod.DYNAMIC);
+    OraOopDBChunkedInputSplit split = (OraOopDBChunkedInputSplit) splits.get(3);
+
+    Configuration conf = new Configuration();
+    conf.set(MRJobConfig.MAPREDUCE_JOB_DIR,
+        tmpFolder.getRoot().getAbsolutePath());
+    Path chunkFile = ChunkTable.write(conf, split.getAllDataChunks());
+    Assert.assertNotNull(chunkFile);
+
+    DataOutputBuffer embedded = new DataOutputBuffer();
+    split.write(embedded);
+    split.setChunkFile(chunkFile);
+    DataOutputBuffer out = new DataOutputBuffer();
+    split.write(out);
+    Assert.assertTrue(out.getLength() < embedded.getLength() / 10);
+
+    // The data-chunks are read from the file once the split is loaded...
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    OraOopDBChunkedInputSplit copy = new OraOopDBChunkedInputSplit();
+    copy.readFields(in);
+    Assert.assertEquals(split.getSplitId(), copy.getSplitId());
+    Assert.assertEquals(100, copy.getNumChunks());
+    Assert.assertEquals(800, copy.getLength());
+    Assert.assertNull(copy.getDataChunks());
+
+    copy.loadChunks(conf);
+    Assert.assertEquals(100, copy.getAllDataChunks().size());
+    Assert.assertEquals(dataChunks.get(split.getFirstChunk()).getId(),
+        copy.getDataChunks().get(0).getId());
+    copy.setCurrentChunk(99);
+    Assert.assertEquals(
+        dataChunks.get(99).getWhereClause(),
+        copy.getDataChunks().get(0).getWhereClause());
+  }
+
 }
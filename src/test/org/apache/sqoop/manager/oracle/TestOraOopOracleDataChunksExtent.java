@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.manager.oracle;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.apache.sqoop.testcategories.thirdpartytest.OracleTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test how OraOopOracleQueries.getOracleDataChunksExtent() turns the rows of
+ * its query into data-chunks.
+ */
+@Category({UnitTest.class, OracleTest.class})
+public class TestOraOopOracleDataChunksExtent {
+
+  private static final String ORACLE_PREPARED_STATEMENT_CLASS =
+      "oracle.jdbc.OraclePreparedStatement";
+
+  private static final int DATA_OBJECT_ID = 666;
+  private static final int FILE_NO = 3;
+  private static final int FILE_BATCH = 2;
+
+  private Class<? extends PreparedStatement> statementClass;
+  private PreparedStatement statement;
+  private ResultSet resultSet;
+  private Connection connection;
+  private OracleTable table;
+
+  @SuppressWarnings("unchecked")
+  @Before
+  public void setUp() throws Exception {
+    statementClass = (Class<? extends PreparedStatement>) Class.forName(
+            ORACLE_PREPARED_STATEMENT_CLASS);
+    statement = mock(statementClass);
+    resultSet = mock(ResultSet.class);
+    when(statement.executeQuery()).thenReturn(resultSet);
+    connection = mock(Connection.class);
+    when(connection.prepareStatement(anyString())).thenReturn(statement);
+    table = new OracleTable("SQOOP", "CUSTOMERS");
+  }
+
+  /**
+   * Return a single row of the extent query, covering the given blocks.
+   */
+  private void returnBatch(long startBlock, long endBlock) throws Exception {
+    when(resultSet.next()).thenReturn(true).thenReturn(false);
+    when(resultSet.getInt("data_object_id")).thenReturn(DATA_OBJECT_ID);
+    when(resultSet.getInt("relative_fno")).thenReturn(FILE_NO);
+    when(resultSet.getInt("file_batch")).thenReturn(FILE_BATCH);
+    when(resultSet.getLong("start_block_id")).thenReturn(startBlock);
+    when(resultSet.getLong("end_block_id")).thenReturn(endBlock);
+  }
+
+  /**
+   * Invoke one of the Oracle-specific setXxxAtName methods on a statement,
+   * such as one returned by Mockito.verify().
+   */
+  private void setAtName(PreparedStatement stmt, String method,
+      Class<?> type, String name, Object value) throws Exception {
+    statementClass.getMethod(method, String.class, type).invoke(stmt, name,
+        value);
+  }
+
+  private String getQuery() throws Exception {
+    ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+    verify(connection).prepareStatement(sql.capture());
+    return sql.getValue();
+  }
+
+  private static void assertExtent(String id, long startBlock,
+      long endBlock, OraOopOracleDataChunkExtent chunk) {
+    assertEquals(id, chunk.getId());
+    assertEquals(endBlock - startBlock + 1, chunk.getNumberOfBlocks());
+    assertEquals(new OraOopOracleDataChunkExtent(id, DATA_OBJECT_ID,
+        FILE_NO, startBlock, endBlock).getWhereClause(),
+        chunk.getWhereClause());
+  }
+
+  @Test
+  public void testBlockCountQuery() throws Exception {
+    returnBatch(100, 599);
+
+    List<OraOopOracleDataChunkExtent> chunks =
+        OraOopOracleQueries.getOracleDataChunksExtent(new Configuration(),
+            connection, table, null, 5, 1000);
+
+    String sql = getQuery();
+    assertTrue(sql, sql.contains("/ :blockcount)"));
+    assertFalse(sql, sql.contains(":numchunks"));
+    setAtName(verify(statement), "setLongAtName", long.class, "blockcount",
+        1000L);
+
+    assertEquals(1, chunks.size());
+    assertExtent(OraOopUtilities.generateDataChunkId(FILE_NO, FILE_BATCH),
+        100, 599, chunks.get(0));
+  }
+
+  @Test
+  public void testOversizedExtentIsSplitIntoBlockRanges() throws Exception {
+    // A single extent of 2500 blocks makes up the whole batch.
+    returnBatch(1000, 3499);
+
+    List<OraOopOracleDataChunkExtent> chunks =
+        OraOopOracleQueries.getOracleDataChunksExtent(new Configuration(),
+            connection, table, null, 5, 1000);
+
+    String id = OraOopUtilities.generateDataChunkId(FILE_NO, FILE_BATCH);
+    assertEquals(3, chunks.size());
+    assertExtent(id + "_0", 1000, 1999, chunks.get(0));
+    assertExtent(id + "_1", 2000, 2999, chunks.get(1));
+    assertExtent(id + "_2", 3000, 3499, chunks.get(2));
+  }
+
+  @Test
+  public void testNumChunksQueryKeepsWholeBatches() throws Exception {
+    returnBatch(1000, 3499);
+
+    List<OraOopOracleDataChunkExtent> chunks =
+        OraOopOracleQueries.getOracleDataChunksExtent(new Configuration(),
+            connection, table, null, 5, 0);
+
+    String sql = getQuery();
+    assertTrue(sql, sql.contains(":numchunks"));
+    assertFalse(sql, sql.contains(":blockcount"));
+    setAtName(verify(statement), "setIntAtName", int.class, "numchunks", 5);
+    setAtName(verify(statement, never()), "setLongAtName", long.class,
+        eq("blockcount"), anyLong());
+
+    assertEquals(1, chunks.size());
+    assertExtent(OraOopUtilities.generateDataChunkId(FILE_NO, FILE_BATCH),
+        1000, 3499, chunks.get(0));
+  }
+}
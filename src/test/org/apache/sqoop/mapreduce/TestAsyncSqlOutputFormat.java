@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that AsyncSqlOutputFormat's exec thread reports failures to the
+ * RecordWriter instead of dying with operations still queued.
+ */
+@Category(UnitTest.class)
+public class TestAsyncSqlOutputFormat {
+
+  /** A connection on which every method does nothing. */
+  private static Connection nullConnection() {
+    return (Connection) Proxy.newProxyInstance(
+        TestAsyncSqlOutputFormat.class.getClassLoader(),
+        new Class<?>[] { Connection.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getReturnType() == boolean.class) {
+              return false;
+            }
+            return null;
+          }
+        });
+  }
+
+  /** An exec thread which fails to prepare every statement. */
+  private static class FailingExecThread
+      extends AsyncSqlOutputFormat.AsyncSqlExecThread {
+
+    FailingExecThread(int pipelineDepth) {
+      super(nullConnection(), 1, pipelineDepth);
+    }
+
+    @Override
+    protected PreparedStatement getStatement(
+        AsyncSqlOutputFormat.AsyncDBOperation op) throws SQLException {
+      if (null != op.getRecords()) {
+        throw new IllegalStateException("bad record");
+      }
+      return super.getStatement(op);
+    }
+  }
+
+  private void checkRuntimeExceptionIsReported(int pipelineDepth)
+      throws Exception {
+    FailingExecThread execThread = new FailingExecThread(pipelineDepth);
+    execThread.setDaemon(true);
+    execThread.start();
+
+    // More operations than the pipeline holds; put() must not block once
+    // the first of them has failed.
+    for (int i = 0; i < pipelineDepth + 2; i++) {
+      execThread.put(new AsyncSqlOutputFormat.AsyncDBOperation(
+          Collections.<SqoopRecord>emptyList(), true, false, false));
+    }
+    execThread.put(new AsyncSqlOutputFormat.AsyncDBOperation(
+        (PreparedStatement) null, true, true, true));
+    execThread.join(10000);
+    assertTrue(!execThread.isAlive());
+
+    SQLException err = execThread.getLastError();
+    assertNotNull(err);
+    assertTrue(err.getCause() instanceof IllegalStateException);
+    assertNull(execThread.getLastError());
+  }
+
+  @Test(timeout = 20000)
+  public void testRuntimeExceptionIsReported() throws Exception {
+    checkRuntimeExceptionIsReported(0);
+  }
+
+  @Test(timeout = 20000)
+  public void testRuntimeExceptionIsReportedWhenPipelined()
+      throws Exception {
+    checkRuntimeExceptionIsReported(2);
+  }
+}
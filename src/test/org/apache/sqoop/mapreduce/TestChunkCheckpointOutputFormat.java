@@ -0,0 +1,325 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.sqoop.config.ConfigurationConstants;
+import org.apache.sqoop.mapreduce.db.ChunkCheckpoint;
+import org.apache.sqoop.mapreduce.db.ChunkedDBRecordReader;
+import org.apache.sqoop.mapreduce.db.DBRecordReader;
+import org.apache.sqoop.mapreduce.db.DataDrivenDBChunkedInputSplit;
+import org.apache.sqoop.mapreduce.db.DataDrivenDBInputFormat;
+import org.apache.sqoop.mapreduce.db.SplitCountValidator;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that a retried task imports, and counts, every record once when the
+ * chunks finished by its failed attempt are kept.
+ */
+@Category(UnitTest.class)
+public class TestChunkCheckpointOutputFormat {
+
+  private static final int NUM_CHUNKS = 6;
+  private static final int ROWS_PER_CHUNK = 3;
+
+  // The checkpoint of a failed attempt outlives it in this JVM, so each
+  // test runs its own job.
+  private static int nextJobId = 1;
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path outputDir;
+  private JobID jobId;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    fs = FileSystem.getLocal(conf);
+    outputDir = new Path(tmpFolder.getRoot().getAbsolutePath(), "out");
+    conf.set(FileOutputFormat.OUTDIR, outputDir.toString());
+    conf.set(ChunkedDBRecordReader.CLAIM_DIR_PROPERTY,
+        tmpFolder.newFolder("claims").getAbsolutePath());
+    conf.setBoolean(ChunkCheckpoint.ENABLED_KEY, true);
+    conf.setClass(ChunkCheckpointOutputFormat.DELEGATE_CLASS_KEY,
+        TextOutputFormat.class, FileOutputFormat.class);
+    jobId = new JobID("testcheckpoint", nextJobId++);
+  }
+
+  /**
+   * Pretends to read ROWS_PER_CHUNK rows for the current chunk of its split.
+   */
+  private static class FakeReader extends DBRecordReader<DBWritable> {
+    private int row = -1;
+
+    FakeReader(DataDrivenDBChunkedInputSplit split) throws Exception {
+      super(split, DBWritable.class, null, null, null, null, null, null);
+    }
+
+    @Override
+    public boolean nextKeyValue() {
+      if (row < 0) {
+        row = 0;
+      }
+      if (row == ROWS_PER_CHUNK) {
+        return false;
+      }
+      row++;
+      return true;
+    }
+
+    String getRow() {
+      DataDrivenDBInputFormat.DataDrivenDBInputSplit split =
+          (DataDrivenDBInputFormat.DataDrivenDBInputSplit) getSplit();
+      return split.getLowerClause() + " row " + row;
+    }
+
+    @Override
+    protected void resetQuery() {
+      row = -1;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Counts records as the task of a real job would.
+   */
+  private static class CountingReporter extends StatusReporter {
+    private final Counters counters = new Counters();
+
+    @Override
+    public Counter getCounter(Enum<?> name) {
+      return counters.findCounter(name);
+    }
+
+    @Override
+    public Counter getCounter(String group, String name) {
+      return counters.findCounter(group, name);
+    }
+
+    @Override
+    public void progress() {
+    }
+
+    @Override
+    public float getProgress() {
+      return 0;
+    }
+
+    @Override
+    public void setStatus(String status) {
+    }
+
+    long getOutputRecords() {
+      return getCounter(
+          ConfigurationConstants.COUNTER_GROUP_MAPRED_TASK_COUNTERS,
+          ConfigurationConstants.COUNTER_MAP_OUTPUT_RECORDS).getValue();
+    }
+
+    long getUncountedQueries() {
+      return getCounter(SplitCountValidator.COUNTER_GROUP,
+          SplitCountValidator.UNCOUNTED_QUERIES_COUNTER).getValue();
+    }
+  }
+
+  /**
+   * One attempt of the only map task of the job.
+   */
+  private class Attempt {
+    private final TaskAttemptContext context;
+    private final CountingReporter reporter = new CountingReporter();
+    private final OutputCommitter committer;
+    private final RecordWriter<Text, NullWritable> writer;
+    private final FakeReader fake;
+    private final ChunkedDBRecordReader<DBWritable> reader;
+
+    Attempt(int attempt) throws Exception {
+      context = new TaskAttemptContextImpl(conf,
+          new TaskAttemptID(jobId.getJtIdentifier(), jobId.getId(),
+              TaskType.MAP, 0, attempt), reporter);
+      ChunkCheckpointOutputFormat<Text, NullWritable> outputFormat =
+          new ChunkCheckpointOutputFormat<Text, NullWritable>();
+      committer = outputFormat.getOutputCommitter(context);
+      committer.setupTask(context);
+      // The output is opened before the input is initialized, as in a
+      // MapTask.
+      writer = outputFormat.getRecordWriter(context);
+
+      List<InputSplit> splits = DataDrivenDBChunkedInputSplit.group(
+          makeChunks(), 1, conf);
+      DataDrivenDBChunkedInputSplit split =
+          (DataDrivenDBChunkedInputSplit) splits.get(0);
+      fake = new FakeReader(split);
+      reader = new ChunkedDBRecordReader<DBWritable>(fake, split);
+      reader.initialize(split, context);
+    }
+
+    /**
+     * Pass up to maxRecords records through to the output.
+     * @return the number of records passed.
+     */
+    int run(int maxRecords) throws Exception {
+      int records = 0;
+      while (records < maxRecords && reader.nextKeyValue()) {
+        writer.write(new Text(fake.getRow()), NullWritable.get());
+        reporter.getCounter(
+            ConfigurationConstants.COUNTER_GROUP_MAPRED_TASK_COUNTERS,
+            ConfigurationConstants.COUNTER_MAP_OUTPUT_RECORDS).increment(1);
+        records++;
+      }
+      return records;
+    }
+
+    void commit() throws Exception {
+      reader.close();
+      writer.close(context);
+      committer.commitTask(context);
+    }
+  }
+
+  private List<InputSplit> makeChunks() {
+    List<InputSplit> chunks = new ArrayList<InputSplit>();
+    for (int i = 0; i < NUM_CHUNKS; i++) {
+      chunks.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(
+          "id >= " + i, "id < " + (i + 1)));
+    }
+    return chunks;
+  }
+
+  private List<String> readOutput() throws IOException {
+    List<String> rows = new ArrayList<String>();
+    for (FileStatus file : fs.globStatus(new Path(outputDir, "part-*"))) {
+      BufferedReader r = new BufferedReader(new InputStreamReader(
+          fs.open(file.getPath()), StandardCharsets.UTF_8));
+      try {
+        String line;
+        while (null != (line = r.readLine())) {
+          rows.add(line);
+        }
+      } finally {
+        r.close();
+      }
+    }
+    return rows;
+  }
+
+  @Test
+  public void testRetryCountsKeptChunks() throws Exception {
+    JobContext jobContext = new JobContextImpl(conf, jobId);
+
+    // The first attempt finishes two chunks, then fails in the third.
+    Attempt failed = new Attempt(0);
+    failed.committer.setupJob(jobContext);
+    assertEquals(2 * ROWS_PER_CHUNK + 1, failed.run(2 * ROWS_PER_CHUNK + 1));
+    failed.committer.abortTask(failed.context);
+
+    // The retry reads only the other chunks...
+    Attempt retry = new Attempt(1);
+    assertEquals((NUM_CHUNKS - 2) * ROWS_PER_CHUNK,
+        retry.run(Integer.MAX_VALUE));
+    retry.commit();
+    retry.committer.commitJob(jobContext);
+
+    // ...but counts the records of every chunk, as it commits them all.
+    assertEquals(NUM_CHUNKS * ROWS_PER_CHUNK,
+        retry.reporter.getOutputRecords());
+    List<String> rows = readOutput();
+    assertEquals(NUM_CHUNKS * ROWS_PER_CHUNK, rows.size());
+    Set<String> seen = new HashSet<String>();
+    for (String row : rows) {
+      assertTrue("Imported twice: " + row, seen.add(row));
+    }
+  }
+  @Test
+  public void testRetryIsValidatedAgainstTable() throws Exception {
+    conf.setBoolean(SplitCountValidator.ENABLED_KEY, true);
+    JobContext jobContext = new JobContextImpl(conf, jobId);
+
+    Attempt failed = new Attempt(0);
+    failed.committer.setupJob(jobContext);
+    failed.run(2 * ROWS_PER_CHUNK + 1);
+    failed.committer.abortTask(failed.context);
+
+    Attempt retry = new Attempt(1);
+    retry.run(Integer.MAX_VALUE);
+    retry.commit();
+
+    // The row counts of the kept chunks went with the failed attempt, so
+    // the client must count the table rather than sum the split counts.
+    assertEquals(2, retry.reporter.getUncountedQueries());
+    assertEquals(NUM_CHUNKS * ROWS_PER_CHUNK,
+        retry.reporter.getOutputRecords());
+  }
+
+  @Test
+  public void testFirstAttemptLeavesSplitCountsUsable() throws Exception {
+    conf.setBoolean(SplitCountValidator.ENABLED_KEY, true);
+    JobContext jobContext = new JobContextImpl(conf, jobId);
+
+    Attempt only = new Attempt(0);
+    only.committer.setupJob(jobContext);
+    only.run(Integer.MAX_VALUE);
+    only.commit();
+
+    assertEquals(0, only.reporter.getUncountedQueries());
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+import org.apache.hadoop.io.Text;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class TestMergeKeyEncoder {
+
+  private final MergeKeyEncoder encoder = new MergeKeyEncoder("id");
+
+  private Text encode(Object value) {
+    Text key = new Text();
+    encoder.encodeValue(value, key);
+    return key;
+  }
+
+  /** Assert that the encodings of 'values' are in ascending order. */
+  private void assertAscending(Object... values) {
+    for (int i = 1; i < values.length; i++) {
+      assertTrue(values[i - 1] + " < " + values[i],
+          encode(values[i - 1]).compareTo(encode(values[i])) < 0);
+    }
+  }
+
+  @Test
+  public void testIntegralKeysSortAsNumbers() {
+    long [] values = { Long.MIN_VALUE, -100L, -1L, 0L, 1L, 9L, 10L, 100L,
+        Long.MAX_VALUE, };
+    for (int i = 1; i < values.length; i++) {
+      assertTrue(values[i - 1] + " < " + values[i],
+          encode(values[i - 1]).compareTo(encode(values[i])) < 0);
+    }
+  }
+
+  @Test
+  public void testIntegralTypesEncodeAlike() {
+    assertEquals(encode(42L), encode(42));
+    assertEquals(encode(-7L), encode((short) -7));
+    assertEquals(encode(3L), encode((byte) 3));
+    assertEquals(8, encode(42).getLength());
+  }
+
+  @Test
+  public void testDecimalKeysSortAsNumbers() {
+    String [] values = { "-1000", "-10.5", "-10.25", "-10", "-9.5", "-0.001",
+        "0", "0.001", "0.0011", "0.01", "9.5", "10", "10.25", "10.5",
+        "1000", "1E+30", };
+    BigDecimal [] decimals = new BigDecimal[values.length];
+    for (int i = 0; i < values.length; i++) {
+      decimals[i] = new BigDecimal(values[i]);
+    }
+    assertAscending((Object []) decimals);
+  }
+
+  @Test
+  public void testDecimalScaleIsIgnored() {
+    assertEquals(encode(new BigDecimal("1.5")), encode(new BigDecimal("1.50")));
+    assertEquals(encode(new BigDecimal("-100")),
+        encode(new BigDecimal("-1E+2")));
+    assertEquals(encode(BigDecimal.ZERO), encode(new BigDecimal("0.000")));
+  }
+
+  @Test
+  public void testFloatingPointKeysSortAsNumbers() {
+    assertAscending(Double.NEGATIVE_INFINITY, -1e10, -2.5, -0.5, 0.0, 0.5,
+        2.5, 1e10, Double.POSITIVE_INFINITY);
+    assertEquals(encode(2.5), encode(2.5f));
+  }
+
+  @Test
+  public void testDateKeysSortChronologically() {
+    assertAscending(Date.valueOf("1969-12-31"), Date.valueOf("1970-01-02"),
+        Date.valueOf("2009-10-01"), Date.valueOf("2010-09-01"));
+
+    Timestamp early = Timestamp.valueOf("2010-09-01 12:00:00.000000001");
+    Timestamp late = Timestamp.valueOf("2010-09-01 12:00:00.000000002");
+    assertAscending(Timestamp.valueOf("1960-01-01 00:00:00"), early, late,
+        Timestamp.valueOf("2010-09-01 12:00:01"));
+  }
+
+  @Test
+  public void testOtherKeysUseStringForm() {
+    assertEquals(new Text("abc"), encode("abc"));
+    assertEquals(new Text("true"), encode(Boolean.TRUE));
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class TestMergeKeyFilter {
+
+  private static final int NUM_KEYS = 10000;
+
+  private final MergeKeyEncoder encoder = new MergeKeyEncoder("id");
+  private final Text key = new Text();
+
+  /** Add the multiples of 3 below 3 * NUM_KEYS to 'filter'. */
+  private MergeKeyFilter fill(MergeKeyFilter filter) {
+    for (long i = 0; i < NUM_KEYS; i++) {
+      encoder.encodeValue(i * 3, key);
+      filter.add(key);
+    }
+    return filter;
+  }
+
+  private MergeKeyFilter roundTrip(MergeKeyFilter filter) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    filter.write(new DataOutputStream(bytes));
+    MergeKeyFilter copy = new MergeKeyFilter();
+    copy.readFields(new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())));
+    return copy;
+  }
+
+  /** @return the number of keys not added which the filter contains. */
+  private int countFalsePositives(MergeKeyFilter filter) {
+    int falsePositives = 0;
+    for (long i = 0; i < 3 * NUM_KEYS; i++) {
+      encoder.encodeValue(i, key);
+      boolean contained = filter.mightContain(key);
+      if (i % 3 == 0) {
+        assertTrue("Key " + i + " was added", contained);
+      } else if (contained) {
+        falsePositives++;
+      }
+    }
+    return falsePositives;
+  }
+
+  @Test
+  public void testExactFilter() throws IOException {
+    MergeKeyFilter filter = roundTrip(fill(MergeKeyFilter.newExactFilter()));
+    assertTrue(filter.isExact());
+    assertEquals(0, countFalsePositives(filter));
+  }
+
+  @Test
+  public void testBloomFilter() throws IOException {
+    MergeKeyFilter filter = roundTrip(fill(
+        MergeKeyFilter.newBloomFilter(NUM_KEYS, 0.01)));
+    assertFalse(filter.isExact());
+    int falsePositives = countFalsePositives(filter);
+    assertTrue("Too many false positives: " + falsePositives,
+        falsePositives < 2 * NUM_KEYS * 0.02);
+  }
+
+  @Test
+  public void testStringKeys() {
+    MergeKeyFilter filter = MergeKeyFilter.newBloomFilter(2, 0.01);
+    filter.add(new Text("alpha"));
+    filter.add(new Text("beta"));
+    assertTrue(filter.mightContain(new Text("alpha")));
+    assertTrue(filter.mightContain(new Text("beta")));
+  }
+}
@@ -0,0 +1,253 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.sqoop.lib.DelimiterSet;
+import org.apache.sqoop.lib.LargeObjectLoader;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.mapreduce.ExportJobBase.FileType;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+@Category(UnitTest.class)
+public class TestMergeSortedInputFormat {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private Configuration conf;
+  private File oldDir;
+  private File newDir;
+
+  @Before
+  public void setUp() throws IOException {
+    oldDir = tmpFolder.newFolder("old");
+    newDir = tmpFolder.newFolder("new");
+    conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    conf.set(MergeJob.MERGE_OLD_PATH_KEY, oldDir.toURI().toString());
+    conf.set(MergeJob.MERGE_NEW_PATH_KEY, newDir.toURI().toString());
+    conf.set(MergeJob.MERGE_KEY_COL_KEY, "id");
+    conf.set(MergeJob.MERGE_SQOOP_RECORD_KEY, DecimalRecord.class.getName());
+    conf.set(MergeSortedInputFormat.FILE_TYPE_KEY, FileType.UNKNOWN.name());
+  }
+
+  /** Write one key per line to 'name' in 'dir'. */
+  private File writeKeys(File dir, String name, String... keys)
+      throws IOException {
+    File file = new File(dir, name);
+    PrintWriter writer = new PrintWriter(file, "UTF-8");
+    try {
+      for (String key : keys) {
+        writer.println(key);
+      }
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+
+  private List<InputSplit> getSplits() throws Exception {
+    return new MergeSortedInputFormat().getSplits(
+        new JobContextImpl(conf, new JobID()));
+  }
+
+  private Text encode(String key) {
+    Text text = new Text();
+    new MergeKeyEncoder("id").encodeValue(new BigDecimal(key), text);
+    return text;
+  }
+
+  @Test
+  public void testDecimalKeysSortAsNumbers() throws Exception {
+    // As strings, "9.5" sorts after "10.25".
+    writeKeys(oldDir, "part-m-00000", "-3", "9.5", "10.25");
+    writeKeys(oldDir, "part-m-00001", "100", "200.5");
+    writeKeys(newDir, "part-m-00000", "9.75");
+    writeKeys(newDir, "part-m-00001", "150");
+
+    assertEquals(2, getSplits().size());
+  }
+
+  @Test
+  public void testOverlappingBucketsAreRejected() throws Exception {
+    // Key 10 of the new dataset belongs in the second bucket.
+    writeKeys(oldDir, "part-m-00000", "1", "2", "3");
+    writeKeys(oldDir, "part-m-00001", "10", "11");
+    writeKeys(newDir, "part-m-00000", "2", "10");
+    writeKeys(newDir, "part-m-00001", "12");
+
+    try {
+      getSplits();
+      fail("Expected the overlapping buckets to be rejected");
+    } catch (IOException ioe) {
+      assertTrue(ioe.getMessage(), ioe.getMessage().contains(
+          MergeJob.MERGE_SORTED_KEY));
+    }
+  }
+
+  @Test
+  public void testEmptyBucketsAreSkipped() throws Exception {
+    writeKeys(oldDir, "part-m-00000", "1", "2");
+    writeKeys(oldDir, "part-m-00001");
+    writeKeys(oldDir, "part-m-00002", "5");
+    writeKeys(newDir, "part-m-00000");
+    writeKeys(newDir, "part-m-00001", "3");
+    writeKeys(newDir, "part-m-00002");
+
+    assertEquals(3, getSplits().size());
+  }
+
+  @Test
+  public void testLastKeyIsReadFromTheTail() throws Exception {
+    int numKeys = 50000;
+    String [] keys = new String[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      keys[i] = i + ".5";
+    }
+    File file = writeKeys(oldDir, "part-m-00000", keys);
+
+    Text first = new Text();
+    Text last = new Text();
+    assertTrue(MergeSortedRecordReader.readKeyRange(
+        new Path(file.toURI()), file.length(),
+        new TaskAttemptContextImpl(conf, new TaskAttemptID()), first, last));
+    assertEquals(encode("0.5"), first);
+    assertEquals(encode((numKeys - 1) + ".5"), last);
+  }
+
+  /** A record of a single decimal column, "id". */
+  public static class DecimalRecord extends SqoopRecord {
+    private BigDecimal id;
+
+    @Override
+    public Map<String, Object> getFieldMap() {
+      return Collections.<String, Object>singletonMap("id", id);
+    }
+
+    @Override
+    public String [] getFieldNames() {
+      return new String [] { "id" };
+    }
+
+    @Override
+    public void getFieldValues(Object [] values) {
+      values[0] = id;
+    }
+
+    @Override
+    public void parse(CharSequence s) {
+      id = new BigDecimal(s.toString());
+    }
+
+    @Override
+    public void parse(Text s) {
+      parse(s.toString());
+    }
+
+    @Override
+    public void parse(byte [] s) {
+      parse(new String(s));
+    }
+
+    @Override
+    public void parse(char [] s) {
+      parse(new String(s));
+    }
+
+    @Override
+    public void parse(ByteBuffer s) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void parse(CharBuffer s) {
+      parse(s.toString());
+    }
+
+    @Override
+    public void loadLargeObjects(LargeObjectLoader objLoader) {
+    }
+
+    @Override
+    public int write(PreparedStatement stmt, int offset) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString(DelimiterSet delimiters) {
+      return id.toString();
+    }
+
+    @Override
+    public int getClassFormatVersion() {
+      return 3;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      Text.writeString(out, id.toString());
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+      id = new BigDecimal(Text.readString(in));
+    }
+
+    @Override
+    public void write(PreparedStatement statement) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void readFields(ResultSet resultSet) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.mapreduce;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.sqoop.lib.DelimiterSet;
+import org.apache.sqoop.lib.FieldFormatter;
+import org.apache.sqoop.lib.RecordParser;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that MySQLDumpTranscoder formats records the same way as
+ * reparsing them with RecordParser and FieldFormatter.
+ */
+@Category(UnitTest.class)
+public class TestMySQLDumpTranscoder {
+
+  private static final String PREAMBLE = "INSERT INTO `t` VALUES (";
+
+  private static final String [] VALUES = {
+    "1,'abc',NULL,2.5",
+    "2,'a,b','it\\'s',''",
+    "3,'back\\\\slash','line\\nbreak','tab\\there'",
+    "4,,'',",
+    "5,'caf\u00e9 \u00fcber','\u65e5\u672c',-1",
+    "6,'quote\"d','|pipe|','\\0'",
+    "",
+  };
+
+  private static final DelimiterSet [] DELIMITERS = {
+    DelimiterSet.DEFAULT_DELIMITERS,
+    DelimiterSet.HIVE_DELIMITERS,
+    new DelimiterSet('|', '\n', '"', '\\', false),
+    new DelimiterSet('|', '\n', '"', '\\', true),
+    new DelimiterSet(',', '\n', DelimiterSet.NULL_CHAR, '\\', false),
+    new DelimiterSet('\t', '\n', '\'', DelimiterSet.NULL_CHAR, false),
+  };
+
+  /** Format a record the way ReparsingAsyncSink does. */
+  private String reparse(String values, DelimiterSet delimiters)
+      throws RecordParser.ParseError {
+    RecordParser parser = new RecordParser(DelimiterSet.MYSQL_DELIMITERS);
+    List<String> fields = parser.parseRecord(values);
+    StringBuilder sb = new StringBuilder();
+    boolean first = true;
+    for (String field : fields) {
+      if (!first) {
+        sb.append(delimiters.getFieldsTerminatedBy());
+      }
+      first = false;
+      sb.append(FieldFormatter.escapeAndEnclose(field, delimiters));
+    }
+    sb.append(delimiters.getLinesTerminatedBy());
+    return sb.toString();
+  }
+
+  private String transcode(MySQLDumpTranscoder transcoder, String line)
+      throws RecordParser.ParseError {
+    byte [] bytes = line.getBytes(StandardCharsets.UTF_8);
+    assertTrue(transcoder.transcode(bytes, bytes.length));
+    return new String(transcoder.getRecordBytes(), 0,
+        transcoder.getRecordLength(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testMatchesReparsing() throws Exception {
+    for (DelimiterSet delimiters : DELIMITERS) {
+      assertTrue(MySQLDumpTranscoder.canTranscode(delimiters));
+      MySQLDumpTranscoder transcoder = new MySQLDumpTranscoder(delimiters);
+      for (String values : VALUES) {
+        assertEquals("Values [" + values + "] with " + delimiters,
+            reparse(values, delimiters),
+            transcode(transcoder, PREAMBLE + values + ");"));
+      }
+    }
+  }
+
+  @Test
+  public void testCopy() throws Exception {
+    MySQLDumpTranscoder transcoder = new MySQLDumpTranscoder();
+    for (String values : VALUES) {
+      assertEquals(values + "\n",
+          transcode(transcoder, PREAMBLE + values + ");"));
+    }
+  }
+
+  @Test
+  public void testSkipsCommentsAndBlankLines() throws Exception {
+    MySQLDumpTranscoder transcoder = new MySQLDumpTranscoder(
+        DelimiterSet.DEFAULT_DELIMITERS);
+    for (String line : new String [] { "", "  \t", "-- a comment" }) {
+      byte [] bytes = line.getBytes(StandardCharsets.UTF_8);
+      assertFalse(transcoder.transcode(bytes, bytes.length));
+    }
+  }
+
+  @Test(expected = RecordParser.ParseError.class)
+  public void testMalformedRecord() throws Exception {
+    MySQLDumpTranscoder transcoder = new MySQLDumpTranscoder(
+        DelimiterSet.DEFAULT_DELIMITERS);
+    transcode(transcoder, PREAMBLE + "1,'abc'x,2);");
+  }
+
+  @Test
+  public void testCannotTranscode() {
+    assertFalse(MySQLDumpTranscoder.canTranscode(
+        new DelimiterSet('\u00a7', '\n', DelimiterSet.NULL_CHAR,
+        DelimiterSet.NULL_CHAR, false)));
+    assertFalse(MySQLDumpTranscoder.canTranscode(
+        new DelimiterSet(',', '\n', '"', '"', false)));
+    assertFalse(MySQLDumpTranscoder.canTranscode(
+        new DelimiterSet(',', '\n', DelimiterSet.NULL_CHAR, ',', false)));
+  }
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.sqoop.config.ConfigurationConstants;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test that the chunks finished by a failed attempt are kept for the next
+ * attempt of the task.
+ */
+@Category(UnitTest.class)
+public class TestChunkCheckpoint {
+
+  // Checkpoints are shared by attempt id, so each test uses its own job.
+  private static int nextJobId = 1;
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private int jobId;
+  private Configuration conf;
+  private FileSystem fs;
+  private Path outputDir;
+
+  @Before
+  public void setUp() throws IOException {
+    jobId = nextJobId++;
+    conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    fs = FileSystem.getLocal(conf);
+    outputDir = new Path(tmpFolder.getRoot().getAbsolutePath(), "out");
+    conf.set(FileOutputFormat.OUTDIR, outputDir.toString());
+  }
+
+  /**
+   * Writes one file for each chunk into the work directory of an attempt.
+   */
+  private class FakeWriter implements ChunkCheckpoint.Listener {
+    private final Path workDir;
+
+    FakeWriter(int attempt) throws IOException {
+      this.workDir = new Path(outputDir, "attempt-" + attempt);
+      fs.mkdirs(workDir);
+    }
+
+    @Override
+    public List<Path> finishChunk(int chunk) throws IOException {
+      Path file = new Path(workDir, "part-chunk-" + chunk + "-m-00000");
+      fs.create(file).close();
+      return Collections.singletonList(file);
+    }
+  }
+
+  private TaskAttemptID getAttemptId(int attempt) {
+    return new TaskAttemptID("test", jobId, TaskType.MAP, 0, attempt);
+  }
+
+  private ChunkCheckpoint open(int attempt) throws IOException {
+    TaskAttemptContext context =
+        new TaskAttemptContextImpl(conf, getAttemptId(attempt));
+    return ChunkCheckpoint.forTask(context);
+  }
+
+  private static void writeRecords(ChunkCheckpoint checkpoint, int chunk,
+      int numRecords) {
+    checkpoint.startChunk(chunk);
+    for (int i = 0; i < numRecords; i++) {
+      checkpoint.recordWritten();
+    }
+  }
+
+  @Test
+  public void testRetrySkipsFinishedChunks() throws Exception {
+    ChunkCheckpoint first = open(0);
+    first.setListener(new FakeWriter(0));
+    writeRecords(first, 3, 2);
+    first.endChunk();
+    writeRecords(first, 4, 5);
+    first.endChunk();
+    // The attempt fails while reading chunk 5.
+    writeRecords(first, 5, 1);
+
+    ChunkCheckpoint retry = open(1);
+    FakeWriter writer = new FakeWriter(1);
+    retry.setListener(writer);
+    assertTrue(retry.isDone(3));
+    assertTrue(retry.isDone(4));
+    assertFalse(retry.isDone(5));
+
+    writeRecords(retry, 5, 4);
+    retry.endChunk();
+    Counter outputRecords = new Counters().findCounter(
+        ConfigurationConstants.COUNTER_GROUP_MAPRED_TASK_COUNTERS,
+        ConfigurationConstants.COUNTER_MAP_OUTPUT_RECORDS);
+    TaskAttemptContext context = mock(TaskAttemptContext.class);
+    when(context.getCounter(
+        ConfigurationConstants.COUNTER_GROUP_MAPRED_TASK_COUNTERS,
+        ConfigurationConstants.COUNTER_MAP_OUTPUT_RECORDS))
+        .thenReturn(outputRecords);
+    retry.promote(writer.workDir, context);
+
+    // Only the records of the chunks done by the first attempt are added;
+    // those of chunk 5 went through the retry's mapper.
+    assertEquals(7, outputRecords.getValue());
+
+    for (int chunk = 3; chunk <= 5; chunk++) {
+      assertTrue(fs.exists(
+          new Path(writer.workDir, "part-chunk-" + chunk + "-m-00000")));
+    }
+
+    // A third attempt, after the second failed to commit, reads everything.
+    ChunkCheckpoint third = open(2);
+    third.setListener(new FakeWriter(2));
+    assertFalse(third.isDone(3));
+  }
+
+  @Test
+  public void testLobFilesStopCheckpoints() throws Exception {
+    ChunkCheckpoint first = open(0);
+    FakeWriter writer = new FakeWriter(0);
+    first.setListener(writer);
+    first.startChunk(0);
+    first.endChunk();
+    fs.mkdirs(new Path(writer.workDir, ChunkCheckpoint.LOB_DIR));
+    first.startChunk(1);
+    first.endChunk();
+
+    ChunkCheckpoint retry = open(1);
+    retry.setListener(new FakeWriter(1));
+    assertTrue(retry.isDone(0));
+    assertFalse(retry.isDone(1));
+  }
+
+  @Test
+  public void testNothingIsKeptWithoutAWriter() throws Exception {
+    ChunkCheckpoint first = open(0);
+    first.startChunk(0);
+    first.endChunk();
+
+    ChunkCheckpoint retry = open(1);
+    retry.setListener(new FakeWriter(1));
+    assertFalse(retry.isDone(0));
+    assertFalse(new File(tmpFolder.getRoot(), "out/"
+        + ChunkCheckpoint.CHECKPOINT_DIR + "/"
+        + getAttemptId(0).getTaskID() + "/"
+        + ChunkCheckpoint.MANIFEST).exists());
+    assertEquals(-1, retry.getCurrentChunk());
+  }
+}
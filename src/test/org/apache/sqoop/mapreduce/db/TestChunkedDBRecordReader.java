@@ -0,0 +1,341 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.mapreduce.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.sqoop.mapreduce.DBWritable;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that chunked splits hand out every chunk to exactly one task.
+ */
+@Category(UnitTest.class)
+public class TestChunkedDBRecordReader {
+
+  private static final int NUM_CHUNKS = 12;
+  private static final int ROWS_PER_CHUNK = 3;
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    conf = new Configuration();
+    conf.set(ChunkedDBRecordReader.CLAIM_DIR_PROPERTY,
+        tmpFolder.getRoot().getAbsolutePath());
+  }
+
+  /**
+   * Pretends to read ROWS_PER_CHUNK rows for the current chunk of its split,
+   * and records which rows it read.
+   */
+  private static class FakeReader extends DBRecordReader<DBWritable> {
+    private final List<String> rowsRead = new ArrayList<String>();
+    private int row = -1;
+
+    FakeReader(DataDrivenDBChunkedInputSplit split) throws Exception {
+      super(split, DBWritable.class, null, null, null, null, null, null);
+    }
+
+    @Override
+    public boolean nextKeyValue() {
+      if (row < 0) {
+        row = 0;
+      }
+      if (row == ROWS_PER_CHUNK) {
+        return false;
+      }
+      DataDrivenDBInputFormat.DataDrivenDBInputSplit split =
+          (DataDrivenDBInputFormat.DataDrivenDBInputSplit) getSplit();
+      rowsRead.add(split.getLowerClause() + " row " + row++);
+      return true;
+    }
+
+    @Override
+    protected void resetQuery() {
+      row = -1;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private List<InputSplit> makeChunks(int numChunks) {
+    List<InputSplit> chunks = new ArrayList<InputSplit>();
+    for (int i = 0; i < numChunks; i++) {
+      chunks.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(
+          "id >= " + i, "id < " + (i + 1)));
+    }
+    return chunks;
+  }
+
+  private ChunkedDBRecordReader<DBWritable> open(FakeReader fake,
+      InputSplit split, int task, int attempt) throws Exception {
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf,
+        new TaskAttemptID("test", 1, TaskType.MAP, task, attempt));
+    ChunkedDBRecordReader<DBWritable> reader =
+        new ChunkedDBRecordReader<DBWritable>(fake,
+            (DataDrivenDBChunkedInputSplit) split);
+    reader.initialize(split, context);
+    return reader;
+  }
+
+  private static void readAll(ChunkedDBRecordReader<DBWritable> reader)
+      throws Exception {
+    while (reader.nextKeyValue()) {
+      // Read all of the rows.
+    }
+  }
+
+  private static void addAll(Set<String> seen, List<String> rows) {
+    for (String row : rows) {
+      assertTrue("Read twice: " + row, seen.add(row));
+    }
+  }
+
+  @Test
+  public void testGroup() throws IOException {
+    List<InputSplit> chunks = makeChunks(10);
+    List<InputSplit> splits = DataDrivenDBChunkedInputSplit.group(chunks, 3,
+        conf);
+    assertEquals(3, splits.size());
+
+    int [] firstChunks = { 0, 3, 6 };
+    for (int i = 0; i < splits.size(); i++) {
+      DataDrivenDBChunkedInputSplit split =
+          (DataDrivenDBChunkedInputSplit) splits.get(i);
+      assertEquals(10, split.getNumChunks());
+      assertEquals(firstChunks[i], split.getFirstChunk());
+      assertEquals("id >= " + firstChunks[i], split.getLowerClause());
+    }
+
+    // No point in chunking if there are no more chunks than tasks.
+    assertSame(chunks, DataDrivenDBChunkedInputSplit.group(chunks, 10,
+        conf));
+  }
+
+  @Test
+  public void testSerialization() throws IOException {
+    List<InputSplit> splits =
+        DataDrivenDBChunkedInputSplit.group(makeChunks(5), 2, conf);
+    DataDrivenDBChunkedInputSplit split =
+        (DataDrivenDBChunkedInputSplit) splits.get(1);
+    split.setCurrentChunk(4);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    split.write(new DataOutputStream(bytes));
+    DataDrivenDBChunkedInputSplit copy = new DataDrivenDBChunkedInputSplit();
+    copy.readFields(new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals(5, copy.getNumChunks());
+    assertEquals(2, copy.getFirstChunk());
+    assertEquals(2, copy.getCurrentChunk());
+    assertEquals("id >= 2", copy.getLowerClause());
+    assertEquals("id < 3", copy.getUpperClause());
+    copy.setCurrentChunk(4);
+    assertEquals("id >= 4 AND id < 5 (chunk 4 of 5)", copy.toString());
+  }
+
+  @Test
+  public void testFastTaskTakesMoreChunks() throws Exception {
+    List<InputSplit> splits =
+        DataDrivenDBChunkedInputSplit.group(makeChunks(NUM_CHUNKS), 3,
+            conf);
+    List<FakeReader> fakes = new ArrayList<FakeReader>();
+    List<ChunkedDBRecordReader<DBWritable>> readers =
+        new ArrayList<ChunkedDBRecordReader<DBWritable>>();
+    for (int i = 0; i < splits.size(); i++) {
+      FakeReader fake =
+          new FakeReader((DataDrivenDBChunkedInputSplit) splits.get(i));
+      fakes.add(fake);
+      readers.add(open(fake, splits.get(i), i, 0));
+    }
+
+    // Task 0 reads four rows for every row read by the others.
+    boolean [] done = new boolean[readers.size()];
+    int numDone = 0;
+    while (numDone < readers.size()) {
+      for (int i = 0; i < readers.size(); i++) {
+        for (int j = 0; j < (i == 0 ? 4 : 1) && !done[i]; j++) {
+          if (!readers.get(i).nextKeyValue()) {
+            done[i] = true;
+            numDone++;
+          }
+        }
+      }
+    }
+
+    Set<String> seen = new HashSet<String>();
+    for (FakeReader fake : fakes) {
+      addAll(seen, fake.rowsRead);
+    }
+    assertEquals(NUM_CHUNKS * ROWS_PER_CHUNK, seen.size());
+    assertTrue("Fast task read " + fakes.get(0).rowsRead.size() + " rows",
+        fakes.get(0).rowsRead.size() > NUM_CHUNKS * ROWS_PER_CHUNK / 2);
+  }
+
+  @Test
+  public void testRetryReadsClaimedChunks() throws Exception {
+    List<InputSplit> splits =
+        DataDrivenDBChunkedInputSplit.group(makeChunks(NUM_CHUNKS), 2,
+            conf);
+
+    // The first attempt of task 0 claims two chunks, then fails.
+    FakeReader failed =
+        new FakeReader((DataDrivenDBChunkedInputSplit) splits.get(0));
+    ChunkedDBRecordReader<DBWritable> reader =
+        open(failed, splits.get(0), 0, 0);
+    for (int i = 0; i < ROWS_PER_CHUNK + 1; i++) {
+      assertTrue(reader.nextKeyValue());
+    }
+
+    // Task 1 then reads every chunk that task 0 has not claimed.
+    FakeReader other =
+        new FakeReader((DataDrivenDBChunkedInputSplit) splits.get(1));
+    reader = open(other, splits.get(1), 1, 0);
+    while (reader.nextKeyValue()) {
+      // Read all of the rows.
+    }
+    assertEquals((NUM_CHUNKS - 2) * ROWS_PER_CHUNK, other.rowsRead.size());
+
+    // The retry must read the two chunks claimed by the first attempt.
+    DataDrivenDBChunkedInputSplit retrySplit =
+        (DataDrivenDBChunkedInputSplit) DataDrivenDBChunkedInputSplit.group(
+            makeChunks(NUM_CHUNKS), 2, conf).get(0);
+    FakeReader retry = new FakeReader(retrySplit);
+    reader = open(retry, retrySplit, 0, 1);
+    while (reader.nextKeyValue()) {
+      // Read all of the rows.
+    }
+
+    Set<String> seen = new HashSet<String>();
+    addAll(seen, other.rowsRead);
+    addAll(seen, retry.rowsRead);
+    assertEquals(NUM_CHUNKS * ROWS_PER_CHUNK, seen.size());
+  }
+
+  @Test
+  public void testChunkTable() throws Exception {
+    conf.set(MRJobConfig.MAPREDUCE_JOB_DIR,
+        tmpFolder.newFolder("staging").getAbsolutePath());
+    List<InputSplit> splits =
+        DataDrivenDBChunkedInputSplit.group(makeChunks(NUM_CHUNKS), 2, conf);
+
+    // The split holds the path of the chunks, not the chunks themselves.
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ((DataDrivenDBChunkedInputSplit) splits.get(1)).write(
+        new DataOutputStream(bytes));
+    DataDrivenDBChunkedInputSplit copy = new DataDrivenDBChunkedInputSplit();
+    copy.readFields(new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())));
+    assertFalse(bytes.toString("UTF-8").contains("id >= "));
+    assertEquals(NUM_CHUNKS, copy.getNumChunks());
+    assertEquals(NUM_CHUNKS / 2, copy.getFirstChunk());
+
+    FakeReader fake = new FakeReader(copy);
+    readAll(open(fake, copy, 1, 0));
+    Set<String> seen = new HashSet<String>();
+    addAll(seen, fake.rowsRead);
+    assertEquals(NUM_CHUNKS * ROWS_PER_CHUNK, seen.size());
+    assertEquals("id >= " + (NUM_CHUNKS / 2) + " row 0",
+        fake.rowsRead.get(0));
+  }
+
+  @Test
+  public void testBatchedClaims() throws Exception {
+    conf.setInt(ChunkedDBRecordReader.CHUNKS_PER_CLAIM_PROPERTY, 5);
+    List<InputSplit> splits =
+        DataDrivenDBChunkedInputSplit.group(makeChunks(NUM_CHUNKS), 2,
+            conf);
+
+    // Task 0 claims the first batch, then task 1 claims the other two.
+    FakeReader first =
+        new FakeReader((DataDrivenDBChunkedInputSplit) splits.get(0));
+    ChunkedDBRecordReader<DBWritable> reader =
+        open(first, splits.get(0), 0, 0);
+    assertTrue(reader.nextKeyValue());
+    FakeReader second =
+        new FakeReader((DataDrivenDBChunkedInputSplit) splits.get(1));
+    readAll(open(second, splits.get(1), 1, 0));
+    readAll(reader);
+
+    assertEquals(5 * ROWS_PER_CHUNK, first.rowsRead.size());
+    assertEquals((NUM_CHUNKS - 5) * ROWS_PER_CHUNK,
+        second.rowsRead.size());
+    Set<String> seen = new HashSet<String>();
+    addAll(seen, first.rowsRead);
+    addAll(seen, second.rowsRead);
+    assertEquals(NUM_CHUNKS * ROWS_PER_CHUNK, seen.size());
+
+    Path claimDir = ChunkedDBRecordReader.getClaimDir(conf,
+        new JobID("test", 1));
+    FileSystem fs = claimDir.getFileSystem(conf);
+    assertEquals(3, fs.listStatus(claimDir).length);
+  }
+
+  @Test
+  public void testDeleteClaimDir() throws Exception {
+    List<InputSplit> splits =
+        DataDrivenDBChunkedInputSplit.group(makeChunks(NUM_CHUNKS), 2,
+            conf);
+    FakeReader fake =
+        new FakeReader((DataDrivenDBChunkedInputSplit) splits.get(0));
+    readAll(open(fake, splits.get(0), 0, 0));
+
+    JobID jobId = new JobID("test", 1);
+    Path claimDir = ChunkedDBRecordReader.getClaimDir(conf, jobId);
+    FileSystem fs = claimDir.getFileSystem(conf);
+    assertTrue(fs.exists(claimDir));
+    ChunkedDBRecordReader.deleteClaimDir(conf, jobId);
+    assertFalse(fs.exists(claimDir));
+    assertTrue(fs.exists(claimDir.getParent()));
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.mapreduce.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the HistogramSplitter chooses split points from the
+ * distribution of the values.
+ */
+@Category(UnitTest.class)
+public class TestHistogramSplitter {
+
+  @Test
+  public void testUniformSampleQuantiles() {
+    List<Long> sample = new ArrayList<Long>();
+    for (long i = 0; i < 100; i++) {
+      sample.add(i);
+    }
+
+    assertEquals(Arrays.asList(25L, 50L, 75L),
+        HistogramSplitter.quantiles(sample, 4));
+  }
+
+  @Test
+  public void testSkewedSampleQuantiles() {
+    // 90 values clustered at the bottom of the range; an equal-width
+    // split of [0, 1000] would put 91 of them in the first split.
+    List<Long> sample = new ArrayList<Long>();
+    for (long i = 0; i < 90; i++) {
+      sample.add(i);
+    }
+    for (long i = 0; i < 10; i++) {
+      sample.add(100 * (i + 1));
+    }
+
+    assertEquals(Arrays.asList(25L, 50L, 75L),
+        HistogramSplitter.quantiles(sample, 4));
+  }
+
+  @Test
+  public void testRepeatedValues() {
+    List<Long> sample = Arrays.asList(1L, 1L, 1L, 1L, 1L, 1L, 2L, 3L);
+    // Split points equal to the minimum, or to each other, are dropped.
+    assertEquals(Arrays.asList(2L), HistogramSplitter.quantiles(sample, 4));
+    assertTrue(HistogramSplitter.quantiles(Arrays.asList(7L, 7L), 4)
+        .isEmpty());
+    assertTrue(HistogramSplitter.quantiles(new ArrayList<Long>(), 4)
+        .isEmpty());
+  }
+
+  @Test
+  public void testBuildSplits() {
+    List<InputSplit> splits = HistogramSplitter.buildSplits("id",
+        Arrays.asList("0", "30", "60", "1000"));
+    assertEquals(3, splits.size());
+    assertEquals("id >= 0 AND id < 30", splits.get(0).toString());
+    assertEquals("id >= 30 AND id < 60", splits.get(1).toString());
+    assertEquals("id >= 60 AND id <= 1000", splits.get(2).toString());
+
+    splits = HistogramSplitter.buildSplits("id", Arrays.asList("5", "5"));
+    assertEquals(1, splits.size());
+    assertEquals("id >= 5 AND id <= 5", splits.get(0).toString());
+  }
+
+  @Test
+  public void testCanWrap() {
+    assertTrue(HistogramSplitter.canWrap(new IntegerSplitter()));
+    assertTrue(HistogramSplitter.canWrap(new DateSplitter()));
+    assertTrue(HistogramSplitter.canWrap(new OracleDateSplitter()));
+    assertTrue(HistogramSplitter.canWrap(new TextSplitter()));
+    assertTrue(HistogramSplitter.canWrap(new NTextSplitter()));
+    assertFalse(HistogramSplitter.canWrap(new FloatSplitter()));
+    assertFalse(HistogramSplitter.canWrap(new BooleanSplitter()));
+  }
+}
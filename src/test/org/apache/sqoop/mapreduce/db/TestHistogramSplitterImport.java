@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.sqoop.config.ConfigurationHelper;
+import org.apache.sqoop.mapreduce.DBWritable;
+import org.apache.sqoop.testcategories.sqooptest.IntegrationTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the splits a DataDrivenDBInputFormat makes with a HistogramSplitter
+ * for a skewed column. HSQLDB has no NTILE(), so the split points can only
+ * come from a sample.
+ */
+@Category(IntegrationTest.class)
+public class TestHistogramSplitterImport {
+
+  private static final String DB_URL = "jdbc:hsqldb:mem:histogramsplits";
+  private static final String DRIVER_CLASS = "org.hsqldb.jdbcDriver";
+  private static final String TABLE = "SKEWED_TABLE";
+  private static final int NUM_SPLITS = 4;
+
+  private Connection connection;
+  private int oldLocalModeMaps;
+
+  @Before
+  public void setUp() throws Exception {
+    Class.forName(DRIVER_CLASS);
+    connection = DriverManager.getConnection(DB_URL);
+    Statement s = connection.createStatement();
+    try {
+      s.executeUpdate("DROP TABLE " + TABLE + " IF EXISTS");
+      s.executeUpdate("CREATE TABLE " + TABLE + " (ID INT NOT NULL)");
+      // 90 ids clustered at the bottom of [0, 1000]: an equal-width split
+      // puts all of them in the first split.
+      for (int i = 0; i < 90; i++) {
+        s.executeUpdate("INSERT INTO " + TABLE + " VALUES (" + i + ")");
+      }
+      for (int i = 1; i <= 10; i++) {
+        s.executeUpdate("INSERT INTO " + TABLE + " VALUES (" + (100 * i)
+            + ")");
+      }
+    } finally {
+      s.close();
+    }
+    oldLocalModeMaps = ConfigurationHelper.numLocalModeMaps;
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ConfigurationHelper.numLocalModeMaps = oldLocalModeMaps;
+    connection.close();
+  }
+
+  private List<InputSplit> getSplits(String method) throws Exception {
+    Job job = Job.getInstance();
+    DBConfiguration.configureDB(job.getConfiguration(), DRIVER_CLASS, DB_URL,
+        (String) null, (String) null);
+    ConfigurationHelper.setJobNumMaps(job, NUM_SPLITS);
+    job.getConfiguration().setBoolean(
+        HistogramSplitter.HISTOGRAM_SPLITTER_PROPERTY, true);
+    if (null != method) {
+      job.getConfiguration().set(
+          HistogramSplitter.HISTOGRAM_METHOD_PROPERTY, method);
+    }
+    DataDrivenDBInputFormat.setInput(job, DBWritable.class, TABLE, null,
+        "ID", "ID");
+
+    DataDrivenDBInputFormat<DBWritable> format =
+        new DataDrivenDBInputFormat<DBWritable>();
+    format.setConf(job.getConfiguration());
+    return format.getSplits(job);
+  }
+
+  /** @return the number of rows in each split. */
+  private List<Integer> countRows(List<InputSplit> splits) throws Exception {
+    List<Integer> counts = new ArrayList<Integer>();
+    Statement s = connection.createStatement();
+    try {
+      for (InputSplit split : splits) {
+        DataDrivenDBInputFormat.DataDrivenDBInputSplit ddSplit =
+            (DataDrivenDBInputFormat.DataDrivenDBInputSplit) split;
+        ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM " + TABLE
+            + " WHERE " + ddSplit.getLowerClause() + " AND "
+            + ddSplit.getUpperClause());
+        try {
+          rs.next();
+          counts.add(rs.getInt(1));
+        } finally {
+          rs.close();
+        }
+      }
+    } finally {
+      s.close();
+    }
+    return counts;
+  }
+
+  private static void assertBalanced(List<Integer> counts) {
+    assertEquals(NUM_SPLITS, counts.size());
+    for (int count : counts) {
+      assertEquals("Rows per split: " + counts, 100 / NUM_SPLITS, count);
+    }
+  }
+
+  @Test
+  public void testSampledSplitsAreBalanced() throws Exception {
+    assertBalanced(countRows(getSplits(HistogramSplitter.METHOD_SAMPLE)));
+  }
+
+  @Test
+  public void testAutoSamplesWithoutNtile() throws Exception {
+    assertBalanced(countRows(getSplits(HistogramSplitter.METHOD_AUTO)));
+  }
+
+  @Test
+  public void testNoSampleByDefault() throws Exception {
+    // NTILE() fails, and the column is not read on the client unless
+    // sampling is asked for; the splits are those of an IntegerSplitter.
+    List<Integer> counts = countRows(getSplits(null));
+    int total = 0;
+    for (int count : counts) {
+      total += count;
+    }
+    assertEquals(100, total);
+    assertTrue("Rows per split: " + counts, counts.get(0) >= 90);
+  }
+}
@@ -0,0 +1,285 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.mapreduce.db;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.sqoop.config.ConfigurationHelper;
+import org.apache.sqoop.mapreduce.DBWritable;
+import org.apache.sqoop.testcategories.sqooptest.IntegrationTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that DBInputFormat reads every row exactly once when it pages by
+ * key instead of by LIMIT and OFFSET.
+ */
+@Category(IntegrationTest.class)
+public class TestKeysetDBRecordReader {
+
+  private static final String DB_URL = "jdbc:hsqldb:mem:keysetdbrr";
+  private static final String DRIVER_CLASS = "org.hsqldb.jdbcDriver";
+  private static final String TABLE = "KEYSET_TABLE";
+  private static final String TS_TABLE = "KEYSET_TS_TABLE";
+  private static final String STR_TABLE = "KEYSET_STR_TABLE";
+  private static final int NUM_ROWS = 100;
+  private static final int NUM_SPLITS = 4;
+
+  private Connection connection;
+  private int oldLocalModeMaps;
+
+  /**
+   * DBWritable holding the id column of the test table.
+   */
+  public static class IdCol implements DBWritable, Writable {
+    private int id;
+
+    public void readFields(ResultSet rs) throws SQLException {
+      id = rs.getInt(1);
+    }
+
+    public void write(PreparedStatement ps) {
+      // not needed.
+    }
+
+    public void readFields(DataInput in) throws IOException {
+      id = in.readInt();
+    }
+
+    public void write(DataOutput out) throws IOException {
+      out.writeInt(id);
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    Class.forName(DRIVER_CLASS);
+    connection = DriverManager.getConnection(DB_URL);
+    Statement s = connection.createStatement();
+    try {
+      s.executeUpdate("DROP TABLE " + TABLE + " IF EXISTS");
+      s.executeUpdate("CREATE TABLE " + TABLE
+          + " (ID INT NOT NULL PRIMARY KEY, VAL INT)");
+      // Insert the rows out of order, so that the table order differs from
+      // the key order.
+      for (int i = 0; i < NUM_ROWS; i++) {
+        int id = (i * 37) % NUM_ROWS;
+        s.executeUpdate("INSERT INTO " + TABLE + " VALUES (" + id + ", "
+            + (id % 3) + ")");
+      }
+
+      s.executeUpdate("DROP TABLE " + STR_TABLE + " IF EXISTS");
+      s.executeUpdate("CREATE TABLE " + STR_TABLE
+          + " (ID INT NOT NULL, NAME VARCHAR(10))");
+      for (int i = 0; i < NUM_ROWS; i++) {
+        int id = (i * 37) % NUM_ROWS;
+        s.executeUpdate("INSERT INTO " + STR_TABLE + " VALUES (" + id
+            + ", 'k" + (100 + id) + "')");
+      }
+
+      s.executeUpdate("DROP TABLE " + TS_TABLE + " IF EXISTS");
+      s.executeUpdate("CREATE TABLE " + TS_TABLE
+          + " (ID INT NOT NULL, TS TIMESTAMP NOT NULL, UNIQUE (TS))");
+      PreparedStatement insert = connection.prepareStatement(
+          "INSERT INTO " + TS_TABLE + " VALUES (?, ?)");
+      try {
+        // Keys a few milliseconds apart, across a day boundary.
+        long base = Timestamp.valueOf("2020-01-01 23:59:59.900").getTime();
+        for (int i = 0; i < NUM_ROWS; i++) {
+          int id = (i * 37) % NUM_ROWS;
+          insert.setInt(1, id);
+          insert.setTimestamp(2, new Timestamp(base + 3 * id));
+          insert.executeUpdate();
+        }
+      } finally {
+        insert.close();
+      }
+    } finally {
+      s.close();
+    }
+    oldLocalModeMaps = ConfigurationHelper.numLocalModeMaps;
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ConfigurationHelper.numLocalModeMaps = oldLocalModeMaps;
+    connection.close();
+  }
+
+  private Job createJob() throws IOException {
+    Job job = Job.getInstance();
+    DBConfiguration.configureDB(job.getConfiguration(), DRIVER_CLASS, DB_URL,
+        (String) null, (String) null);
+    new DBConfiguration(job.getConfiguration()).setInputKeysetPageSize(7);
+    ConfigurationHelper.setJobNumMaps(job, NUM_SPLITS);
+    return job;
+  }
+
+  /** Read all the splits of the job, returning the ids read. */
+  private List<Integer> readAll(Job job) throws Exception {
+    DBInputFormat<IdCol> format = new DBInputFormat<IdCol>();
+    format.setConf(job.getConfiguration());
+    List<InputSplit> splits = format.getSplits(job);
+    assertEquals(NUM_SPLITS, splits.size());
+
+    List<Integer> ids = new ArrayList<Integer>();
+    for (InputSplit split : splits) {
+      assertTrue(split instanceof DBInputFormat.KeysetDBInputSplit);
+      // Each reader closes the connection of its input format.
+      format = new DBInputFormat<IdCol>();
+      format.setConf(job.getConfiguration());
+      RecordReader<LongWritable, IdCol> reader = format.createDBRecordReader(
+          (DBInputFormat.DBInputSplit) split, job.getConfiguration());
+      assertTrue(reader instanceof KeysetDBRecordReader);
+      try {
+        while (reader.nextKeyValue()) {
+          ids.add(reader.getCurrentValue().id);
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    return ids;
+  }
+
+  @Test
+  public void testTableImport() throws Exception {
+    Job job = createJob();
+    DBInputFormat.setInput(job, IdCol.class, TABLE, null, "ID", "ID", "VAL");
+
+    List<Integer> ids = readAll(job);
+    List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < NUM_ROWS; i++) {
+      expected.add(i);
+    }
+    assertEquals(expected, ids);
+  }
+
+  @Test
+  public void testQueryImport() throws Exception {
+    Job job = createJob();
+    DBInputFormat.setInput(job, IdCol.class,
+        "SELECT ID, VAL FROM " + TABLE + " WHERE VAL > 0",
+        "SELECT COUNT(*) FROM " + TABLE + " WHERE VAL > 0");
+    new DBConfiguration(job.getConfiguration()).setInputOrderBy("ID");
+
+    List<Integer> ids = readAll(job);
+    List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < NUM_ROWS; i++) {
+      if (i % 3 > 0) {
+        expected.add(i);
+      }
+    }
+    Collections.sort(ids);
+    assertEquals(expected, ids);
+  }
+
+  @Test
+  public void testTimestampKey() throws Exception {
+    Job job = createJob();
+    DBInputFormat.setInput(job, IdCol.class, TS_TABLE, null, "TS",
+        "ID", "TS");
+
+    List<Integer> ids = readAll(job);
+    List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < NUM_ROWS; i++) {
+      expected.add(i);
+    }
+    assertEquals(expected, ids);
+  }
+
+  @Test
+  public void testDuplicateKeysUseOffsets() throws Exception {
+    // VAL repeats every three rows, so pages could end part way through a
+    // run of equal keys.
+    Job job = createJob();
+    DBInputFormat.setInput(job, IdCol.class, TABLE, null, "VAL",
+        "ID", "VAL");
+
+    DBInputFormat<IdCol> format = new DBInputFormat<IdCol>();
+    format.setConf(job.getConfiguration());
+    List<InputSplit> splits = format.getSplits(job);
+    assertEquals(NUM_SPLITS, splits.size());
+    for (InputSplit split : splits) {
+      assertFalse(split instanceof DBInputFormat.KeysetDBInputSplit);
+    }
+  }
+
+  @Test
+  public void testStringKey() throws Exception {
+    Job job = createJob();
+    DBInputFormat.setInput(job, IdCol.class, STR_TABLE, null, "NAME",
+        "ID", "NAME");
+
+    List<Integer> ids = readAll(job);
+    List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < NUM_ROWS; i++) {
+      expected.add(i);
+    }
+    assertEquals(expected, ids);
+  }
+
+  @Test
+  public void testNullKeyUsesOffsets() throws Exception {
+    Statement s = connection.createStatement();
+    try {
+      s.executeUpdate("UPDATE " + STR_TABLE + " SET NAME = NULL "
+          + "WHERE ID = 7");
+    } finally {
+      s.close();
+    }
+    Job job = createJob();
+    DBInputFormat.setInput(job, IdCol.class, STR_TABLE, null, "NAME",
+        "ID", "NAME");
+
+    assertNoKeysetSplits(job);
+  }
+
+  private void assertNoKeysetSplits(Job job) throws Exception {
+    DBInputFormat<IdCol> format = new DBInputFormat<IdCol>();
+    format.setConf(job.getConfiguration());
+    List<InputSplit> splits = format.getSplits(job);
+    assertEquals(NUM_SPLITS, splits.size());
+    for (InputSplit split : splits) {
+      assertFalse(split instanceof DBInputFormat.KeysetDBInputSplit);
+    }
+  }
+}
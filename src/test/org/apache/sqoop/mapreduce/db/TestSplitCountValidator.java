@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.counters.GenericCounter;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.apache.sqoop.validation.ValidationThreshold;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+@Category(UnitTest.class)
+public class TestSplitCountValidator {
+
+  private Counter sourceRows;
+  private Counter countedQueries;
+  private Counter uncountedQueries;
+  private Counter mismatchedSplits;
+  private TaskAttemptContext context;
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    sourceRows = new GenericCounter();
+    countedQueries = new GenericCounter();
+    uncountedQueries = new GenericCounter();
+    mismatchedSplits = new GenericCounter();
+    context = mock(TaskAttemptContext.class);
+    when(context.getCounter(SplitCountValidator.COUNTER_GROUP,
+        SplitCountValidator.SOURCE_ROWS_COUNTER)).thenReturn(sourceRows);
+    when(context.getCounter(SplitCountValidator.COUNTER_GROUP,
+        SplitCountValidator.COUNTED_QUERIES_COUNTER))
+        .thenReturn(countedQueries);
+    when(context.getCounter(SplitCountValidator.COUNTER_GROUP,
+        SplitCountValidator.UNCOUNTED_QUERIES_COUNTER))
+        .thenReturn(uncountedQueries);
+    when(context.getCounter(SplitCountValidator.COUNTER_GROUP,
+        SplitCountValidator.MISMATCHED_SPLITS_COUNTER))
+        .thenReturn(mismatchedSplits);
+    conf = new Configuration();
+    conf.setBoolean(SplitCountValidator.ENABLED_KEY, true);
+  }
+
+  private Connection countingConnection(long count, BigDecimal sum)
+      throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.next()).thenReturn(true);
+    when(rs.getLong(1)).thenReturn(count);
+    when(rs.getBigDecimal(2)).thenReturn(sum);
+    Statement stmt = mock(Statement.class);
+    when(stmt.executeQuery(anyString())).thenReturn(rs);
+    Connection conn = mock(Connection.class);
+    when(conn.createStatement()).thenReturn(stmt);
+    return conn;
+  }
+
+  private SqoopRecord record(long value) {
+    SqoopRecord r = mock(SqoopRecord.class);
+    when(r.getFieldNames()).thenReturn(new String[] { "ID", "AMOUNT" });
+    final Long v = value;
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock inv) {
+        Object [] values = (Object []) inv.getArguments()[0];
+        values[0] = 1;
+        values[1] = v;
+        return null;
+      }
+    }).when(r).getFieldValues(any(Object[].class));
+    return r;
+  }
+
+  @Test
+  public void testDisabled() {
+    assertNull(SplitCountValidator.create(new Configuration(), context));
+  }
+
+  @Test
+  public void testCountQuery() {
+    assertEquals("SELECT COUNT(*) FROM (SELECT A FROM T) sqoop_split",
+        SplitCountValidator.create(conf, context)
+            .getCountQuery("SELECT A FROM T"));
+    conf.set(SplitCountValidator.CHECKSUM_COLUMN_KEY, "AMOUNT");
+    assertEquals(
+        "SELECT COUNT(*), SUM(AMOUNT) FROM (SELECT A FROM T) sqoop_split",
+        SplitCountValidator.create(conf, context)
+            .getCountQuery("SELECT A FROM T"));
+  }
+
+  @Test
+  public void testMatchingSplit() throws SQLException {
+    SplitCountValidator validator = SplitCountValidator.create(conf, context);
+    validator.begin(countingConnection(2, null), "count");
+    validator.add(record(1));
+    validator.add(record(2));
+    validator.end("split");
+    assertEquals(2, sourceRows.getValue());
+    assertEquals(1, countedQueries.getValue());
+    assertEquals(0, mismatchedSplits.getValue());
+  }
+
+  @Test
+  public void testMismatchedCount() throws SQLException {
+    SplitCountValidator validator = SplitCountValidator.create(conf, context);
+    validator.begin(countingConnection(3, null), "count");
+    validator.add(record(1));
+    validator.end("split");
+    assertEquals(3, sourceRows.getValue());
+    assertEquals(1, mismatchedSplits.getValue());
+  }
+
+  @Test
+  public void testChecksum() throws SQLException {
+    conf.set(SplitCountValidator.CHECKSUM_COLUMN_KEY, "amount");
+    SplitCountValidator validator = SplitCountValidator.create(conf, context);
+    validator.begin(countingConnection(2, new BigDecimal("30.00")), "count");
+    validator.add(record(10));
+    validator.add(record(20));
+    validator.end("split");
+    assertEquals(0, mismatchedSplits.getValue());
+
+    validator.begin(countingConnection(2, new BigDecimal("31")), "count");
+    validator.add(record(10));
+    validator.add(record(20));
+    validator.end("split");
+    assertEquals(1, mismatchedSplits.getValue());
+    assertEquals(2, countedQueries.getValue());
+  }
+
+  @Test
+  public void testMismatchWithinThreshold() throws SQLException {
+    conf.setClass(SplitCountValidator.THRESHOLD_CLASS_KEY,
+        WithinOneThreshold.class, ValidationThreshold.class);
+    SplitCountValidator validator = SplitCountValidator.create(conf, context);
+    validator.begin(countingConnection(3, null), "count");
+    validator.add(record(1));
+    validator.add(record(2));
+    validator.end("split");
+    assertEquals(0, mismatchedSplits.getValue());
+
+    validator.begin(countingConnection(3, null), "count");
+    validator.add(record(1));
+    validator.end("split");
+    assertEquals(1, mismatchedSplits.getValue());
+  }
+
+  /** Accepts values which differ by at most one. */
+  public static class WithinOneThreshold implements ValidationThreshold {
+    @Override
+    public void setThresholdValue(long value) {
+    }
+
+    @Override
+    public boolean compare(Comparable left, Comparable right) {
+      return Math.abs(((Number) left).doubleValue()
+          - ((Number) right).doubleValue()) <= 1;
+    }
+  }
+
+  @Test
+  public void testUncountedQuery() throws SQLException {
+    SplitCountValidator validator = SplitCountValidator.create(conf, context);
+    validator.begin(countingConnection(2, null), null);
+    validator.add(record(1));
+    validator.end("split");
+    assertEquals(1, uncountedQueries.getValue());
+    assertEquals(0, countedQueries.getValue());
+
+    Connection failing = mock(Connection.class);
+    when(failing.createStatement()).thenThrow(new SQLException("no"));
+    validator.begin(failing, "count");
+    validator.end("split");
+    assertEquals(2, uncountedQueries.getValue());
+  }
+
+  @Test
+  public void testAbortCountsRowsRead() throws SQLException {
+    SplitCountValidator validator = SplitCountValidator.create(conf, context);
+    validator.begin(countingConnection(5, null), "count");
+    validator.add(record(1));
+    validator.add(record(2));
+    validator.abort();
+    validator.begin(countingConnection(3, null), "count");
+    validator.add(record(3));
+    validator.add(record(4));
+    validator.add(record(5));
+    validator.end("split");
+    assertEquals(5, sourceRows.getValue());
+    assertEquals(0, mismatchedSplits.getValue());
+  }
+}
@@ -22,6 +22,7 @@
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.sql.PreparedStatement;
@@ -31,6 +32,7 @@
 import java.util.Map;
 
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -55,6 +57,8 @@
 import org.apache.sqoop.lib.DelimiterSet;
 import org.apache.sqoop.lib.LargeObjectLoader;
 import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 @Category(UnitTest.class)
 public class TestMainframeDatasetFTPRecordReader {
@@ -256,6 +260,39 @@ public void testReadAllData() {
     }
   }
 
+  @Test
+  public void testReadAllDataWithPrefetch() {
+    try {
+      when(mockFTPClient.retrieveFile(anyString(), any(OutputStream.class)))
+          .thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation)
+                throws IOException {
+              Assert.assertEquals("test2", invocation.getArguments()[0]);
+              OutputStream out = (OutputStream) invocation.getArguments()[1];
+              out.write("789\n".getBytes());
+              return true;
+            }
+          });
+      context.getConfiguration().setBoolean(
+          MainframeConfiguration.MAINFRAME_FTP_PREFETCH, true);
+      mfDFTPRR.initialize(mfDIS, context);
+      Assert.assertTrue("Retrieve of dataset", mfDFTPRR.nextKeyValue());
+      Assert.assertEquals("123", mfDFTPRR.getCurrentValue().toString());
+      Assert.assertTrue("Retrieve of dataset", mfDFTPRR.nextKeyValue());
+      Assert.assertEquals("456", mfDFTPRR.getCurrentValue().toString());
+      Assert.assertTrue("Retrieve of prefetched dataset",
+          mfDFTPRR.nextKeyValue());
+      Assert.assertEquals("789", mfDFTPRR.getCurrentValue().toString());
+      Assert.assertEquals(3, mfDFTPRR.getCurrentKey().get());
+      Assert.assertFalse("End of dataset", mfDFTPRR.nextKeyValue());
+    } catch (IOException ioe) {
+      fail("Got IOException: " + ioe.toString());
+    } catch (InterruptedException ie) {
+      fail("Got InterruptedException: " + ie.toString());
+    }
+  }
+
   @Test
   public void testReadPartOfData() {
     try {
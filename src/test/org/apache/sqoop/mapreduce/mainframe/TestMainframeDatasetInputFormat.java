@@ -26,6 +26,7 @@
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.net.ftp.FTPClient;
@@ -112,4 +113,59 @@ public void testRetrieveDatasets() throws IOException {
     Assert.assertEquals("test2", ((MainframeDatasetInputSplit) splits.get(1))
         .getNextDataset().toString());
   }
+
+  private FTPFile dataset(String name, long size) {
+    FTPFile f = new FTPFile();
+    f.setType(FTPFile.FILE_TYPE);
+    f.setName(name);
+    f.setSize(size);
+    return f;
+  }
+
+  private List<String> datasetsOf(InputSplit split) {
+    List<String> names = new ArrayList<String>();
+    MainframeDatasetInputSplit mfSplit = (MainframeDatasetInputSplit) split;
+    while (mfSplit.hasMore()) {
+      names.add(mfSplit.getNextDataset());
+    }
+    return names;
+  }
+
+  @Test
+  public void testAssignDatasetsBySize() {
+    List<FTPFile> datasets = new ArrayList<FTPFile>();
+    datasets.add(dataset("big", 100));
+    datasets.add(dataset("small1", 10));
+    datasets.add(dataset("small2", 10));
+    datasets.add(dataset("small3", 10));
+    datasets.add(dataset("medium", 90));
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    splits.add(new MainframeDatasetInputSplit());
+    splits.add(new MainframeDatasetInputSplit());
+
+    format.assignDatasets(datasets, splits);
+
+    Assert.assertEquals(Arrays.asList("big", "small2"),
+        datasetsOf(splits.get(0)));
+    Assert.assertEquals(Arrays.asList("medium", "small1", "small3"),
+        datasetsOf(splits.get(1)));
+  }
+
+  @Test
+  public void testAssignDatasetsWithoutSizes() {
+    List<FTPFile> datasets = new ArrayList<FTPFile>();
+    for (int i = 0; i < 5; i++) {
+      datasets.add(dataset("ds" + i, -1));
+    }
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    splits.add(new MainframeDatasetInputSplit());
+    splits.add(new MainframeDatasetInputSplit());
+
+    format.assignDatasets(datasets, splits);
+
+    Assert.assertEquals(Arrays.asList("ds0", "ds2", "ds4"),
+        datasetsOf(splits.get(0)));
+    Assert.assertEquals(Arrays.asList("ds1", "ds3"),
+        datasetsOf(splits.get(1)));
+  }
 }
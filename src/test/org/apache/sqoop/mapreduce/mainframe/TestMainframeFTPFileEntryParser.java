@@ -23,6 +23,7 @@
 
 import org.apache.commons.net.ftp.FTPFile;
 import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Assert;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -94,4 +95,16 @@ public void testParseFTPEntry() {
 		}
 		assert(i == listing.size()-1);
 	}
+
+	@Test
+	public void testEstimateSize() {
+		Assert.assertEquals(45 * MainframeFTPFileEntryParser.TRACK_BYTES,
+				MainframeFTPFileEntryParser.estimateSize("xxx305 3390   2016/05/25  1   45  VB    2349 27998  PS  UNLOAD.EDH.UNLOAD2"));
+		Assert.assertEquals(15 * MainframeFTPFileEntryParser.TRACK_BYTES,
+				MainframeFTPFileEntryParser.estimateSize("SHT331 3390   **NONE**    1   15  VB     114 27998  PS  DUMMY"));
+		Assert.assertEquals(-1,
+				MainframeFTPFileEntryParser.estimateSize("x31167 Tape                                             UNLOAD.EDH.UNLOADT"));
+		Assert.assertEquals(-1,
+				MainframeFTPFileEntryParser.estimateSize("Migrated                                                DEV.DATA"));
+	}
 }
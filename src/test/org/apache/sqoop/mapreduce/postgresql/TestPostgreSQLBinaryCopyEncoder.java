@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.postgresql;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the encoding of rows in the binary COPY format.
+ */
+@Category(UnitTest.class)
+public class TestPostgreSQLBinaryCopyEncoder {
+
+  private DataInputBuffer encode(String type, Object value)
+      throws IOException {
+    PostgreSQLBinaryCopyEncoder encoder =
+        new PostgreSQLBinaryCopyEncoder(new String[] { type });
+    DataOutputBuffer out = new DataOutputBuffer();
+    encoder.writeRow(out, new Object[] { value });
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    assertEquals(1, in.readShort());
+    return in;
+  }
+
+  private void assertNumeric(BigDecimal value, int weight, int sign,
+      int dscale, int... digits) throws IOException {
+    DataInputBuffer in = encode("numeric", value);
+    assertEquals(8 + 2 * digits.length, in.readInt());
+    assertEquals(digits.length, in.readShort());
+    assertEquals(weight, in.readShort());
+    assertEquals(sign, in.readShort());
+    assertEquals(dscale, in.readShort());
+    for (int digit : digits) {
+      assertEquals(digit, in.readShort());
+    }
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void testHeaderAndTrailer() throws IOException {
+    PostgreSQLBinaryCopyEncoder encoder =
+        new PostgreSQLBinaryCopyEncoder(new String[0]);
+    DataOutputBuffer out = new DataOutputBuffer();
+    encoder.writeHeader(out);
+    encoder.writeTrailer(out);
+    byte [] expected = {
+      'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0,
+      0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff,
+    };
+    assertEquals(expected.length, out.getLength());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], out.getData()[i]);
+    }
+  }
+
+  @Test
+  public void testScalars() throws IOException {
+    DataInputBuffer in = encode("int4", Integer.valueOf(42));
+    assertEquals(4, in.readInt());
+    assertEquals(42, in.readInt());
+
+    in = encode("int2", Integer.valueOf(-7));
+    assertEquals(2, in.readInt());
+    assertEquals(-7, in.readShort());
+
+    in = encode("int8", Long.valueOf(1L << 40));
+    assertEquals(8, in.readInt());
+    assertEquals(1L << 40, in.readLong());
+
+    in = encode("varchar", "hé");
+    assertEquals(3, in.readInt());
+
+    in = encode("date", Date.valueOf("2000-01-02"));
+    assertEquals(4, in.readInt());
+    assertEquals(1, in.readInt());
+
+    in = encode("int4", null);
+    assertEquals(-1, in.readInt());
+  }
+
+  private void assertOutOfRange(String type, Object value) {
+    try {
+      encode(type, value);
+      fail("Expected " + value + " to be out of range for " + type);
+    } catch (IOException ioe) {
+      assertTrue(ioe.getMessage(), ioe.getMessage().contains("out of range"));
+    }
+  }
+
+  @Test
+  public void testIntegerRange() throws IOException {
+    DataInputBuffer in = encode("int2", Integer.valueOf(Short.MIN_VALUE));
+    assertEquals(2, in.readInt());
+    assertEquals(Short.MIN_VALUE, in.readShort());
+
+    in = encode("int4", new BigDecimal("2147483647.000"));
+    assertEquals(4, in.readInt());
+    assertEquals(Integer.MAX_VALUE, in.readInt());
+
+    assertOutOfRange("int2", Integer.valueOf(Short.MAX_VALUE + 1));
+    assertOutOfRange("int2", Integer.valueOf(70000));
+    assertOutOfRange("int4", Long.valueOf(Integer.MIN_VALUE - 1L));
+    assertOutOfRange("int4", new BigDecimal("1.5"));
+    assertOutOfRange("int8", new BigDecimal("9223372036854775808"));
+    assertOutOfRange("int8", Double.valueOf(Double.NaN));
+  }
+
+  @Test
+  public void testNumeric() throws IOException {
+    assertNumeric(new BigDecimal("12345.678"), 1, 0x0000, 3, 1, 2345, 6780);
+    assertNumeric(new BigDecimal("-0.0001"), -1, 0x4000, 4, 1);
+    assertNumeric(new BigDecimal("1E+5"), 1, 0x0000, 0, 10);
+    assertNumeric(new BigDecimal("0.00"), 0, 0x0000, 2);
+    assertNumeric(new BigDecimal("123456789012345678901234567890"),
+        7, 0x0000, 0, 12, 3456, 7890, 1234, 5678, 9012, 3456, 7890);
+  }
+
+  @Test
+  public void testUnsupportedTypes() throws IOException {
+    assertTrue(PostgreSQLBinaryCopyEncoder.isSupportedType("INT4"));
+    assertFalse(PostgreSQLBinaryCopyEncoder.isSupportedType("json"));
+    assertFalse(PostgreSQLBinaryCopyEncoder.isSupportedType(null));
+    try {
+      encode("int4", "42");
+      fail("Expected type mismatch");
+    } catch (IOException ioe) {
+      // expected.
+    }
+  }
+}
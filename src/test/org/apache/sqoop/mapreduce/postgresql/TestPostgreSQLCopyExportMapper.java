@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.mapreduce.postgresql;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Test the column list of the binary COPY command.
+ */
+@Category(UnitTest.class)
+public class TestPostgreSQLCopyExportMapper {
+
+  @Test
+  public void testPlainIdentifiersAreNotQuoted() {
+    // PostgreSQL folds these to lower case, as the text COPY path relies on.
+    assertEquals("id", PostgreSQLCopyExportMapper.quoteIdentifier("id"));
+    assertEquals("NAME", PostgreSQLCopyExportMapper.quoteIdentifier("NAME"));
+    assertEquals("col_2$",
+        PostgreSQLCopyExportMapper.quoteIdentifier("col_2$"));
+  }
+
+  @Test
+  public void testOtherIdentifiersAreQuoted() {
+    assertEquals("\"first name\"",
+        PostgreSQLCopyExportMapper.quoteIdentifier("first name"));
+    assertEquals("\"a\"\"b\"",
+        PostgreSQLCopyExportMapper.quoteIdentifier("a\"b"));
+    assertEquals("\"2nd\"", PostgreSQLCopyExportMapper.quoteIdentifier("2nd"));
+    assertEquals("\"Mixed\"",
+        PostgreSQLCopyExportMapper.quoteIdentifier("\"Mixed\""));
+  }
+}
@@ -26,6 +26,7 @@
 import java.sql.Connection;
 import java.sql.Statement;
 import java.sql.SQLException;
+import java.util.Map;
 import java.util.Random;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
@@ -33,6 +34,7 @@
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.util.Shell;
 import org.apache.sqoop.testcategories.sqooptest.IntegrationTest;
 import org.apache.sqoop.testutil.BaseSqoopTestCase;
@@ -43,6 +45,9 @@
 
 import org.apache.sqoop.SqoopOptions;
 import org.apache.sqoop.TestConnFactory.DummyManager;
+import org.apache.sqoop.lib.DelimiterSet;
+import org.apache.sqoop.lib.SqoopRecord;
+import org.apache.sqoop.lib.Utf8OutputBuffer;
 import org.apache.sqoop.manager.ConnManager;
 import org.apache.sqoop.testutil.DirUtil;
 import org.apache.sqoop.testutil.HsqldbTestServer;
@@ -53,9 +58,11 @@
 
 import java.lang.reflect.Field;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -589,6 +596,181 @@ public void testEqualsMethod() throws IOException, ClassNotFoundException,
     }
   }
 
+  private static final String UTF8_PARSER_CLASS_AND_PACKAGE_NAME =
+      "utf8parser.pkg.prefix.classname";
+
+  @Test
+  public void testUtf8ParserGeneration() throws Exception {
+    String [] argv = {
+      "--bindir", JAR_GEN_DIR,
+      "--outdir", CODE_GEN_DIR,
+      "--class-name", UTF8_PARSER_CLASS_AND_PACKAGE_NAME,
+    };
+    options.getConf().setBoolean(ClassWriter.PROPERTY_CODEGEN_UTF8_PARSER,
+        true);
+
+    File ormJarFile = runGenerationTest(argv,
+        UTF8_PARSER_CLASS_AND_PACKAGE_NAME);
+    ClassLoader prevClassLoader = ClassLoaderStack.addJarFile(
+        ormJarFile.getCanonicalPath(),
+        UTF8_PARSER_CLASS_AND_PACKAGE_NAME);
+    Class tableClass = Class.forName(
+        UTF8_PARSER_CLASS_AND_PACKAGE_NAME,
+        true,
+        Thread.currentThread().getContextClassLoader());
+
+    SqoopRecord record = (SqoopRecord) tableClass.newInstance();
+    record.parse(new Text("12,-34\n"));
+    assertEquals(Integer.valueOf(12),
+        tableClass.getMethod("get_INTFIELD1").invoke(record));
+    assertEquals(Integer.valueOf(-34),
+        tableClass.getMethod("get_INTFIELD2").invoke(record));
+
+    record.parse(new Text("null,"));
+    assertNull(tableClass.getMethod("get_INTFIELD1").invoke(record));
+    assertNull(tableClass.getMethod("get_INTFIELD2").invoke(record));
+
+    if (null != prevClassLoader) {
+      ClassLoaderStack.setCurrentClassLoader(prevClassLoader);
+    }
+  }
+
+  private static final String WRITE_TO_CLASS_AND_PACKAGE_NAME =
+      "writeto.pkg.prefix.classname";
+
+  @Test
+  public void testWriteToMatchesToString() throws Exception {
+    String [] argv = {
+      "--bindir", JAR_GEN_DIR,
+      "--outdir", CODE_GEN_DIR,
+      "--class-name", WRITE_TO_CLASS_AND_PACKAGE_NAME,
+    };
+
+    File ormJarFile = runGenerationTest(argv,
+        WRITE_TO_CLASS_AND_PACKAGE_NAME);
+    ClassLoader prevClassLoader = ClassLoaderStack.addJarFile(
+        ormJarFile.getCanonicalPath(),
+        WRITE_TO_CLASS_AND_PACKAGE_NAME);
+    Class tableClass = Class.forName(
+        WRITE_TO_CLASS_AND_PACKAGE_NAME,
+        true,
+        Thread.currentThread().getContextClassLoader());
+
+    SqoopRecord record = (SqoopRecord) tableClass.newInstance();
+    tableClass.getMethod("set_INTFIELD1", Integer.class).invoke(record, 42);
+
+    Utf8OutputBuffer buf = new Utf8OutputBuffer();
+    record.writeTo(buf);
+    assertEquals(record.toString(), buf.toString());
+
+    DelimiterSet delims = new DelimiterSet('\t', '\n', '\'', '\\', true);
+    StringBuilder sb = new StringBuilder();
+    record.writeTo(sb, delims, false);
+    assertEquals(record.toString(delims, false), sb.toString());
+
+    if (null != prevClassLoader) {
+      ClassLoaderStack.setCurrentClassLoader(prevClassLoader);
+    }
+  }
+
+  private static final String FIELD_VALUES_CLASS_AND_PACKAGE_NAME =
+      "fieldvalues.pkg.prefix.classname";
+
+  @Test
+  public void testGetFieldValuesMatchesFieldMap() throws Exception {
+    String [] argv = {
+      "--bindir", JAR_GEN_DIR,
+      "--outdir", CODE_GEN_DIR,
+      "--class-name", FIELD_VALUES_CLASS_AND_PACKAGE_NAME,
+    };
+
+    File ormJarFile = runGenerationTest(argv,
+        FIELD_VALUES_CLASS_AND_PACKAGE_NAME);
+    ClassLoader prevClassLoader = ClassLoaderStack.addJarFile(
+        ormJarFile.getCanonicalPath(),
+        FIELD_VALUES_CLASS_AND_PACKAGE_NAME);
+    Class tableClass = Class.forName(
+        FIELD_VALUES_CLASS_AND_PACKAGE_NAME,
+        true,
+        Thread.currentThread().getContextClassLoader());
+
+    SqoopRecord record = (SqoopRecord) tableClass.newInstance();
+    tableClass.getMethod("set_INTFIELD1", Integer.class).invoke(record, 42);
+
+    String [] names = record.getFieldNames();
+    assertArrayEquals(new String [] { "INTFIELD1", "INTFIELD2" }, names);
+    Object [] values = new Object[names.length];
+    record.getFieldValues(values);
+    Map<String, Object> fieldMap = record.getFieldMap();
+    for (int i = 0; i < names.length; i++) {
+      assertEquals(fieldMap.get(names[i]), values[i]);
+    }
+    assertEquals(Integer.valueOf(42), values[0]);
+    assertNull(values[1]);
+
+    if (null != prevClassLoader) {
+      ClassLoaderStack.setCurrentClassLoader(prevClassLoader);
+    }
+  }
+
+  private static final String PRIMITIVE_CLASS_AND_PACKAGE_NAME =
+      "primitive.pkg.prefix.classname";
+
+  @Test
+  public void testPrimitiveFieldGeneration() throws Exception {
+    String [] argv = {
+      "--bindir", JAR_GEN_DIR,
+      "--outdir", CODE_GEN_DIR,
+      "--class-name", PRIMITIVE_CLASS_AND_PACKAGE_NAME,
+    };
+    options.getConf().setBoolean(
+        ClassWriter.PROPERTY_CODEGEN_PRIMITIVE_FIELDS, true);
+
+    File ormJarFile = runGenerationTest(argv,
+        PRIMITIVE_CLASS_AND_PACKAGE_NAME);
+    ClassLoader prevClassLoader = ClassLoaderStack.addJarFile(
+        ormJarFile.getCanonicalPath(),
+        PRIMITIVE_CLASS_AND_PACKAGE_NAME);
+    Class tableClass = Class.forName(
+        PRIMITIVE_CLASS_AND_PACKAGE_NAME,
+        true,
+        Thread.currentThread().getContextClassLoader());
+
+    assertEquals(int.class, tableClass.getDeclaredField("INTFIELD1").getType());
+
+    Method getter = tableClass.getMethod("get_INTFIELD1");
+    Method setter = tableClass.getMethod("set_INTFIELD1", Integer.class);
+    SqoopRecord record = (SqoopRecord) tableClass.newInstance();
+    assertNull(getter.invoke(record));
+    assertEquals("null,null\n", record.toString());
+
+    setter.invoke(record, 0);
+    assertEquals(Integer.valueOf(0), getter.invoke(record));
+    assertEquals("0,null\n", record.toString());
+    assertEquals(Integer.valueOf(0), record.getFieldMap().get("INTFIELD1"));
+
+    SqoopRecord copy = (SqoopRecord) record.clone();
+    assertTrue(record.equals(copy));
+    setter.invoke(copy, (Integer) null);
+    assertNull(getter.invoke(copy));
+    assertEquals(Integer.valueOf(0), getter.invoke(record));
+    assertFalse(record.equals(copy));
+
+    SqoopRecord reused = (SqoopRecord) tableClass.newInstance();
+    assertSame(reused, record.copyInto(reused));
+    assertTrue(record.equals(reused));
+    assertSame(reused, copy.copyInto(reused));
+    assertNull(getter.invoke(reused));
+
+    record.parse("7,\n");
+    assertEquals(Integer.valueOf(7), getter.invoke(record));
+    assertNull(tableClass.getMethod("get_INTFIELD2").invoke(record));
+
+    if (null != prevClassLoader) {
+      ClassLoaderStack.setCurrentClassLoader(prevClassLoader);
+    }
+  }
+
   private static final String USERMAPPING_CLASS_AND_PACKAGE_NAME =
       "usermapping.pkg.prefix.classname";
 
@@ -687,6 +869,55 @@ public void testNoClassGeneration() throws Exception {
     compileMgr.compile();
   }
 
+  static final String CLASS_CACHE_DIR = BaseSqoopTestCase.getTempBaseDir()
+      + "sqoop/test/classcache";
+
+  private CompilationManager generateAndCompile(String [] argv)
+      throws Exception {
+    options = new ImportTool().parseArguments(argv, null, options, true);
+    CompilationManager compileMgr = new CompilationManager(options);
+    ClassWriter writer = new ClassWriter(options, manager,
+        HsqldbTestServer.getTableName(), compileMgr);
+    writer.generate();
+    compileMgr.compile();
+    compileMgr.jar();
+    return compileMgr;
+  }
+
+  /**
+   * Generating the same table twice should find the first run's jar in the
+   * compiled class cache, even though the generation date has changed.
+   */
+  @Test
+  public void testCompiledClassCacheHit() throws Exception {
+    File cacheDir = new File(CLASS_CACHE_DIR);
+    if (cacheDir.exists() && !DirUtil.deleteDir(cacheDir)) {
+      LOG.warn("Could not delete " + cacheDir + " prior to test");
+    }
+    options.getConf().set(CompiledClassCache.CACHE_DIR_KEY,
+        cacheDir.getAbsolutePath());
+
+    String [] argv = {
+      "--bindir",
+      JAR_GEN_DIR,
+      "--outdir",
+      CODE_GEN_DIR,
+    };
+
+    CompilationManager first = generateAndCompile(argv);
+    assertFalse(first.isJarFromCache());
+    File jarFile = new File(first.getJarFilename());
+    assertTrue(jarFile.exists());
+    assertTrue(jarFile.delete());
+
+    // The header records the date to the second; make sure it differs.
+    Thread.sleep(1100);
+
+    CompilationManager second = generateAndCompile(argv);
+    assertTrue(second.isJarFromCache());
+    assertTrue(new File(second.getJarFilename()).exists());
+  }
+
   @Test(timeout = 25000)
   public void testWideTableClassGeneration() throws Exception {
     createWideTable();
@@ -716,6 +947,14 @@ public void testWideTableClassGeneration() throws Exception {
       }
     }
 
+    // The wide table splits getFieldValues() into several methods.
+    SqoopRecord record = (SqoopRecord) instance;
+    Object [] values = new Object[WIDE_TABLE_COLUMN_COUNT];
+    record.getFieldValues(values);
+    assertEquals(record.getFieldMap().get("INTFIELD0"), values[0]);
+    assertEquals(record.getFieldMap().get("INTFIELD"
+        + (WIDE_TABLE_COLUMN_COUNT - 1)), values[WIDE_TABLE_COLUMN_COUNT - 1]);
+
     if (null != prevClassLoader) {
       ClassLoaderStack.setCurrentClassLoader(prevClassLoader);
     }
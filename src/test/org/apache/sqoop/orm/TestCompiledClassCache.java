@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.orm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.sqoop.SqoopOptions;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@Category(UnitTest.class)
+public class TestCompiledClassCache {
+
+  private static final List<String> SOURCES =
+      Collections.singletonList("Foo.java");
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File srcDir;
+
+  private CompiledClassCache cache;
+
+  @Before
+  public void before() throws IOException {
+    srcDir = tempFolder.newFolder("src");
+    Configuration conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    cache = new CompiledClassCache(conf,
+        new Path(tempFolder.getRoot().getAbsolutePath(), "cache"));
+  }
+
+  private void writeSource(String name, String text) throws IOException {
+    Files.write(new File(srcDir, name).toPath(),
+        text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testCacheDisabledByDefault() throws IOException {
+    SqoopOptions options = new SqoopOptions(new Configuration());
+    assertNull(CompiledClassCache.get(options));
+  }
+
+  @Test
+  public void testKeyDependsOnSourceText() throws IOException {
+    writeSource("Foo.java", "class Foo { int a; }");
+    String key = CompiledClassCache.getKey(srcDir.getPath(), SOURCES);
+    assertEquals(key, CompiledClassCache.getKey(srcDir.getPath(), SOURCES));
+
+    writeSource("Foo.java", "class Foo { long a; }");
+    assertNotEquals(key,
+        CompiledClassCache.getKey(srcDir.getPath(), SOURCES));
+  }
+
+  @Test
+  public void testKeyIgnoresGenerationDate() throws IOException {
+    writeSource("Foo.java", "// ORM class for table 'FOO'\n"
+        + ClassWriter.GENERATED_DATE_PREFIX + "Mon Jan 05 10:00:00 UTC 2026\n"
+        + "class Foo { int a; }");
+    String key = CompiledClassCache.getKey(srcDir.getPath(), SOURCES);
+
+    writeSource("Foo.java", "// ORM class for table 'FOO'\n"
+        + ClassWriter.GENERATED_DATE_PREFIX + "Tue Jan 06 11:30:00 UTC 2026\n"
+        + "class Foo { int a; }");
+    assertEquals(key, CompiledClassCache.getKey(srcDir.getPath(), SOURCES));
+  }
+
+  @Test
+  public void testKeyIgnoresSourceOrder() throws IOException {
+    writeSource("Foo.java", "class Foo { }");
+    writeSource("Bar.java", "class Bar { }");
+    assertEquals(
+        CompiledClassCache.getKey(srcDir.getPath(),
+            Arrays.asList("Foo.java", "Bar.java")),
+        CompiledClassCache.getKey(srcDir.getPath(),
+            Arrays.asList("Bar.java", "Foo.java")));
+  }
+
+  @Test
+  public void testFetchMissingEntry() throws IOException {
+    File dest = new File(tempFolder.getRoot(), "missing.jar");
+    assertFalse(cache.fetch("0123abcd", dest));
+    assertFalse(dest.exists());
+  }
+
+  @Test
+  public void testStoreAndFetch() throws IOException {
+    byte [] contents = "not really a jar".getBytes(StandardCharsets.UTF_8);
+    File jar = tempFolder.newFile("Foo.jar");
+    Files.write(jar.toPath(), contents);
+
+    cache.store("0123abcd", jar);
+    // A second store of the same key keeps the existing entry.
+    cache.store("0123abcd", jar);
+
+    File dest = new File(tempFolder.getRoot(), "fetched.jar");
+    assertTrue(cache.fetch("0123abcd", dest));
+    assertArrayEquals(contents, Files.readAllBytes(dest.toPath()));
+  }
+}
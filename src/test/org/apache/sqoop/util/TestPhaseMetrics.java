@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.util;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.sqoop.testcategories.sqooptest.UnitTest;
+import org.apache.sqoop.util.PhaseMetrics.Phase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the histograms and counters of PhaseMetrics.
+ */
+@Category(UnitTest.class)
+public class TestPhaseMetrics {
+
+  private PhaseMetrics metrics;
+  private Counters counters;
+  private TaskAttemptContext context;
+
+  @Before
+  public void setUp() {
+    metrics = PhaseMetrics.getMetrics();
+    Configuration conf = new Configuration();
+    conf.setBoolean(PhaseMetrics.ENABLED_KEY, true);
+    metrics.configure(conf);
+    metrics.reset();
+
+    counters = new Counters();
+    context = mock(TaskAttemptContext.class);
+    when(context.getCounter(anyString(), anyString())).thenAnswer(
+        new Answer<Counter>() {
+          @Override
+          public Counter answer(InvocationOnMock invocation) {
+            Object [] args = invocation.getArguments();
+            return counters.findCounter((String) args[0], (String) args[1]);
+          }
+        });
+  }
+
+  @After
+  public void tearDown() {
+    metrics.configure(new Configuration());
+    metrics.reset();
+  }
+
+  private long counter(String name) {
+    return counters.findCounter(PhaseMetrics.COUNTER_GROUP, name).getValue();
+  }
+
+  @Test
+  public void testPercentiles() {
+    for (int i = 0; i < 99; i++) {
+      metrics.record(Phase.FETCH, 1000L);
+    }
+    metrics.record(Phase.FETCH, 5000000L);
+
+    assertEquals(100, metrics.getCount(Phase.FETCH));
+    assertEquals(99 * 1000L + 5000000L, metrics.getTotalNanos(Phase.FETCH));
+    assertEquals(5000000L, metrics.getMaxNanos(Phase.FETCH));
+
+    // Latencies are rounded up to the next power of two.
+    assertEquals(1024L, metrics.getPercentileNanos(Phase.FETCH, 50));
+    assertEquals(1024L, metrics.getPercentileNanos(Phase.FETCH, 99));
+    assertEquals(5000000L, metrics.getPercentileNanos(Phase.FETCH, 100));
+    assertEquals(0L, metrics.getPercentileNanos(Phase.COMMIT, 50));
+  }
+
+  @Test
+  public void testPublishDeltas() {
+    metrics.record(Phase.BATCH_EXECUTE, 3000000L);
+    metrics.record(Phase.BATCH_EXECUTE, 3000000L);
+    metrics.addBatchRows(200);
+    metrics.publishCounters(context);
+
+    assertEquals(2, counter("BATCH_EXECUTE_COUNT"));
+    assertEquals(6, counter("BATCH_EXECUTE_MILLIS"));
+    assertEquals(200, counter(PhaseMetrics.BATCH_ROWS_COUNTER));
+
+    // Publishing again only adds what was recorded since.
+    metrics.record(Phase.BATCH_EXECUTE, 1000000L);
+    metrics.addBatchRows(50);
+    metrics.publishCounters(context);
+    metrics.publishCounters(context);
+
+    assertEquals(3, counter("BATCH_EXECUTE_COUNT"));
+    assertEquals(7, counter("BATCH_EXECUTE_MILLIS"));
+    assertEquals(250, counter(PhaseMetrics.BATCH_ROWS_COUNTER));
+    assertEquals(0, counter("COMMIT_COUNT"));
+  }
+
+  @Test
+  public void testDisabled() {
+    Configuration conf = new Configuration();
+    conf.setBoolean(PhaseMetrics.ENABLED_KEY, false);
+    metrics.configure(conf);
+
+    assertEquals(0L, metrics.start());
+    metrics.end(Phase.READ, metrics.start());
+    metrics.record(Phase.READ, 1000L);
+    metrics.addBatchRows(10);
+
+    assertEquals(0, metrics.getCount(Phase.READ));
+    assertEquals(0, metrics.getBatchRows());
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    metrics.configure(new Configuration());
+    assertFalse(metrics.isEnabled());
+
+    metrics.record(Phase.FETCH, 1000L);
+    assertEquals(0, metrics.getCount(Phase.FETCH));
+  }
+
+  @Test
+  public void testSummary() {
+    metrics.record(Phase.COMMIT, 2000000L);
+    String summary = metrics.toString();
+    assertTrue(summary, summary.startsWith("COMMIT: 1 in 2 ms"));
+    assertFalse(summary, summary.contains("FETCH"));
+  }
+}
@@ -174,6 +174,22 @@ public void testValidatorWithMatchingRowCounts() {
     }
   }
 
+  /**
+   * Negative case where the row counts match but a split does not.
+   */
+  @Test
+  public void testValidatorWithMismatchedSplits() {
+    try {
+      Validator validator = new RowCountValidator();
+      ValidationContext context = new ValidationContext(100, 100);
+      context.setMismatchedSplitCount(2);
+      validator.validate(context);
+      fail("FailureHandler should have thrown an exception");
+    } catch (ValidationException e) {
+      assertTrue(e.getMessage().contains("2 splits did not match"));
+    }
+  }
+
   /**
    * Test the validation for a sample import, positive case.
    *